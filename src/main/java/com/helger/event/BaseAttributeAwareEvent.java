@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.aggregate.IAggregator;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Base class for events that provide named attributes.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public class BaseAttributeAwareEvent extends BaseEvent implements IAttributeAwareEvent
+{
+  private final ICommonsMap <String, Object> m_aAttributes;
+
+  public BaseAttributeAwareEvent (@Nonnull final IEventType aEventType,
+                                  @Nonnull final Map <String, ?> aAttributes)
+  {
+    super (aEventType);
+    ValueEnforcer.notNull (aAttributes, "Attributes");
+    m_aAttributes = new CommonsHashMap <> (aAttributes);
+  }
+
+  public BaseAttributeAwareEvent (@Nonnull final IEventType aEventType,
+                                  @Nonnull final IAggregator <Object, ?> aResultAggregator,
+                                  @Nonnull final Map <String, ?> aAttributes)
+  {
+    super (aEventType, aResultAggregator);
+    ValueEnforcer.notNull (aAttributes, "Attributes");
+    m_aAttributes = new CommonsHashMap <> (aAttributes);
+  }
+
+  @Nullable
+  public final Object getAttribute (@Nonnull final String sName)
+  {
+    return m_aAttributes.get (sName);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public final ICommonsMap <String, Object> getAllAttributes ()
+  {
+    return m_aAttributes.getClone ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (!super.equals (o))
+      return false;
+    final BaseAttributeAwareEvent rhs = (BaseAttributeAwareEvent) o;
+    return m_aAttributes.equals (rhs.m_aAttributes);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return HashCodeGenerator.getDerived (super.hashCode ()).append (m_aAttributes).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("Attributes", m_aAttributes).getToString ();
+  }
+}
@@ -21,9 +21,9 @@ import javax.annotation.concurrent.Immutable;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.aggregate.IAggregator;
-import com.helger.commons.collection.CollectionHelper;
 import com.helger.commons.hashcode.HashCodeGenerator;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.helper.DispatchResultAggregatorFirst;
 
 /**
  * Default implementation of the {@link IEvent} interface that only takes an
@@ -34,6 +34,9 @@ import com.helger.commons.string.ToStringGenerator;
 @Immutable
 public class BaseEvent implements IEvent
 {
+  /** The default result aggregator that uses the first result only */
+  public static final IAggregator <Object, Object> DEFAULT_RESULT_AGGREGATOR = new DispatchResultAggregatorFirst ();
+
   private final IEventType m_aEventType;
   private final IAggregator <Object, ?> m_aResultAggregator;
 
@@ -45,7 +48,7 @@ public class BaseEvent implements IEvent
    */
   public BaseEvent (@Nonnull final IEventType aEventType)
   {
-    this (aEventType, x -> CollectionHelper.getFirstElement (x));
+    this (aEventType, DEFAULT_RESULT_AGGREGATOR);
   }
 
   /**
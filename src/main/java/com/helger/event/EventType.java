@@ -16,12 +16,14 @@
  */
 package com.helger.event;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.hashcode.IHashCodeGenerator;
 import com.helger.commons.string.ToStringGenerator;
 
 /**
@@ -34,6 +36,10 @@ public class EventType implements IEventType
 {
   private final String m_sName;
 
+  // Status vars
+  private transient Integer m_aOrdinal;
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
   public EventType (@Nonnull @Nonempty final String sName)
   {
     m_sName = ValueEnforcer.notEmpty (sName, "Name");
@@ -46,6 +52,18 @@ public class EventType implements IEventType
     return m_sName;
   }
 
+  @Nonnegative
+  public int getOrdinal ()
+  {
+    Integer ret = m_aOrdinal;
+    if (ret == null)
+    {
+      ret = Integer.valueOf (EventTypeRegistry.getOrdinal (m_sName));
+      m_aOrdinal = ret;
+    }
+    return ret.intValue ();
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -60,7 +78,10 @@ public class EventType implements IEventType
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_sName).getHashCode ();
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (m_sName).getHashCode ();
+    return ret;
   }
 
   @Override
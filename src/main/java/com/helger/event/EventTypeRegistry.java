@@ -16,19 +16,27 @@
  */
 package com.helger.event;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsConcurrentHashMap;
 import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.concurrent.SimpleReadWriteLock;
 
 /**
  * Event type registry. Keeps all event types, and ensures, that no event type
- * name is used more than once.
+ * name is used more than once. Additionally it assigns a dense int ordinal to
+ * each event type name, so that observers can match event types via cheap
+ * integer comparisons instead of hash lookups.
  *
  * @author Philip Helger
  */
@@ -38,6 +46,9 @@ public final class EventTypeRegistry
   private static final SimpleReadWriteLock RW_LOCK = new SimpleReadWriteLock ();
   @GuardedBy ("RW_LOCK")
   private static final ICommonsMap <String, EventType> MAP = new CommonsHashMap <> ();
+  // Event type name to ordinal - also for types not created here
+  private static final ICommonsMap <String, Integer> ORDINALS = new CommonsConcurrentHashMap <> ();
+  private static final AtomicInteger NEXT_ORDINAL = new AtomicInteger (0);
 
   private EventTypeRegistry ()
   {}
@@ -55,10 +66,55 @@ public final class EventTypeRegistry
     });
   }
 
+  /**
+   * Get the event type with the passed name that was created via
+   * {@link #createEventType(String)}.
+   *
+   * @param sName
+   *        The event type name. May be <code>null</code>.
+   * @return <code>null</code> if no such event type was created.
+   */
+  @Nullable
+  public static IEventType getEventTypeOfName (@Nullable final String sName)
+  {
+    if (sName == null)
+      return null;
+    return RW_LOCK.readLockedGet ( () -> MAP.get (sName));
+  }
+
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsMap <String, ? extends IEventType> getAllEventTypes ()
   {
     return RW_LOCK.readLockedGet (MAP::getClone);
   }
+
+  /**
+   * Get the ordinal of the event type with the passed name. The ordinal is
+   * assigned upon the first call for a name and is stable for the lifetime of
+   * the JVM. Ordinals are dense and start at 0, but they are not persistent, so
+   * they must never be serialized.
+   *
+   * @param sName
+   *        The event type name. May neither be <code>null</code> nor empty.
+   * @return The ordinal and always &ge; 0.
+   */
+  @Nonnegative
+  public static int getOrdinal (@Nonnull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+
+    // Mapping function is invoked at most once per name
+    return ORDINALS.computeIfAbsent (sName, k -> Integer.valueOf (NEXT_ORDINAL.getAndIncrement ())).intValue ();
+  }
+
+  /**
+   * @return The number of ordinals assigned so far. All ordinals are &lt; this
+   *         value.
+   */
+  @Nonnegative
+  public static int getOrdinalCount ()
+  {
+    return NEXT_ORDINAL.get ();
+  }
 }
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Declares an event that provides named attributes, e.g. for content based
+ * filtering.
+ *
+ * @author Philip Helger
+ */
+public interface IAttributeAwareEvent extends IEvent
+{
+  /**
+   * Get the value of the attribute with the passed name.
+   *
+   * @param sName
+   *        The name of the attribute to query. May not be <code>null</code>.
+   * @return <code>null</code> if no such attribute exists.
+   */
+  @Nullable
+  Object getAttribute (@Nonnull String sName);
+}
@@ -18,6 +18,8 @@ package com.helger.event;
 
 import java.io.Serializable;
 
+import javax.annotation.Nonnegative;
+
 import com.helger.commons.annotation.MustImplementEqualsAndHashcode;
 import com.helger.commons.name.IHasName;
 
@@ -29,5 +31,18 @@ import com.helger.commons.name.IHasName;
 @MustImplementEqualsAndHashcode
 public interface IEventType extends IHasName, Serializable
 {
-  /* empty */
+  /**
+   * Get the dense int ordinal of this event type as assigned by
+   * {@link EventTypeRegistry#getOrdinal(String)}. Event types with the same
+   * name have the same ordinal. The default implementation looks it up for
+   * every call, so implementations are encouraged to cache the value in a
+   * transient field.
+   *
+   * @return The ordinal and always &ge; 0.
+   */
+  @Nonnegative
+  default int getOrdinal ()
+  {
+    return EventTypeRegistry.getOrdinal (getName ());
+  }
 }
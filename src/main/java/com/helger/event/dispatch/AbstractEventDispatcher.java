@@ -21,26 +21,57 @@ import javax.annotation.Nullable;
 
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.event.observer.exception.EventObservingExceptionCallback;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
 import com.helger.event.observer.exception.IEventObservingExceptionCallback;
 
 public abstract class AbstractEventDispatcher implements IEventDispatcher
 {
-  private final IEventObservingExceptionCallback m_aExceptionCallback;
+  /**
+   * The failure handler used by dispatchers that don't provide their own (see
+   * {@link IEventDispatcher#getFailureHandler()})
+   */
+  public static final EventObservingFailureHandler DEFAULT_FAILURE_HANDLER = new EventObservingFailureHandler (new EventObservingExceptionCallback ());
 
+  private final EventObservingFailureHandler m_aFailureHandler;
+
+  /**
+   * Constructor
+   *
+   * @param aExceptionHandler
+   *        The exception handler to use. If it is an
+   *        {@link EventObservingFailureHandler} it is used as is (and may be
+   *        shared between dispatchers, so it is not stopped by the
+   *        dispatcher), otherwise it is wrapped in a new one without a
+   *        callback thread. May be <code>null</code>.
+   */
   public AbstractEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionHandler)
   {
-    m_aExceptionCallback = aExceptionHandler != null ? aExceptionHandler : new EventObservingExceptionCallback ();
+    if (aExceptionHandler instanceof EventObservingFailureHandler)
+      m_aFailureHandler = (EventObservingFailureHandler) aExceptionHandler;
+    else
+      m_aFailureHandler = new EventObservingFailureHandler (aExceptionHandler != null ? aExceptionHandler
+                                                                                      : new EventObservingExceptionCallback ());
   }
 
   @Nonnull
   protected final IEventObservingExceptionCallback getExceptionCallback ()
   {
-    return m_aExceptionCallback;
+    return m_aFailureHandler.getExceptionCallback ();
+  }
+
+  /**
+   * @return The failure handler that counts, logs and forwards all observer
+   *         failures. Never <code>null</code>.
+   */
+  @Nonnull
+  public final EventObservingFailureHandler getFailureHandler ()
+  {
+    return m_aFailureHandler;
   }
 
   @Override
   public String toString ()
   {
-    return new ToStringGenerator (this).append ("ExceptionCallback", m_aExceptionCallback).getToString ();
+    return new ToStringGenerator (this).append ("FailureHandler", m_aFailureHandler).getToString ();
   }
 }
@@ -16,46 +16,128 @@
  */
 package com.helger.event.dispatch;
 
+import java.util.Arrays;
+import java.util.function.BiPredicate;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
 
 import com.helger.commons.ValueEnforcer;
-import com.helger.commons.annotation.ReturnsMutableObject;
-import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.CommonsLinkedHashMap;
-import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.ToStringGenerator;
 import com.helger.event.IEvent;
 import com.helger.event.observer.EEventObserverHandlerType;
 import com.helger.event.observer.IEventObserver;
+import com.helger.event.observerqueue.EventObserverQueueCopyOnWrite;
 import com.helger.event.observerqueue.IEventObserverQueue;
 
+/**
+ * The list of observers that can handle a certain event, together with the
+ * handler type of each observer. The observers are stored in parallel arrays
+ * so that the dispatchers can iterate them without any allocation.<br>
+ * Lists that are part of an event dispatch plan are reused for every dispatch
+ * until the registered observers change. Dispatchers may attach derived data
+ * (e.g. a compiled dispatch chain) to such lists via
+ * {@link #setDispatchCache(Object)}.
+ *
+ * @author Philip Helger
+ */
+@Immutable
 public final class EffectiveEventObserverList
 {
-  private final ICommonsOrderedMap <IEventObserver, EEventObserverHandlerType> m_aObservers;
+  private final IEventObserver [] m_aObservers;
+  private final EEventObserverHandlerType [] m_aHandlerTypes;
   private final int m_nHandlingObserverCountWithReturnValue;
+  private final boolean m_bReusable;
+  // Derived data of a dispatcher
+  private volatile Object m_aDispatchCache;
 
-  EffectiveEventObserverList (@Nonnull final ICommonsOrderedMap <IEventObserver, EEventObserverHandlerType> aObservers,
+  EffectiveEventObserverList (@Nonnull final IEventObserver [] aObservers,
+                              @Nonnull final EEventObserverHandlerType [] aHandlerTypes,
                               @Nonnegative final int nHandlingObserverCountWithReturnValue)
+  {
+    this (aObservers, aHandlerTypes, nHandlingObserverCountWithReturnValue, false);
+  }
+
+  EffectiveEventObserverList (@Nonnull final IEventObserver [] aObservers,
+                              @Nonnull final EEventObserverHandlerType [] aHandlerTypes,
+                              @Nonnegative final int nHandlingObserverCountWithReturnValue,
+                              final boolean bReusable)
   {
     ValueEnforcer.notNull (aObservers, "Observers");
+    ValueEnforcer.notNull (aHandlerTypes, "HandlerTypes");
+    ValueEnforcer.isTrue (aObservers.length == aHandlerTypes.length, "Internal inconsistency");
     ValueEnforcer.isGE0 (nHandlingObserverCountWithReturnValue, "HandlingObserverCountWithReturnValue");
-    ValueEnforcer.isTrue (aObservers.size () >= nHandlingObserverCountWithReturnValue, "Internal inconsistency");
+    ValueEnforcer.isTrue (aObservers.length >= nHandlingObserverCountWithReturnValue, "Internal inconsistency");
 
     m_aObservers = aObservers;
+    m_aHandlerTypes = aHandlerTypes;
     m_nHandlingObserverCountWithReturnValue = nHandlingObserverCountWithReturnValue;
+    m_bReusable = bReusable;
   }
 
   public boolean hasNoObservers ()
   {
-    return m_aObservers.isEmpty ();
+    return m_aObservers.length == 0;
+  }
+
+  @Nonnegative
+  public int getObserverCount ()
+  {
+    return m_aObservers.length;
+  }
+
+  @Nonnull
+  public IEventObserver getObserverAt (@Nonnegative final int nIndex)
+  {
+    return m_aObservers[nIndex];
+  }
+
+  /**
+   * @param nIndex
+   *        The index of the observer.
+   * @return The handler type of the observer at the specified index. Never
+   *         <code>null</code> and never
+   *         {@link EEventObserverHandlerType#CANNOT_HANDLE}.
+   */
+  @Nonnull
+  public EEventObserverHandlerType getHandlerTypeAt (@Nonnegative final int nIndex)
+  {
+    return m_aHandlerTypes[nIndex];
   }
 
+  /**
+   * @return A copy of all observers together with their handler types in
+   *         dispatch order. Never <code>null</code>. Use
+   *         {@link #getObserverAt(int)} and {@link #getHandlerTypeAt(int)} to
+   *         iterate the observers without allocation.
+   */
   @Nonnull
-  @ReturnsMutableObject ("design")
+  @ReturnsMutableCopy
   public ICommonsOrderedMap <IEventObserver, EEventObserverHandlerType> getObservers ()
   {
-    return m_aObservers;
+    final ICommonsOrderedMap <IEventObserver, EEventObserverHandlerType> ret = new CommonsLinkedHashMap <> (m_aObservers.length);
+    for (int i = 0; i < m_aObservers.length; ++i)
+      ret.put (m_aObservers[i], m_aHandlerTypes[i]);
+    return ret;
+  }
+
+  /**
+   * @return A new observer queue containing all observers of this list in
+   *         dispatch order. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public IEventObserverQueue getAsObserverQueue ()
+  {
+    final EventObserverQueueCopyOnWrite ret = new EventObserverQueueCopyOnWrite ();
+    for (final IEventObserver aObserver : m_aObservers)
+      ret.addObserver (aObserver);
+    return ret;
   }
 
   @Nonnegative
@@ -64,41 +146,95 @@ public final class EffectiveEventObserverList
     return m_nHandlingObserverCountWithReturnValue;
   }
 
+  /**
+   * @return <code>true</code> if this list is reused for all dispatches of an
+   *         event type until the registered observers change,
+   *         <code>false</code> if it was created for a single dispatch only.
+   */
+  public boolean isReusable ()
+  {
+    return m_bReusable;
+  }
+
+  /**
+   * @return The data previously attached by a dispatcher via
+   *         {@link #setDispatchCache(Object)}. May be <code>null</code>.
+   */
+  @Nullable
+  public Object getDispatchCache ()
+  {
+    return m_aDispatchCache;
+  }
+
+  /**
+   * Attach data derived from this list to this list. As the list is immutable,
+   * the data stays valid as long as the list is used. Concurrent dispatchers
+   * may overwrite each other, so the data must be recreatable at any time.
+   *
+   * @param aDispatchCache
+   *        The data to attach. May be <code>null</code>.
+   */
+  public void setDispatchCache (@Nullable final Object aDispatchCache)
+  {
+    m_aDispatchCache = aDispatchCache;
+  }
+
+  /**
+   * Get a list that only contains the observers matching the passed filter.
+   *
+   * @param aFilter
+   *        The filter to apply on each observer and its handler type. May not
+   *        be <code>null</code>.
+   * @return This object if all observers match, a new object otherwise. Never
+   *         <code>null</code>.
+   */
   @Nonnull
-  public static EffectiveEventObserverList getListOfObserversThatCanHandleTheEvent (@Nonnull final IEvent aEvent,
-                                                                                    @Nonnull final IEventObserverQueue aObserverQueue)
+  public EffectiveEventObserverList getFiltered (@Nonnull final BiPredicate <? super IEventObserver, ? super EEventObserverHandlerType> aFilter)
   {
-    // find all handling observers
-    final ICommonsOrderedMap <IEventObserver, EEventObserverHandlerType> aObservers = new CommonsLinkedHashMap <> ();
-    final ICommonsList <IEventObserver> aObserversToRemove = new CommonsArrayList <> ();
-    int nHandlingObserverCountWithReturnValue = 0;
+    ValueEnforcer.notNull (aFilter, "Filter");
 
-    // For all
-    for (final IEventObserver aObserver : aObserverQueue.getAllObservers ())
-    {
-      // Find the one matching our event type
-      final EEventObserverHandlerType eHandleType = aObserver.canHandleEvent (aEvent);
-      if (eHandleType.isHandling ())
+    final int nMax = m_aObservers.length;
+    final IEventObserver [] aObservers = new IEventObserver [nMax];
+    final EEventObserverHandlerType [] aHandlerTypes = new EEventObserverHandlerType [nMax];
+    int nCount = 0;
+    int nHandlingObserverCountWithReturnValue = 0;
+    for (int i = 0; i < nMax; ++i)
+      if (aFilter.test (m_aObservers[i], m_aHandlerTypes[i]))
       {
-        aObservers.put (aObserver, eHandleType);
-        if (eHandleType.hasReturnValue ())
+        aObservers[nCount] = m_aObservers[i];
+        aHandlerTypes[nCount] = m_aHandlerTypes[i];
+        nCount++;
+        if (m_aHandlerTypes[i].hasReturnValue ())
           nHandlingObserverCountWithReturnValue++;
-
-        // "Only once" observer?
-        if (aObserver.isOnlyOnce ())
-          aObserversToRemove.add (aObserver);
       }
-    }
-
-    // remove all "only once" observers
-    for (final IEventObserver aObserver : aObserversToRemove)
-      if (aObserverQueue.removeObserver (aObserver).isUnchanged ())
-        throw new IllegalStateException ("Failed to remove only-omce observer " +
-                                         aObserver +
-                                         " from " +
-                                         aObserverQueue);
-
-    // return number of handling + handling observer map
-    return new EffectiveEventObserverList (aObservers, nHandlingObserverCountWithReturnValue);
+    if (nCount == nMax)
+      return this;
+    return new EffectiveEventObserverList (Arrays.copyOf (aObservers, nCount),
+                                           Arrays.copyOf (aHandlerTypes, nCount),
+                                           nHandlingObserverCountWithReturnValue);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Observers", m_aObservers)
+                                       .append ("HandlerTypes", m_aHandlerTypes)
+                                       .append ("HandlingObserverCountWithReturnValue",
+                                                m_nHandlingObserverCountWithReturnValue)
+                                       .append ("Reusable", m_bReusable)
+                                       .getToString ();
+  }
+
+  @Nonnull
+  public static EffectiveEventObserverList getListOfObserversThatCanHandleTheEvent (@Nonnull final IEvent aEvent,
+                                                                                    @Nonnull final IEventObserverQueue aObserverQueue)
+  {
+    // For all - iterate the snapshot directly
+    final IEventObserver [] aCandidates = aObserverQueue.getObserverSnapshot (aEvent.getEventType ());
+
+    // "Only once" observer? Removing it is the atomic claim, so that only one
+    // concurrent dispatch wins it
+    return EventDispatchPlan.create (aEvent, aCandidates, 0, false)
+                            .getEffectiveObserverList (aEvent, x -> aObserverQueue.removeObserver (x).isChanged ());
   }
 }
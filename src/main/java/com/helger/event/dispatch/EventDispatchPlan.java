@@ -0,0 +1,368 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.filter.IEventFilter;
+import com.helger.event.observer.EEventObserverHandlerType;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * The resolved dispatch information for a single event type. All observers
+ * that declare {@link IEventObserver#isHandlingDependingOnEventTypeOnly()} are
+ * resolved once when the plan is created. Only the remaining observers need to
+ * be queried for each event. The content filters of all observers (see
+ * {@link IEventObserver#getAllEventFilters()}) are collected into a shared
+ * index, so that equal filters are evaluated at most once per event. A plan is
+ * tagged with the observer queue version it was created for (see
+ * {@link com.helger.event.observerqueue.IEventObserverQueue#getVersion()}), so
+ * that the owner can detect outdated plans cheaply.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class EventDispatchPlan
+{
+  private final IEventType m_aEventType;
+  private final long m_nVersion;
+  // All candidate observers in dispatch order
+  private final IEventObserver [] m_aObservers;
+  // null entries need to be resolved per event
+  private final EEventObserverHandlerType [] m_aHandlerTypes;
+  private final boolean m_bHasOnlyOnceObservers;
+  // All distinct filters of all observers
+  private final IEventFilter [] m_aFilters;
+  // Indices into m_aFilters per observer - null entries for unfiltered
+  private final int [][] m_aFilterIndices;
+  // Only set if no observer needs to be resolved, filtered or claimed per event
+  private final EffectiveEventObserverList m_aStaticList;
+  // Same as m_aStaticList but without the observers having a return value
+  private final EffectiveEventObserverList m_aStaticListWithoutReturnValue;
+
+  private EventDispatchPlan (@Nonnull final IEventType aEventType,
+                             final long nVersion,
+                             @Nonnull final IEventObserver [] aObservers,
+                             @Nonnull final EEventObserverHandlerType [] aHandlerTypes,
+                             final boolean bHasOnlyOnceObservers,
+                             @Nonnull final IEventFilter [] aFilters,
+                             @Nonnull final int [][] aFilterIndices,
+                             @Nullable final EffectiveEventObserverList aStaticList,
+                             @Nullable final EffectiveEventObserverList aStaticListWithoutReturnValue)
+  {
+    m_aEventType = aEventType;
+    m_nVersion = nVersion;
+    m_aObservers = aObservers;
+    m_aHandlerTypes = aHandlerTypes;
+    m_bHasOnlyOnceObservers = bHasOnlyOnceObservers;
+    m_aFilters = aFilters;
+    m_aFilterIndices = aFilterIndices;
+    m_aStaticList = aStaticList;
+    m_aStaticListWithoutReturnValue = aStaticListWithoutReturnValue;
+  }
+
+  /**
+   * @return The event type this plan was created for. Never <code>null</code>.
+   */
+  @Nonnull
+  public IEventType getEventType ()
+  {
+    return m_aEventType;
+  }
+
+  /**
+   * @return The observer queue version this plan was created for.
+   */
+  public long getVersion ()
+  {
+    return m_nVersion;
+  }
+
+  /**
+   * @return <code>true</code> if at least one observer of this plan is an
+   *         "only once" observer, <code>false</code> otherwise.
+   */
+  public boolean hasOnlyOnceObservers ()
+  {
+    return m_bHasOnlyOnceObservers;
+  }
+
+  /**
+   * @return The number of distinct content filters of all observers of this
+   *         plan.
+   */
+  public int getDistinctFilterCount ()
+  {
+    return m_aFilters.length;
+  }
+
+  /**
+   * @return <code>true</code> if the effective observer list is the same for
+   *         all events of the type, <code>false</code> if at least one observer
+   *         needs to be queried, filtered or claimed per event.
+   */
+  public boolean isStatic ()
+  {
+    return m_aStaticList != null;
+  }
+
+  private static final byte FILTER_UNKNOWN = 0;
+  private static final byte FILTER_MATCH = 1;
+  private static final byte FILTER_NO_MATCH = 2;
+
+  private boolean _matchesAllFilters (@Nonnull final IEvent aEvent,
+                                      @Nonnull final int [] aFilterIndices,
+                                      @Nonnull final byte [] aFilterResults)
+  {
+    for (final int nFilterIndex : aFilterIndices)
+    {
+      byte nResult = aFilterResults[nFilterIndex];
+      if (nResult == FILTER_UNKNOWN)
+      {
+        // Evaluate each distinct filter only once per event
+        nResult = m_aFilters[nFilterIndex].matches (aEvent) ? FILTER_MATCH : FILTER_NO_MATCH;
+        aFilterResults[nFilterIndex] = nResult;
+      }
+      if (nResult == FILTER_NO_MATCH)
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Get the observers that can handle the passed event. Observers with content
+   * filters are only contained if the event matches all of their filters. This
+   * method does not modify any observer queue.
+   *
+   * @param aEvent
+   *        The event to be dispatched. Must have the event type of this plan.
+   *        May not be <code>null</code>.
+   * @param aOnlyOnceClaimer
+   *        The predicate that is invoked for each handling "only once"
+   *        observer. It must return <code>true</code> for exactly one caller
+   *        per observer registration. Observers for which <code>false</code>
+   *        is returned are not part of the result. May not be
+   *        <code>null</code>.
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  public EffectiveEventObserverList getEffectiveObserverList (@Nonnull final IEvent aEvent,
+                                                              @Nonnull final Predicate <? super IEventObserver> aOnlyOnceClaimer)
+  {
+    return getEffectiveObserverList (aEvent, aOnlyOnceClaimer, true);
+  }
+
+  /**
+   * Get the observers that can handle the passed event. Observers with content
+   * filters are only contained if the event matches all of their filters. This
+   * method does not modify any observer queue.
+   *
+   * @param aEvent
+   *        The event to be dispatched. Must have the event type of this plan.
+   *        May not be <code>null</code>.
+   * @param aOnlyOnceClaimer
+   *        The predicate that is invoked for each handling "only once"
+   *        observer. It must return <code>true</code> for exactly one caller
+   *        per observer registration. Observers for which <code>false</code>
+   *        is returned are not part of the result. May not be
+   *        <code>null</code>.
+   * @param bIncludeReturnValueObservers
+   *        <code>true</code> to include observers that handle the event with a
+   *        return value, <code>false</code> to exclude them. Excluded "only
+   *        once" observers are not claimed.
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  public EffectiveEventObserverList getEffectiveObserverList (@Nonnull final IEvent aEvent,
+                                                              @Nonnull final Predicate <? super IEventObserver> aOnlyOnceClaimer,
+                                                              final boolean bIncludeReturnValueObservers)
+  {
+    if (m_aStaticList != null)
+      return bIncludeReturnValueObservers ? m_aStaticList : m_aStaticListWithoutReturnValue;
+
+    // Resolve the dynamic observers
+    final int nMax = m_aObservers.length;
+    final IEventObserver [] aObservers = new IEventObserver [nMax];
+    final EEventObserverHandlerType [] aHandlerTypes = new EEventObserverHandlerType [nMax];
+    int nCount = 0;
+    int nHandlingObserverCountWithReturnValue = 0;
+    final byte [] aFilterResults = m_aFilters.length == 0 ? null : new byte [m_aFilters.length];
+    for (int i = 0; i < nMax; ++i)
+    {
+      final IEventObserver aObserver = m_aObservers[i];
+      EEventObserverHandlerType eHandleType = m_aHandlerTypes[i];
+      if (eHandleType == null)
+        eHandleType = aObserver.canHandleEvent (aEvent);
+      if (eHandleType.isHandling () && (bIncludeReturnValueObservers || !eHandleType.hasReturnValue ()))
+      {
+        // Check the content filters before claiming
+        final int [] aFilterIndices = m_aFilterIndices[i];
+        if (aFilterIndices != null && !_matchesAllFilters (aEvent, aFilterIndices, aFilterResults))
+          continue;
+
+        // Only one trigger may win an "only once" observer
+        if (aObserver.isOnlyOnce () && !aOnlyOnceClaimer.test (aObserver))
+          continue;
+
+        aObservers[nCount] = aObserver;
+        aHandlerTypes[nCount] = eHandleType;
+        nCount++;
+        if (eHandleType.hasReturnValue ())
+          nHandlingObserverCountWithReturnValue++;
+      }
+    }
+    return new EffectiveEventObserverList (Arrays.copyOf (aObservers, nCount),
+                                           Arrays.copyOf (aHandlerTypes, nCount),
+                                           nHandlingObserverCountWithReturnValue);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("EventType", m_aEventType)
+                                       .append ("Version", m_nVersion)
+                                       .append ("Observers", m_aObservers)
+                                       .append ("HandlerTypes", m_aHandlerTypes)
+                                       .append ("HasOnlyOnceObservers", m_bHasOnlyOnceObservers)
+                                       .append ("Filters", m_aFilters)
+                                       .append ("Static", isStatic ())
+                                       .getToString ();
+  }
+
+  /**
+   * Create a new dispatch plan.
+   *
+   * @param aEvent
+   *        The event that triggered the creation of the plan. It is used to
+   *        resolve all observers that only depend on the event type. May not be
+   *        <code>null</code>.
+   * @param aCandidates
+   *        The candidate observers as retrieved from the observer queue. The
+   *        array is not modified. May not be <code>null</code>.
+   * @param nVersion
+   *        The observer queue version the candidates belong to.
+   * @param bCached
+   *        <code>true</code> if the plan is cached and used for more than one
+   *        dispatch, <code>false</code> if it is used for a single dispatch
+   *        only. Only the static lists of cached plans are marked as reusable
+   *        (see {@link EffectiveEventObserverList#isReusable()}), so that
+   *        dispatchers don't attach derived data to lists that are dropped
+   *        afterwards.
+   * @return The new plan and never <code>null</code>.
+   */
+  @Nonnull
+  public static EventDispatchPlan create (@Nonnull final IEvent aEvent,
+                                          @Nonnull final IEventObserver [] aCandidates,
+                                          final long nVersion,
+                                          final boolean bCached)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aCandidates, "Candidates");
+
+    final int nMax = aCandidates.length;
+    final IEventObserver [] aObservers = new IEventObserver [nMax];
+    final EEventObserverHandlerType [] aHandlerTypes = new EEventObserverHandlerType [nMax];
+    final int [][] aFilterIndices = new int [nMax] [];
+    final ICommonsOrderedMap <IEventFilter, Integer> aFilterMap = new CommonsLinkedHashMap <> ();
+    int nCount = 0;
+    int nHandlingObserverCountWithReturnValue = 0;
+    boolean bHasDynamic = false;
+    boolean bHasOnlyOnce = false;
+    for (final IEventObserver aObserver : aCandidates)
+    {
+      if (aObserver.isHandlingDependingOnEventTypeOnly ())
+      {
+        // Resolve once for all events of this type
+        final EEventObserverHandlerType eHandleType = aObserver.canHandleEvent (aEvent);
+        if (!eHandleType.isHandling ())
+          continue;
+        aHandlerTypes[nCount] = eHandleType;
+        if (eHandleType.hasReturnValue ())
+          nHandlingObserverCountWithReturnValue++;
+      }
+      else
+      {
+        // Handler type stays null
+        bHasDynamic = true;
+      }
+
+      // Index the filters, so that equal filters share a slot
+      final ICommonsList <IEventFilter> aFilters = aObserver.getAllEventFilters ();
+      if (aFilters != null && aFilters.isNotEmpty ())
+      {
+        final int [] aIndices = new int [aFilters.size ()];
+        int nIdx = 0;
+        for (final IEventFilter aFilter : aFilters)
+          aIndices[nIdx++] = aFilterMap.computeIfAbsent (aFilter, k -> Integer.valueOf (aFilterMap.size ())).intValue ();
+        aFilterIndices[nCount] = aIndices;
+      }
+
+      aObservers[nCount] = aObserver;
+      nCount++;
+      if (aObserver.isOnlyOnce ())
+        bHasOnlyOnce = true;
+    }
+
+    final IEventObserver [] aFinalObservers = Arrays.copyOf (aObservers, nCount);
+    final EEventObserverHandlerType [] aFinalHandlerTypes = Arrays.copyOf (aHandlerTypes, nCount);
+    final IEventFilter [] aFinalFilters = aFilterMap.keySet ().toArray (new IEventFilter [aFilterMap.size ()]);
+    final EffectiveEventObserverList aStaticList = bHasDynamic || bHasOnlyOnce || aFinalFilters.length > 0 ? null
+                                                               : new EffectiveEventObserverList (aFinalObservers,
+                                                                                                 aFinalHandlerTypes,
+                                                                                                 nHandlingObserverCountWithReturnValue,
+                                                                                                 bCached);
+    EffectiveEventObserverList aStaticListWithoutReturnValue = aStaticList;
+    if (aStaticList != null && nHandlingObserverCountWithReturnValue > 0)
+    {
+      final IEventObserver [] aNoReturnObservers = new IEventObserver [nCount];
+      final EEventObserverHandlerType [] aNoReturnHandlerTypes = new EEventObserverHandlerType [nCount];
+      int nNoReturnCount = 0;
+      for (int i = 0; i < nCount; ++i)
+        if (!aFinalHandlerTypes[i].hasReturnValue ())
+        {
+          aNoReturnObservers[nNoReturnCount] = aFinalObservers[i];
+          aNoReturnHandlerTypes[nNoReturnCount] = aFinalHandlerTypes[i];
+          nNoReturnCount++;
+        }
+      aStaticListWithoutReturnValue = new EffectiveEventObserverList (Arrays.copyOf (aNoReturnObservers, nNoReturnCount),
+                                                                      Arrays.copyOf (aNoReturnHandlerTypes, nNoReturnCount),
+                                                                      0,
+                                                                      bCached);
+    }
+    return new EventDispatchPlan (aEvent.getEventType (),
+                                  nVersion,
+                                  aFinalObservers,
+                                  aFinalHandlerTypes,
+                                  bHasOnlyOnce,
+                                  aFinalFilters,
+                                  Arrays.copyOf (aFilterIndices, nCount),
+                                  aStaticList,
+                                  aStaticListWithoutReturnValue);
+  }
+}
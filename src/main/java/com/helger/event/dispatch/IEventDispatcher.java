@@ -22,6 +22,7 @@ import javax.annotation.Nonnull;
 
 import com.helger.commons.state.EChange;
 import com.helger.commons.state.IStoppable;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
 
 /**
  * Base interface for sync and async event dispatcher
@@ -36,4 +37,14 @@ public interface IEventDispatcher extends IStoppable, Serializable
     // Nothing to do in here
     return EChange.UNCHANGED;
   }
+
+  /**
+   * @return The failure handler to be used for all observer exceptions. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  default EventObservingFailureHandler getFailureHandler ()
+  {
+    return AbstractEventDispatcher.DEFAULT_FAILURE_HANDLER;
+  }
 }
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.event.IEvent;
+import com.helger.event.observer.IEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionWrapper;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
+
+/**
+ * The asynchronous invocation of a single observer for a single event. It is
+ * shared by the asynchronous dispatchers, so that exceptions and results are
+ * handled identically. It is also the result consumer passed to the observer,
+ * forwarding the result to the slot of the observer in the result collector.
+ *
+ * @author Philip Helger
+ */
+final class AsyncObserverInvocation implements Runnable, Consumer <Object>
+{
+  /** The slot to use for observers without a return value */
+  static final int NO_SLOT = -1;
+
+  private final IEvent m_aEvent;
+  private final IEventObserver m_aObserver;
+  private final AsynchronousEventResultCollector m_aCollector;
+  private final int m_nSlot;
+  private final EventObservingFailureHandler m_aFailureHandler;
+
+  AsyncObserverInvocation (@Nonnull final IEvent aEvent,
+                           @Nonnull final IEventObserver aObserver,
+                           @Nonnull final AsynchronousEventResultCollector aCollector,
+                           final int nSlot,
+                           @Nonnull final EventObservingFailureHandler aFailureHandler)
+  {
+    m_aEvent = aEvent;
+    m_aObserver = aObserver;
+    m_aCollector = aCollector;
+    m_nSlot = nSlot;
+    m_aFailureHandler = aFailureHandler;
+  }
+
+  @Nonnull
+  IEvent getEvent ()
+  {
+    return m_aEvent;
+  }
+
+  @Nonnull
+  IEventObserver getObserver ()
+  {
+    return m_aObserver;
+  }
+
+  public void accept (@Nullable final Object aObserverResult)
+  {
+    m_aCollector.accept (m_nSlot, aObserverResult);
+  }
+
+  /**
+   * Complete this invocation without invoking the observer. Observers with a
+   * return value get an exception wrapper as result, so that the overall
+   * result is still determined.
+   *
+   * @param aCause
+   *        The reason for the rejection. May not be <code>null</code>.
+   */
+  void reject (@Nonnull final Throwable aCause)
+  {
+    if (m_nSlot != NO_SLOT)
+      m_aCollector.accept (m_nSlot, new EventObservingExceptionWrapper (m_aObserver, m_aEvent, aCause));
+    else
+      m_aCollector.onObserverWithoutReturnValueDone ();
+  }
+
+  public void run ()
+  {
+    final boolean bHasReturnValue = m_nSlot != NO_SLOT;
+    if (bHasReturnValue && m_aCollector.isResultFinal ())
+    {
+      // The aggregated result is already decided
+      return;
+    }
+
+    try
+    {
+      // main dispatch
+      m_aObserver.onEvent (m_aEvent, bHasReturnValue ? this : null);
+    }
+    catch (final Throwable t)
+    {
+      m_aFailureHandler.onObserverFailure (m_aObserver, m_aEvent, t);
+
+      // Notify on exception
+      if (bHasReturnValue)
+      {
+        // Put exception in result consumer
+        m_aCollector.accept (m_nSlot, new EventObservingExceptionWrapper (m_aObserver, m_aEvent, t));
+      }
+    }
+    finally
+    {
+      if (!bHasReturnValue)
+        m_aCollector.onObserverWithoutReturnValueDone ();
+    }
+  }
+}
@@ -18,68 +18,213 @@ package com.helger.event.dispatch.async;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.helger.commons.exception.mock.IMockException;
 import com.helger.commons.state.ESuccess;
 import com.helger.event.IEvent;
 import com.helger.event.observer.IEventObserver;
-import com.helger.event.observer.exception.EventObservingExceptionWrapper;
-import com.helger.event.observer.exception.IEventObservingExceptionCallback;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
 
 /**
  * This thread class is instantiated once in {@link AsynchronousEventDispatcher}
- * and manages the asynchronous dispatching of the events.
+ * and manages the asynchronous dispatching of the events. The queue may be
+ * bounded, in which case the {@link EAsyncQueueOverflowPolicy} determines what
+ * happens if it is full.
  *
  * @author Philip Helger
  */
 final class AsyncQueueDispatcherThread extends Thread
 {
-  private static final class EventItem
+  private static final Logger LOGGER = LoggerFactory.getLogger (AsyncQueueDispatcherThread.class);
+  private final BlockingQueue <AsyncObserverInvocation> m_aEventQueue;
+  private final int m_nCapacity;
+  private final EAsyncQueueOverflowPolicy m_ePolicy;
+  private final long m_nBlockTimeoutMillis;
+  private final IAsyncQueueRejectionCallback m_aRejectionCallback;
+  private final EventObservingFailureHandler m_aFailureHandler;
+  private final AtomicInteger m_aHighWaterMark = new AtomicInteger (0);
+  private final LongAdder m_aRejectedCount = new LongAdder ();
+  private final LongAdder m_aCallerRunsCount = new LongAdder ();
+
+  public AsyncQueueDispatcherThread (@Nonnull final EventObservingFailureHandler aFailureHandler,
+                                     @Nonnegative final int nCapacity,
+                                     @Nonnull final EAsyncQueueOverflowPolicy ePolicy,
+                                     final long nBlockTimeoutMillis,
+                                     @Nullable final IAsyncQueueRejectionCallback aRejectionCallback)
+  {
+    super ("async-queue-dispatcher-thread");
+    m_aEventQueue = new LinkedBlockingQueue <> (nCapacity);
+    m_nCapacity = nCapacity;
+    m_ePolicy = ePolicy;
+    m_nBlockTimeoutMillis = nBlockTimeoutMillis;
+    m_aRejectionCallback = aRejectionCallback;
+    m_aFailureHandler = aFailureHandler;
+  }
+
+  @Nonnegative
+  public int getCapacity ()
+  {
+    return m_nCapacity;
+  }
+
+  @Nonnull
+  public EAsyncQueueOverflowPolicy getOverflowPolicy ()
+  {
+    return m_ePolicy;
+  }
+
+  @Nonnegative
+  public int getQueueDepth ()
+  {
+    return m_aEventQueue.size ();
+  }
+
+  @Nonnegative
+  public int getQueueHighWaterMark ()
+  {
+    return m_aHighWaterMark.get ();
+  }
+
+  @Nonnegative
+  public long getRejectedCount ()
   {
-    private final IEvent m_aEvent;
-    private final IEventObserver m_aEventObserver;
-    private final AsynchronousEventResultCollectorThread m_aCollector;
+    return m_aRejectedCount.sum ();
+  }
+
+  @Nonnegative
+  public long getCallerRunsCount ()
+  {
+    return m_aCallerRunsCount.sum ();
+  }
 
-    public EventItem (@Nonnull final IEvent aEvent,
-                      @Nonnull final IEventObserver aEventObserver,
-                      @Nullable final AsynchronousEventResultCollectorThread aCollector)
+  private void _onQueued ()
+  {
+    m_aHighWaterMark.accumulateAndGet (m_aEventQueue.size (), Math::max);
+  }
+
+  void reject (@Nonnull final AsyncObserverInvocation aInvocation)
+  {
+    m_aRejectedCount.increment ();
+    if (m_aRejectionCallback != null)
     {
-      m_aEvent = aEvent;
-      m_aEventObserver = aEventObserver;
-      m_aCollector = aCollector;
+      try
+      {
+        m_aRejectionCallback.onRejected (aInvocation.getEvent (), aInvocation.getObserver (), m_ePolicy);
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.error ("Failed to invoke rejection callback", ex);
+      }
     }
+    aInvocation.reject (new RejectedExecutionException ("The asynchronous event queue is full (policy " +
+                                                        m_ePolicy.getID () +
+                                                        ")"));
   }
 
-  private static final Logger LOGGER = LoggerFactory.getLogger (AsyncQueueDispatcherThread.class);
-  private final BlockingQueue <EventItem> m_aEventQueue = new LinkedBlockingQueue <> ();
-  private final IEventObservingExceptionCallback m_aExceptionCallback;
+  @Nonnull
+  public AsyncObserverInvocation createInvocation (@Nonnull final IEvent aEvent,
+                                                   @Nonnull final IEventObserver aObserver,
+                                                   @Nonnull final AsynchronousEventResultCollector aResultCollector,
+                                                   final int nSlot)
+  {
+    return new AsyncObserverInvocation (aEvent, aObserver, aResultCollector, nSlot, m_aFailureHandler);
+  }
 
-  public AsyncQueueDispatcherThread (@Nonnull final IEventObservingExceptionCallback aExceptionCallback)
+  /**
+   * Add an observer invocation to the queue if there is space left. This never
+   * blocks and never executes the invocation, so it is safe to call while
+   * holding a lock.
+   *
+   * @param aInvocation
+   *        The invocation to queue. May not be <code>null</code>.
+   * @return <code>true</code> if the invocation was queued, <code>false</code>
+   *         if the queue is full.
+   */
+  public boolean tryAddToQueue (@Nonnull final AsyncObserverInvocation aInvocation)
   {
-    super ("async-queue-dispatcher-thread");
-    m_aExceptionCallback = aExceptionCallback;
+    if (!m_aEventQueue.offer (aInvocation))
+      return false;
+    _onQueued ();
+    return true;
   }
 
+  /**
+   * Add an observer invocation to the queue, applying the overflow policy if
+   * the queue is full. Depending on the policy this may block or execute the
+   * invocation in the calling thread, so it must not be called while holding a
+   * lock.
+   *
+   * @param aInvocation
+   *        The invocation to queue. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} if the invocation was queued or executed,
+   *         {@link ESuccess#FAILURE} if it was rejected.
+   * @throws RejectedExecutionException
+   *         if the invocation was rejected with policy
+   *         {@link EAsyncQueueOverflowPolicy#FAIL}
+   */
   @Nonnull
-  public ESuccess addEventToQueue (@Nonnull final IEvent aEvent,
-                                   @Nonnull final IEventObserver aObserver,
-                                   @Nullable final AsynchronousEventResultCollectorThread aResultCollector)
+  public ESuccess addToQueue (@Nonnull final AsyncObserverInvocation aInvocation)
   {
-    try
-    {
-      m_aEventQueue.put (new EventItem (aEvent, aObserver, aResultCollector));
+    if (tryAddToQueue (aInvocation))
       return ESuccess.SUCCESS;
-    }
-    catch (final InterruptedException ex)
+
+    // Queue is full
+    switch (m_ePolicy)
     {
-      LOGGER.error ("Failed to add event to queue", ex);
-      return ESuccess.FAILURE;
+      case BLOCK:
+        if (Thread.currentThread () == this)
+        {
+          // An observer triggered another asynchronous event - this thread
+          // would wait for itself to make space, so run it directly instead
+          m_aCallerRunsCount.increment ();
+          aInvocation.run ();
+          return ESuccess.SUCCESS;
+        }
+        try
+        {
+          if (m_aEventQueue.offer (aInvocation, m_nBlockTimeoutMillis, TimeUnit.MILLISECONDS))
+          {
+            _onQueued ();
+            return ESuccess.SUCCESS;
+          }
+        }
+        catch (final InterruptedException ex)
+        {
+          LOGGER.error ("Interrupted while waiting for space in the event queue", ex);
+          Thread.currentThread ().interrupt ();
+        }
+        reject (aInvocation);
+        return ESuccess.FAILURE;
+      case DROP_OLDEST:
+        while (!m_aEventQueue.offer (aInvocation))
+        {
+          final AsyncObserverInvocation aOldest = m_aEventQueue.poll ();
+          if (aOldest != null)
+            reject (aOldest);
+        }
+        _onQueued ();
+        return ESuccess.SUCCESS;
+      case CALLER_RUNS:
+        m_aCallerRunsCount.increment ();
+        aInvocation.run ();
+        return ESuccess.SUCCESS;
+      case FAIL:
+        reject (aInvocation);
+        throw new RejectedExecutionException ("The asynchronous event queue is full");
+      case DROP_NEWEST:
+      default:
+        reject (aInvocation);
+        return ESuccess.FAILURE;
     }
   }
 
@@ -90,35 +235,8 @@ final class AsyncQueueDispatcherThread extends Thread
     {
       while (!isInterrupted ())
       {
-        // get current element
-        final EventItem aItem = m_aEventQueue.take ();
-        final IEvent aEvent = aItem.m_aEvent;
-        final IEventObserver aEventObserver = aItem.m_aEventObserver;
-        final AsynchronousEventResultCollectorThread aCollector = aItem.m_aCollector;
-
-        try
-        {
-          // main dispatch
-          aEventObserver.onEvent (aEvent, aCollector);
-        }
-        catch (final Throwable t)
-        {
-          m_aExceptionCallback.handleObservingException (t);
-          LOGGER.error ("Failed to asynchronously notify " +
-                           aEventObserver +
-                           " on " +
-                           aEvent +
-                           " because of " +
-                           t.getClass ().getName (),
-                           t instanceof IMockException ? null : t);
-
-          // Notify on exception
-          if (aCollector != null)
-          {
-            // Put exception in result consumer
-            aCollector.accept (new EventObservingExceptionWrapper (aEventObserver, aEvent, t));
-          }
-        }
+        // get and execute current element
+        m_aEventQueue.take ().run ();
       }
     }
     catch (final InterruptedException ex)
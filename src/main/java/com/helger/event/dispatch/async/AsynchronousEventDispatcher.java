@@ -16,75 +16,222 @@
  */
 package com.helger.event.dispatch.async;
 
-import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.concurrent.SimpleLock;
 import com.helger.commons.state.EChange;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.event.IEvent;
 import com.helger.event.dispatch.AbstractEventDispatcher;
 import com.helger.event.dispatch.EffectiveEventObserverList;
-import com.helger.event.observer.EEventObserverHandlerType;
-import com.helger.event.observer.IEventObserver;
 import com.helger.event.observer.exception.IEventObservingExceptionCallback;
 import com.helger.event.observerqueue.IEventObserverQueue;
 
 /**
- * Dispatch events based on a {@link java.util.concurrent.BlockingQueue}.
+ * Dispatch events based on a {@link java.util.concurrent.BlockingQueue}. By
+ * default the queue is unbounded. A bounded queue can be configured together
+ * with an {@link EAsyncQueueOverflowPolicy} to push back on producers if the
+ * observers fall behind.
  *
  * @author Philip Helger
  */
 public class AsynchronousEventDispatcher extends AbstractEventDispatcher implements IAsynchronousEventDispatcher
 {
+  /** The capacity of an unbounded queue */
+  public static final int UNBOUNDED_CAPACITY = Integer.MAX_VALUE;
+
   private final SimpleLock m_aLock = new SimpleLock ();
   private final AsyncQueueDispatcherThread m_aQueueThread;
 
+  /**
+   * Constructor using an unbounded queue.
+   *
+   * @param aExceptionCallback
+   *        The exception callback to use. May be <code>null</code>.
+   */
   public AsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback)
+  {
+    this (aExceptionCallback, UNBOUNDED_CAPACITY, EAsyncQueueOverflowPolicy.DEFAULT, Long.MAX_VALUE, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aExceptionCallback
+   *        The exception callback to use. May be <code>null</code>.
+   * @param nCapacity
+   *        The maximum number of queued observer invocations. Must be &gt; 0.
+   *        Use {@link #UNBOUNDED_CAPACITY} for an unbounded queue.
+   * @param ePolicy
+   *        The policy to apply if the queue is full. May not be
+   *        <code>null</code>.
+   * @param nBlockTimeoutMillis
+   *        The maximum time to wait for space in the queue with policy
+   *        {@link EAsyncQueueOverflowPolicy#BLOCK}. Must be &ge; 0.
+   * @param aRejectionCallback
+   *        The optional callback to be invoked for each rejected observer
+   *        invocation. May be <code>null</code>.
+   */
+  public AsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback,
+                                      @Nonnegative final int nCapacity,
+                                      @Nonnull final EAsyncQueueOverflowPolicy ePolicy,
+                                      @Nonnegative final long nBlockTimeoutMillis,
+                                      @Nullable final IAsyncQueueRejectionCallback aRejectionCallback)
   {
     super (aExceptionCallback);
-    m_aQueueThread = new AsyncQueueDispatcherThread (getExceptionCallback ());
+    ValueEnforcer.isGT0 (nCapacity, "Capacity");
+    ValueEnforcer.notNull (ePolicy, "Policy");
+    ValueEnforcer.isGE0 (nBlockTimeoutMillis, "BlockTimeoutMillis");
+
+    m_aQueueThread = new AsyncQueueDispatcherThread (getFailureHandler (),
+                                                     nCapacity,
+                                                     ePolicy,
+                                                     nBlockTimeoutMillis,
+                                                     aRejectionCallback);
     m_aQueueThread.start ();
   }
 
+  /**
+   * @return The maximum number of queued observer invocations.
+   *         {@link #UNBOUNDED_CAPACITY} for an unbounded queue.
+   */
+  @Nonnegative
+  public int getQueueCapacity ()
+  {
+    return m_aQueueThread.getCapacity ();
+  }
+
+  /**
+   * @return The policy applied if the queue is full. Never <code>null</code>.
+   */
+  @Nonnull
+  public EAsyncQueueOverflowPolicy getOverflowPolicy ()
+  {
+    return m_aQueueThread.getOverflowPolicy ();
+  }
+
+  /**
+   * @return The number of currently queued observer invocations.
+   */
+  @Nonnegative
+  public int getQueueDepth ()
+  {
+    return m_aQueueThread.getQueueDepth ();
+  }
+
+  /**
+   * @return The maximum number of queued observer invocations so far.
+   */
+  @Nonnegative
+  public int getQueueHighWaterMark ()
+  {
+    return m_aQueueThread.getQueueHighWaterMark ();
+  }
+
+  /**
+   * @return The number of observer invocations rejected because the queue was
+   *         full.
+   */
+  @Nonnegative
+  public long getRejectedCount ()
+  {
+    return m_aQueueThread.getRejectedCount ();
+  }
+
+  /**
+   * @return The number of observer invocations executed in the triggering
+   *         thread because of {@link EAsyncQueueOverflowPolicy#CALLER_RUNS}.
+   */
+  @Nonnegative
+  public long getCallerRunsCount ()
+  {
+    return m_aQueueThread.getCallerRunsCount ();
+  }
+
   public void dispatch (@Nonnull final IEvent aEvent,
                         @Nonnull final IEventObserverQueue aObservers,
-                        @Nullable final Consumer <Object> aOverallResultConsumer)
+                        @Nonnull final Consumer <Object> aOverallResultConsumer)
+  {
+    // find all observers that can handle the passed event
+    dispatch (aEvent,
+              EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent, aObservers),
+              aOverallResultConsumer);
+  }
+
+  public void dispatch (@Nonnull final IEvent aEvent,
+                        @Nonnull final EffectiveEventObserverList aHandlingInfo,
+                        @Nonnull final Consumer <Object> aOverallResultConsumer)
   {
     ValueEnforcer.notNull (aEvent, "Event");
-    ValueEnforcer.notNull (aObservers, "Observers");
+    ValueEnforcer.notNull (aHandlingInfo, "HandlingInfo");
     ValueEnforcer.notNull (aOverallResultConsumer, "OverallResultConsumer");
 
-    // find all observers that can handle the passed event
-    final EffectiveEventObserverList aHandlingInfo = EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent,
-                                                                                                                         aObservers);
     if (aHandlingInfo.hasNoObservers ())
+    {
+      // No observer -> no result
+      aOverallResultConsumer.accept (null);
       return;
+    }
+
+    // At least one handler was found - the collector also tracks the "void"
+    // observers, so that the overall result consumer is always invoked unless
+    // dispatching fails with an exception
+    final AsynchronousEventResultCollector aResultCollector = new AsynchronousEventResultCollector (aHandlingInfo.getObserverCount (),
+                                                                                                    aHandlingInfo.getHandlingObserverCountWithReturnValue (),
+                                                                                                    aEvent.getResultAggregator (),
+                                                                                                    aOverallResultConsumer,
+                                                                                                    true);
 
-    m_aLock.locked ( () -> {
-      // At least one handler was found
-      AsynchronousEventResultCollectorThread aLocalResultCollector = null;
+    // Create the invocations for all handling observers
+    final int nObserverCount = aHandlingInfo.getObserverCount ();
+    final ICommonsList <AsyncObserverInvocation> aInvocations = new CommonsArrayList <> (nObserverCount);
+    int nSlot = 0;
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final int nObserverSlot = aHandlingInfo.getHandlerTypeAt (i).hasReturnValue () ? nSlot++
+                                                                                      : AsyncObserverInvocation.NO_SLOT;
+      aInvocations.add (m_aQueueThread.createInvocation (aEvent,
+                                                         aHandlingInfo.getObserverAt (i),
+                                                         aResultCollector,
+                                                         nObserverSlot));
+    }
 
-      final int nHandlingObserverCountWithReturnValue = aHandlingInfo.getHandlingObserverCountWithReturnValue ();
-      if (nHandlingObserverCountWithReturnValue > 0)
+    // Queue as many invocations as possible without waiting, so that the
+    // invocations of one event are not interleaved with other events. The
+    // lock is never held while blocking or while executing an observer,
+    // because an observer may trigger another asynchronous event.
+    final int nQueued = m_aLock.lockedInt ( () -> {
+      int nIndex = 0;
+      while (nIndex < nObserverCount && m_aQueueThread.tryAddToQueue (aInvocations.get (nIndex)))
+        nIndex++;
+      return nIndex;
+    });
+
+    // Apply the overflow policy on the rest
+    for (int i = nQueued; i < nObserverCount; ++i)
+    {
+      try
       {
-        // Create collector and start thread only if we expect a result
-        aLocalResultCollector = new AsynchronousEventResultCollectorThread (nHandlingObserverCountWithReturnValue,
-                                                                            aEvent.getResultAggregator (),
-                                                                            aOverallResultConsumer);
-        aLocalResultCollector.start ();
+        m_aQueueThread.addToQueue (aInvocations.get (i));
       }
-
-      // Iterate all handling observers
-      for (final Map.Entry <IEventObserver, EEventObserverHandlerType> aEntry : aHandlingInfo.getObservers ().entrySet ())
+      catch (final RejectedExecutionException ex)
       {
-        m_aQueueThread.addEventToQueue (aEvent, aEntry.getKey (), aEntry.getValue ().hasReturnValue () ? aLocalResultCollector : null);
+        // Reject all remaining observers. The overall result consumer is not
+        // invoked, the exception is the result.
+        for (int j = i + 1; j < nObserverCount; ++j)
+          m_aQueueThread.reject (aInvocations.get (j));
+        throw ex;
       }
-    });
+    }
+    aResultCollector.onDispatchDone ();
   }
 
   @Override
@@ -103,6 +250,10 @@ public class AsynchronousEventDispatcher extends AbstractEventDispatcher impleme
   @Override
   public String toString ()
   {
-    return ToStringGenerator.getDerived (super.toString ()).append ("QueueThread", m_aQueueThread).getToString ();
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("QueueThread", m_aQueueThread)
+                            .append ("QueueCapacity", getQueueCapacity ())
+                            .append ("OverflowPolicy", getOverflowPolicy ())
+                            .getToString ();
   }
 }
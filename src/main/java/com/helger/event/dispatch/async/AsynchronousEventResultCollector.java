@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.aggregate.IAggregator;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.event.helper.IShortCircuitDispatchResultAggregator;
+
+/**
+ * Collects the results of all observers with a return value for a single
+ * asynchronous event and tracks the completion of the observers without a
+ * return value. Each observer with a return value delivers its result into a
+ * pre-assigned slot, so the aggregated results are in observer order
+ * independent of the thread timing. The thread completing the last observer
+ * (or delivering a final result of an
+ * {@link IShortCircuitDispatchResultAggregator}) aggregates the results and
+ * invokes the overall result consumer. So the overall result consumer is also
+ * invoked if all observers are "void" observers. Optionally the invocation of
+ * the overall result consumer is deferred until the dispatcher confirmed that
+ * all observers were handed over (see {@link #onDispatchDone()}), so that a
+ * dispatcher failing half way can throw an exception instead of delivering a
+ * result. No lock is used and no thread is created.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class AsynchronousEventResultCollector
+{
+  // Marker for slots that did not receive a result yet
+  private static final Object NO_RESULT = new Object ();
+
+  private final AtomicReferenceArray <Object> m_aSlots;
+  private final AtomicInteger m_aRemaining;
+  private final AtomicBoolean m_aCompleted = new AtomicBoolean (false);
+  private final boolean m_bWaitForDispatchDone;
+  // Number of conditions left before the result consumer is invoked
+  private final AtomicInteger m_aPendingConditions;
+  // Published via m_aPendingConditions
+  private Object m_aAggregatedResult;
+  private final IAggregator <Object, ?> m_aResultAggregator;
+  private final IShortCircuitDispatchResultAggregator <?> m_aShortCircuitAggregator;
+  private final Consumer <Object> m_aResultConsumer;
+
+  /**
+   * Constructor
+   *
+   * @param nObservers
+   *        The total number of observers. Must be &gt; 0.
+   * @param nObserversWithReturn
+   *        The number of observers with a return value. Must be &ge; 0 and
+   *        &le; the total number of observers.
+   * @param aResultAggregator
+   *        The aggregator for the results. May not be <code>null</code>.
+   * @param aResultConsumer
+   *        The consumer of the aggregated result. May not be
+   *        <code>null</code>.
+   */
+  public AsynchronousEventResultCollector (@Nonnegative final int nObservers,
+                                           @Nonnegative final int nObserversWithReturn,
+                                           @Nonnull final IAggregator <Object, ?> aResultAggregator,
+                                           @Nonnull final Consumer <Object> aResultConsumer)
+  {
+    this (nObservers, nObserversWithReturn, aResultAggregator, aResultConsumer, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nObservers
+   *        The total number of observers. Must be &gt; 0.
+   * @param nObserversWithReturn
+   *        The number of observers with a return value. Must be &ge; 0 and
+   *        &le; the total number of observers.
+   * @param aResultAggregator
+   *        The aggregator for the results. May not be <code>null</code>.
+   * @param aResultConsumer
+   *        The consumer of the aggregated result. May not be
+   *        <code>null</code>.
+   * @param bWaitForDispatchDone
+   *        <code>true</code> to invoke the result consumer only after
+   *        {@link #onDispatchDone()} was called. If it is never called, the
+   *        result consumer is never invoked.
+   */
+  public AsynchronousEventResultCollector (@Nonnegative final int nObservers,
+                                           @Nonnegative final int nObserversWithReturn,
+                                           @Nonnull final IAggregator <Object, ?> aResultAggregator,
+                                           @Nonnull final Consumer <Object> aResultConsumer,
+                                           final boolean bWaitForDispatchDone)
+  {
+    ValueEnforcer.isGT0 (nObservers, "Observers");
+    ValueEnforcer.isBetweenInclusive (nObserversWithReturn, "ObserversWithReturn", 0, nObservers);
+    ValueEnforcer.notNull (aResultAggregator, "ResultAggregator");
+    ValueEnforcer.notNull (aResultConsumer, "ResultCallback");
+
+    final Object [] aSlots = new Object [nObserversWithReturn];
+    for (int i = 0; i < nObserversWithReturn; ++i)
+      aSlots[i] = NO_RESULT;
+    m_aSlots = new AtomicReferenceArray <> (aSlots);
+    m_aRemaining = new AtomicInteger (nObservers);
+    m_aResultAggregator = aResultAggregator;
+    m_aShortCircuitAggregator = aResultAggregator instanceof IShortCircuitDispatchResultAggregator <?> ? (IShortCircuitDispatchResultAggregator <?>) aResultAggregator
+                                                                                                      : null;
+    m_aResultConsumer = aResultConsumer;
+    m_bWaitForDispatchDone = bWaitForDispatchDone;
+    m_aPendingConditions = new AtomicInteger (bWaitForDispatchDone ? 2 : 1);
+  }
+
+  /**
+   * @return The number of result slots. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getSlotCount ()
+  {
+    return m_aSlots.length ();
+  }
+
+  /**
+   * Deliver the result of an observer. Only the first result per slot is
+   * considered. Results delivered after the aggregated result was determined
+   * are ignored.
+   *
+   * @param nSlot
+   *        The 0-based slot of the observer.
+   * @param aObserverResult
+   *        The result of the observer. May be <code>null</code>.
+   */
+  public void accept (@Nonnegative final int nSlot, @Nullable final Object aObserverResult)
+  {
+    if (m_aCompleted.get ())
+    {
+      // Already aggregated or about to be
+      return;
+    }
+    if (!m_aSlots.compareAndSet (nSlot, NO_RESULT, aObserverResult))
+    {
+      // Only one result per slot
+      return;
+    }
+
+    if (m_aShortCircuitAggregator != null && m_aShortCircuitAggregator.isFinalResultValue (aObserverResult))
+    {
+      // No need to wait for the remaining results
+      _complete ();
+    }
+    else
+      if (m_aRemaining.decrementAndGet () == 0)
+        _complete ();
+  }
+
+  /**
+   * Notify that an observer without a return value has finished, no matter
+   * whether successful or not.
+   */
+  public void onObserverWithoutReturnValueDone ()
+  {
+    if (m_aRemaining.decrementAndGet () == 0)
+      _complete ();
+  }
+
+  private void _complete ()
+  {
+    if (!m_aCompleted.compareAndSet (false, true))
+      return;
+
+    // Collect all delivered results in slot order
+    final int nSlots = m_aSlots.length ();
+    final ICommonsList <Object> aResults = new CommonsArrayList <> (nSlots);
+    for (int i = 0; i < nSlots; ++i)
+    {
+      final Object aResult = m_aSlots.get (i);
+      if (aResult != NO_RESULT)
+        aResults.add (aResult);
+    }
+
+    m_aAggregatedResult = m_aResultAggregator.apply (aResults);
+    _onConditionMet ();
+  }
+
+  private void _onConditionMet ()
+  {
+    if (m_aPendingConditions.decrementAndGet () == 0)
+    {
+      // Call result consumer
+      m_aResultConsumer.accept (m_aAggregatedResult);
+    }
+  }
+
+  /**
+   * Notify that the dispatcher handed over all observer invocations
+   * successfully. Ignored if the collector was not created to wait for it.
+   * Must be called at most once. If the aggregated result is already
+   * determined, the result consumer is invoked in the calling thread.
+   */
+  public void onDispatchDone ()
+  {
+    if (m_bWaitForDispatchDone)
+      _onConditionMet ();
+  }
+
+  /**
+   * @return <code>true</code> if the aggregated result is already decided, so
+   *         that the remaining observers with a return value don't need to be
+   *         invoked.
+   */
+  public boolean isResultFinal ()
+  {
+    return m_aCompleted.get ();
+  }
+}
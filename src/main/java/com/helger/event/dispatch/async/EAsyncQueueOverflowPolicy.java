@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * Determines what happens if an observer invocation should be added to the
+ * full queue of an {@link AsynchronousEventDispatcher}.
+ *
+ * @author Philip Helger
+ */
+public enum EAsyncQueueOverflowPolicy implements IHasID <String>
+{
+  /**
+   * Block the triggering thread until there is space in the queue, or reject
+   * the new invocation if the timeout elapses. If an observer triggers an
+   * asynchronous event while the queue is full, the new invocation is
+   * executed directly, because the queue thread cannot wait for itself.
+   */
+  BLOCK ("block"),
+  /** Reject the new invocation. */
+  DROP_NEWEST ("drop-newest"),
+  /** Reject the oldest queued invocation to make space for the new one. */
+  DROP_OLDEST ("drop-oldest"),
+  /** Run the new invocation synchronously in the triggering thread. */
+  CALLER_RUNS ("caller-runs"),
+  /**
+   * Reject the new invocation and all remaining invocations of the same event
+   * and throw a {@link java.util.concurrent.RejectedExecutionException} to
+   * the triggering thread. The overall result consumer of the event is not
+   * invoked.
+   */
+  FAIL ("fail");
+
+  /** The default policy */
+  public static final EAsyncQueueOverflowPolicy DEFAULT = BLOCK;
+
+  private final String m_sID;
+
+  private EAsyncQueueOverflowPolicy (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static EAsyncQueueOverflowPolicy getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EAsyncQueueOverflowPolicy.class, sID);
+  }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEvent;
+import com.helger.event.dispatch.AbstractEventDispatcher;
+import com.helger.event.dispatch.EffectiveEventObserverList;
+import com.helger.event.observer.exception.IEventObservingExceptionCallback;
+import com.helger.event.observerqueue.IEventObserverQueue;
+
+/**
+ * Dispatch events asynchronously on the threads of an {@link Executor}. The
+ * invocations of different observers may run in parallel, but all invocations
+ * of the same observer are executed one after another in the order the events
+ * were dispatched (see {@link KeyedSerialExecutor}). So a slow observer only
+ * delays its own events. The results of the observers with a return value are
+ * collected and aggregated per event like in
+ * {@link AsynchronousEventDispatcher}. If the executor rejects an invocation
+ * (e.g. after {@link #stop()}), the affected observers are completed with the
+ * {@link RejectedExecutionException} as their result and the exception is
+ * rethrown to the triggering thread instead of invoking the overall result
+ * consumer.
+ *
+ * @author Philip Helger
+ */
+public class ExecutorAsynchronousEventDispatcher extends AbstractEventDispatcher implements
+                                                 IAsynchronousEventDispatcher
+{
+  /** The default number of threads if the executor is created internally */
+  public static final int DEFAULT_THREAD_COUNT = Runtime.getRuntime ().availableProcessors ();
+
+  private final KeyedSerialExecutor m_aSerialExecutor;
+  // Only set if the executor was created internally
+  private final ExecutorService m_aOwnedExecutor;
+
+  /**
+   * Constructor using an internal executor with
+   * {@link #DEFAULT_THREAD_COUNT} threads.
+   *
+   * @param aExceptionCallback
+   *        The exception callback to use. May be <code>null</code>.
+   */
+  public ExecutorAsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback)
+  {
+    this (aExceptionCallback, DEFAULT_THREAD_COUNT);
+  }
+
+  /**
+   * Constructor using an internal executor that is shut down in
+   * {@link #stop()}.
+   *
+   * @param aExceptionCallback
+   *        The exception callback to use. May be <code>null</code>.
+   * @param nThreadCount
+   *        The number of threads to use. Must be &gt; 0.
+   */
+  public ExecutorAsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback,
+                                              @Nonnegative final int nThreadCount)
+  {
+    this (aExceptionCallback,
+          Executors.newFixedThreadPool (ValueEnforcer.isGT0 (nThreadCount, "ThreadCount"),
+                                        new BasicThreadFactory.Builder ().namingPattern ("async-executor-dispatcher-thread-%d")
+                                                                         .daemon (true)
+                                                                         .build ()),
+          true);
+  }
+
+  /**
+   * Constructor using an external executor. The executor is not shut down by
+   * this class.
+   *
+   * @param aExceptionCallback
+   *        The exception callback to use. May be <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the observers on. May not be <code>null</code>.
+   */
+  public ExecutorAsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback,
+                                              @Nonnull final Executor aExecutor)
+  {
+    this (aExceptionCallback, aExecutor, false);
+  }
+
+  private ExecutorAsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback,
+                                               @Nonnull final Executor aExecutor,
+                                               final boolean bOwned)
+  {
+    super (aExceptionCallback);
+    // Complete the invocations that are dropped because the executor was shut
+    // down, so that the overall result consumer is still invoked
+    m_aSerialExecutor = new KeyedSerialExecutor (aExecutor,
+                                                 KeyedSerialExecutor.DEFAULT_MAX_TASKS_PER_RUN,
+                                                 (aTask, ex) -> ((AsyncObserverInvocation) aTask).reject (ex));
+    m_aOwnedExecutor = bOwned ? (ExecutorService) aExecutor : null;
+  }
+
+  /**
+   * @return The executor the observers are invoked on. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public Executor getExecutor ()
+  {
+    return m_aSerialExecutor.getExecutor ();
+  }
+
+  public void dispatch (@Nonnull final IEvent aEvent,
+                        @Nonnull final IEventObserverQueue aObservers,
+                        @Nonnull final Consumer <Object> aOverallResultConsumer)
+  {
+    // find all observers that can handle the passed event
+    dispatch (aEvent,
+              EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent, aObservers),
+              aOverallResultConsumer);
+  }
+
+  public void dispatch (@Nonnull final IEvent aEvent,
+                        @Nonnull final EffectiveEventObserverList aHandlingInfo,
+                        @Nonnull final Consumer <Object> aOverallResultConsumer)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingInfo, "HandlingInfo");
+    ValueEnforcer.notNull (aOverallResultConsumer, "OverallResultConsumer");
+
+    if (aHandlingInfo.hasNoObservers ())
+    {
+      // No observer -> no result
+      aOverallResultConsumer.accept (null);
+      return;
+    }
+
+    // At least one handler was found - the collector also tracks the "void"
+    // observers, so that the overall result consumer is always invoked unless
+    // dispatching fails with an exception
+    final AsynchronousEventResultCollector aResultCollector = new AsynchronousEventResultCollector (aHandlingInfo.getObserverCount (),
+                                                                                                    aHandlingInfo.getHandlingObserverCountWithReturnValue (),
+                                                                                                    aEvent.getResultAggregator (),
+                                                                                                    aOverallResultConsumer,
+                                                                                                    true);
+
+    // Create the invocations for all handling observers
+    final int nObserverCount = aHandlingInfo.getObserverCount ();
+    final AsyncObserverInvocation [] aInvocations = new AsyncObserverInvocation [nObserverCount];
+    int nSlot = 0;
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final int nObserverSlot = aHandlingInfo.getHandlerTypeAt (i).hasReturnValue () ? nSlot++
+                                                                                      : AsyncObserverInvocation.NO_SLOT;
+      aInvocations[i] = new AsyncObserverInvocation (aEvent,
+                                                     aHandlingInfo.getObserverAt (i),
+                                                     aResultCollector,
+                                                     nObserverSlot,
+                                                     getFailureHandler ());
+    }
+
+    // Execute them - FIFO per observer
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      try
+      {
+        m_aSerialExecutor.execute (aInvocations[i].getObserver (), aInvocations[i]);
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // The rejected invocation itself was already completed by the
+        // rejection handler - reject all remaining ones. The overall result
+        // consumer is not invoked, the exception is the result.
+        for (int j = i + 1; j < nObserverCount; ++j)
+          aInvocations[j].reject (ex);
+        throw ex;
+      }
+    }
+    aResultCollector.onDispatchDone ();
+  }
+
+  @Override
+  @Nonnull
+  public EChange stop ()
+  {
+    if (m_aOwnedExecutor == null || m_aOwnedExecutor.isShutdown ())
+      return EChange.UNCHANGED;
+    m_aOwnedExecutor.shutdown ();
+    return EChange.CHANGED;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("SerialExecutor", m_aSerialExecutor)
+                            .append ("OwnsExecutor", m_aOwnedExecutor != null)
+                            .getToString ();
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import javax.annotation.Nonnull;
+
+import com.helger.commons.callback.ICallback;
+import com.helger.event.IEvent;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Callback that is invoked for each observer invocation that was rejected
+ * because the queue of an {@link AsynchronousEventDispatcher} was full.
+ *
+ * @author Philip Helger
+ */
+@FunctionalInterface
+public interface IAsyncQueueRejectionCallback extends ICallback
+{
+  /**
+   * Called for a rejected observer invocation. The invocation is not executed.
+   * If the observer has a return value, an
+   * {@link com.helger.event.observer.exception.EventObservingExceptionWrapper}
+   * is used as its result.
+   *
+   * @param aEvent
+   *        The event that was not delivered. Never <code>null</code>.
+   * @param aObserver
+   *        The observer that was not invoked. Never <code>null</code>.
+   * @param ePolicy
+   *        The overflow policy that caused the rejection. Never
+   *        <code>null</code>.
+   */
+  void onRejected (@Nonnull IEvent aEvent, @Nonnull IEventObserver aObserver, @Nonnull EAsyncQueueOverflowPolicy ePolicy);
+}
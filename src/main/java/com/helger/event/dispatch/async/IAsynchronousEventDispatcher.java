@@ -21,6 +21,7 @@ import java.util.function.Consumer;
 import javax.annotation.Nonnull;
 
 import com.helger.event.IEvent;
+import com.helger.event.dispatch.EffectiveEventObserverList;
 import com.helger.event.dispatch.IEventDispatcher;
 import com.helger.event.observerqueue.IEventObserverQueue;
 
@@ -43,9 +44,34 @@ public interface IAsynchronousEventDispatcher extends IEventDispatcher
    * @param aOverallResultConsumer
    *        The callback to be called once all results are present. May not be
    *        <code>null</code>. Must be called even if all event handlers are
-   *        "void" handlers.
+   *        "void" handlers. Must not be called if this method throws an
+   *        exception.
    */
-  void dispatch (@Nonnull final IEvent aEvent,
-                 @Nonnull final IEventObserverQueue aObservers,
-                 @Nonnull final Consumer <Object> aOverallResultConsumer);
+  void dispatch (@Nonnull IEvent aEvent,
+                 @Nonnull IEventObserverQueue aObservers,
+                 @Nonnull Consumer <Object> aOverallResultConsumer);
+
+  /**
+   * Dispatch an event to a number of already resolved observers in an
+   * asynchronous way. The default implementation passes the observers as a
+   * new queue to {@link #dispatch(IEvent, IEventObserverQueue, Consumer)}, so
+   * that the observers are queried again. Implementations should override it.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aOverallResultConsumer
+   *        The callback to be called once all results are present. May not be
+   *        <code>null</code>. Must be called even if all event handlers are
+   *        "void" handlers. Must not be called if this method throws an
+   *        exception.
+   */
+  default void dispatch (@Nonnull final IEvent aEvent,
+                         @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                         @Nonnull final Consumer <Object> aOverallResultConsumer)
+  {
+    dispatch (aEvent, aHandlingObservers.getAsObserverQueue (), aOverallResultConsumer);
+  }
 }
@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * An executor that runs all tasks with the same key one after another in
+ * submission order, while tasks with different keys may run in parallel on the
+ * underlying {@link Executor}. Keys without pending tasks don't occupy any
+ * memory. If the underlying executor rejects a key, all pending tasks of that
+ * key are dropped and handed to the optional rejection handler, so that they
+ * can be completed otherwise.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class KeyedSerialExecutor
+{
+  /** The default number of tasks of a single key run without rescheduling */
+  public static final int DEFAULT_MAX_TASKS_PER_RUN = 64;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (KeyedSerialExecutor.class);
+
+  /**
+   * The pending tasks of a single key.
+   *
+   * @author Philip Helger
+   */
+  private final class SerialQueue implements Runnable
+  {
+    private final Object m_aKey;
+    @GuardedBy ("this")
+    private final Deque <Runnable> m_aTasks = new ArrayDeque <> ();
+    @GuardedBy ("this")
+    private boolean m_bScheduled = false;
+    @GuardedBy ("this")
+    private boolean m_bRemoved = false;
+
+    SerialQueue (@Nonnull final Object aKey)
+    {
+      m_aKey = aKey;
+    }
+
+    public void run ()
+    {
+      for (int i = 0; i < m_nMaxTasksPerRun; ++i)
+      {
+        final Runnable aTask = _pollNext (this);
+        if (aTask == null)
+          return;
+
+        try
+        {
+          aTask.run ();
+        }
+        catch (final RuntimeException ex)
+        {
+          // Don't stop the remaining tasks of this key
+          LOGGER.error ("Failed to run task of key " + m_aKey, ex);
+        }
+      }
+
+      // More tasks may be pending - let other keys run first. There is no
+      // caller to report a rejection to here.
+      _schedule (this, false);
+    }
+  }
+
+  private final Executor m_aExecutor;
+  private final int m_nMaxTasksPerRun;
+  private final BiConsumer <? super Runnable, ? super RejectedExecutionException> m_aRejectionHandler;
+  private final Map <Object, SerialQueue> m_aQueues = new ConcurrentHashMap <> ();
+
+  public KeyedSerialExecutor (@Nonnull final Executor aExecutor)
+  {
+    this (aExecutor, DEFAULT_MAX_TASKS_PER_RUN, null);
+  }
+
+  public KeyedSerialExecutor (@Nonnull final Executor aExecutor, @Nonnegative final int nMaxTasksPerRun)
+  {
+    this (aExecutor, nMaxTasksPerRun, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aExecutor
+   *        The executor to run the tasks on. May not be <code>null</code>.
+   * @param nMaxTasksPerRun
+   *        The maximum number of tasks of a single key that are run without
+   *        giving other keys a chance. Must be &gt; 0.
+   * @param aRejectionHandler
+   *        The optional handler that is invoked for each task that is dropped
+   *        because the underlying executor rejected the execution. May be
+   *        <code>null</code>.
+   */
+  public KeyedSerialExecutor (@Nonnull final Executor aExecutor,
+                              @Nonnegative final int nMaxTasksPerRun,
+                              @Nullable final BiConsumer <? super Runnable, ? super RejectedExecutionException> aRejectionHandler)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    ValueEnforcer.isGT0 (nMaxTasksPerRun, "MaxTasksPerRun");
+    m_aExecutor = aExecutor;
+    m_nMaxTasksPerRun = nMaxTasksPerRun;
+    m_aRejectionHandler = aRejectionHandler;
+  }
+
+  @Nonnull
+  public Executor getExecutor ()
+  {
+    return m_aExecutor;
+  }
+
+  /**
+   * @return The number of keys that currently have pending or running tasks.
+   */
+  @Nonnegative
+  public int getActiveKeyCount ()
+  {
+    return m_aQueues.size ();
+  }
+
+  @Nullable
+  private Runnable _pollNext (@Nonnull final SerialQueue aQueue)
+  {
+    synchronized (aQueue)
+    {
+      final Runnable ret = aQueue.m_aTasks.pollFirst ();
+      if (ret == null)
+      {
+        // Idle - remove so that no memory is occupied
+        aQueue.m_bScheduled = false;
+        aQueue.m_bRemoved = true;
+        m_aQueues.remove (aQueue.m_aKey, aQueue);
+      }
+      return ret;
+    }
+  }
+
+  private void _schedule (@Nonnull final SerialQueue aQueue, final boolean bRethrow)
+  {
+    try
+    {
+      m_aExecutor.execute (aQueue);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      // Drop all pending tasks of this key
+      final ICommonsList <Runnable> aDropped;
+      synchronized (aQueue)
+      {
+        aDropped = new CommonsArrayList <> (aQueue.m_aTasks);
+        aQueue.m_aTasks.clear ();
+        aQueue.m_bScheduled = false;
+        aQueue.m_bRemoved = true;
+        m_aQueues.remove (aQueue.m_aKey, aQueue);
+      }
+
+      if (m_aRejectionHandler != null)
+      {
+        for (final Runnable aTask : aDropped)
+          try
+          {
+            m_aRejectionHandler.accept (aTask, ex);
+          }
+          catch (final RuntimeException ex2)
+          {
+            LOGGER.error ("Failed to invoke rejection handler for task of key " + aQueue.m_aKey, ex2);
+          }
+      }
+      else
+        if (aDropped.isNotEmpty ())
+          LOGGER.warn ("Dropped " + aDropped.size () + " pending task(s) of key " + aQueue.m_aKey, ex);
+
+      if (bRethrow)
+        throw ex;
+    }
+  }
+
+  /**
+   * Execute the passed task after all previously submitted tasks with the same
+   * key.
+   *
+   * @param aKey
+   *        The key to serialize on. Keys are compared via equals. May not be
+   *        <code>null</code>.
+   * @param aTask
+   *        The task to execute. May not be <code>null</code>.
+   * @throws RejectedExecutionException
+   *         if the underlying executor rejected the execution. All pending
+   *         tasks of the key, including the passed one, are dropped and handed
+   *         to the rejection handler in this case.
+   */
+  public void execute (@Nonnull final Object aKey, @Nonnull final Runnable aTask)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+    ValueEnforcer.notNull (aTask, "Task");
+
+    while (true)
+    {
+      final SerialQueue aQueue = m_aQueues.computeIfAbsent (aKey, SerialQueue::new);
+      final boolean bSchedule;
+      synchronized (aQueue)
+      {
+        if (aQueue.m_bRemoved)
+        {
+          // Became idle in the meantime - retry with a new queue
+          continue;
+        }
+        aQueue.m_aTasks.addLast (aTask);
+        bSchedule = !aQueue.m_bScheduled;
+        if (bSchedule)
+          aQueue.m_bScheduled = true;
+      }
+      if (bSchedule)
+        _schedule (aQueue, true);
+      return;
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Executor", m_aExecutor)
+                                       .append ("MaxTasksPerRun", m_nMaxTasksPerRun)
+                                       .append ("ActiveKeyCount", m_aQueues.size ())
+                                       .getToString ();
+  }
+}
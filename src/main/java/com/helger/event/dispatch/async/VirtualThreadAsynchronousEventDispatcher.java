@@ -0,0 +1,306 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEvent;
+import com.helger.event.dispatch.AbstractEventDispatcher;
+import com.helger.event.dispatch.EffectiveEventObserverList;
+import com.helger.event.observer.exception.IEventObservingExceptionCallback;
+import com.helger.event.observerqueue.IEventObserverQueue;
+
+/**
+ * Dispatch events asynchronously by running each observer invocation on its
+ * own virtual thread, so that observers doing blocking I/O don't stall each
+ * other. The number of concurrently running invocations is limited by a
+ * {@link Semaphore}. Exceptions and results are handled like in
+ * {@link AsynchronousEventDispatcher}.<br>
+ * Virtual threads are available since Java 21 and are detected at runtime. On
+ * older Java versions a separately sized pool of platform threads is used
+ * instead, and the pool size limits the concurrency (see
+ * {@link #isVirtualThreadSupported()}).<br>
+ * After {@link #stop()} all further invocations are completed with a
+ * {@link RejectedExecutionException} as their result.<br>
+ * Note: no order between the invocations of an observer is guaranteed.
+ *
+ * @author Philip Helger
+ */
+public class VirtualThreadAsynchronousEventDispatcher extends AbstractEventDispatcher implements
+                                                      IAsynchronousEventDispatcher
+{
+  /** The default maximum number of concurrently running observers */
+  public static final int DEFAULT_MAX_CONCURRENCY = 1024;
+
+  /**
+   * The default number of platform threads used if virtual threads are not
+   * supported
+   */
+  public static final int DEFAULT_PLATFORM_THREAD_COUNT = Runtime.getRuntime ().availableProcessors () * 2;
+
+  // Executors.newVirtualThreadPerTaskExecutor () - Java 21+ only
+  private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = _findVirtualThreadExecutorFactory ();
+
+  private final ExecutorService m_aExecutor;
+  private final boolean m_bVirtualThreads;
+  private final int m_nMaxConcurrency;
+  // Only used for virtual threads
+  private final Semaphore m_aPermits;
+
+  @Nullable
+  private static MethodHandle _findVirtualThreadExecutorFactory ()
+  {
+    try
+    {
+      return MethodHandles.publicLookup ()
+                          .findStatic (Executors.class,
+                                       "newVirtualThreadPerTaskExecutor",
+                                       MethodType.methodType (ExecutorService.class));
+    }
+    catch (final ReflectiveOperationException ex)
+    {
+      // Java version < 21
+      return null;
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the current JVM supports virtual threads,
+   *         <code>false</code> if platform threads are used.
+   */
+  public static boolean isVirtualThreadSupported ()
+  {
+    return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  public VirtualThreadAsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback)
+  {
+    this (aExceptionCallback, DEFAULT_MAX_CONCURRENCY);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aExceptionCallback
+   *        The exception callback to use. May be <code>null</code>.
+   * @param nMaxConcurrency
+   *        The maximum number of concurrently running observer invocations.
+   *        Must be &gt; 0.
+   */
+  public VirtualThreadAsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback,
+                                                   @Nonnegative final int nMaxConcurrency)
+  {
+    this (aExceptionCallback, nMaxConcurrency, Math.min (nMaxConcurrency, DEFAULT_PLATFORM_THREAD_COUNT));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aExceptionCallback
+   *        The exception callback to use. May be <code>null</code>.
+   * @param nMaxConcurrency
+   *        The maximum number of concurrently running observer invocations on
+   *        virtual threads. Must be &gt; 0.
+   * @param nPlatformThreadCount
+   *        The number of platform threads to use if virtual threads are not
+   *        supported. Must be &gt; 0.
+   */
+  public VirtualThreadAsynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionCallback,
+                                                   @Nonnegative final int nMaxConcurrency,
+                                                   @Nonnegative final int nPlatformThreadCount)
+  {
+    super (aExceptionCallback);
+    ValueEnforcer.isGT0 (nMaxConcurrency, "MaxConcurrency");
+    ValueEnforcer.isGT0 (nPlatformThreadCount, "PlatformThreadCount");
+
+    ExecutorService aExecutor = null;
+    if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null)
+    {
+      try
+      {
+        aExecutor = (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact ();
+      }
+      catch (final Throwable t)
+      {
+        // Fall through
+      }
+    }
+    m_bVirtualThreads = aExecutor != null;
+    if (aExecutor == null)
+    {
+      // Platform threads: the pool size limits the concurrency
+      final ThreadPoolExecutor aPool = new ThreadPoolExecutor (nPlatformThreadCount,
+                                                               nPlatformThreadCount,
+                                                               60,
+                                                               TimeUnit.SECONDS,
+                                                               new LinkedBlockingQueue <> (),
+                                                               new BasicThreadFactory.Builder ().namingPattern ("async-blocking-dispatcher-thread-%d")
+                                                                                                .daemon (true)
+                                                                                                .build ());
+      aPool.allowCoreThreadTimeOut (true);
+      aExecutor = aPool;
+    }
+    m_aExecutor = aExecutor;
+    m_nMaxConcurrency = m_bVirtualThreads ? nMaxConcurrency : nPlatformThreadCount;
+    m_aPermits = m_bVirtualThreads ? new Semaphore (nMaxConcurrency) : null;
+  }
+
+  /**
+   * @return <code>true</code> if virtual threads are used,
+   *         <code>false</code> if platform threads are used.
+   */
+  public boolean isUsingVirtualThreads ()
+  {
+    return m_bVirtualThreads;
+  }
+
+  /**
+   * @return The maximum number of concurrently running observer invocations.
+   *         This is the number of platform threads if virtual threads are not
+   *         used. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getMaxConcurrency ()
+  {
+    return m_nMaxConcurrency;
+  }
+
+  /**
+   * @return The number of currently running observer invocations.
+   */
+  @Nonnegative
+  public int getRunningCount ()
+  {
+    if (m_aPermits == null)
+      return ((ThreadPoolExecutor) m_aExecutor).getActiveCount ();
+    return m_nMaxConcurrency - m_aPermits.availablePermits ();
+  }
+
+  private void _execute (@Nonnull final AsyncObserverInvocation aInvocation)
+  {
+    try
+    {
+      if (m_aPermits == null)
+      {
+        // The pool size limits the concurrency
+        m_aExecutor.execute (aInvocation);
+      }
+      else
+        m_aExecutor.execute ( () -> {
+          // Waiting is cheap on a virtual thread
+          m_aPermits.acquireUninterruptibly ();
+          try
+          {
+            aInvocation.run ();
+          }
+          finally
+          {
+            m_aPermits.release ();
+          }
+        });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      // Stopped
+      aInvocation.reject (ex);
+    }
+  }
+
+  public void dispatch (@Nonnull final IEvent aEvent,
+                        @Nonnull final IEventObserverQueue aObservers,
+                        @Nonnull final Consumer <Object> aOverallResultConsumer)
+  {
+    // find all observers that can handle the passed event
+    dispatch (aEvent,
+              EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent, aObservers),
+              aOverallResultConsumer);
+  }
+
+  public void dispatch (@Nonnull final IEvent aEvent,
+                        @Nonnull final EffectiveEventObserverList aHandlingInfo,
+                        @Nonnull final Consumer <Object> aOverallResultConsumer)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingInfo, "HandlingInfo");
+    ValueEnforcer.notNull (aOverallResultConsumer, "OverallResultConsumer");
+
+    if (aHandlingInfo.hasNoObservers ())
+    {
+      // No observer -> no result
+      aOverallResultConsumer.accept (null);
+      return;
+    }
+
+    // At least one handler was found - the collector also tracks the "void"
+    // observers, so that the overall result consumer is always invoked
+    final AsynchronousEventResultCollector aResultCollector = new AsynchronousEventResultCollector (aHandlingInfo.getObserverCount (),
+                                                                                                    aHandlingInfo.getHandlingObserverCountWithReturnValue (),
+                                                                                                    aEvent.getResultAggregator (),
+                                                                                                    aOverallResultConsumer);
+
+    // Iterate all handling observers
+    final int nObserverCount = aHandlingInfo.getObserverCount ();
+    int nSlot = 0;
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final int nObserverSlot = aHandlingInfo.getHandlerTypeAt (i).hasReturnValue () ? nSlot++
+                                                                                      : AsyncObserverInvocation.NO_SLOT;
+      _execute (new AsyncObserverInvocation (aEvent,
+                                             aHandlingInfo.getObserverAt (i),
+                                             aResultCollector,
+                                             nObserverSlot,
+                                             getFailureHandler ()));
+    }
+  }
+
+  @Override
+  @Nonnull
+  public EChange stop ()
+  {
+    if (m_aExecutor.isShutdown ())
+      return EChange.UNCHANGED;
+    m_aExecutor.shutdown ();
+    return EChange.CHANGED;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("VirtualThreads", m_bVirtualThreads)
+                            .append ("MaxConcurrency", m_nMaxConcurrency)
+                            .getToString ();
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.sync;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.event.IEvent;
+import com.helger.event.dispatch.EffectiveEventObserverList;
+import com.helger.event.observer.IEventObserver;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
+import com.helger.event.observer.exception.IEventObservingExceptionCallback;
+
+/**
+ * A synchronous event dispatcher that compiles the observers of a reusable
+ * {@link EffectiveEventObserverList} into a single chain of bound
+ * {@link MethodHandle}s. Each observer call in the chain has a constant
+ * receiver, so that after the chain was customized by the JVM the calls can
+ * be inlined instead of going through one megamorphic call site. As the lists
+ * of an event dispatch plan are recreated whenever the registered observers
+ * change, the chain is rebuilt as well.<br>
+ * Only observers without a collected return value are part of a chain.
+ * Dispatches that need to collect return values, lists that were created for
+ * a single dispatch only, and lists with more than
+ * {@link #MAX_CHAIN_LENGTH} observers are handled by the regular loop of
+ * {@link SynchronousEventDispatcher}.
+ *
+ * @author Philip Helger
+ */
+public class CompiledSynchronousEventDispatcher extends SynchronousEventDispatcher
+{
+  /** The maximum number of observers compiled into a single chain */
+  public static final int MAX_CHAIN_LENGTH = 64;
+
+  // Result consumer for observers with a return value in "notify only" chains
+  private static final Consumer <Object> NOOP_RESULT_CONSUMER = x -> {};
+
+  private static final MethodType CHAIN_TYPE = MethodType.methodType (void.class, IEvent.class);
+  private static final MethodHandle MH_ON_EVENT;
+  private static final MethodHandle MH_ON_FAILURE;
+
+  static
+  {
+    final MethodHandles.Lookup aLookup = MethodHandles.publicLookup ();
+    try
+    {
+      MH_ON_EVENT = aLookup.findVirtual (IEventObserver.class,
+                                         "onEvent",
+                                         MethodType.methodType (void.class, IEvent.class, Consumer.class));
+      MH_ON_FAILURE = aLookup.findVirtual (EventObservingFailureHandler.class,
+                                           "onObserverFailure",
+                                           MethodType.methodType (void.class,
+                                                                  Object.class,
+                                                                  IEvent.class,
+                                                                  Throwable.class));
+    }
+    catch (final ReflectiveOperationException ex)
+    {
+      throw new ExceptionInInitializerError (ex);
+    }
+  }
+
+  /**
+   * The compiled chain attached to an {@link EffectiveEventObserverList}.
+   *
+   * @author Philip Helger
+   */
+  private static final class CompiledChain
+  {
+    private final CompiledSynchronousEventDispatcher m_aOwner;
+    private final MethodHandle m_aChain;
+
+    CompiledChain (@Nonnull final CompiledSynchronousEventDispatcher aOwner, @Nonnull final MethodHandle aChain)
+    {
+      m_aOwner = aOwner;
+      m_aChain = aChain;
+    }
+  }
+
+  public CompiledSynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionHandler)
+  {
+    super (aExceptionHandler);
+  }
+
+  /**
+   * Build the chain for the passed observers. The resulting handle has the
+   * type <code>(IEvent)void</code>. Exceptions of an observer are passed to
+   * the failure handler and don't prevent the subsequent observers from being
+   * invoked.
+   *
+   * @param aHandlingObservers
+   *        The observers to compile. May not be <code>null</code> and must
+   *        contain at least one observer.
+   * @return The compiled chain and never <code>null</code>.
+   */
+  @Nonnull
+  private MethodHandle _compile (@Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    final MethodHandle aFailureHandler = MH_ON_FAILURE.bindTo (getFailureHandler ());
+
+    MethodHandle aChain = null;
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+      final Consumer <Object> aResultConsumer = aHandlingObservers.getHandlerTypeAt (i).hasReturnValue () ? NOOP_RESULT_CONSUMER
+                                                                                                          : null;
+
+      // (IEvent)void with constant receiver and result consumer
+      final MethodHandle aCall = MethodHandles.insertArguments (MH_ON_EVENT.bindTo (aObserver), 1, aResultConsumer);
+
+      // (Throwable, IEvent)void
+      final MethodHandle aOnFailure = MethodHandles.permuteArguments (MethodHandles.insertArguments (aFailureHandler,
+                                                                                                     0,
+                                                                                                     aObserver),
+                                                                      MethodType.methodType (void.class,
+                                                                                             Throwable.class,
+                                                                                             IEvent.class),
+                                                                      1,
+                                                                      0);
+      final MethodHandle aGuardedCall = MethodHandles.catchException (aCall, Throwable.class, aOnFailure);
+
+      // The previous chain runs before this call
+      aChain = aChain == null ? aGuardedCall : MethodHandles.foldArguments (aGuardedCall, aChain);
+    }
+    return aChain.asType (CHAIN_TYPE);
+  }
+
+  /**
+   * Get the compiled chain of the passed list, compiling it if necessary.
+   *
+   * @param aHandlingObservers
+   *        The observers to invoke. May not be <code>null</code>.
+   * @return <code>null</code> if the passed list is not suitable for
+   *         compilation.
+   */
+  @Nullable
+  private MethodHandle _getChain (@Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    if (!aHandlingObservers.isReusable () ||
+        aHandlingObservers.hasNoObservers () ||
+        aHandlingObservers.getObserverCount () > MAX_CHAIN_LENGTH)
+      return null;
+
+    final Object aCache = aHandlingObservers.getDispatchCache ();
+    if (aCache instanceof CompiledChain && ((CompiledChain) aCache).m_aOwner == this)
+      return ((CompiledChain) aCache).m_aChain;
+
+    // Not yet compiled (or compiled by another dispatcher) - compiling
+    // concurrently is harmless, as all chains are equivalent
+    final MethodHandle aChain = _compile (aHandlingObservers);
+    aHandlingObservers.setDispatchCache (new CompiledChain (this, aChain));
+    return aChain;
+  }
+
+  private static void _invokeChain (@Nonnull final MethodHandle aChain, @Nonnull final IEvent aEvent)
+  {
+    try
+    {
+      aChain.invokeExact (aEvent);
+    }
+    catch (final RuntimeException | Error ex)
+    {
+      // E.g. from the failure handler
+      throw ex;
+    }
+    catch (final Throwable t)
+    {
+      // Cannot happen, as all observer exceptions are caught inside the chain
+      throw new IllegalStateException ("Failed to invoke compiled dispatch chain", t);
+    }
+  }
+
+  @Override
+  @Nullable
+  public Object dispatch (@Nonnull final IEvent aEvent, @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+
+    if (aHandlingObservers.getHandlingObserverCountWithReturnValue () == 0)
+    {
+      final MethodHandle aChain = _getChain (aHandlingObservers);
+      if (aChain != null)
+      {
+        // Nothing to collect
+        _invokeChain (aChain, aEvent);
+        return aEvent.getResultAggregator ().apply (Collections.emptyList ());
+      }
+    }
+    return super.dispatch (aEvent, aHandlingObservers);
+  }
+
+  @Override
+  public void dispatchNotifyOnly (@Nonnull final IEvent aEvent,
+                                  @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+
+    final MethodHandle aChain = _getChain (aHandlingObservers);
+    if (aChain != null)
+      _invokeChain (aChain, aEvent);
+    else
+      super.dispatchNotifyOnly (aEvent, aHandlingObservers);
+  }
+}
@@ -20,7 +20,12 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.helger.event.IEvent;
+import com.helger.event.dispatch.EffectiveEventObserverList;
 import com.helger.event.dispatch.IEventDispatcher;
+import com.helger.event.helper.IBooleanResultAggregator;
+import com.helger.event.helper.IDoubleResultAggregator;
+import com.helger.event.helper.IIntResultAggregator;
+import com.helger.event.helper.ILongResultAggregator;
 import com.helger.event.observerqueue.IEventObserverQueue;
 
 /**
@@ -44,4 +49,136 @@ public interface ISynchronousEventDispatcher extends IEventDispatcher
    */
   @Nullable
   Object dispatch (@Nonnull IEvent aEvent, @Nonnull IEventObserverQueue aObservers);
+
+  /**
+   * Dispatch an event to a number of already resolved observers in a
+   * synchronized way. The default implementation passes the observers as a
+   * new queue to {@link #dispatch(IEvent, IEventObserverQueue)}, so that the
+   * observers are queried again. Implementations should override it.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @return The return values of the event based on the implemented result
+   *         aggregator. May be <code>null</code>.
+   */
+  @Nullable
+  default Object dispatch (@Nonnull final IEvent aEvent, @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    return dispatch (aEvent, aHandlingObservers.getAsObserverQueue ());
+  }
+
+  /**
+   * Dispatch an event to a number of already resolved observers without
+   * collecting any result. Observers with a return value that are contained in
+   * the passed list receive a result consumer that ignores all values. The
+   * result aggregator of the event must not be invoked.<br>
+   * The default implementation falls back to
+   * {@link #dispatch(IEvent, EffectiveEventObserverList)} and ignores the
+   * result. Implementations should override it.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   */
+  default void dispatchNotifyOnly (@Nonnull final IEvent aEvent,
+                                   @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    dispatch (aEvent, aHandlingObservers);
+  }
+
+  /**
+   * Dispatch an event to a number of already resolved observers and aggregate
+   * the <code>boolean</code> results. This is the common contract of all
+   * primitive dispatch methods: the results are combined one by one without
+   * boxing and without a result list, and the result aggregator of the event
+   * is not used. The default implementations use
+   * {@link PrimitiveResultDispatcher}.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @return The aggregated result.
+   * @see PrimitiveResultDispatcher
+   */
+  default boolean dispatchBoolean (@Nonnull final IEvent aEvent,
+                                   @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                   @Nonnull final IBooleanResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchBoolean (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  /**
+   * Dispatch an event to a number of already resolved observers and aggregate
+   * the <code>int</code> results.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @return The aggregated result.
+   * @see #dispatchBoolean(IEvent, EffectiveEventObserverList,
+   *      IBooleanResultAggregator)
+   */
+  default int dispatchInt (@Nonnull final IEvent aEvent,
+                           @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                           @Nonnull final IIntResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchInt (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  /**
+   * Dispatch an event to a number of already resolved observers and aggregate
+   * the <code>long</code> results.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @return The aggregated result.
+   * @see #dispatchBoolean(IEvent, EffectiveEventObserverList,
+   *      IBooleanResultAggregator)
+   */
+  default long dispatchLong (@Nonnull final IEvent aEvent,
+                             @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                             @Nonnull final ILongResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchLong (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  /**
+   * Dispatch an event to a number of already resolved observers and aggregate
+   * the <code>double</code> results.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @return The aggregated result.
+   * @see #dispatchBoolean(IEvent, EffectiveEventObserverList,
+   *      IBooleanResultAggregator)
+   */
+  default double dispatchDouble (@Nonnull final IEvent aEvent,
+                                 @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                 @Nonnull final IDoubleResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchDouble (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
 }
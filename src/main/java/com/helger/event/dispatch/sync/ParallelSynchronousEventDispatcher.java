@@ -0,0 +1,297 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.sync;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.aggregate.IAggregator;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEvent;
+import com.helger.event.dispatch.AbstractEventDispatcher;
+import com.helger.event.dispatch.EffectiveEventObserverList;
+import com.helger.event.helper.IBooleanResultAggregator;
+import com.helger.event.helper.IDoubleResultAggregator;
+import com.helger.event.helper.IIntResultAggregator;
+import com.helger.event.helper.ILongResultAggregator;
+import com.helger.event.observer.IEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionWrapper;
+import com.helger.event.observer.exception.IEventObservingExceptionCallback;
+import com.helger.event.observerqueue.IEventObserverQueue;
+
+/**
+ * A synchronous event dispatcher that invokes all handling observers of a
+ * single event in parallel on a {@link ForkJoinPool}. The calling thread waits
+ * until all observers finished, so the semantics are the same as for
+ * {@link SynchronousEventDispatcher}: the results are passed to the result
+ * aggregator in the order of the observers and exceptions are handled in the
+ * same way. Observers must be independent of each other and the exception
+ * callback must be thread-safe.<br>
+ * Note: the dispatch state of {@link com.helger.event.mgr.EventManager} (the
+ * {@link com.helger.event.mgr.EReentrancyMode} and the maximum cascade depth)
+ * is kept per thread. Events triggered by an observer running on a thread of
+ * the pool are therefore dispatched as new outermost events on that thread:
+ * they are never queued and don't count towards the cascade depth of the
+ * triggering event. Only if a single observer handles the event, it is
+ * executed in the calling thread and the dispatch state applies as usual.<br>
+ * Note: the primitive dispatch methods (like
+ * {@link #dispatchInt(IEvent, EffectiveEventObserverList, IIntResultAggregator)})
+ * invoke the observers sequentially in the calling thread, because their
+ * results are combined one by one.
+ *
+ * @author Philip Helger
+ */
+public class ParallelSynchronousEventDispatcher extends AbstractEventDispatcher implements ISynchronousEventDispatcher
+{
+  /**
+   * The invocation of a single observer. It is also the result consumer of the
+   * observer and holds the result slot.
+   *
+   * @author Philip Helger
+   */
+  private final class ObserverTask extends RecursiveAction implements Consumer <Object>
+  {
+    private final IEvent m_aEvent;
+    private final IEventObserver m_aObserver;
+    private final boolean m_bHasReturnValue;
+    private final boolean m_bDiscardReturnValue;
+    private Object m_aValue;
+    private int m_nValueCount = 0;
+
+    ObserverTask (@Nonnull final IEvent aEvent,
+                  @Nonnull final IEventObserver aObserver,
+                  final boolean bHasReturnValue,
+                  final boolean bDiscardReturnValue)
+    {
+      m_aEvent = aEvent;
+      m_aObserver = aObserver;
+      m_bHasReturnValue = bHasReturnValue;
+      m_bDiscardReturnValue = bDiscardReturnValue;
+    }
+
+    public void accept (final Object aValue)
+    {
+      if (m_nValueCount++ == 0 && !m_bDiscardReturnValue)
+        m_aValue = aValue;
+    }
+
+    @Override
+    protected void compute ()
+    {
+      try
+      {
+        // main event call
+        m_aObserver.onEvent (m_aEvent, m_bHasReturnValue ? this : null);
+      }
+      catch (final Throwable t)
+      {
+        _handleException (m_aObserver, m_aEvent, t);
+
+        // Handle eventual exception gracefully
+        if (m_bHasReturnValue)
+        {
+          // Add the exception wrapper even if the observer already added a
+          // result -> this leads to an IllegalStateException later on!
+          accept (new EventObservingExceptionWrapper (m_aObserver, m_aEvent, t));
+        }
+      }
+    }
+  }
+
+  private final transient ForkJoinPool m_aPool;
+
+  /**
+   * Constructor using the common {@link ForkJoinPool}.
+   *
+   * @param aExceptionHandler
+   *        The exception handler to use. May be <code>null</code>.
+   */
+  public ParallelSynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionHandler)
+  {
+    this (aExceptionHandler, ForkJoinPool.commonPool ());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aExceptionHandler
+   *        The exception handler to use. May be <code>null</code>.
+   * @param aPool
+   *        The pool to run the observers in. It is not shut down by this
+   *        dispatcher. May not be <code>null</code>.
+   */
+  public ParallelSynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionHandler,
+                                             @Nonnull final ForkJoinPool aPool)
+  {
+    super (aExceptionHandler);
+    m_aPool = ValueEnforcer.notNull (aPool, "Pool");
+  }
+
+  /**
+   * @return The pool the observers are executed in. Never <code>null</code>.
+   */
+  @Nonnull
+  public final ForkJoinPool getPool ()
+  {
+    return m_aPool;
+  }
+
+  private void _handleException (@Nonnull final IEventObserver aObserver,
+                                 @Nonnull final IEvent aEvent,
+                                 @Nonnull final Throwable t)
+  {
+    getFailureHandler ().onObserverFailure (aObserver, aEvent, t);
+  }
+
+  @Nonnull
+  private ObserverTask [] _invokeAll (@Nonnull final IEvent aEvent,
+                                      @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                      final boolean bDiscardReturnValues)
+  {
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    final ObserverTask [] aTasks = new ObserverTask [nObserverCount];
+    for (int i = 0; i < nObserverCount; ++i)
+      aTasks[i] = new ObserverTask (aEvent,
+                                    aHandlingObservers.getObserverAt (i),
+                                    aHandlingObservers.getHandlerTypeAt (i).hasReturnValue (),
+                                    bDiscardReturnValues);
+
+    if (nObserverCount == 1)
+    {
+      // Nothing to parallelize
+      aTasks[0].compute ();
+    }
+    else
+    {
+      // Fork all and wait until all are done
+      m_aPool.invoke (new RecursiveAction ()
+      {
+        @Override
+        protected void compute ()
+        {
+          ForkJoinTask.invokeAll (aTasks);
+        }
+      });
+    }
+    return aTasks;
+  }
+
+  @Nullable
+  public Object dispatch (@Nonnull final IEvent aEvent, @Nonnull final IEventObserverQueue aObservers)
+  {
+    // find all observers that can handle the passed event
+    return dispatch (aEvent, EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent, aObservers));
+  }
+
+  @Nullable
+  public Object dispatch (@Nonnull final IEvent aEvent, @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+
+    if (aHandlingObservers.hasNoObservers ())
+    {
+      // No observer -> no result
+      return null;
+    }
+
+    // At least one handler was found
+    final ObserverTask [] aTasks = _invokeAll (aEvent, aHandlingObservers, false);
+
+    // The list of all callback return values in observer order
+    final ICommonsList <Object> aEventReturnValues = new CommonsArrayList <> (aHandlingObservers.getHandlingObserverCountWithReturnValue ());
+    for (final ObserverTask aTask : aTasks)
+      if (aTask.m_bHasReturnValue)
+      {
+        /*
+         * Consistency check whether a value was really added (no matter whether
+         * it was an exception or a real value)
+         */
+        if (aTask.m_nValueCount == 0)
+          throw new IllegalStateException ("The observer " +
+                                           aTask.m_aObserver +
+                                           " did not add any return value on event " +
+                                           aEvent +
+                                           " even though he claimed to have one!");
+        if (aTask.m_nValueCount > 1)
+          throw new IllegalStateException ("The observer " +
+                                           aTask.m_aObserver +
+                                           " added more than one return value on " +
+                                           aEvent +
+                                           " which is generally not allowed!");
+        aEventReturnValues.add (aTask.m_aValue);
+      }
+
+    // finally aggregate all event return values
+    final IAggregator <Object, ?> aResultAggregator = aEvent.getResultAggregator ();
+    return aResultAggregator.apply (aEventReturnValues);
+  }
+
+  public void dispatchNotifyOnly (@Nonnull final IEvent aEvent,
+                                  @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+
+    if (aHandlingObservers.hasNoObservers ())
+      return;
+
+    _invokeAll (aEvent, aHandlingObservers, true);
+  }
+
+  public boolean dispatchBoolean (@Nonnull final IEvent aEvent,
+                                  @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                  @Nonnull final IBooleanResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchBoolean (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  public int dispatchInt (@Nonnull final IEvent aEvent,
+                          @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                          @Nonnull final IIntResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchInt (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  public long dispatchLong (@Nonnull final IEvent aEvent,
+                            @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                            @Nonnull final ILongResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchLong (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  public double dispatchDouble (@Nonnull final IEvent aEvent,
+                                @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                @Nonnull final IDoubleResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchDouble (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("Pool", m_aPool).getToString ();
+  }
+}
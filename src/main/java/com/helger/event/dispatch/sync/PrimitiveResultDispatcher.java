@@ -0,0 +1,367 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.sync;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.event.IEvent;
+import com.helger.event.dispatch.EffectiveEventObserverList;
+import com.helger.event.helper.IBooleanResultAggregator;
+import com.helger.event.helper.IDoubleResultAggregator;
+import com.helger.event.helper.IIntResultAggregator;
+import com.helger.event.helper.ILongResultAggregator;
+import com.helger.event.observer.IBooleanResultEventObserver;
+import com.helger.event.observer.IDoubleResultEventObserver;
+import com.helger.event.observer.IEventObserver;
+import com.helger.event.observer.IIntResultEventObserver;
+import com.helger.event.observer.ILongResultEventObserver;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
+
+/**
+ * Synchronous dispatching of events with primitive results. Observers
+ * implementing the matching primitive observer interface (like
+ * {@link IIntResultEventObserver}) are invoked without boxing and the results
+ * are combined one by one, so no result list is needed. Other observers with a
+ * return value are invoked with a result consumer and their boxed result is
+ * unboxed, if that is possible without loss (e.g. a {@link Short} for an
+ * <code>int</code> result, but not a {@link Long}). Failed observers and
+ * observers providing a value of another type don't contribute to the result;
+ * the latter are reported to the failure handler.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class PrimitiveResultDispatcher
+{
+  private PrimitiveResultDispatcher ()
+  {}
+
+  private static void _invokeWithoutReturnValue (@Nonnull final EventObservingFailureHandler aFailureHandler,
+                                                 @Nonnull final IEventObserver aObserver,
+                                                 @Nonnull final IEvent aEvent)
+  {
+    try
+    {
+      // main event call
+      aObserver.onEvent (aEvent, null);
+    }
+    catch (final Throwable t)
+    {
+      aFailureHandler.onObserverFailure (aObserver, aEvent, t);
+    }
+  }
+
+  @Nullable
+  private static Object _getBoxedResult (@Nonnull final EventObservingFailureHandler aFailureHandler,
+                                         @Nonnull final IEventObserver aObserver,
+                                         @Nonnull final IEvent aEvent,
+                                         @Nonnull final Class <?>... aExpectedClasses)
+  {
+    // Fallback for observers not implementing the primitive interface
+    final ICommonsList <Object> aValues = new CommonsArrayList <> (1);
+    try
+    {
+      // main event call
+      aObserver.onEvent (aEvent, aValues::add);
+    }
+    catch (final Throwable t)
+    {
+      aFailureHandler.onObserverFailure (aObserver, aEvent, t);
+      // Failed observers don't contribute
+      return null;
+    }
+
+    if (aValues.size () != 1)
+      throw new IllegalStateException ("The observer " +
+                                       aObserver +
+                                       " added " +
+                                       aValues.size () +
+                                       " return values on event " +
+                                       aEvent +
+                                       " but exactly one is required!");
+    final Object aValue = aValues.getFirst ();
+    for (final Class <?> aExpectedClass : aExpectedClasses)
+      if (aExpectedClass.isInstance (aValue))
+        return aValue;
+
+    // Don't narrow or convert the value silently - the observer doesn't
+    // contribute
+    aFailureHandler.onObserverFailure (aObserver,
+                                       aEvent,
+                                       new IllegalStateException ("The observer " +
+                                                                  aObserver +
+                                                                  " added the return value " +
+                                                                  aValue +
+                                                                  " on event " +
+                                                                  aEvent +
+                                                                  " which cannot be converted losslessly to " +
+                                                                  aExpectedClasses[0].getName ()));
+    return null;
+  }
+
+  /**
+   * Dispatch the passed event and aggregate the <code>boolean</code> results of
+   * all observers with a return value.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @param aFailureHandler
+   *        The failure handler to use. May not be <code>null</code>.
+   * @return The aggregated result.
+   */
+  public static boolean dispatchBoolean (@Nonnull final IEvent aEvent,
+                                         @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                         @Nonnull final IBooleanResultAggregator aAggregator,
+                                         @Nonnull final EventObservingFailureHandler aFailureHandler)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+    ValueEnforcer.notNull (aAggregator, "Aggregator");
+    ValueEnforcer.notNull (aFailureHandler, "FailureHandler");
+
+    boolean bResult = aAggregator.getIdentity ();
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+      final boolean bHasReturnValue = aHandlingObservers.getHandlerTypeAt (i).hasReturnValue ();
+      if (bHasReturnValue && aAggregator.isFinal (bResult))
+      {
+        // The aggregated result is already decided
+        continue;
+      }
+      if (!bHasReturnValue)
+        _invokeWithoutReturnValue (aFailureHandler, aObserver, aEvent);
+      else
+        if (aObserver instanceof IBooleanResultEventObserver)
+        {
+          try
+          {
+            // main event call - without boxing
+            bResult = aAggregator.combine (bResult, ((IBooleanResultEventObserver) aObserver).onEventBoolean (aEvent));
+          }
+          catch (final Throwable t)
+          {
+            aFailureHandler.onObserverFailure (aObserver, aEvent, t);
+          }
+        }
+        else
+        {
+          final Object aValue = _getBoxedResult (aFailureHandler, aObserver, aEvent, Boolean.class);
+          if (aValue != null)
+            bResult = aAggregator.combine (bResult, ((Boolean) aValue).booleanValue ());
+        }
+    }
+    return bResult;
+  }
+
+  /**
+   * Dispatch the passed event and aggregate the <code>int</code> results of
+   * all observers with a return value.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @param aFailureHandler
+   *        The failure handler to use. May not be <code>null</code>.
+   * @return The aggregated result.
+   */
+  public static int dispatchInt (@Nonnull final IEvent aEvent,
+                                 @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                 @Nonnull final IIntResultAggregator aAggregator,
+                                 @Nonnull final EventObservingFailureHandler aFailureHandler)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+    ValueEnforcer.notNull (aAggregator, "Aggregator");
+    ValueEnforcer.notNull (aFailureHandler, "FailureHandler");
+
+    int nResult = aAggregator.getIdentity ();
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+      final boolean bHasReturnValue = aHandlingObservers.getHandlerTypeAt (i).hasReturnValue ();
+      if (!bHasReturnValue)
+        _invokeWithoutReturnValue (aFailureHandler, aObserver, aEvent);
+      else
+        if (aObserver instanceof IIntResultEventObserver)
+        {
+          try
+          {
+            // main event call - without boxing
+            nResult = aAggregator.combine (nResult, ((IIntResultEventObserver) aObserver).onEventInt (aEvent));
+          }
+          catch (final Throwable t)
+          {
+            aFailureHandler.onObserverFailure (aObserver, aEvent, t);
+          }
+        }
+        else
+        {
+          final Object aValue = _getBoxedResult (aFailureHandler,
+                                                 aObserver,
+                                                 aEvent,
+                                                 Integer.class,
+                                                 Short.class,
+                                                 Byte.class);
+          if (aValue != null)
+            nResult = aAggregator.combine (nResult, ((Number) aValue).intValue ());
+        }
+    }
+    return nResult;
+  }
+
+  /**
+   * Dispatch the passed event and aggregate the <code>long</code> results of
+   * all observers with a return value.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @param aFailureHandler
+   *        The failure handler to use. May not be <code>null</code>.
+   * @return The aggregated result.
+   */
+  public static long dispatchLong (@Nonnull final IEvent aEvent,
+                                   @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                   @Nonnull final ILongResultAggregator aAggregator,
+                                   @Nonnull final EventObservingFailureHandler aFailureHandler)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+    ValueEnforcer.notNull (aAggregator, "Aggregator");
+    ValueEnforcer.notNull (aFailureHandler, "FailureHandler");
+
+    long nResult = aAggregator.getIdentity ();
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+      final boolean bHasReturnValue = aHandlingObservers.getHandlerTypeAt (i).hasReturnValue ();
+      if (!bHasReturnValue)
+        _invokeWithoutReturnValue (aFailureHandler, aObserver, aEvent);
+      else
+        if (aObserver instanceof ILongResultEventObserver)
+        {
+          try
+          {
+            // main event call - without boxing
+            nResult = aAggregator.combine (nResult, ((ILongResultEventObserver) aObserver).onEventLong (aEvent));
+          }
+          catch (final Throwable t)
+          {
+            aFailureHandler.onObserverFailure (aObserver, aEvent, t);
+          }
+        }
+        else
+        {
+          final Object aValue = _getBoxedResult (aFailureHandler,
+                                                 aObserver,
+                                                 aEvent,
+                                                 Long.class,
+                                                 Integer.class,
+                                                 Short.class,
+                                                 Byte.class);
+          if (aValue != null)
+            nResult = aAggregator.combine (nResult, ((Number) aValue).longValue ());
+        }
+    }
+    return nResult;
+  }
+
+  /**
+   * Dispatch the passed event and aggregate the <code>double</code> results of
+   * all observers with a return value.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aHandlingObservers
+   *        The observers that can handle the passed event. May not be
+   *        <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @param aFailureHandler
+   *        The failure handler to use. May not be <code>null</code>.
+   * @return The aggregated result.
+   */
+  public static double dispatchDouble (@Nonnull final IEvent aEvent,
+                                       @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                       @Nonnull final IDoubleResultAggregator aAggregator,
+                                       @Nonnull final EventObservingFailureHandler aFailureHandler)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+    ValueEnforcer.notNull (aAggregator, "Aggregator");
+    ValueEnforcer.notNull (aFailureHandler, "FailureHandler");
+
+    double dResult = aAggregator.getIdentity ();
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+      final boolean bHasReturnValue = aHandlingObservers.getHandlerTypeAt (i).hasReturnValue ();
+      if (!bHasReturnValue)
+        _invokeWithoutReturnValue (aFailureHandler, aObserver, aEvent);
+      else
+        if (aObserver instanceof IDoubleResultEventObserver)
+        {
+          try
+          {
+            // main event call - without boxing
+            dResult = aAggregator.combine (dResult, ((IDoubleResultEventObserver) aObserver).onEventDouble (aEvent));
+          }
+          catch (final Throwable t)
+          {
+            aFailureHandler.onObserverFailure (aObserver, aEvent, t);
+          }
+        }
+        else
+        {
+          final Object aValue = _getBoxedResult (aFailureHandler,
+                                                 aObserver,
+                                                 aEvent,
+                                                 Double.class,
+                                                 Float.class,
+                                                 Integer.class,
+                                                 Short.class,
+                                                 Byte.class);
+          if (aValue != null)
+            dResult = aAggregator.combine (dResult, ((Number) aValue).doubleValue ());
+        }
+    }
+    return dResult;
+  }
+}
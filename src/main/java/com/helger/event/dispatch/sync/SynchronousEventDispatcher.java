@@ -16,24 +16,25 @@
  */
 package com.helger.event.dispatch.sync;
 
-import java.util.Map;
+import java.util.Collections;
 import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.aggregate.IAggregator;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.ICommonsList;
-import com.helger.commons.collection.impl.ICommonsOrderedMap;
-import com.helger.commons.exception.mock.IMockException;
 import com.helger.event.IEvent;
 import com.helger.event.dispatch.AbstractEventDispatcher;
 import com.helger.event.dispatch.EffectiveEventObserverList;
-import com.helger.event.observer.EEventObserverHandlerType;
+import com.helger.event.helper.IBooleanResultAggregator;
+import com.helger.event.helper.IDispatchResultAggregator;
+import com.helger.event.helper.IDoubleResultAggregator;
+import com.helger.event.helper.IIntResultAggregator;
+import com.helger.event.helper.ILongResultAggregator;
+import com.helger.event.helper.IShortCircuitDispatchResultAggregator;
 import com.helger.event.observer.IEventObserver;
 import com.helger.event.observer.exception.EventObservingExceptionWrapper;
 import com.helger.event.observer.exception.IEventObservingExceptionCallback;
@@ -41,98 +42,259 @@ import com.helger.event.observerqueue.IEventObserverQueue;
 
 public class SynchronousEventDispatcher extends AbstractEventDispatcher implements ISynchronousEventDispatcher
 {
-  private static final Logger LOGGER = LoggerFactory.getLogger (SynchronousEventDispatcher.class);
+  /**
+   * A reusable, thread-confined list of result values that is also the result
+   * consumer, so that no capturing lambda needs to be created per dispatch.
+   *
+   * @author Philip Helger
+   */
+  private static final class ResultBuffer implements Consumer <Object>
+  {
+    private final ICommonsList <Object> m_aValues;
+    private boolean m_bInUse = false;
+
+    ResultBuffer (@Nonnull final ICommonsList <Object> aValues)
+    {
+      m_aValues = aValues;
+    }
+
+    public void accept (final Object aValue)
+    {
+      m_aValues.add (aValue);
+    }
+  }
+
+  // Only used for aggregators that don't retain the passed collection
+  private static final ThreadLocal <ResultBuffer> RESULT_BUFFER = ThreadLocal.withInitial ( () -> new ResultBuffer (new CommonsArrayList <> ()));
+
+  // Result consumer for "notify only" dispatches
+  private static final Consumer <Object> NOOP_RESULT_CONSUMER = x -> {};
 
   public SynchronousEventDispatcher (@Nullable final IEventObservingExceptionCallback aExceptionHandler)
   {
     super (aExceptionHandler);
   }
 
-  @Nullable
-  public Object dispatch (@Nonnull final IEvent aEvent, @Nonnull final IEventObserverQueue aObservers)
+  private void _handleException (@Nonnull final IEventObserver aObserver,
+                                 @Nonnull final IEvent aEvent,
+                                 @Nonnull final Throwable t)
   {
-    ValueEnforcer.notNull (aEvent, "Event");
-    ValueEnforcer.notNull (aObservers, "Observers");
-
-    // find all observers that can handle the passed event
-    final EffectiveEventObserverList aHandlingInfo = EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent,
-                                                                                                                         aObservers);
-    final ICommonsOrderedMap <IEventObserver, EEventObserverHandlerType> aHandlingObservers = aHandlingInfo.getObservers ();
+    getFailureHandler ().onObserverFailure (aObserver, aEvent, t);
+  }
 
-    Object aAggregatedDispatchResult;
-    if (aHandlingObservers.isEmpty ())
+  private void _invokeAllWithoutReturnValue (@Nonnull final IEvent aEvent,
+                                             @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    // Iterate all handling observers
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    for (int i = 0; i < nObserverCount; ++i)
     {
-      // No observer -> no result
-      aAggregatedDispatchResult = null;
+      final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+      try
+      {
+        // main event call
+        aObserver.onEvent (aEvent, null);
+      }
+      catch (final Throwable t)
+      {
+        _handleException (aObserver, aEvent, t);
+      }
     }
-    else
+  }
+
+  private void _invokeAllNotifyOnly (@Nonnull final IEvent aEvent,
+                                    @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    // Iterate all handling observers
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    for (int i = 0; i < nObserverCount; ++i)
     {
-      // At least one handler was found
+      final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+      final boolean bHasReturnValue = aHandlingObservers.getHandlerTypeAt (i).hasReturnValue ();
+      try
+      {
+        // main event call - values are discarded
+        aObserver.onEvent (aEvent, bHasReturnValue ? NOOP_RESULT_CONSUMER : null);
+      }
+      catch (final Throwable t)
+      {
+        _handleException (aObserver, aEvent, t);
+      }
+    }
+  }
 
-      // The list of all callback return values
-      final ICommonsList <Object> aEventReturnValues = new CommonsArrayList <> ();
+  private void _invokeAll (@Nonnull final IEvent aEvent,
+                           @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                           @Nonnull final ICommonsList <Object> aEventReturnValues,
+                           @Nonnull final Consumer <Object> aResultCollector,
+                           @Nullable final IShortCircuitDispatchResultAggregator <?> aShortCircuitAggregator)
+  {
+    boolean bResultIsFinal = false;
 
-      // The local result callback that puts the different values into the list
-      final Consumer <Object> aResultCollector = o -> aEventReturnValues.add (o);
+    // Iterate all handling observers
+    final int nObserverCount = aHandlingObservers.getObserverCount ();
+    for (int i = 0; i < nObserverCount; ++i)
+    {
+      final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+      final boolean bHasReturnValue = aHandlingObservers.getHandlerTypeAt (i).hasReturnValue ();
+      if (bHasReturnValue && bResultIsFinal)
+      {
+        // The aggregated result is already decided
+        continue;
+      }
+      final int nOldReturnValueCount = aEventReturnValues.size ();
 
-      // Iterate all handling observers
-      for (final Map.Entry <IEventObserver, EEventObserverHandlerType> aEntry : aHandlingObservers.entrySet ())
+      try
+      {
+        // main event call
+        aObserver.onEvent (aEvent, bHasReturnValue ? aResultCollector : null);
+      }
+      catch (final Throwable t)
       {
-        final IEventObserver aObserver = aEntry.getKey ();
-        final boolean bHasReturnValue = aEntry.getValue ().hasReturnValue ();
-        final int nOldReturnValueCount = aEventReturnValues.size ();
+        _handleException (aObserver, aEvent, t);
 
-        try
-        {
-          // main event call
-          aObserver.onEvent (aEvent, bHasReturnValue ? aResultCollector : null);
-        }
-        catch (final Throwable t)
+        // Handle eventual exception gracefully
+        if (bHasReturnValue)
         {
-          getExceptionCallback ().handleObservingException (t);
-          LOGGER.error ("Failed to notify " +
-                           aObserver +
-                           " on " +
-                           aEvent +
-                           " because of " +
-                           t.getClass ().getName (),
-                           t instanceof IMockException ? null : t);
-
-          // Handle eventual exception gracefully
-          if (bHasReturnValue)
-          {
-            // Add the exception wrapper even if the observer already added a
-            // result -> this leads to an IllegalStateException below!
-            aEventReturnValues.add (new EventObservingExceptionWrapper (aObserver, aEvent, t));
-          }
+          // Add the exception wrapper even if the observer already added a
+          // result -> this leads to an IllegalStateException below!
+          aEventReturnValues.add (new EventObservingExceptionWrapper (aObserver, aEvent, t));
         }
+      }
 
-        /*
-         * Consistency cCheck whether a value was really added (no matter
-         * whether it was an exception or a real value)
-         */
-        if (bHasReturnValue)
+      /*
+       * Consistency cCheck whether a value was really added (no matter whether
+       * it was an exception or a real value)
+       */
+      if (bHasReturnValue)
+      {
+        if (aEventReturnValues.size () == nOldReturnValueCount)
+          throw new IllegalStateException ("The observer " +
+                                           aObserver +
+                                           " did not add any return value on event " +
+                                           aEvent +
+                                           " even though he claimed to have one!");
+        if (aEventReturnValues.size () > nOldReturnValueCount + 1)
+          throw new IllegalStateException ("The observer " +
+                                           aObserver +
+                                           " added more than one return value on " +
+                                           aEvent +
+                                           " which is generally not allowed!");
+
+        if (aShortCircuitAggregator != null &&
+            aShortCircuitAggregator.isFinalResultValue (aEventReturnValues.getLast ()))
+          bResultIsFinal = true;
+      }
+    }
+  }
+
+  @Nullable
+  public Object dispatch (@Nonnull final IEvent aEvent, @Nonnull final IEventObserverQueue aObservers)
+  {
+    // find all observers that can handle the passed event
+    return dispatch (aEvent, EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent, aObservers));
+  }
+
+  @Nullable
+  public Object dispatch (@Nonnull final IEvent aEvent, @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+
+    if (aHandlingObservers.hasNoObservers ())
+    {
+      // No observer -> no result
+      return null;
+    }
+
+    // At least one handler was found
+    final IAggregator <Object, ?> aResultAggregator = aEvent.getResultAggregator ();
+    if (aHandlingObservers.getHandlingObserverCountWithReturnValue () == 0)
+    {
+      // Fast path: nothing to collect
+      _invokeAllWithoutReturnValue (aEvent, aHandlingObservers);
+      return aResultAggregator.apply (Collections.emptyList ());
+    }
+
+    if (aResultAggregator instanceof IDispatchResultAggregator <?>)
+    {
+      // The aggregator does not retain the results, so a thread-confined buffer
+      // can be reused. Nested dispatches fall back to a new buffer.
+      ResultBuffer aBuffer = RESULT_BUFFER.get ();
+      final boolean bReused = !aBuffer.m_bInUse;
+      if (bReused)
+        aBuffer.m_bInUse = true;
+      else
+        aBuffer = new ResultBuffer (new CommonsArrayList <> (aHandlingObservers.getHandlingObserverCountWithReturnValue ()));
+      try
+      {
+        _invokeAll (aEvent,
+                    aHandlingObservers,
+                    aBuffer.m_aValues,
+                    aBuffer,
+                    aResultAggregator instanceof IShortCircuitDispatchResultAggregator <?> ? (IShortCircuitDispatchResultAggregator <?>) aResultAggregator
+                                                                                           : null);
+
+        // finally aggregate all event return values
+        return aResultAggregator.apply (aBuffer.m_aValues);
+      }
+      finally
+      {
+        if (bReused)
         {
-          if (aEventReturnValues.size () == nOldReturnValueCount)
-            throw new IllegalStateException ("The observer " +
-                                             aObserver +
-                                             " did not add any return value on event " +
-                                             aEvent +
-                                             " even though he claimed to have one!");
-          if (aEventReturnValues.size () > nOldReturnValueCount + 1)
-            throw new IllegalStateException ("The observer " +
-                                             aObserver +
-                                             " added more than one return value on " +
-                                             aEvent +
-                                             " which is generally not allowed!");
+          // Don't keep the results alive
+          aBuffer.m_aValues.clear ();
+          aBuffer.m_bInUse = false;
         }
       }
-
-      // finally aggregate all event return values
-      aAggregatedDispatchResult = aEvent.getResultAggregator ().apply (aEventReturnValues);
     }
 
-    // Return the main dispatch result
-    return aAggregatedDispatchResult;
+    // The list of all callback return values - it may be retained by the
+    // aggregator
+    final ICommonsList <Object> aEventReturnValues = new CommonsArrayList <> (aHandlingObservers.getHandlingObserverCountWithReturnValue ());
+    _invokeAll (aEvent, aHandlingObservers, aEventReturnValues, aEventReturnValues::add, null);
+
+    // finally aggregate all event return values
+    return aResultAggregator.apply (aEventReturnValues);
+  }
+
+  public void dispatchNotifyOnly (@Nonnull final IEvent aEvent,
+                                  @Nonnull final EffectiveEventObserverList aHandlingObservers)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aHandlingObservers, "HandlingObservers");
+
+    if (aHandlingObservers.getHandlingObserverCountWithReturnValue () == 0)
+      _invokeAllWithoutReturnValue (aEvent, aHandlingObservers);
+    else
+      _invokeAllNotifyOnly (aEvent, aHandlingObservers);
+  }
+
+  public boolean dispatchBoolean (@Nonnull final IEvent aEvent,
+                                  @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                  @Nonnull final IBooleanResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchBoolean (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  public int dispatchInt (@Nonnull final IEvent aEvent,
+                          @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                          @Nonnull final IIntResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchInt (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  public long dispatchLong (@Nonnull final IEvent aEvent,
+                            @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                            @Nonnull final ILongResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchLong (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
+  }
+
+  public double dispatchDouble (@Nonnull final IEvent aEvent,
+                                @Nonnull final EffectiveEventObserverList aHandlingObservers,
+                                @Nonnull final IDoubleResultAggregator aAggregator)
+  {
+    return PrimitiveResultDispatcher.dispatchDouble (aEvent, aHandlingObservers, aAggregator, getFailureHandler ());
   }
 }
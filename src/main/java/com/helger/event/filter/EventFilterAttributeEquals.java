@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.filter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IAttributeAwareEvent;
+import com.helger.event.IEvent;
+
+/**
+ * An {@link IEventFilter} that matches {@link IAttributeAwareEvent}s with a
+ * certain attribute value.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class EventFilterAttributeEquals implements IEventFilter
+{
+  private final String m_sName;
+  private final Object m_aValue;
+
+  /**
+   * Constructor
+   *
+   * @param sName
+   *        The attribute name. May neither be <code>null</code> nor empty.
+   * @param aValue
+   *        The expected value. May be <code>null</code> to match events
+   *        without that attribute.
+   */
+  public EventFilterAttributeEquals (@Nonnull @Nonempty final String sName, @Nullable final Object aValue)
+  {
+    m_sName = ValueEnforcer.notEmpty (sName, "Name");
+    m_aValue = aValue;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  @Nullable
+  public Object getValue ()
+  {
+    return m_aValue;
+  }
+
+  public boolean matches (@Nonnull final IEvent aEvent)
+  {
+    final Object aValue = aEvent instanceof IAttributeAwareEvent ? ((IAttributeAwareEvent) aEvent).getAttribute (m_sName)
+                                                                 : null;
+    return EqualsHelper.equals (m_aValue, aValue);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventFilterAttributeEquals rhs = (EventFilterAttributeEquals) o;
+    return m_sName.equals (rhs.m_sName) && EqualsHelper.equals (m_aValue, rhs.m_aValue);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_sName).append (m_aValue).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName).append ("Value", m_aValue).getToString ();
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.filter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IAttributeAwareEvent;
+import com.helger.event.IEvent;
+
+/**
+ * An {@link IEventFilter} that matches {@link IAttributeAwareEvent}s with an
+ * attribute value in a certain range. Both bounds are inclusive and optional.
+ *
+ * @author Philip Helger
+ * @param <T>
+ *        The attribute value type
+ */
+@Immutable
+public final class EventFilterAttributeRange <T extends Comparable <? super T>> implements IEventFilter
+{
+  private final String m_sName;
+  private final Class <T> m_aValueClass;
+  private final T m_aMin;
+  private final T m_aMax;
+
+  /**
+   * Constructor
+   *
+   * @param sName
+   *        The attribute name. May neither be <code>null</code> nor empty.
+   * @param aValueClass
+   *        The expected class of the attribute value. Attribute values of
+   *        other classes never match. May not be <code>null</code>.
+   * @param aMin
+   *        The inclusive lower bound. May be <code>null</code> for no lower
+   *        bound.
+   * @param aMax
+   *        The inclusive upper bound. May be <code>null</code> for no upper
+   *        bound.
+   */
+  public EventFilterAttributeRange (@Nonnull @Nonempty final String sName,
+                                    @Nonnull final Class <T> aValueClass,
+                                    @Nullable final T aMin,
+                                    @Nullable final T aMax)
+  {
+    m_sName = ValueEnforcer.notEmpty (sName, "Name");
+    m_aValueClass = ValueEnforcer.notNull (aValueClass, "ValueClass");
+    ValueEnforcer.isTrue (aMin != null || aMax != null, "At least one bound must be present");
+    ValueEnforcer.isTrue (aMin == null || aMax == null || aMin.compareTo (aMax) <= 0, "Min must be <= Max");
+    m_aMin = aMin;
+    m_aMax = aMax;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  @Nonnull
+  public Class <T> getValueClass ()
+  {
+    return m_aValueClass;
+  }
+
+  @Nullable
+  public T getMin ()
+  {
+    return m_aMin;
+  }
+
+  @Nullable
+  public T getMax ()
+  {
+    return m_aMax;
+  }
+
+  public boolean matches (@Nonnull final IEvent aEvent)
+  {
+    if (!(aEvent instanceof IAttributeAwareEvent))
+      return false;
+    final Object aValue = ((IAttributeAwareEvent) aEvent).getAttribute (m_sName);
+    if (!m_aValueClass.isInstance (aValue))
+      return false;
+
+    final T aTypedValue = m_aValueClass.cast (aValue);
+    if (m_aMin != null && aTypedValue.compareTo (m_aMin) < 0)
+      return false;
+    if (m_aMax != null && aTypedValue.compareTo (m_aMax) > 0)
+      return false;
+    return true;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventFilterAttributeRange <?> rhs = (EventFilterAttributeRange <?>) o;
+    return m_sName.equals (rhs.m_sName) &&
+           m_aValueClass.equals (rhs.m_aValueClass) &&
+           EqualsHelper.equals (m_aMin, rhs.m_aMin) &&
+           EqualsHelper.equals (m_aMax, rhs.m_aMax);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_sName)
+                                       .append (m_aValueClass)
+                                       .append (m_aMin)
+                                       .append (m_aMax)
+                                       .getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("ValueClass", m_aValueClass)
+                                       .append ("Min", m_aMin)
+                                       .append ("Max", m_aMax)
+                                       .getToString ();
+  }
+}
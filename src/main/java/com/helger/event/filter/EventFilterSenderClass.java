@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.filter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEvent;
+import com.helger.event.ISenderAwareEvent;
+
+/**
+ * An {@link IEventFilter} that matches {@link ISenderAwareEvent}s whose sender
+ * is an instance of a certain class.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class EventFilterSenderClass implements IEventFilter
+{
+  private final Class <?> m_aSenderClass;
+
+  public EventFilterSenderClass (@Nonnull final Class <?> aSenderClass)
+  {
+    m_aSenderClass = ValueEnforcer.notNull (aSenderClass, "SenderClass");
+  }
+
+  @Nonnull
+  public Class <?> getSenderClass ()
+  {
+    return m_aSenderClass;
+  }
+
+  public boolean matches (@Nonnull final IEvent aEvent)
+  {
+    return aEvent instanceof ISenderAwareEvent <?> && m_aSenderClass.isInstance (((ISenderAwareEvent <?>) aEvent).getSender ());
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventFilterSenderClass rhs = (EventFilterSenderClass) o;
+    return m_aSenderClass.equals (rhs.m_aSenderClass);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aSenderClass).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("SenderClass", m_aSenderClass).getToString ();
+  }
+}
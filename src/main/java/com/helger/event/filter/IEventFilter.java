@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.filter;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.MustImplementEqualsAndHashcode;
+import com.helger.event.IEvent;
+
+/**
+ * A declarative, stateless filter on the content of an event. Filters are
+ * compared via {@link Object#equals(Object)}, so that equal filters of
+ * different observers are evaluated only once per event.
+ *
+ * @author Philip Helger
+ */
+@MustImplementEqualsAndHashcode
+public interface IEventFilter extends Serializable
+{
+  /**
+   * Check if the passed event matches this filter. This method must not have
+   * side effects.
+   *
+   * @param aEvent
+   *        The event to check. May not be <code>null</code>.
+   * @return <code>true</code> if the event matches, <code>false</code> if not.
+   */
+  boolean matches (@Nonnull IEvent aEvent);
+}
@@ -19,18 +19,18 @@ package com.helger.event.helper;
 import java.util.Collection;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.helger.commons.ValueEnforcer;
-import com.helger.commons.aggregate.IAggregator;
 import com.helger.event.observer.exception.EventObservingExceptionWrapper;
 
 /**
  * Aggregate a list of Boolean result values by combining them with a logical
- * AND.
+ * AND. Dispatching stops at the first <code>false</code> value.
  *
  * @author Philip Helger
  */
-public final class DispatchResultAggregatorBooleanAnd implements IAggregator <Object, Boolean>
+public final class DispatchResultAggregatorBooleanAnd implements IShortCircuitDispatchResultAggregator <Boolean>
 {
   @Nonnull
   public Boolean apply (@Nonnull final Collection <Object> aResults)
@@ -49,4 +49,9 @@ public final class DispatchResultAggregatorBooleanAnd implements IAggregator <Ob
       }
     return Boolean.valueOf (bResult);
   }
+
+  public boolean isFinalResultValue (@Nullable final Object aResultValue)
+  {
+    return Boolean.FALSE.equals (aResultValue);
+  }
 }
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.helper;
+
+import java.util.Collection;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.CollectionHelper;
+
+/**
+ * Aggregate a list of result values by using the first result value only. This
+ * is the default aggregator of {@link com.helger.event.BaseEvent}.
+ *
+ * @author Philip Helger
+ */
+public final class DispatchResultAggregatorFirst implements IDispatchResultAggregator <Object>
+{
+  @Nullable
+  public Object apply (@Nonnull final Collection <Object> aResults)
+  {
+    ValueEnforcer.notNull (aResults, "Results");
+
+    return CollectionHelper.getFirstElement (aResults);
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.helper;
+
+/**
+ * Default {@link IBooleanResultAggregator} implementations.
+ *
+ * @author Philip Helger
+ */
+public enum EBooleanResultAggregator implements IBooleanResultAggregator
+{
+  /** Logical AND - stops at the first <code>false</code> value */
+  AND
+  {
+    public boolean getIdentity ()
+    {
+      return true;
+    }
+
+    public boolean combine (final boolean bAggregate, final boolean bValue)
+    {
+      return bAggregate && bValue;
+    }
+
+    @Override
+    public boolean isFinal (final boolean bAggregate)
+    {
+      return !bAggregate;
+    }
+  },
+  /** Logical OR - stops at the first <code>true</code> value */
+  OR
+  {
+    public boolean getIdentity ()
+    {
+      return false;
+    }
+
+    public boolean combine (final boolean bAggregate, final boolean bValue)
+    {
+      return bAggregate || bValue;
+    }
+
+    @Override
+    public boolean isFinal (final boolean bAggregate)
+    {
+      return bAggregate;
+    }
+  };
+}
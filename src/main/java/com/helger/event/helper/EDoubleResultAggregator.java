@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.helper;
+
+/**
+ * Default {@link IDoubleResultAggregator} implementations.
+ *
+ * @author Philip Helger
+ */
+public enum EDoubleResultAggregator implements IDoubleResultAggregator
+{
+  /** Sum of all values */
+  SUM
+  {
+    public double getIdentity ()
+    {
+      return 0d;
+    }
+
+    public double combine (final double dAggregate, final double dValue)
+    {
+      return dAggregate + dValue;
+    }
+  },
+  /** Minimum of all values - {@link Double#POSITIVE_INFINITY} if there is none */
+  MIN
+  {
+    public double getIdentity ()
+    {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    public double combine (final double dAggregate, final double dValue)
+    {
+      return Math.min (dAggregate, dValue);
+    }
+  },
+  /** Maximum of all values - {@link Double#NEGATIVE_INFINITY} if there is none */
+  MAX
+  {
+    public double getIdentity ()
+    {
+      return Double.NEGATIVE_INFINITY;
+    }
+
+    public double combine (final double dAggregate, final double dValue)
+    {
+      return Math.max (dAggregate, dValue);
+    }
+  },
+  /** Number of values */
+  COUNT
+  {
+    public double getIdentity ()
+    {
+      return 0d;
+    }
+
+    public double combine (final double dAggregate, final double dValue)
+    {
+      return dAggregate + 1;
+    }
+  };
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.helper;
+
+/**
+ * Default {@link IIntResultAggregator} implementations.
+ *
+ * @author Philip Helger
+ */
+public enum EIntResultAggregator implements IIntResultAggregator
+{
+  /** Sum of all values */
+  SUM
+  {
+    public int getIdentity ()
+    {
+      return 0;
+    }
+
+    public int combine (final int nAggregate, final int nValue)
+    {
+      return nAggregate + nValue;
+    }
+  },
+  /** Minimum of all values - {@link Integer#MAX_VALUE} if there is none */
+  MIN
+  {
+    public int getIdentity ()
+    {
+      return Integer.MAX_VALUE;
+    }
+
+    public int combine (final int nAggregate, final int nValue)
+    {
+      return Math.min (nAggregate, nValue);
+    }
+  },
+  /** Maximum of all values - {@link Integer#MIN_VALUE} if there is none */
+  MAX
+  {
+    public int getIdentity ()
+    {
+      return Integer.MIN_VALUE;
+    }
+
+    public int combine (final int nAggregate, final int nValue)
+    {
+      return Math.max (nAggregate, nValue);
+    }
+  },
+  /** Number of values */
+  COUNT
+  {
+    public int getIdentity ()
+    {
+      return 0;
+    }
+
+    public int combine (final int nAggregate, final int nValue)
+    {
+      return nAggregate + 1;
+    }
+  };
+}
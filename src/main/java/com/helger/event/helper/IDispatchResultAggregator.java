@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.helper;
+
+import com.helger.commons.aggregate.IAggregator;
+
+/**
+ * Special {@link IAggregator} for dispatch results. Implementations of this
+ * interface must not retain the passed collection (or an iterator of it) after
+ * {@link #apply(Object)} returned. This allows dispatchers to pass a reused
+ * result buffer instead of allocating a new list for each dispatch.
+ * Aggregators that do not implement this interface always receive a new
+ * collection.
+ *
+ * @author Philip Helger
+ * @param <DSTTYPE>
+ *        The aggregated result type
+ */
+public interface IDispatchResultAggregator <DSTTYPE> extends IAggregator <Object, DSTTYPE>
+{
+  /* empty */
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.helper;
+
+/**
+ * Aggregator for <code>int</code> observer results, that combines the results
+ * one by one without boxing and without collecting them.
+ *
+ * @author Philip Helger
+ * @see EIntResultAggregator
+ */
+public interface IIntResultAggregator
+{
+  /**
+   * @return The result if no observer provided a value.
+   */
+  int getIdentity ();
+
+  /**
+   * Combine the current aggregate with the next observer result.
+   *
+   * @param nAggregate
+   *        The current aggregate.
+   * @param nValue
+   *        The result of the next observer.
+   * @return The new aggregate.
+   */
+  int combine (int nAggregate, int nValue);
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.helper;
+
+import javax.annotation.Nullable;
+
+/**
+ * Special {@link IDispatchResultAggregator} that allows dispatchers to stop
+ * invoking further observers with a return value as soon as the aggregated
+ * result is decided. The aggregator must produce the same result for the
+ * values collected up to and including the first final value as for the
+ * values of all observers.
+ *
+ * @author Philip Helger
+ * @param <DSTTYPE>
+ *        The aggregated result type
+ */
+public interface IShortCircuitDispatchResultAggregator <DSTTYPE> extends IDispatchResultAggregator <DSTTYPE>
+{
+  /**
+   * Check if the passed single result value decides the aggregated result,
+   * independent of all other result values.
+   *
+   * @param aResultValue
+   *        The result value of a single observer. May be an
+   *        {@link com.helger.event.observer.exception.EventObservingExceptionWrapper}.
+   *        May be <code>null</code>.
+   * @return <code>true</code> if no further observer with a return value needs
+   *         to be invoked, <code>false</code> otherwise.
+   */
+  boolean isFinalResultValue (@Nullable Object aResultValue);
+}
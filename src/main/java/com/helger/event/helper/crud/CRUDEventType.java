@@ -16,13 +16,16 @@
  */
 package com.helger.event.helper.crud;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.hashcode.IHashCodeGenerator;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.EventTypeRegistry;
 
 /**
  * Default implementation if the {@link ICRUDEventType} interface.
@@ -36,6 +39,10 @@ public class CRUDEventType implements ICRUDEventType
   private final EEventPointInTime m_ePointInTime;
   private final EEventCRUD m_eCRUD;
 
+  // Status vars
+  private transient Integer m_aOrdinal;
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
   public CRUDEventType (@Nonnull @Nonempty final String sBaseName,
                         @Nonnull final EEventPointInTime ePointInTime,
                         @Nonnull final EEventCRUD eCRUD)
@@ -66,6 +73,18 @@ public class CRUDEventType implements ICRUDEventType
     return m_eCRUD;
   }
 
+  @Nonnegative
+  public int getOrdinal ()
+  {
+    Integer ret = m_aOrdinal;
+    if (ret == null)
+    {
+      ret = Integer.valueOf (EventTypeRegistry.getOrdinal (m_sEventName));
+      m_aOrdinal = ret;
+    }
+    return ret.intValue ();
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -80,7 +99,10 @@ public class CRUDEventType implements ICRUDEventType
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_sEventName).getHashCode ();
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (m_sEventName).getHashCode ();
+    return ret;
   }
 
   @Override
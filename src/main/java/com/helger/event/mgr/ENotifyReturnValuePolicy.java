@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.mgr;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * Determines how observers that declare a return value are treated when an
+ * event is triggered in "notify only" mode, where no results are collected.
+ *
+ * @author Philip Helger
+ */
+public enum ENotifyReturnValuePolicy implements IHasID <String>
+{
+  /**
+   * Invoke the observers and pass a consumer that ignores the provided value.
+   */
+  INVOKE_WITH_NOOP_CONSUMER ("invoke"),
+  /**
+   * Don't invoke the observers at all. "Only once" observers with a return
+   * value are not consumed.
+   */
+  SKIP ("skip");
+
+  /** The default policy */
+  public static final ENotifyReturnValuePolicy DEFAULT = INVOKE_WITH_NOOP_CONSUMER;
+
+  private final String m_sID;
+
+  private ENotifyReturnValuePolicy (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  public boolean isInvokeReturnValueObservers ()
+  {
+    return this == INVOKE_WITH_NOOP_CONSUMER;
+  }
+
+  @Nullable
+  public static ENotifyReturnValuePolicy getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (ENotifyReturnValuePolicy.class, sID);
+  }
+}
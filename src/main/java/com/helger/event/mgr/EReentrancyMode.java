@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.mgr;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * Determines how an {@link EventManager} handles events that are triggered
+ * synchronously from within an observer on the same thread. This applies to
+ * all synchronous triggers. If dispatching an event fails with an exception,
+ * all events still queued are discarded and logged.
+ *
+ * @author Philip Helger
+ */
+public enum EReentrancyMode implements IHasID <String>
+{
+  /**
+   * The nested event is dispatched immediately and recursively. The trigger
+   * returns the aggregated result of the nested event.
+   */
+  NESTED ("nested"),
+  /**
+   * The nested event is queued and dispatched after the current event. Events
+   * of the same cascade level are dispatched before events of the next level.
+   * The trigger returns no result (<code>null</code> or the identity of the
+   * primitive aggregator).
+   */
+  QUEUED_BREADTH_FIRST ("breadthfirst"),
+  /**
+   * The nested event is queued and dispatched after the current event, but
+   * before any other queued event that was triggered earlier. The trigger
+   * returns no result like with {@link #QUEUED_BREADTH_FIRST}.
+   */
+  QUEUED_DEPTH_FIRST ("depthfirst");
+
+  /** The default mode */
+  public static final EReentrancyMode DEFAULT = NESTED;
+
+  private final String m_sID;
+
+  private EReentrancyMode (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  /**
+   * @return <code>true</code> if nested events are queued and dispatched
+   *         iteratively.
+   */
+  public boolean isQueued ()
+  {
+    return this != NESTED;
+  }
+
+  @Nullable
+  public static EReentrancyMode getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EReentrancyMode.class, sID);
+  }
+}
@@ -16,8 +16,16 @@
  */
 package com.helger.event.mgr;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -25,12 +33,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsConcurrentHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.map.MapEntry;
 import com.helger.commons.state.EChange;
 import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.EffectiveEventObserverList;
+import com.helger.event.dispatch.EventDispatchPlan;
 import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
 import com.helger.event.dispatch.async.IAsynchronousEventDispatcher;
 import com.helger.event.dispatch.sync.ISynchronousEventDispatcher;
 import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.helper.IBooleanResultAggregator;
+import com.helger.event.helper.IDoubleResultAggregator;
+import com.helger.event.helper.IIntResultAggregator;
+import com.helger.event.helper.ILongResultAggregator;
+import com.helger.event.observer.EEventObserverHandlerType;
+import com.helger.event.observer.IBatchEventObserver;
 import com.helger.event.observer.IEventObserver;
 import com.helger.event.observer.exception.IEventObservingExceptionCallback;
 import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
@@ -38,11 +63,214 @@ import com.helger.event.observerqueue.IEventObserverQueue;
 
 public class EventManager implements IEventManager
 {
+  /** The default maximum depth of synchronous event cascades */
+  public static final int DEFAULT_MAX_CASCADE_DEPTH = 256;
+
   private static final Logger LOGGER = LoggerFactory.getLogger (EventManager.class);
 
+  /**
+   * An event triggered from within an observer, that is queued for later
+   * dispatching.
+   *
+   * @author Philip Helger
+   */
+  private static final class QueuedEvent
+  {
+    // The event or the events of a batch - for logging only
+    private final Object m_aEvent;
+    private final Runnable m_aDispatch;
+    private final int m_nDepth;
+
+    QueuedEvent (@Nonnull final Object aEvent, @Nonnull final Runnable aDispatch, final int nDepth)
+    {
+      m_aEvent = aEvent;
+      m_aDispatch = aDispatch;
+      m_nDepth = nDepth;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return String.valueOf (m_aEvent);
+    }
+  }
+
+  /**
+   * The batch dispatch state of a single event type within one
+   * {@link EventManager#triggerSynchronousBatch(Iterable)} call.
+   *
+   * @author Philip Helger
+   */
+  private static final class BatchOfType
+  {
+    private final EventDispatchPlan m_aPlan;
+    // The last resolved observer list, its batch observers and the list
+    // without the batch observers
+    private EffectiveEventObserverList m_aLastList;
+    private ICommonsList <IBatchEventObserver> m_aLastBatchObservers;
+    private EffectiveEventObserverList m_aLastNonBatchList;
+    // The events per batch observer
+    private final ICommonsOrderedMap <IBatchEventObserver, ICommonsList <IEvent>> m_aBatches = new CommonsLinkedHashMap <> ();
+
+    BatchOfType (@Nonnull final EventDispatchPlan aPlan)
+    {
+      m_aPlan = aPlan;
+    }
+
+    /**
+     * Add the event to the batches of all batch observers handling it.
+     *
+     * @return The observers that must be invoked directly for the event.
+     */
+    @Nonnull
+    EffectiveEventObserverList addEvent (@Nonnull final IEvent aEvent,
+                                         @Nonnull final EffectiveEventObserverList aHandlingObservers)
+    {
+      if (aHandlingObservers != m_aLastList)
+      {
+        // Static plans return the same list for all events, so this is done
+        // only once per event type
+        final ICommonsList <IBatchEventObserver> aBatchObservers = new CommonsArrayList <> ();
+        final int nObserverCount = aHandlingObservers.getObserverCount ();
+        for (int i = 0; i < nObserverCount; ++i)
+        {
+          final IEventObserver aObserver = aHandlingObservers.getObserverAt (i);
+          if (_isBatchDelivery (aObserver, aHandlingObservers.getHandlerTypeAt (i)))
+            aBatchObservers.add ((IBatchEventObserver) aObserver);
+        }
+        m_aLastList = aHandlingObservers;
+        m_aLastBatchObservers = aBatchObservers;
+        if (aBatchObservers.isEmpty ())
+          m_aLastNonBatchList = aHandlingObservers;
+        else
+          m_aLastNonBatchList = aHandlingObservers.getFiltered ( (o, e) -> !_isBatchDelivery (o, e));
+      }
+
+      for (final IBatchEventObserver aObserver : m_aLastBatchObservers)
+        m_aBatches.computeIfAbsent (aObserver, k -> new CommonsArrayList <> ()).add (aEvent);
+      return m_aLastNonBatchList;
+    }
+  }
+
+  /**
+   * The result of a direct synchronous dispatch. Each thread reuses its own
+   * instance, so that neither the result holder nor primitive results are
+   * allocated per trigger.
+   *
+   * @author Philip Helger
+   */
+  private static final class DispatchResult
+  {
+    private Object m_aResult;
+    private ICommonsList <Object> m_aResults;
+    private boolean m_bResult;
+    private int m_nIntResult;
+    private long m_nLongResult;
+    private double m_dResult;
+
+    @Nullable
+    Object getAndClearResult ()
+    {
+      final Object ret = m_aResult;
+      m_aResult = null;
+      return ret;
+    }
+
+    @Nullable
+    ICommonsList <Object> getAndClearResults ()
+    {
+      final ICommonsList <Object> ret = m_aResults;
+      m_aResults = null;
+      return ret;
+    }
+  }
+
+  /**
+   * A synchronous dispatch action. Implemented by non-capturing lambdas, so
+   * that a directly run dispatch does not allocate.
+   *
+   * @author Philip Helger
+   * @param <E>
+   *        The event type
+   * @param <A>
+   *        The additional argument type
+   */
+  @FunctionalInterface
+  private interface ISyncDispatch <E, A>
+  {
+    void dispatch (@Nonnull EventManager aMgr, @Nonnull E aEvent, A aArg, @Nonnull DispatchResult aResult);
+  }
+
+  /**
+   * The synchronous dispatch state of a single thread.
+   *
+   * @author Philip Helger
+   */
+  private static final class DispatchState
+  {
+    // -1 means "not dispatching"
+    private int m_nDepth = -1;
+    private final Deque <QueuedEvent> m_aQueue = new ArrayDeque <> ();
+    // Events triggered while dispatching the current event
+    private final ICommonsList <QueuedEvent> m_aChildren = new CommonsArrayList <> ();
+    private final DispatchResult m_aResult = new DispatchResult ();
+
+    boolean isDispatching ()
+    {
+      return m_nDepth >= 0;
+    }
+
+    boolean hasPending ()
+    {
+      return !m_aQueue.isEmpty () || m_aChildren.isNotEmpty ();
+    }
+
+    @Nonnull
+    ICommonsList <QueuedEvent> getAllPending ()
+    {
+      final ICommonsList <QueuedEvent> ret = new CommonsArrayList <> (m_aChildren);
+      ret.addAll (m_aQueue);
+      return ret;
+    }
+
+    void enqueueChildren (@Nonnull final EReentrancyMode eMode)
+    {
+      if (eMode == EReentrancyMode.QUEUED_DEPTH_FIRST)
+      {
+        // Before all others, in trigger order
+        for (int i = m_aChildren.size () - 1; i >= 0; --i)
+          m_aQueue.addFirst (m_aChildren.get (i));
+      }
+      else
+        m_aQueue.addAll (m_aChildren);
+      m_aChildren.clear ();
+    }
+
+    void reset ()
+    {
+      m_nDepth = -1;
+      m_aQueue.clear ();
+      m_aChildren.clear ();
+    }
+  }
+
+  // Returned by _beginDispatch if the event must be queued
+  private static final int QUEUE = -2;
+
   private final IEventObserverQueue m_aObserverQueue;
   private final ISynchronousEventDispatcher m_aSyncEventDispatcher;
   private final IAsynchronousEventDispatcher m_aAsyncEventDispatcher;
+  // The resolved dispatch plans per event type - each tagged with the version
+  // of the observer queue
+  private final ICommonsMap <IEventType, EventDispatchPlan> m_aPlanCache = new CommonsConcurrentHashMap <> ();
+  // The claim state per "only once" observer registration
+  private final ICommonsMap <IEventObserver, AtomicBoolean> m_aOnlyOnceClaims = new CommonsConcurrentHashMap <> ();
+  // Claimed "only once" observers that still need to be unregistered
+  private final Queue <Map.Entry <IEventObserver, AtomicBoolean>> m_aPendingOnlyOnceRemovals = new ConcurrentLinkedQueue <> ();
+  private final Predicate <IEventObserver> m_aOnlyOnceClaimer = this::_claimOnlyOnceObserver;
+  private final ThreadLocal <DispatchState> m_aDispatchState = ThreadLocal.withInitial (DispatchState::new);
+  private volatile EReentrancyMode m_eReentrancyMode = EReentrancyMode.DEFAULT;
+  private volatile int m_nMaxCascadeDepth = DEFAULT_MAX_CASCADE_DEPTH;
 
   public EventManager ()
   {
@@ -90,16 +318,203 @@ public class EventManager implements IEventManager
     return m_aAsyncEventDispatcher;
   }
 
+  /**
+   * @return The handling of synchronous triggers from within observers. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final EReentrancyMode getReentrancyMode ()
+  {
+    return m_eReentrancyMode;
+  }
+
+  /**
+   * Set the handling of synchronous triggers from within observers on the same
+   * thread. This applies to all synchronous triggers.
+   *
+   * @param eReentrancyMode
+   *        The mode to use. May not be <code>null</code>.
+   */
+  public final void setReentrancyMode (@Nonnull final EReentrancyMode eReentrancyMode)
+  {
+    ValueEnforcer.notNull (eReentrancyMode, "ReentrancyMode");
+    m_eReentrancyMode = eReentrancyMode;
+  }
+
+  /**
+   * @return The maximum depth of a synchronous event cascade. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxCascadeDepth ()
+  {
+    return m_nMaxCascadeDepth;
+  }
+
+  /**
+   * Set the maximum depth of a synchronous event cascade. If an observer
+   * triggers an event that would exceed this depth, an
+   * {@link IllegalStateException} is thrown to the observer.
+   *
+   * @param nMaxCascadeDepth
+   *        The maximum depth. Must be &gt; 0.
+   */
+  public final void setMaxCascadeDepth (@Nonnegative final int nMaxCascadeDepth)
+  {
+    ValueEnforcer.isGT0 (nMaxCascadeDepth, "MaxCascadeDepth");
+    m_nMaxCascadeDepth = nMaxCascadeDepth;
+  }
+
+  /**
+   * @return The current registration version. It is the version of the
+   *         observer queue, and therefore increased upon every successful
+   *         registration and unregistration, even if the observer queue is
+   *         modified directly.
+   * @see IEventObserverQueue#getVersion()
+   */
+  public final long getRegistrationVersion ()
+  {
+    return m_aObserverQueue.getVersion ();
+  }
+
+  private void _onRegistrationChange ()
+  {
+    // Outdated plans are detected via the queue version - this just releases
+    // the references to unregistered observers early
+    m_aPlanCache.clear ();
+  }
+
   @Nonnull
   public final EChange registerObserver (@Nonnull final IEventObserver aObserver)
   {
-    return m_aObserverQueue.addObserver (aObserver);
+    return registerObserver (aObserver, IEventObserverQueue.DEFAULT_PRIORITY);
+  }
+
+  @Nonnull
+  public final EChange registerObserver (@Nonnull final IEventObserver aObserver, final int nPriority)
+  {
+    // Each registration of an "only once" observer may be claimed once. An
+    // existing claim state is kept, as a duplicate registration must not
+    // re-arm an observer that was already claimed.
+    if (aObserver.isOnlyOnce ())
+      m_aOnlyOnceClaims.putIfAbsent (aObserver, new AtomicBoolean (false));
+
+    final EChange eChange = m_aObserverQueue.addObserver (aObserver, nPriority);
+    if (eChange.isChanged ())
+      _onRegistrationChange ();
+    return eChange;
   }
 
   @Nonnull
   public final EChange unregisterObserver (@Nonnull final IEventObserver aObserver)
   {
-    return m_aObserverQueue.removeObserver (aObserver);
+    final EChange eChange = m_aObserverQueue.removeObserver (aObserver);
+    if (eChange.isChanged ())
+    {
+      m_aOnlyOnceClaims.remove (aObserver);
+      _onRegistrationChange ();
+    }
+    return eChange;
+  }
+
+  private boolean _claimOnlyOnceObserver (@Nonnull final IEventObserver aObserver)
+  {
+    final AtomicBoolean aClaimState = m_aOnlyOnceClaims.get (aObserver);
+    if (aClaimState == null)
+    {
+      // Not registered via this manager or already removed - the removal
+      // itself is the claim
+      if (m_aObserverQueue.removeObserver (aObserver).isUnchanged ())
+        return false;
+      _onRegistrationChange ();
+      return true;
+    }
+
+    // Exactly one caller wins
+    if (!aClaimState.compareAndSet (false, true))
+      return false;
+
+    // Defer the removal until the dispatching is done
+    m_aPendingOnlyOnceRemovals.add (new MapEntry <> (aObserver, aClaimState));
+    return true;
+  }
+
+  /**
+   * Unregister all "only once" observers that were claimed by a previous
+   * dispatch. This is called automatically after each trigger.
+   */
+  protected final void removeClaimedOnlyOnceObservers ()
+  {
+    Map.Entry <IEventObserver, AtomicBoolean> aEntry;
+    while ((aEntry = m_aPendingOnlyOnceRemovals.poll ()) != null)
+    {
+      final IEventObserver aObserver = aEntry.getKey ();
+      // Only if the observer was not re-registered in the meantime
+      if (m_aOnlyOnceClaims.remove (aObserver, aEntry.getValue ()))
+        if (m_aObserverQueue.removeObserver (aObserver).isChanged ())
+          _onRegistrationChange ();
+    }
+  }
+
+  @Nonnull
+  private EventDispatchPlan _getDispatchPlan (@Nonnull final IEvent aEvent)
+  {
+    final IEventObserverQueue aObserverQueue = getObserverQueue ();
+    final IEventType aEventType = aEvent.getEventType ();
+    // Read the version before the observers are read, so that plans created
+    // concurrently to a registration change are recognized as outdated
+    final long nVersion = aObserverQueue.getVersion ();
+
+    if (!aObserverQueue.isCachingAllowed ())
+    {
+      // Resolve from scratch
+      return EventDispatchPlan.create (aEvent, aObserverQueue.getObserverSnapshot (aEventType), nVersion, false);
+    }
+
+    EventDispatchPlan aPlan = m_aPlanCache.get (aEventType);
+    if (aPlan == null || aPlan.getVersion () != nVersion)
+    {
+      aPlan = EventDispatchPlan.create (aEvent, aObserverQueue.getObserverSnapshot (aEventType), nVersion, true);
+      m_aPlanCache.put (aEventType, aPlan);
+    }
+    return aPlan;
+  }
+
+  /**
+   * Get all observers that can handle the passed event. If the observer queue
+   * allows for caching, the resolved {@link EventDispatchPlan} is cached per
+   * event type until the version of the observer queue changes. Each "only once" observer
+   * is atomically claimed, so that it is contained in the result of exactly one
+   * call. The claimed observers are unregistered in
+   * {@link #removeClaimedOnlyOnceObservers()}.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  protected final EffectiveEventObserverList getEffectiveObserverList (@Nonnull final IEvent aEvent)
+  {
+    return _getDispatchPlan (aEvent).getEffectiveObserverList (aEvent, m_aOnlyOnceClaimer);
+  }
+
+  /**
+   * Get all observers that can handle the passed event, optionally without
+   * the observers having a return value.
+   *
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param bIncludeReturnValueObservers
+   *        <code>true</code> to include observers with a return value,
+   *        <code>false</code> to exclude them. Excluded "only once" observers
+   *        are not claimed.
+   * @return Never <code>null</code>.
+   * @see #getEffectiveObserverList(IEvent)
+   */
+  @Nonnull
+  protected final EffectiveEventObserverList getEffectiveObserverList (@Nonnull final IEvent aEvent,
+                                                                       final boolean bIncludeReturnValueObservers)
+  {
+    return _getDispatchPlan (aEvent).getEffectiveObserverList (aEvent, m_aOnlyOnceClaimer, bIncludeReturnValueObservers);
   }
 
   public void close ()
@@ -111,8 +526,153 @@ public class EventManager implements IEventManager
       LOGGER.debug ("EventManager closed");
   }
 
+  /**
+   * Begin the synchronous dispatching of an event on the current thread.
+   *
+   * @param aState
+   *        The dispatch state of the current thread. May not be
+   *        <code>null</code>.
+   * @param aEvent
+   *        The event or events to be dispatched - for error messages only.
+   * @return The previous dispatch depth to be passed to
+   *         {@link #_endDispatch(DispatchState, int)} (-1 for the outermost
+   *         dispatch), or {@link #QUEUE} if the event was triggered from within
+   *         an observer and must be queued via
+   *         {@link #_queue(DispatchState, Object, Runnable)}.
+   * @throws IllegalStateException
+   *         if the maximum cascade depth is exceeded
+   */
+  private int _beginDispatch (@Nonnull final DispatchState aState, @Nonnull final Object aEvent)
+  {
+    if (!aState.isDispatching ())
+    {
+      aState.m_nDepth = 0;
+      return -1;
+    }
+
+    // Triggered from within an observer
+    final int nDepth = aState.m_nDepth + 1;
+    if (nDepth > m_nMaxCascadeDepth)
+      throw new IllegalStateException ("The maximum event cascade depth of " +
+                                       m_nMaxCascadeDepth +
+                                       " was exceeded by " +
+                                       aEvent);
+    if (m_eReentrancyMode.isQueued ())
+      return QUEUE;
+
+    final int nOldDepth = aState.m_nDepth;
+    aState.m_nDepth = nDepth;
+    return nOldDepth;
+  }
+
+  private static void _queue (@Nonnull final DispatchState aState,
+                              @Nonnull final Object aEvent,
+                              @Nonnull final Runnable aDispatch)
+  {
+    // Dispatched after the current event
+    aState.m_aChildren.add (new QueuedEvent (aEvent, aDispatch, aState.m_nDepth + 1));
+  }
+
+  /**
+   * Dispatch all queued events iteratively. Only does something for the
+   * outermost dispatch.
+   */
+  private void _dispatchQueued (@Nonnull final DispatchState aState, final int nOldDepth)
+  {
+    if (nOldDepth >= 0 || !aState.hasPending ())
+      return;
+
+    final EReentrancyMode eMode = m_eReentrancyMode;
+    aState.enqueueChildren (eMode);
+    QueuedEvent aQueued;
+    while ((aQueued = aState.m_aQueue.pollFirst ()) != null)
+    {
+      aState.m_nDepth = aQueued.m_nDepth;
+      aQueued.m_aDispatch.run ();
+      aState.enqueueChildren (eMode);
+    }
+  }
+
+  private static void _endDispatch (@Nonnull final DispatchState aState, final int nOldDepth)
+  {
+    if (nOldDepth >= 0)
+    {
+      // Nested
+      aState.m_nDepth = nOldDepth;
+      return;
+    }
+
+    // Only left over if dispatching failed with an exception
+    if (aState.hasPending ())
+    {
+      final ICommonsList <QueuedEvent> aDiscarded = aState.getAllPending ();
+      LOGGER.error ("Discarding " +
+                    aDiscarded.size () +
+                    " queued event(s) because a previous event failed to be dispatched: " +
+                    aDiscarded);
+    }
+    aState.reset ();
+  }
+
+  /**
+   * Run a synchronous dispatch with the dispatch state of the current thread.
+   * If it was triggered from within an observer and the reentrancy mode is a
+   * queued one, it is queued and run later by the outermost dispatch.
+   * Otherwise it is run directly, followed by all events queued in the
+   * meantime if it is the outermost dispatch.
+   *
+   * @param aEvent
+   *        The event or events to be dispatched. May not be <code>null</code>.
+   * @param aArg
+   *        The additional argument passed to the dispatch action.
+   * @param aDispatch
+   *        The dispatch action. May not be <code>null</code>.
+   * @return The result of the directly run action, or <code>null</code> if it
+   *         was queued. The result object is reused by the next dispatch on
+   *         the current thread, so it must be read immediately.
+   * @throws IllegalStateException
+   *         if the maximum cascade depth is exceeded
+   */
+  @Nullable
+  private <E, A> DispatchResult _dispatch (@Nonnull final E aEvent,
+                                           @Nullable final A aArg,
+                                           @Nonnull final ISyncDispatch <E, A> aDispatch)
+  {
+    final DispatchState aState = m_aDispatchState.get ();
+    final int nOldDepth = _beginDispatch (aState, aEvent);
+    if (nOldDepth == QUEUE)
+    {
+      // The result of a queued dispatch is dropped
+      _queue (aState, aEvent, () -> aDispatch.dispatch (this, aEvent, aArg, new DispatchResult ()));
+      return null;
+    }
+
+    try
+    {
+      final DispatchResult aResult = aState.m_aResult;
+      aDispatch.dispatch (this, aEvent, aArg, aResult);
+      // Queued dispatches use their own result object
+      _dispatchQueued (aState, nOldDepth);
+      return aResult;
+    }
+    finally
+    {
+      _endDispatch (aState, nOldDepth);
+    }
+  }
+
   @Nullable
   public Object triggerSynchronous (@Nonnull final IEvent aEvent)
+  {
+    final DispatchResult aResult = _dispatch (aEvent,
+                                              null,
+                                              (m, e, a, r) -> r.m_aResult = m._triggerSynchronous (e));
+    // null if queued
+    return aResult == null ? null : aResult.getAndClearResult ();
+  }
+
+  @Nullable
+  private Object _triggerSynchronous (@Nonnull final IEvent aEvent)
   {
     // Default return value is null
     Object ret = null;
@@ -124,12 +684,251 @@ public class EventManager implements IEventManager
         LOGGER.debug ("EventManager triggerSynchronous " + aEvent);
 
       aObserverQueue.beforeDispatch ();
-      ret = getSyncEventDispatcher ().dispatch (aEvent, aObserverQueue);
+      ret = getSyncEventDispatcher ().dispatch (aEvent, getEffectiveObserverList (aEvent));
       aObserverQueue.afterDispatch ();
+      removeClaimedOnlyOnceObservers ();
     }
     return ret;
   }
 
+  public void triggerSynchronousNotifyOnly (@Nonnull final IEvent aEvent)
+  {
+    triggerSynchronousNotifyOnly (aEvent, ENotifyReturnValuePolicy.DEFAULT);
+  }
+
+  public void triggerSynchronousNotifyOnly (@Nonnull final IEvent aEvent,
+                                            @Nonnull final ENotifyReturnValuePolicy ePolicy)
+  {
+    ValueEnforcer.notNull (ePolicy, "Policy");
+
+    _dispatch (aEvent, ePolicy, (m, e, a, r) -> m._triggerSynchronousNotifyOnly (e, a));
+  }
+
+  private void _triggerSynchronousNotifyOnly (@Nonnull final IEvent aEvent,
+                                              @Nonnull final ENotifyReturnValuePolicy ePolicy)
+  {
+    final IEventObserverQueue aObserverQueue = getObserverQueue ();
+    if (!aObserverQueue.isEmpty ())
+    {
+      // At least one observer is present
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("EventManager triggerSynchronousNotifyOnly " + aEvent + " -- " + ePolicy);
+
+      aObserverQueue.beforeDispatch ();
+      getSyncEventDispatcher ().dispatchNotifyOnly (aEvent,
+                                                   getEffectiveObserverList (aEvent,
+                                                                             ePolicy.isInvokeReturnValueObservers ()));
+      aObserverQueue.afterDispatch ();
+      removeClaimedOnlyOnceObservers ();
+    }
+  }
+
+  public boolean triggerSynchronousBoolean (@Nonnull final IEvent aEvent,
+                                            @Nonnull final IBooleanResultAggregator aAggregator)
+  {
+    ValueEnforcer.notNull (aAggregator, "Aggregator");
+
+    final DispatchResult aResult = _dispatch (aEvent,
+                                              aAggregator,
+                                              (m, e, a, r) -> r.m_bResult = m._triggerSynchronousBoolean (e, a));
+    // The identity if queued
+    return aResult == null ? aAggregator.getIdentity () : aResult.m_bResult;
+  }
+
+  private boolean _triggerSynchronousBoolean (@Nonnull final IEvent aEvent,
+                                              @Nonnull final IBooleanResultAggregator aAggregator)
+  {
+    // Default return value is the identity
+    boolean bRet = aAggregator.getIdentity ();
+    final IEventObserverQueue aObserverQueue = getObserverQueue ();
+    if (!aObserverQueue.isEmpty ())
+    {
+      // At least one observer is present
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("EventManager triggerSynchronousBoolean " + aEvent);
+
+      aObserverQueue.beforeDispatch ();
+      bRet = getSyncEventDispatcher ().dispatchBoolean (aEvent, getEffectiveObserverList (aEvent), aAggregator);
+      aObserverQueue.afterDispatch ();
+      removeClaimedOnlyOnceObservers ();
+    }
+    return bRet;
+  }
+
+  public int triggerSynchronousInt (@Nonnull final IEvent aEvent,
+                                    @Nonnull final IIntResultAggregator aAggregator)
+  {
+    ValueEnforcer.notNull (aAggregator, "Aggregator");
+
+    final DispatchResult aResult = _dispatch (aEvent,
+                                              aAggregator,
+                                              (m, e, a, r) -> r.m_nIntResult = m._triggerSynchronousInt (e, a));
+    // The identity if queued
+    return aResult == null ? aAggregator.getIdentity () : aResult.m_nIntResult;
+  }
+
+  private int _triggerSynchronousInt (@Nonnull final IEvent aEvent,
+                                      @Nonnull final IIntResultAggregator aAggregator)
+  {
+    // Default return value is the identity
+    int nRet = aAggregator.getIdentity ();
+    final IEventObserverQueue aObserverQueue = getObserverQueue ();
+    if (!aObserverQueue.isEmpty ())
+    {
+      // At least one observer is present
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("EventManager triggerSynchronousInt " + aEvent);
+
+      aObserverQueue.beforeDispatch ();
+      nRet = getSyncEventDispatcher ().dispatchInt (aEvent, getEffectiveObserverList (aEvent), aAggregator);
+      aObserverQueue.afterDispatch ();
+      removeClaimedOnlyOnceObservers ();
+    }
+    return nRet;
+  }
+
+  public long triggerSynchronousLong (@Nonnull final IEvent aEvent,
+                                      @Nonnull final ILongResultAggregator aAggregator)
+  {
+    ValueEnforcer.notNull (aAggregator, "Aggregator");
+
+    final DispatchResult aResult = _dispatch (aEvent,
+                                              aAggregator,
+                                              (m, e, a, r) -> r.m_nLongResult = m._triggerSynchronousLong (e, a));
+    // The identity if queued
+    return aResult == null ? aAggregator.getIdentity () : aResult.m_nLongResult;
+  }
+
+  private long _triggerSynchronousLong (@Nonnull final IEvent aEvent,
+                                        @Nonnull final ILongResultAggregator aAggregator)
+  {
+    // Default return value is the identity
+    long nRet = aAggregator.getIdentity ();
+    final IEventObserverQueue aObserverQueue = getObserverQueue ();
+    if (!aObserverQueue.isEmpty ())
+    {
+      // At least one observer is present
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("EventManager triggerSynchronousLong " + aEvent);
+
+      aObserverQueue.beforeDispatch ();
+      nRet = getSyncEventDispatcher ().dispatchLong (aEvent, getEffectiveObserverList (aEvent), aAggregator);
+      aObserverQueue.afterDispatch ();
+      removeClaimedOnlyOnceObservers ();
+    }
+    return nRet;
+  }
+
+  public double triggerSynchronousDouble (@Nonnull final IEvent aEvent,
+                                          @Nonnull final IDoubleResultAggregator aAggregator)
+  {
+    ValueEnforcer.notNull (aAggregator, "Aggregator");
+
+    final DispatchResult aResult = _dispatch (aEvent,
+                                              aAggregator,
+                                              (m, e, a, r) -> r.m_dResult = m._triggerSynchronousDouble (e, a));
+    // The identity if queued
+    return aResult == null ? aAggregator.getIdentity () : aResult.m_dResult;
+  }
+
+  private double _triggerSynchronousDouble (@Nonnull final IEvent aEvent,
+                                            @Nonnull final IDoubleResultAggregator aAggregator)
+  {
+    // Default return value is the identity
+    double dRet = aAggregator.getIdentity ();
+    final IEventObserverQueue aObserverQueue = getObserverQueue ();
+    if (!aObserverQueue.isEmpty ())
+    {
+      // At least one observer is present
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("EventManager triggerSynchronousDouble " + aEvent);
+
+      aObserverQueue.beforeDispatch ();
+      dRet = getSyncEventDispatcher ().dispatchDouble (aEvent, getEffectiveObserverList (aEvent), aAggregator);
+      aObserverQueue.afterDispatch ();
+      removeClaimedOnlyOnceObservers ();
+    }
+    return dRet;
+  }
+
+  private static boolean _isBatchDelivery (@Nonnull final IEventObserver aObserver,
+                                           @Nonnull final EEventObserverHandlerType eHandlerType)
+  {
+    return aObserver instanceof IBatchEventObserver && !eHandlerType.hasReturnValue ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <Object> triggerSynchronousBatch (@Nonnull final Iterable <? extends IEvent> aEvents)
+  {
+    ValueEnforcer.notNull (aEvents, "Events");
+
+    // The events may only be iterable once
+    final ICommonsList <IEvent> aEventList = new CommonsArrayList <> (aEvents);
+    final DispatchResult aResult = _dispatch (aEventList,
+                                              null,
+                                              (m, e, a, r) -> r.m_aResults = m._triggerSynchronousBatch (e));
+    if (aResult != null)
+      return aResult.getAndClearResults ();
+
+    // Queued - no results
+    final ICommonsList <Object> ret = new CommonsArrayList <> (aEventList.size ());
+    for (int i = 0; i < aEventList.size (); ++i)
+      ret.add (null);
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  private ICommonsList <Object> _triggerSynchronousBatch (@Nonnull final Iterable <? extends IEvent> aEvents)
+  {
+    final ICommonsList <Object> ret = new CommonsArrayList <> ();
+    final IEventObserverQueue aObserverQueue = getObserverQueue ();
+    if (aObserverQueue.isEmpty ())
+    {
+      // No observer -> no results
+      for (final IEvent aEvent : aEvents)
+        ret.add (null);
+      return ret;
+    }
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("EventManager triggerSynchronousBatch " + aEvents);
+
+    // Resolve each event type only once
+    final ICommonsOrderedMap <IEventType, BatchOfType> aBatchesPerType = new CommonsLinkedHashMap <> ();
+
+    aObserverQueue.beforeDispatch ();
+    for (final IEvent aEvent : aEvents)
+    {
+      final BatchOfType aBatchOfType = aBatchesPerType.computeIfAbsent (aEvent.getEventType (),
+                                                                        k -> new BatchOfType (_getDispatchPlan (aEvent)));
+      final EffectiveEventObserverList aHandlingObservers = aBatchOfType.m_aPlan.getEffectiveObserverList (aEvent,
+                                                                                                           m_aOnlyOnceClaimer);
+      ret.add (getSyncEventDispatcher ().dispatch (aEvent, aBatchOfType.addEvent (aEvent, aHandlingObservers)));
+    }
+
+    // Deliver the batches
+    for (final BatchOfType aBatchOfType : aBatchesPerType.values ())
+      for (final Map.Entry <IBatchEventObserver, ICommonsList <IEvent>> aEntry : aBatchOfType.m_aBatches.entrySet ())
+      {
+        final IBatchEventObserver aObserver = aEntry.getKey ();
+        final ICommonsList <IEvent> aBatchEvents = aEntry.getValue ();
+        try
+        {
+          aObserver.onEventBatch (aBatchEvents);
+        }
+        catch (final Throwable t)
+        {
+          getSyncEventDispatcher ().getFailureHandler ().onObserverBatchFailure (aObserver, aBatchEvents, t);
+        }
+      }
+
+    aObserverQueue.afterDispatch ();
+    removeClaimedOnlyOnceObservers ();
+    return ret;
+  }
+
   public void triggerAsynchronous (@Nonnull final IEvent aEvent,
                                    @Nonnull final Consumer <Object> aOverallResultConsumer)
   {
@@ -141,8 +940,21 @@ public class EventManager implements IEventManager
         LOGGER.debug ("EventManager triggerAsynchronous " + aEvent + " -- " + aOverallResultConsumer);
 
       aObserverQueue.beforeDispatch ();
-      getAsyncEventDispatcher ().dispatch (aEvent, aObserverQueue, aOverallResultConsumer);
-      aObserverQueue.afterDispatch ();
+      try
+      {
+        getAsyncEventDispatcher ().dispatch (aEvent, getEffectiveObserverList (aEvent), aOverallResultConsumer);
+      }
+      finally
+      {
+        // Also if the dispatcher rejected the event
+        aObserverQueue.afterDispatch ();
+        removeClaimedOnlyOnceObservers ();
+      }
+    }
+    else
+    {
+      // No observer -> no result
+      aOverallResultConsumer.accept (null);
     }
   }
 }
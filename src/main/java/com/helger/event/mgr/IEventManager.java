@@ -17,13 +17,26 @@
 package com.helger.event.mgr;
 
 import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.state.EChange;
 import com.helger.event.IEvent;
+import com.helger.event.helper.IBooleanResultAggregator;
+import com.helger.event.helper.IDoubleResultAggregator;
+import com.helger.event.helper.IIntResultAggregator;
+import com.helger.event.helper.ILongResultAggregator;
+import com.helger.event.observer.AnnotatedMethodEventObserver;
 import com.helger.event.observer.IEventObserver;
 
 /**
@@ -44,6 +57,48 @@ public interface IEventManager extends Closeable
   @Nonnull
   EChange registerObserver (@Nonnull IEventObserver aObserver);
 
+  /**
+   * Register an additional observer with a certain priority. Observers with a
+   * higher priority are dispatched before observers with a lower priority, if
+   * the underlying observer queue supports priorities. The default
+   * implementation ignores the priority.
+   *
+   * @param aObserver
+   *        The observer to be registered. May not be <code>null</code>.
+   * @param nPriority
+   *        The priority of the observer.
+   * @return {@link EChange}
+   * @see com.helger.event.observerqueue.IEventObserverQueue#addObserver(IEventObserver,
+   *      int)
+   */
+  @Nonnull
+  default EChange registerObserver (@Nonnull final IEventObserver aObserver, final int nPriority)
+  {
+    // No priority support
+    return registerObserver (aObserver);
+  }
+
+  /**
+   * Register an observer for each method of the passed object that is
+   * annotated with {@link com.helger.event.observer.EventObserverMethod}.
+   *
+   * @param aTarget
+   *        The object containing the annotated methods. May not be
+   *        <code>null</code>.
+   * @return The list of registered observers, that can be used to unregister
+   *         them again. Never <code>null</code>.
+   * @see AnnotatedMethodEventObserver#createObservers(Object)
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  default ICommonsList <IEventObserver> registerAnnotatedObservers (@Nonnull final Object aTarget)
+  {
+    final ICommonsList <IEventObserver> ret = AnnotatedMethodEventObserver.createObservers (aTarget);
+    for (final IEventObserver aObserver : ret)
+      registerObserver (aObserver);
+    return ret;
+  }
+
   /**
    * Unregister an existing observer.
    *
@@ -63,10 +118,237 @@ public interface IEventManager extends Closeable
    * @return <code>null</code> in case no matching observer is registered,
    *         otherwise the result of
    *         <code>aEvent.getResultAggregator ().aggregate (...)</code> with the
-   *         results of all matching observers.
+   *         results of all matching observers. Also <code>null</code> if the
+   *         event was triggered from within an observer and queued because of
+   *         a queued {@link EReentrancyMode}.
    */
   @Nullable
   Object triggerSynchronous (@Nonnull IEvent aEvent);
 
+  /**
+   * Trigger the passed event synchronously without collecting any result.
+   * Observers with a return value are handled according to
+   * {@link ENotifyReturnValuePolicy#DEFAULT}. The default implementation
+   * delegates to {@link #triggerSynchronous(IEvent)} and discards the result.
+   * If the event was triggered from within an observer and a queued
+   * {@link EReentrancyMode} is used, it is queued and this method returns
+   * before any observer was notified.
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @see #triggerSynchronousNotifyOnly(IEvent, ENotifyReturnValuePolicy)
+   */
+  default void triggerSynchronousNotifyOnly (@Nonnull final IEvent aEvent)
+  {
+    triggerSynchronous (aEvent);
+  }
+
+  /**
+   * Trigger the passed event synchronously without collecting any result. If
+   * supported by the implementation, no result container is allocated and the
+   * result aggregator of the event is never invoked. The default
+   * implementation ignores the policy and delegates to
+   * {@link #triggerSynchronousNotifyOnly(IEvent)}, because skipping the
+   * observers with a return value is only an optimization. Queued nested
+   * events are handled like in {@link #triggerSynchronousNotifyOnly(IEvent)}.
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @param ePolicy
+   *        The policy how to handle observers with a return value. May not be
+   *        <code>null</code>.
+   */
+  default void triggerSynchronousNotifyOnly (@Nonnull final IEvent aEvent,
+                                             @Nonnull final ENotifyReturnValuePolicy ePolicy)
+  {
+    ValueEnforcer.notNull (ePolicy, "Policy");
+    triggerSynchronousNotifyOnly (aEvent);
+  }
+
+  /**
+   * Trigger the passed event synchronously and aggregate the
+   * <code>boolean</code> results of all observers with a return value. This
+   * is the common contract of all primitive triggers: the results are
+   * combined one by one without boxing and without a result list, and the
+   * result aggregator of the event is not used. Failed observers and
+   * observers providing a value that cannot be converted losslessly don't
+   * contribute to the result.
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @return The identity of the aggregator in case no matching observer is
+   *         registered or if the event was triggered from within an observer
+   *         and queued because of a queued {@link EReentrancyMode}, the
+   *         aggregated result otherwise.
+   * @see com.helger.event.dispatch.sync.PrimitiveResultDispatcher
+   */
+  boolean triggerSynchronousBoolean (@Nonnull IEvent aEvent, @Nonnull IBooleanResultAggregator aAggregator);
+
+  /**
+   * Trigger the passed event synchronously and aggregate the <code>int</code>
+   * results of all observers with a return value.
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @return The identity of the aggregator in case no matching observer is
+   *         registered or if the event was queued, the aggregated result
+   *         otherwise.
+   * @see #triggerSynchronousBoolean(IEvent, IBooleanResultAggregator)
+   */
+  int triggerSynchronousInt (@Nonnull IEvent aEvent, @Nonnull IIntResultAggregator aAggregator);
+
+  /**
+   * Trigger the passed event synchronously and aggregate the <code>long</code>
+   * results of all observers with a return value.
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @return The identity of the aggregator in case no matching observer is
+   *         registered or if the event was queued, the aggregated result
+   *         otherwise.
+   * @see #triggerSynchronousBoolean(IEvent, IBooleanResultAggregator)
+   */
+  long triggerSynchronousLong (@Nonnull IEvent aEvent, @Nonnull ILongResultAggregator aAggregator);
+
+  /**
+   * Trigger the passed event synchronously and aggregate the
+   * <code>double</code> results of all observers with a return value.
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @param aAggregator
+   *        The aggregator to use. May not be <code>null</code>.
+   * @return The identity of the aggregator in case no matching observer is
+   *         registered or if the event was queued, the aggregated result
+   *         otherwise.
+   * @see #triggerSynchronousBoolean(IEvent, IBooleanResultAggregator)
+   */
+  double triggerSynchronousDouble (@Nonnull IEvent aEvent, @Nonnull IDoubleResultAggregator aAggregator);
+
+  /**
+   * Trigger all passed events synchronously in the passed order. The observers
+   * are resolved only once per event type. Observers implementing
+   * {@link com.helger.event.observer.IBatchEventObserver} that handle the
+   * events without a return value receive all events of an event type in a
+   * single call after all events were delivered to the other observers. The
+   * default implementation simply triggers one event after the other via
+   * {@link #triggerSynchronous(IEvent)}, so batch observers receive each event
+   * separately.
+   *
+   * @param aEvents
+   *        The events to be triggered. May not be <code>null</code>.
+   * @return A list with the aggregated result of each event in the order of
+   *         the passed events (like {@link #triggerSynchronous(IEvent)}). If
+   *         the events were triggered from within an observer and queued
+   *         because of a queued {@link EReentrancyMode}, the list contains one
+   *         <code>null</code> per event. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  default ICommonsList <Object> triggerSynchronousBatch (@Nonnull final Iterable <? extends IEvent> aEvents)
+  {
+    ValueEnforcer.notNull (aEvents, "Events");
+
+    final ICommonsList <Object> ret = new CommonsArrayList <> ();
+    for (final IEvent aEvent : aEvents)
+      ret.add (triggerSynchronous (aEvent));
+    return ret;
+  }
+
+  /**
+   * Trigger the passed event asynchronously.
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @param aOverallResultConsumer
+   *        The consumer of the aggregated result of all matching observers. It
+   *        is invoked exactly once after all matching observers finished, even
+   *        if all of them are "void" observers. It is invoked with
+   *        <code>null</code> if no observer matches. It is not invoked if this
+   *        method throws an exception (e.g. a
+   *        {@link java.util.concurrent.RejectedExecutionException} of the
+   *        dispatcher). May not be <code>null</code>.
+   */
   void triggerAsynchronous (@Nonnull IEvent aEvent, @Nonnull Consumer <Object> aOverallResultConsumer);
+
+  /**
+   * Trigger the passed event asynchronously and get the aggregated result as a
+   * {@link CompletionStage}. Dependent stages that are not explicitly
+   * asynchronous are executed on the thread that completes the last observer
+   * (or the calling thread if it is already complete).
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @return The stage that is completed with the aggregated result (see
+   *         {@link #triggerAsynchronous(IEvent, Consumer)}) or exceptionally
+   *         if triggering failed. Never <code>null</code>.
+   * @see #triggerAsynchronousStage(IEvent, Executor)
+   */
+  @Nonnull
+  default CompletionStage <Object> triggerAsynchronousStage (@Nonnull final IEvent aEvent)
+  {
+    final CompletableFuture <Object> ret = new CompletableFuture <> ();
+    try
+    {
+      triggerAsynchronous (aEvent, ret::complete);
+    }
+    catch (final RuntimeException ex)
+    {
+      ret.completeExceptionally (ex);
+    }
+    return ret;
+  }
+
+  /**
+   * Trigger the passed event asynchronously and get the aggregated result as a
+   * {@link CompletionStage}. The stage is completed on the passed executor,
+   * so that dependent stages that are not explicitly asynchronous and that
+   * were attached before completion are executed on it, and not on the
+   * threads of the dispatcher. Dependent stages attached after completion are
+   * executed on the attaching thread, as with any {@link CompletableFuture}.
+   * Use the <code>...Async</code> methods with an explicit executor if the
+   * thread matters in all cases.
+   *
+   * @param aEvent
+   *        The event to be triggered. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to complete the stage on. May not be
+   *        <code>null</code>.
+   * @return The stage that is completed with the aggregated result (see
+   *         {@link #triggerAsynchronous(IEvent, Consumer)}) or exceptionally
+   *         if triggering failed or the executor rejected the completion.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  default CompletionStage <Object> triggerAsynchronousStage (@Nonnull final IEvent aEvent,
+                                                             @Nonnull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    final CompletableFuture <Object> ret = new CompletableFuture <> ();
+    try
+    {
+      triggerAsynchronous (aEvent, aResult -> {
+        try
+        {
+          aExecutor.execute ( () -> ret.complete (aResult));
+        }
+        catch (final RejectedExecutionException ex)
+        {
+          ret.completeExceptionally (ex);
+        }
+      });
+    }
+    catch (final RuntimeException ex)
+    {
+      ret.completeExceptionally (ex);
+    }
+    return ret;
+  }
 }
@@ -16,10 +16,14 @@
  */
 package com.helger.event.observer;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 import javax.annotation.Nonnull;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.DevelopersNote;
+import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.annotation.UnsupportedOperation;
 import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsSet;
@@ -27,15 +31,43 @@ import com.helger.event.IEvent;
 import com.helger.event.IEventType;
 
 /**
- * Abstract base class for a simple event observer.
+ * Abstract base class for a simple event observer. The handled event types are
+ * matched via their ordinals (see {@link IEventType#getOrdinal()}), so that no
+ * hash lookup is necessary for the vast majority of events.
  *
  * @author Philip Helger
  */
 public abstract class AbstractEventObserver implements IEventObserver
 {
+  /**
+   * The handled event types sorted by their ordinals. Ordinals are only valid
+   * within the current JVM, so the index is never serialized.
+   *
+   * @author Philip Helger
+   */
+  private static final class OrdinalIndex
+  {
+    private final int [] m_aOrdinals;
+    // The event type belonging to each entry of m_aOrdinals
+    private final IEventType [] m_aEventTypes;
+
+    OrdinalIndex (@Nonnull final ICommonsSet <IEventType> aEventTypes)
+    {
+      final int nCount = aEventTypes.size ();
+      m_aEventTypes = aEventTypes.toArray (new IEventType [nCount]);
+      Arrays.sort (m_aEventTypes, Comparator.comparingInt (IEventType::getOrdinal));
+      m_aOrdinals = new int [nCount];
+      for (int i = 0; i < nCount; ++i)
+        m_aOrdinals[i] = m_aEventTypes[i].getOrdinal ();
+    }
+  }
+
   private final EEventObserverHandlerType m_eHandlerType;
   private final ICommonsSet <IEventType> m_aHandledEventTypes;
 
+  // Status vars
+  private transient OrdinalIndex m_aOrdinalIndex;
+
   /**
    * @param bWithReturnValue
    *        does not matter
@@ -55,6 +87,7 @@ public abstract class AbstractEventObserver implements IEventObserver
     m_eHandlerType = bWithReturnValue ? EEventObserverHandlerType.HANDLE_RETURN_VALUE
                                       : EEventObserverHandlerType.HANDLE_NO_RETURN;
     m_aHandledEventTypes = new CommonsHashSet <> (aHandledEventTypes);
+    m_aOrdinalIndex = new OrdinalIndex (m_aHandledEventTypes);
   }
 
   public AbstractEventObserver (final boolean bWithReturnValue,
@@ -65,12 +98,57 @@ public abstract class AbstractEventObserver implements IEventObserver
     m_eHandlerType = bWithReturnValue ? EEventObserverHandlerType.HANDLE_RETURN_VALUE
                                       : EEventObserverHandlerType.HANDLE_NO_RETURN;
     m_aHandledEventTypes = new CommonsHashSet <> (aHandledEventTypes);
+    m_aOrdinalIndex = new OrdinalIndex (m_aHandledEventTypes);
+  }
+
+  @Nonnull
+  private OrdinalIndex _getOrdinalIndex ()
+  {
+    OrdinalIndex ret = m_aOrdinalIndex;
+    if (ret == null)
+    {
+      // Not serialized - recreate in this JVM
+      ret = new OrdinalIndex (m_aHandledEventTypes);
+      m_aOrdinalIndex = ret;
+    }
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public final ICommonsSet <IEventType> getAllHandledEventTypes ()
+  {
+    return m_aHandledEventTypes.getClone ();
+  }
+
+  /**
+   * @return Always <code>true</code>, because only the event type is checked
+   *         in {@link #canHandleEvent(IEvent)}.
+   */
+  public final boolean isHandlingDependingOnEventTypeOnly ()
+  {
+    return true;
+  }
+
+  private boolean _isHandled (@Nonnull final IEventType aEventType)
+  {
+    final OrdinalIndex aIndex = _getOrdinalIndex ();
+    final int nOrdinal = aEventType.getOrdinal ();
+    final int [] aOrdinals = aIndex.m_aOrdinals;
+    final int nIndex = aOrdinals.length == 1 ? aOrdinals[0] == nOrdinal ? 0 : -1
+                                             : Arrays.binarySearch (aOrdinals, nOrdinal);
+    // Different ordinal means different name
+    if (nIndex < 0)
+      return false;
+
+    // Same name - usually it is the same object. Otherwise it may be an equal
+    // object or an event type of another class with the same name.
+    return aIndex.m_aEventTypes[nIndex] == aEventType || m_aHandledEventTypes.contains (aEventType);
   }
 
   @Nonnull
   public final EEventObserverHandlerType canHandleEvent (@Nonnull final IEvent aEvent)
   {
-    return m_aHandledEventTypes.contains (aEvent.getEventType ()) ? m_eHandlerType
-                                                                  : EEventObserverHandlerType.CANNOT_HANDLE;
+    return _isHandled (aEvent.getEventType ()) ? m_eHandlerType : EEventObserverHandlerType.CANNOT_HANDLE;
   }
 }
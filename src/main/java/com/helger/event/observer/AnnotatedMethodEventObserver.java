@@ -0,0 +1,330 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observer;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+
+/**
+ * An event observer that invokes a method annotated with
+ * {@link EventObserverMethod} on a target object. The annotated methods of a
+ * class are discovered only once and cached per class. Each method is bound
+ * via {@link LambdaMetafactory} to a generated implementation of a functional
+ * interface, so no reflection is used upon dispatch. If a method is not
+ * accessible for the metafactory (e.g. because the class is not public or is
+ * loaded by a different class loader) a {@link MethodHandle} is used instead.
+ *
+ * @author Philip Helger
+ */
+public final class AnnotatedMethodEventObserver extends AbstractEventObserver
+{
+  /**
+   * Invoker for an observer method without a return value.
+   *
+   * @author Philip Helger
+   */
+  @FunctionalInterface
+  interface IVoidInvoker
+  {
+    void invoke (@Nonnull Object aTarget, @Nonnull IEvent aEvent) throws Exception;
+  }
+
+  /**
+   * Invoker for an observer method with a return value.
+   *
+   * @author Philip Helger
+   */
+  @FunctionalInterface
+  interface IResultInvoker
+  {
+    @Nullable
+    Object invoke (@Nonnull Object aTarget, @Nonnull IEvent aEvent) throws Exception;
+  }
+
+  /**
+   * A single annotated method of a class together with its invoker.
+   *
+   * @author Philip Helger
+   */
+  private static final class ObserverMethod
+  {
+    private final Method m_aMethod;
+    private final ICommonsList <IEventType> m_aEventTypes;
+    private final IVoidInvoker m_aVoidInvoker;
+    private final IResultInvoker m_aResultInvoker;
+
+    ObserverMethod (@Nonnull final Method aMethod,
+                    @Nonnull final ICommonsList <IEventType> aEventTypes,
+                    @Nullable final IVoidInvoker aVoidInvoker,
+                    @Nullable final IResultInvoker aResultInvoker)
+    {
+      m_aMethod = aMethod;
+      m_aEventTypes = aEventTypes;
+      m_aVoidInvoker = aVoidInvoker;
+      m_aResultInvoker = aResultInvoker;
+    }
+  }
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup ();
+  private static final MethodType VOID_INVOKER_TYPE = MethodType.methodType (void.class, Object.class, IEvent.class);
+  private static final MethodType RESULT_INVOKER_TYPE = MethodType.methodType (Object.class, Object.class, IEvent.class);
+
+  private static final ClassValue <ICommonsList <ObserverMethod>> OBSERVER_METHODS = new ClassValue <ICommonsList <ObserverMethod>> ()
+  {
+    @Override
+    protected ICommonsList <ObserverMethod> computeValue (final Class <?> aClass)
+    {
+      return _findObserverMethods (aClass);
+    }
+  };
+
+  private final Object m_aTarget;
+  private final Method m_aMethod;
+  private final IVoidInvoker m_aVoidInvoker;
+  private final IResultInvoker m_aResultInvoker;
+
+  private AnnotatedMethodEventObserver (@Nonnull final Object aTarget, @Nonnull final ObserverMethod aObserverMethod)
+  {
+    super (aObserverMethod.m_aResultInvoker != null, aObserverMethod.m_aEventTypes);
+    m_aTarget = aTarget;
+    m_aMethod = aObserverMethod.m_aMethod;
+    m_aVoidInvoker = aObserverMethod.m_aVoidInvoker;
+    m_aResultInvoker = aObserverMethod.m_aResultInvoker;
+  }
+
+  /**
+   * @return The object on which the observer method is invoked. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public Object getTarget ()
+  {
+    return m_aTarget;
+  }
+
+  /**
+   * @return The annotated method that is invoked. Never <code>null</code>.
+   */
+  @Nonnull
+  public Method getMethod ()
+  {
+    return m_aMethod;
+  }
+
+  public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer) throws Exception
+  {
+    if (m_aResultInvoker != null)
+    {
+      final Object aResult = m_aResultInvoker.invoke (m_aTarget, aEvent);
+      if (aResultConsumer != null)
+        aResultConsumer.accept (aResult);
+    }
+    else
+      m_aVoidInvoker.invoke (m_aTarget, aEvent);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Target", m_aTarget)
+                                       .append ("Method", m_aMethod.getName ())
+                                       .getToString ();
+  }
+
+  private static boolean _isLambdaCompatible (@Nonnull final Method aMethod)
+  {
+    final Class <?> aClass = aMethod.getDeclaringClass ();
+    if (!Modifier.isPublic (aClass.getModifiers ()) || !Modifier.isPublic (aMethod.getModifiers ()))
+      return false;
+
+    // The generated class must be able to resolve the declaring class
+    try
+    {
+      return Class.forName (aClass.getName (), false, AnnotatedMethodEventObserver.class.getClassLoader ()) == aClass;
+    }
+    catch (final ClassNotFoundException | LinkageError ex)
+    {
+      return false;
+    }
+  }
+
+  @Nonnull
+  private static Object _createLambda (@Nonnull final Class <?> aInterface,
+                                       @Nonnull final MethodType aInterfaceMethodType,
+                                       @Nonnull final MethodHandle aImpl,
+                                       @Nonnull final MethodType aInstantiatedMethodType) throws Throwable
+  {
+    final CallSite aCallSite = LambdaMetafactory.metafactory (LOOKUP,
+                                                              "invoke",
+                                                              MethodType.methodType (aInterface),
+                                                              aInterfaceMethodType,
+                                                              aImpl,
+                                                              aInstantiatedMethodType);
+    return aCallSite.getTarget ().invoke ();
+  }
+
+  @Nonnull
+  private static IVoidInvoker _createVoidInvoker (@Nonnull final Method aMethod,
+                                                  @Nonnull final MethodHandle aImpl) throws Throwable
+  {
+    if (_isLambdaCompatible (aMethod))
+      return (IVoidInvoker) _createLambda (IVoidInvoker.class, VOID_INVOKER_TYPE, aImpl, aImpl.type ());
+
+    final MethodHandle aMH = aImpl.asType (VOID_INVOKER_TYPE);
+    return (t, e) -> {
+      try
+      {
+        aMH.invokeExact (t, e);
+      }
+      catch (final Exception | Error ex)
+      {
+        throw ex;
+      }
+      catch (final Throwable ex)
+      {
+        throw new IllegalStateException (ex);
+      }
+    };
+  }
+
+  @Nonnull
+  private static IResultInvoker _createResultInvoker (@Nonnull final Method aMethod,
+                                                      @Nonnull final MethodHandle aImpl) throws Throwable
+  {
+    if (_isLambdaCompatible (aMethod))
+      return (IResultInvoker) _createLambda (IResultInvoker.class,
+                                             RESULT_INVOKER_TYPE,
+                                             aImpl,
+                                             aImpl.type ().changeReturnType (Object.class));
+
+    final MethodHandle aMH = aImpl.asType (RESULT_INVOKER_TYPE);
+    return (t, e) -> {
+      try
+      {
+        return aMH.invokeExact (t, e);
+      }
+      catch (final Exception | Error ex)
+      {
+        throw ex;
+      }
+      catch (final Throwable ex)
+      {
+        throw new IllegalStateException (ex);
+      }
+    };
+  }
+
+  @Nonnull
+  private static ICommonsList <ObserverMethod> _findObserverMethods (@Nonnull final Class <?> aClass)
+  {
+    final ICommonsList <ObserverMethod> ret = new CommonsArrayList <> ();
+    for (final Method aMethod : aClass.getMethods ())
+    {
+      final EventObserverMethod aAnnotation = aMethod.getAnnotation (EventObserverMethod.class);
+      if (aAnnotation == null)
+        continue;
+
+      if (Modifier.isStatic (aMethod.getModifiers ()))
+        throw new IllegalArgumentException ("The observer method " + aMethod + " may not be static");
+      if (aMethod.getParameterCount () != 1 || !IEvent.class.isAssignableFrom (aMethod.getParameterTypes ()[0]))
+        throw new IllegalArgumentException ("The observer method " +
+                                            aMethod +
+                                            " must have exactly one parameter of type " +
+                                            IEvent.class.getName ());
+      if (aAnnotation.value ().length == 0)
+        throw new IllegalArgumentException ("The observer method " + aMethod + " handles no event type");
+
+      final ICommonsList <IEventType> aEventTypes = new CommonsArrayList <> ();
+      for (final String sEventTypeName : aAnnotation.value ())
+      {
+        final IEventType aEventType = EventTypeRegistry.getEventTypeOfName (sEventTypeName);
+        if (aEventType == null)
+          throw new IllegalArgumentException ("The observer method " +
+                                              aMethod +
+                                              " references the unknown event type '" +
+                                              sEventTypeName +
+                                              "'");
+        aEventTypes.add (aEventType);
+      }
+
+      try
+      {
+        // Public method of a potentially non-public class
+        if (!Modifier.isPublic (aMethod.getDeclaringClass ().getModifiers ()))
+          aMethod.setAccessible (true);
+        final MethodHandle aImpl = LOOKUP.unreflect (aMethod);
+        if (aMethod.getReturnType () == void.class)
+          ret.add (new ObserverMethod (aMethod, aEventTypes, _createVoidInvoker (aMethod, aImpl), null));
+        else
+          ret.add (new ObserverMethod (aMethod, aEventTypes, null, _createResultInvoker (aMethod, aImpl)));
+      }
+      catch (final Throwable t)
+      {
+        throw new IllegalArgumentException ("Failed to bind the observer method " + aMethod, t);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Create an observer for each method of the passed object that is annotated
+   * with {@link EventObserverMethod}. The annotated methods are determined only
+   * once per class.<br>
+   * Note: if an annotated method takes a sub type of {@link IEvent} as
+   * parameter, events of the handled event types that don't implement this
+   * sub type lead to an exception that is passed to the exception callback.
+   *
+   * @param aTarget
+   *        The object containing the annotated methods. May not be
+   *        <code>null</code>.
+   * @return A list with one observer per annotated method. Never
+   *         <code>null</code> but maybe empty.
+   * @throws IllegalArgumentException
+   *         If an annotated method is invalid or references an unknown event
+   *         type.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsList <IEventObserver> createObservers (@Nonnull final Object aTarget)
+  {
+    ValueEnforcer.notNull (aTarget, "Target");
+
+    final ICommonsList <ObserverMethod> aObserverMethods = OBSERVER_METHODS.get (aTarget.getClass ());
+    final ICommonsList <IEventObserver> ret = new CommonsArrayList <> (aObserverMethods.size ());
+    for (final ObserverMethod aObserverMethod : aObserverMethods)
+      ret.add (new AnnotatedMethodEventObserver (aTarget, aObserverMethod));
+    return ret;
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observer;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a public instance method as an event observer method. The method must
+ * have exactly one parameter of type {@link com.helger.event.IEvent} or a
+ * sub type of it. A method returning <code>void</code> is handled without a
+ * return value, all other methods are handled with a return value.<br>
+ * Use {@link AnnotatedMethodEventObserver#createObservers(Object)} to create
+ * the observers of an object, or
+ * {@link com.helger.event.mgr.IEventManager#registerAnnotatedObservers(Object)}
+ * to register them directly.
+ *
+ * @author Philip Helger
+ */
+@Documented
+@Retention (RetentionPolicy.RUNTIME)
+@Target (ElementType.METHOD)
+public @interface EventObserverMethod
+{
+  /**
+   * @return The names of the handled event types. Each event type must have
+   *         been created via
+   *         {@link com.helger.event.EventTypeRegistry#createEventType(String)}.
+   *         At least one name must be provided.
+   */
+  String [] value ();
+}
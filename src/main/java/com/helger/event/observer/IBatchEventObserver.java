@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observer;
+
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.event.IEvent;
+
+/**
+ * Special {@link IEventObserver} that wants to receive all events of the same
+ * event type of a batch trigger in a single call. This only applies to
+ * observers handling an event without a return value - otherwise the events
+ * are delivered one by one via
+ * {@link #onEvent(IEvent, java.util.function.Consumer)}.
+ *
+ * @author Philip Helger
+ * @see com.helger.event.mgr.IEventManager#triggerSynchronousBatch(Iterable)
+ */
+public interface IBatchEventObserver extends IEventObserver
+{
+  /**
+   * Handle all events of a batch that have the same event type and that can
+   * be handled by this observer. This method is invoked after all events of
+   * the batch were delivered to the other observers.
+   *
+   * @param aEvents
+   *        The events in the order they were triggered. Never
+   *        <code>null</code> nor empty.
+   * @throws Exception
+   *         In case of an error
+   */
+  void onEventBatch (@Nonnull @Nonempty ICommonsList <IEvent> aEvents) throws Exception;
+}
@@ -22,7 +22,13 @@ import java.util.function.Consumer;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsSet;
 import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.filter.IEventFilter;
+import com.helger.event.pattern.EventTypePattern;
 
 /**
  * Base interface of event observers.
@@ -42,6 +48,77 @@ public interface IEventObserver extends Serializable
     return false;
   }
 
+  /**
+   * Get all event types this observer is interested in. This is an optional
+   * hint that allows observer queues to index observers by event type. If a
+   * non-<code>null</code> set is returned, {@link #canHandleEvent(IEvent)} must
+   * return {@link EEventObserverHandlerType#CANNOT_HANDLE} for all events with
+   * an event type not contained in the set.
+   *
+   * @return <code>null</code> if this observer uses custom logic in
+   *         {@link #canHandleEvent(IEvent)} and needs to be queried for every
+   *         event. This is the default.
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  default ICommonsSet <IEventType> getAllHandledEventTypes ()
+  {
+    return null;
+  }
+
+  /**
+   * Get all event type patterns this observer is interested in. This is an
+   * optional hint that allows observer queues to resolve the observers of an
+   * event type via a pattern index. If a non-<code>null</code> set is
+   * returned, {@link #canHandleEvent(IEvent)} must return
+   * {@link EEventObserverHandlerType#CANNOT_HANDLE} for all events with an
+   * event type that is neither matched by one of the patterns nor contained in
+   * {@link #getAllHandledEventTypes()}.
+   *
+   * @return <code>null</code> if this observer does not subscribe via
+   *         patterns. This is the default.
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  default ICommonsSet <EventTypePattern> getAllHandledEventTypePatterns ()
+  {
+    return null;
+  }
+
+  /**
+   * Get the content filters of this observer. The observer is only invoked for
+   * events that match all filters, in addition to
+   * {@link #canHandleEvent(IEvent)}. Equal filters of different observers are
+   * evaluated only once per event by the event manager, so stateless filters
+   * with a proper equals implementation should be preferred over custom logic
+   * in {@link #onEvent(IEvent, Consumer)}.
+   *
+   * @return <code>null</code> or an empty list if this observer has no
+   *         content filters. This is the default.
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  default ICommonsList <IEventFilter> getAllEventFilters ()
+  {
+    return null;
+  }
+
+  /**
+   * Declare whether the result of {@link #canHandleEvent(IEvent)} only depends
+   * on the event type of the passed event. If so, the result may be cached per
+   * event type by the event manager, so {@link #canHandleEvent(IEvent)} is not
+   * necessarily called for each event.
+   *
+   * @return <code>true</code> if the result of {@link #canHandleEvent(IEvent)}
+   *         is the same for all events of the same type, <code>false</code> if
+   *         it may depend on other event properties. Default is
+   *         <code>false</code>.
+   */
+  default boolean isHandlingDependingOnEventTypeOnly ()
+  {
+    return false;
+  }
+
   /**
    * Determine whether we can handle this event or not. This method is always
    * called synchronously.
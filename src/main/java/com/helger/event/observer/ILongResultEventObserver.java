@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observer;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.event.IEvent;
+
+/**
+ * An {@link IEventObserver} with a <code>long</code> result, e.g. a size in
+ * bytes or a timestamp. Use it instead of {@link IIntResultEventObserver} if
+ * the aggregated value may exceed the <code>int</code> range. Only the
+ * primitive dispatch calls {@link #onEventLong(IEvent)} directly; everything
+ * else receives a {@link Long} via {@link #onEvent(IEvent, Consumer)}.
+ *
+ * @author Philip Helger
+ */
+public interface ILongResultEventObserver extends IEventObserver
+{
+  /**
+   * Handle the passed event and return the result.
+   *
+   * @param aEvent
+   *        The event to handle. Never <code>null</code>.
+   * @return The result of this observer.
+   * @throws Exception
+   *         In case of an error
+   */
+  long onEventLong (@Nonnull IEvent aEvent) throws Exception;
+
+  default void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer) throws Exception
+  {
+    final long nResult = onEventLong (aEvent);
+    if (aResultConsumer != null)
+      aResultConsumer.accept (Long.valueOf (nResult));
+  }
+}
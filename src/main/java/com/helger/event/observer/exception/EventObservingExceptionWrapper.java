@@ -25,7 +25,7 @@ import com.helger.event.IEvent;
 
 public final class EventObservingExceptionWrapper
 {
-  private final String m_sMessage;
+  private final Object m_aObserver;
   private final IEvent m_aEvent;
   private final Throwable m_aThrowable;
 
@@ -37,16 +37,28 @@ public final class EventObservingExceptionWrapper
     ValueEnforcer.notNull (aEvent, "Event");
     ValueEnforcer.notNull (aThrowable, "Throwable");
 
-    m_sMessage = "Failed to notify " + aObserver;
+    m_aObserver = aObserver;
     m_aEvent = aEvent;
     m_aThrowable = aThrowable;
   }
 
+  /**
+   * @return The observer that failed. Never <code>null</code>.
+   */
+  @Nonnull
+  public Object getObserver ()
+  {
+    return m_aObserver;
+  }
+
+  /**
+   * @return The failure message. It is created on demand.
+   */
   @Nonnull
   @Nonempty
   public String getMessage ()
   {
-    return m_sMessage;
+    return "Failed to notify " + m_aObserver;
   }
 
   @Nonnull
@@ -64,7 +76,7 @@ public final class EventObservingExceptionWrapper
   @Override
   public String toString ()
   {
-    return new ToStringGenerator (this).append ("Message", m_sMessage)
+    return new ToStringGenerator (this).append ("Observer", m_aObserver)
                                        .append ("Event", m_aEvent)
                                        .append ("Throwable", m_aThrowable)
                                        .getToString ();
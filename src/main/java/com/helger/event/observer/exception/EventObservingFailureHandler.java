@@ -0,0 +1,476 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observer.exception;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsConcurrentHashMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.exception.mock.IMockException;
+import com.helger.commons.state.EChange;
+import com.helger.commons.state.IStoppable;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEvent;
+
+/**
+ * The central handling of exceptions thrown by event observers, used by all
+ * event dispatchers. It
+ * <ul>
+ * <li>counts failures in total, per observer and per event type name</li>
+ * <li>logs the stack trace of the same failure (same observer instance and
+ * same exception class) at most once per de-duplication window and only counts
+ * the others</li>
+ * <li>optionally invokes the wrapped {@link IEventObservingExceptionCallback}
+ * on a separate thread via a bounded queue. Exceptions implementing
+ * {@link IEventObserverExceptionAware} are always passed to the callback on
+ * the dispatching thread, so that they can be rethrown.</li>
+ * </ul>
+ * The per observer state is kept in a concurrent map with weak references to
+ * the failed observers (compared by identity), so that unregistered observers
+ * can still be garbage collected.<br>
+ * The optional callback thread belongs to whoever created this handler. The
+ * dispatchers never stop a handler passed to them, because it may be shared,
+ * so {@link #stop()} must be called explicitly once the handler is no longer
+ * used. Handlers created internally by a dispatcher never use a callback
+ * thread. The thread is a daemon thread and doesn't prevent the JVM from
+ * exiting.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class EventObservingFailureHandler implements IEventObservingExceptionCallback, IStoppable
+{
+  /** The default de-duplication window of 10 seconds */
+  public static final long DEFAULT_DEDUPLICATION_WINDOW_MILLIS = 10_000;
+  /**
+   * The maximum number of distinct failures per observer to remember for
+   * de-duplication
+   */
+  public static final int MAX_DEDUPLICATION_ENTRIES = 1_024;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (EventObservingFailureHandler.class);
+
+  /**
+   * The logging state of a single distinct failure.
+   *
+   * @author Philip Helger
+   */
+  private static final class LogState
+  {
+    // Long.MIN_VALUE means "never logged"
+    private final AtomicLong m_aLastLogNanos = new AtomicLong (Long.MIN_VALUE);
+    private final LongAdder m_aSuppressed = new LongAdder ();
+
+    boolean isOutsideWindow (final long nNow, final long nWindowNanos)
+    {
+      final long nLast = m_aLastLogNanos.get ();
+      return nLast == Long.MIN_VALUE || nNow - nLast >= nWindowNanos;
+    }
+  }
+
+  /**
+   * A weak reference to an observer that compares the observers by identity.
+   * Once the observer was garbage collected, it is only equal to itself.
+   *
+   * @author Philip Helger
+   */
+  private static final class ObserverKey extends WeakReference <Object>
+  {
+    private final int m_nHashCode;
+
+    ObserverKey (@Nonnull final Object aObserver, @Nullable final ReferenceQueue <Object> aQueue)
+    {
+      super (aObserver, aQueue);
+      m_nHashCode = System.identityHashCode (aObserver);
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (!(o instanceof ObserverKey))
+        return false;
+      final Object aObserver = get ();
+      return aObserver != null && aObserver == ((ObserverKey) o).get ();
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+  }
+
+  /**
+   * The failure state of a single observer.
+   *
+   * @author Philip Helger
+   */
+  private static final class ObserverState
+  {
+    private final LongAdder m_aFailureCount = new LongAdder ();
+    private final ICommonsMap <Class <?>, LogState> m_aLogStates = new CommonsConcurrentHashMap <> ();
+  }
+
+  private final IEventObservingExceptionCallback m_aExceptionCallback;
+  private final long m_nDeduplicationWindowNanos;
+  private final BlockingQueue <Throwable> m_aCallbackQueue;
+  private final Thread m_aCallbackThread;
+
+  // Status vars
+  private final LongAdder m_aTotalFailureCount = new LongAdder ();
+  private final LongAdder m_aSuppressedLogCount = new LongAdder ();
+  private final LongAdder m_aDroppedCallbackCount = new LongAdder ();
+  private final ReferenceQueue <Object> m_aCollectedObservers = new ReferenceQueue <> ();
+  private final ICommonsMap <ObserverKey, ObserverState> m_aObserverStates = new CommonsConcurrentHashMap <> ();
+  private final ICommonsMap <String, LongAdder> m_aFailuresPerEventType = new CommonsConcurrentHashMap <> ();
+
+  /**
+   * Constructor with the default de-duplication window and without offloading
+   * of the callback.
+   *
+   * @param aExceptionCallback
+   *        The callback to invoke for each failure. May not be
+   *        <code>null</code>.
+   */
+  public EventObservingFailureHandler (@Nonnull final IEventObservingExceptionCallback aExceptionCallback)
+  {
+    this (aExceptionCallback, DEFAULT_DEDUPLICATION_WINDOW_MILLIS, 0);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aExceptionCallback
+   *        The callback to invoke for each failure. May not be
+   *        <code>null</code>.
+   * @param nDeduplicationWindowMillis
+   *        The time window in milliseconds in which the same failure is logged
+   *        only once. Use 0 to log all failures.
+   * @param nCallbackQueueCapacity
+   *        The capacity of the queue used to invoke the callback on a separate
+   *        thread. If the queue is full, the callback is not invoked for the
+   *        failure. Use 0 to invoke the callback on the dispatching thread.
+   *        If &gt; 0 the caller is responsible for calling {@link #stop()}.
+   */
+  public EventObservingFailureHandler (@Nonnull final IEventObservingExceptionCallback aExceptionCallback,
+                                       @Nonnegative final long nDeduplicationWindowMillis,
+                                       @Nonnegative final int nCallbackQueueCapacity)
+  {
+    ValueEnforcer.notNull (aExceptionCallback, "ExceptionCallback");
+    ValueEnforcer.isGE0 (nDeduplicationWindowMillis, "DeduplicationWindowMillis");
+    ValueEnforcer.isGE0 (nCallbackQueueCapacity, "CallbackQueueCapacity");
+
+    m_aExceptionCallback = aExceptionCallback;
+    m_nDeduplicationWindowNanos = TimeUnit.MILLISECONDS.toNanos (nDeduplicationWindowMillis);
+    if (nCallbackQueueCapacity > 0)
+    {
+      m_aCallbackQueue = new ArrayBlockingQueue <> (nCallbackQueueCapacity);
+      m_aCallbackThread = new Thread (this::_runCallbacks, "event-failure-callback-thread");
+      m_aCallbackThread.setDaemon (true);
+      m_aCallbackThread.start ();
+    }
+    else
+    {
+      m_aCallbackQueue = null;
+      m_aCallbackThread = null;
+    }
+  }
+
+  private void _runCallbacks ()
+  {
+    try
+    {
+      while (!Thread.currentThread ().isInterrupted ())
+      {
+        final Throwable t = m_aCallbackQueue.take ();
+        try
+        {
+          m_aExceptionCallback.handleObservingException (t);
+        }
+        catch (final RuntimeException ex)
+        {
+          LOGGER.warn ("Exception callback failed", ex);
+        }
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      // OK, gracefully stopped
+    }
+  }
+
+  /**
+   * @return The wrapped exception callback. Never <code>null</code>.
+   */
+  @Nonnull
+  public final IEventObservingExceptionCallback getExceptionCallback ()
+  {
+    return m_aExceptionCallback;
+  }
+
+  /**
+   * @return <code>true</code> if the callback is invoked on a separate thread.
+   */
+  public final boolean isCallbackOffloaded ()
+  {
+    return m_aCallbackQueue != null;
+  }
+
+  /**
+   * Invoke the callback - either directly or via the queue.
+   *
+   * @param aThrowable
+   *        The failure. May not be <code>null</code>.
+   */
+  public void handleObservingException (@Nonnull final Throwable aThrowable)
+  {
+    if (m_aCallbackQueue == null || aThrowable instanceof IEventObserverExceptionAware)
+    {
+      // Pass through exceptions must be thrown on the dispatching thread
+      m_aExceptionCallback.handleObservingException (aThrowable);
+    }
+    else
+      if (!m_aCallbackQueue.offer (aThrowable))
+        m_aDroppedCallbackCount.increment ();
+  }
+
+  @Nonnull
+  private ObserverState _getObserverState (@Nonnull final Object aObserver)
+  {
+    // Remove the state of garbage collected observers
+    Reference <?> aCollected;
+    while ((aCollected = m_aCollectedObservers.poll ()) != null)
+      m_aObserverStates.remove (aCollected);
+
+    final ObserverState ret = m_aObserverStates.get (new ObserverKey (aObserver, null));
+    if (ret != null)
+      return ret;
+    return m_aObserverStates.computeIfAbsent (new ObserverKey (aObserver, m_aCollectedObservers),
+                                              k -> new ObserverState ());
+  }
+
+  private void _log (@Nonnull final Object aObserver,
+                     @Nonnull final ObserverState aObserverState,
+                     @Nonnull final Object aEventOrBatch,
+                     @Nonnull final Throwable t)
+  {
+    if (!LOGGER.isErrorEnabled ())
+      return;
+
+    long nSuppressed = 0;
+    if (m_nDeduplicationWindowNanos > 0)
+    {
+      final long nNow = System.nanoTime ();
+      final ICommonsMap <Class <?>, LogState> aLogStates = aObserverState.m_aLogStates;
+      LogState aState = aLogStates.get (t.getClass ());
+      if (aState == null)
+      {
+        if (aLogStates.size () >= MAX_DEDUPLICATION_ENTRIES)
+        {
+          // Forget the failures that would be logged anyway
+          aLogStates.values ().removeIf (x -> x.isOutsideWindow (nNow, m_nDeduplicationWindowNanos));
+        }
+        aState = aLogStates.computeIfAbsent (t.getClass (), k -> new LogState ());
+      }
+
+      final long nLast = aState.m_aLastLogNanos.get ();
+      if (!aState.isOutsideWindow (nNow, m_nDeduplicationWindowNanos) ||
+          !aState.m_aLastLogNanos.compareAndSet (nLast, nNow))
+      {
+        // Logged recently
+        aState.m_aSuppressed.increment ();
+        m_aSuppressedLogCount.increment ();
+        return;
+      }
+      nSuppressed = aState.m_aSuppressed.sumThenReset ();
+    }
+
+    LOGGER.error ("Failed to notify " +
+                  aObserver +
+                  " on " +
+                  aEventOrBatch +
+                  " because of " +
+                  t.getClass ().getName () +
+                  (nSuppressed > 0 ? " (" + nSuppressed + " identical failures were not logged)" : ""),
+                  t instanceof IMockException ? null : t);
+  }
+
+  /**
+   * Handle the failure of a single observer: count it, invoke the callback and
+   * log it.
+   *
+   * @param aObserver
+   *        The failed observer. May not be <code>null</code>.
+   * @param aEvent
+   *        The event that was dispatched. May not be <code>null</code>.
+   * @param t
+   *        The exception thrown by the observer. May not be <code>null</code>.
+   */
+  public void onObserverFailure (@Nonnull final Object aObserver,
+                                 @Nonnull final IEvent aEvent,
+                                 @Nonnull final Throwable t)
+  {
+    m_aTotalFailureCount.increment ();
+    final ObserverState aObserverState = _getObserverState (aObserver);
+    aObserverState.m_aFailureCount.increment ();
+    m_aFailuresPerEventType.computeIfAbsent (aEvent.getEventType ().getName (), k -> new LongAdder ()).increment ();
+
+    handleObservingException (t);
+    _log (aObserver, aObserverState, aEvent, t);
+  }
+
+  /**
+   * Handle the failure of a single observer for a batch of events: count it
+   * once, invoke the callback and log it.
+   *
+   * @param aObserver
+   *        The failed observer. May not be <code>null</code>.
+   * @param aEvents
+   *        The events that were dispatched as a batch. May neither be
+   *        <code>null</code> nor empty.
+   * @param t
+   *        The exception thrown by the observer. May not be <code>null</code>.
+   */
+  public void onObserverBatchFailure (@Nonnull final Object aObserver,
+                                      @Nonnull @Nonempty final ICommonsList <? extends IEvent> aEvents,
+                                      @Nonnull final Throwable t)
+  {
+    m_aTotalFailureCount.increment ();
+    final ObserverState aObserverState = _getObserverState (aObserver);
+    aObserverState.m_aFailureCount.increment ();
+    // Count once per event type contained in the batch
+    final ICommonsSet <String> aEventTypeNames = new CommonsHashSet <> ();
+    for (final IEvent aEvent : aEvents)
+    {
+      final String sEventTypeName = aEvent.getEventType ().getName ();
+      if (aEventTypeNames.add (sEventTypeName))
+        m_aFailuresPerEventType.computeIfAbsent (sEventTypeName, k -> new LongAdder ()).increment ();
+    }
+
+    handleObservingException (t);
+    _log (aObserver, aObserverState, aEvents, t);
+  }
+
+  /**
+   * @return The total number of observer failures.
+   */
+  @Nonnegative
+  public long getTotalFailureCount ()
+  {
+    return m_aTotalFailureCount.sum ();
+  }
+
+  /**
+   * @param aObserver
+   *        The observer to check. May not be <code>null</code>.
+   * @return The number of failures of the passed observer instance.
+   */
+  @Nonnegative
+  public long getFailureCount (@Nonnull final Object aObserver)
+  {
+    final ObserverState aObserverState = m_aObserverStates.get (new ObserverKey (aObserver, null));
+    return aObserverState == null ? 0 : aObserverState.m_aFailureCount.sum ();
+  }
+
+  /**
+   * @param sEventTypeName
+   *        The event type name to check. May not be <code>null</code>.
+   * @return The number of observer failures for events of the passed type.
+   */
+  @Nonnegative
+  public long getFailureCountOfEventType (@Nonnull final String sEventTypeName)
+  {
+    final LongAdder aCounter = m_aFailuresPerEventType.get (sEventTypeName);
+    return aCounter == null ? 0 : aCounter.sum ();
+  }
+
+  /**
+   * @return The number of failures that were not logged because of
+   *         de-duplication.
+   */
+  @Nonnegative
+  public long getSuppressedLogCount ()
+  {
+    return m_aSuppressedLogCount.sum ();
+  }
+
+  /**
+   * @return The number of failures for which the callback was not invoked,
+   *         because the callback queue was full.
+   */
+  @Nonnegative
+  public long getDroppedCallbackCount ()
+  {
+    return m_aDroppedCallbackCount.sum ();
+  }
+
+  /**
+   * Reset all counters and the de-duplication state.
+   */
+  public void resetCounters ()
+  {
+    m_aTotalFailureCount.reset ();
+    m_aSuppressedLogCount.reset ();
+    m_aDroppedCallbackCount.reset ();
+    m_aObserverStates.clear ();
+    m_aFailuresPerEventType.clear ();
+  }
+
+  /**
+   * Stop the callback thread, if present. Pending callbacks are discarded.
+   */
+  @Nonnull
+  public EChange stop ()
+  {
+    if (m_aCallbackThread == null || m_aCallbackThread.isInterrupted () || !m_aCallbackThread.isAlive ())
+      return EChange.UNCHANGED;
+    m_aCallbackThread.interrupt ();
+    return EChange.CHANGED;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ExceptionCallback", m_aExceptionCallback)
+                                       .append ("DeduplicationWindowNanos", m_nDeduplicationWindowNanos)
+                                       .append ("CallbackOffloaded", isCallbackOffloaded ())
+                                       .append ("TotalFailureCount", getTotalFailureCount ())
+                                       .getToString ();
+  }
+}
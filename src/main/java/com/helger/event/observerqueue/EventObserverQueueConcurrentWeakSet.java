@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ELockType;
+import com.helger.commons.annotation.MustBeLocked;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEventType;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Implementation of {@link IEventObserverQueue} that only keeps weak references
+ * to the observers. In contrast to {@link EventObserverQueueWeakSet} reading is
+ * lock-free: the references are published as an immutable array via a volatile
+ * field, and reading never modifies the queue. Garbage collected observers are
+ * skipped when reading, so dead observers are never handed to a dispatcher.
+ * The stale references are removed via a {@link ReferenceQueue} upon the next
+ * modification or when {@link #expungeStaleEntries()} is called explicitly
+ * (e.g. from a scheduled background task). Order of observers is maintained!
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class EventObserverQueueConcurrentWeakSet implements IEventObserverQueue
+{
+  private static final WeakReference <?> [] NO_REFS = new WeakReference <?> [0];
+
+  // Only writers need to be serialized
+  private final SimpleLock m_aLock = new SimpleLock ();
+  private final ReferenceQueue <IEventObserver> m_aRefQueue = new ReferenceQueue <> ();
+  private volatile WeakReference <?> [] m_aRefs = NO_REFS;
+
+  public EventObserverQueueConcurrentWeakSet ()
+  {}
+
+  @Nullable
+  private static IEventObserver _get (@Nonnull final WeakReference <?> aRef)
+  {
+    return (IEventObserver) aRef.get ();
+  }
+
+  private static int _getIndex (@Nonnull final WeakReference <?> [] aRefs, @Nonnull final IEventObserver aObserver)
+  {
+    for (int i = 0; i < aRefs.length; ++i)
+      if (aObserver.equals (aRefs[i].get ()))
+        return i;
+    return -1;
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _expungeStaleEntriesLocked ()
+  {
+    // Anything to do at all?
+    boolean bAnyStale = false;
+    while (m_aRefQueue.poll () != null)
+      bAnyStale = true;
+    if (!bAnyStale)
+      return;
+
+    final WeakReference <?> [] aOld = m_aRefs;
+    final WeakReference <?> [] aNew = new WeakReference <?> [aOld.length];
+    int nCount = 0;
+    for (final WeakReference <?> aRef : aOld)
+      if (aRef.get () != null)
+        aNew[nCount++] = aRef;
+    m_aRefs = nCount == 0 ? NO_REFS : Arrays.copyOf (aNew, nCount);
+  }
+
+  /**
+   * Remove all references to garbage collected observers. This is done
+   * automatically upon each modification, but may also be called explicitly,
+   * e.g. from a background task. This method never blocks readers.
+   */
+  public void expungeStaleEntries ()
+  {
+    m_aLock.locked (this::_expungeStaleEntriesLocked);
+  }
+
+  @Nonnull
+  public EChange addObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    return m_aLock.lockedGet ( () -> {
+      _expungeStaleEntriesLocked ();
+
+      final WeakReference <?> [] aOld = m_aRefs;
+      if (_getIndex (aOld, aObserver) >= 0)
+        return EChange.UNCHANGED;
+
+      final WeakReference <?> [] aNew = Arrays.copyOf (aOld, aOld.length + 1);
+      aNew[aOld.length] = new WeakReference <> (aObserver, m_aRefQueue);
+      m_aRefs = aNew;
+      return EChange.CHANGED;
+    });
+  }
+
+  @Nonnull
+  public EChange removeObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    return m_aLock.lockedGet ( () -> {
+      _expungeStaleEntriesLocked ();
+
+      final WeakReference <?> [] aOld = m_aRefs;
+      final int nIndex = _getIndex (aOld, aObserver);
+      if (nIndex < 0)
+        return EChange.UNCHANGED;
+
+      final int nNewLength = aOld.length - 1;
+      if (nNewLength == 0)
+        m_aRefs = NO_REFS;
+      else
+      {
+        final WeakReference <?> [] aNew = new WeakReference <?> [nNewLength];
+        System.arraycopy (aOld, 0, aNew, 0, nIndex);
+        System.arraycopy (aOld, nIndex + 1, aNew, nIndex, nNewLength - nIndex);
+        m_aRefs = aNew;
+      }
+      return EChange.CHANGED;
+    });
+  }
+
+  public boolean isEmpty ()
+  {
+    for (final Reference <?> aRef : m_aRefs)
+      if (aRef.get () != null)
+        return false;
+    return true;
+  }
+
+  /**
+   * @return The number of contained references, including the ones to garbage
+   *         collected observers that were not yet expunged.
+   */
+  @Nonnegative
+  public int getReferenceCount ()
+  {
+    return m_aRefs.length;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IEventObserver> getAllObservers ()
+  {
+    return new CommonsArrayList <> (getObserverSnapshot (null));
+  }
+
+  @Nonnull
+  @ReturnsMutableObject ("Snapshot - must not be modified")
+  @Override
+  public IEventObserver [] getObserverSnapshot (final IEventType aEventType)
+  {
+    // Strong references must be created for the dispatcher
+    final WeakReference <?> [] aRefs = m_aRefs;
+    final IEventObserver [] ret = new IEventObserver [aRefs.length];
+    int nCount = 0;
+    for (final WeakReference <?> aRef : aRefs)
+    {
+      final IEventObserver aObserver = _get (aRef);
+      if (aObserver != null)
+        ret[nCount++] = aObserver;
+    }
+    return nCount == ret.length ? ret : Arrays.copyOf (ret, nCount);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventObserverQueueConcurrentWeakSet rhs = (EventObserverQueueConcurrentWeakSet) o;
+    return getAllObservers ().equals (rhs.getAllObservers ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (getAllObservers ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Observers", getAllObservers ())
+                                       .append ("ReferenceCount", getReferenceCount ())
+                                       .getToString ();
+  }
+}
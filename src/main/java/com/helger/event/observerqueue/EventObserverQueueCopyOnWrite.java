@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.collection.ArrayHelper;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEventType;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Copy-on-write implementation of {@link IEventObserverQueue}. The observers
+ * are kept in an immutable array that is published via a volatile field.
+ * Reading is therefore lock-free and does not copy anything, whereas each
+ * registration and unregistration builds the next snapshot. This is the best
+ * choice for read-heavy scenarios with only a few registrations after
+ * startup. Order of observers is maintained!
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class EventObserverQueueCopyOnWrite implements IEventObserverQueue
+{
+  private static final IEventObserver [] NO_OBSERVERS = new IEventObserver [0];
+
+  // Only writers need to be serialized
+  private final SimpleLock m_aLock = new SimpleLock ();
+  private volatile IEventObserver [] m_aSnapshot = NO_OBSERVERS;
+  // Increased upon each modification
+  private final AtomicLong m_aVersion = new AtomicLong (0);
+
+  public EventObserverQueueCopyOnWrite ()
+  {}
+
+  @Nonnull
+  public EChange addObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    return m_aLock.lockedGet ( () -> {
+      final IEventObserver [] aOld = m_aSnapshot;
+      if (ArrayHelper.contains (aOld, aObserver))
+        return EChange.UNCHANGED;
+
+      final IEventObserver [] aNew = Arrays.copyOf (aOld, aOld.length + 1);
+      aNew[aOld.length] = aObserver;
+      m_aSnapshot = aNew;
+      m_aVersion.incrementAndGet ();
+      return EChange.CHANGED;
+    });
+  }
+
+  @Nonnull
+  public EChange removeObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    return m_aLock.lockedGet ( () -> {
+      final IEventObserver [] aOld = m_aSnapshot;
+      final int nIndex = ArrayHelper.getFirstIndex (aOld, aObserver);
+      if (nIndex < 0)
+        return EChange.UNCHANGED;
+
+      final int nNewLength = aOld.length - 1;
+      if (nNewLength == 0)
+        m_aSnapshot = NO_OBSERVERS;
+      else
+      {
+        final IEventObserver [] aNew = new IEventObserver [nNewLength];
+        System.arraycopy (aOld, 0, aNew, 0, nIndex);
+        System.arraycopy (aOld, nIndex + 1, aNew, nIndex, nNewLength - nIndex);
+        m_aSnapshot = aNew;
+      }
+      m_aVersion.incrementAndGet ();
+      return EChange.CHANGED;
+    });
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aSnapshot.length == 0;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IEventObserver> getAllObservers ()
+  {
+    return new CommonsArrayList <> (m_aSnapshot);
+  }
+
+  @Nonnull
+  @ReturnsMutableObject ("Snapshot - must not be modified")
+  @Override
+  public IEventObserver [] getObserverSnapshot (@Nonnull final IEventType aEventType)
+  {
+    return m_aSnapshot;
+  }
+
+  @Override
+  public boolean isCachingAllowed ()
+  {
+    return true;
+  }
+
+  @Override
+  public long getVersion ()
+  {
+    return m_aVersion.get ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventObserverQueueCopyOnWrite rhs = (EventObserverQueueCopyOnWrite) o;
+    return Arrays.equals (m_aSnapshot, rhs.m_aSnapshot);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aSnapshot).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Snapshot", m_aSnapshot).getToString ();
+  }
+}
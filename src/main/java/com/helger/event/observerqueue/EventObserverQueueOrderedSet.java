@@ -16,11 +16,14 @@
  */
 package com.helger.event.observerqueue;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.collection.impl.CommonsLinkedHashSet;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsOrderedSet;
@@ -28,6 +31,7 @@ import com.helger.commons.concurrent.SimpleReadWriteLock;
 import com.helger.commons.hashcode.HashCodeGenerator;
 import com.helger.commons.state.EChange;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEventType;
 import com.helger.event.observer.IEventObserver;
 
 /**
@@ -41,6 +45,8 @@ public class EventObserverQueueOrderedSet implements IEventObserverQueue
 {
   private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
   private final ICommonsOrderedSet <IEventObserver> m_aSet = new CommonsLinkedHashSet <> ();
+  // Increased upon each modification
+  private final AtomicLong m_aVersion = new AtomicLong (0);
 
   public EventObserverQueueOrderedSet ()
   {}
@@ -50,7 +56,12 @@ public class EventObserverQueueOrderedSet implements IEventObserverQueue
   {
     ValueEnforcer.notNull (aObserver, "Observer");
 
-    return m_aRWLock.writeLockedGet ( () -> m_aSet.addObject (aObserver));
+    return m_aRWLock.writeLockedGet ( () -> {
+      if (m_aSet.addObject (aObserver).isUnchanged ())
+        return EChange.UNCHANGED;
+      m_aVersion.incrementAndGet ();
+      return EChange.CHANGED;
+    });
   }
 
   @Nonnull
@@ -58,12 +69,26 @@ public class EventObserverQueueOrderedSet implements IEventObserverQueue
   {
     ValueEnforcer.notNull (aObserver, "Observer");
 
-    return m_aRWLock.writeLockedGet ( () -> m_aSet.removeObject (aObserver));
+    return m_aRWLock.writeLockedGet ( () -> {
+      if (m_aSet.removeObject (aObserver).isUnchanged ())
+        return EChange.UNCHANGED;
+      m_aVersion.incrementAndGet ();
+      return EChange.CHANGED;
+    });
   }
 
   public boolean isEmpty ()
   {
-    return m_aRWLock.readLockedBoolean ( () -> m_aSet.isEmpty ());
+    // Called for each trigger - avoid the capturing lambda
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      return m_aSet.isEmpty ();
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
   }
 
   @Nonnull
@@ -73,6 +98,27 @@ public class EventObserverQueueOrderedSet implements IEventObserverQueue
     return m_aRWLock.readLockedGet ( () -> m_aSet.getCopyAsList ());
   }
 
+  @Nonnull
+  @ReturnsMutableObject ("Snapshot - must not be modified")
+  @Override
+  public IEventObserver [] getObserverSnapshot (@Nonnull final IEventType aEventType)
+  {
+    // Avoid the intermediate list
+    return m_aRWLock.readLockedGet ( () -> m_aSet.toArray (new IEventObserver [m_aSet.size ()]));
+  }
+
+  @Override
+  public boolean isCachingAllowed ()
+  {
+    return true;
+  }
+
+  @Override
+  public long getVersion ()
+  {
+    return m_aVersion.get ();
+  }
+
   @Override
   public boolean equals (final Object o)
   {
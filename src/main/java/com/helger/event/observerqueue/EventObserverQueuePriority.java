@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.collection.ArrayHelper;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEventType;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Implementation of {@link IEventObserverQueue} that orders the observers by
+ * their registration priority. Observers with a higher priority are contained
+ * before observers with a lower priority. Observers with the same priority are
+ * maintained in registration order. The sorted observers are kept in an
+ * immutable array that is rebuilt upon each registration and unregistration,
+ * so dispatching never sorts and reading is lock-free.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class EventObserverQueuePriority implements IEventObserverQueue
+{
+  private static final IEventObserver [] NO_OBSERVERS = new IEventObserver [0];
+  private static final int [] NO_PRIORITIES = new int [0];
+
+  // Only writers need to be serialized
+  private final SimpleLock m_aLock = new SimpleLock ();
+  // Both arrays have the same length and are always replaced together
+  private volatile IEventObserver [] m_aSnapshot = NO_OBSERVERS;
+  private int [] m_aPriorities = NO_PRIORITIES;
+  // Increased upon each modification
+  private final AtomicLong m_aVersion = new AtomicLong (0);
+
+  public EventObserverQueuePriority ()
+  {}
+
+  @Nonnull
+  public EChange addObserver (@Nonnull final IEventObserver aObserver)
+  {
+    return addObserver (aObserver, DEFAULT_PRIORITY);
+  }
+
+  @Override
+  @Nonnull
+  public EChange addObserver (@Nonnull final IEventObserver aObserver, final int nPriority)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    return m_aLock.lockedGet ( () -> {
+      final IEventObserver [] aOld = m_aSnapshot;
+      if (ArrayHelper.contains (aOld, aObserver))
+        return EChange.UNCHANGED;
+
+      // Insert after all observers with the same or a higher priority
+      final int [] aOldPriorities = m_aPriorities;
+      int nIndex = 0;
+      while (nIndex < aOldPriorities.length && aOldPriorities[nIndex] >= nPriority)
+        nIndex++;
+
+      final int nOldLength = aOld.length;
+      final IEventObserver [] aNew = new IEventObserver [nOldLength + 1];
+      final int [] aNewPriorities = new int [nOldLength + 1];
+      System.arraycopy (aOld, 0, aNew, 0, nIndex);
+      System.arraycopy (aOldPriorities, 0, aNewPriorities, 0, nIndex);
+      aNew[nIndex] = aObserver;
+      aNewPriorities[nIndex] = nPriority;
+      System.arraycopy (aOld, nIndex, aNew, nIndex + 1, nOldLength - nIndex);
+      System.arraycopy (aOldPriorities, nIndex, aNewPriorities, nIndex + 1, nOldLength - nIndex);
+
+      m_aPriorities = aNewPriorities;
+      m_aSnapshot = aNew;
+      m_aVersion.incrementAndGet ();
+      return EChange.CHANGED;
+    });
+  }
+
+  @Nonnull
+  public EChange removeObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    return m_aLock.lockedGet ( () -> {
+      final IEventObserver [] aOld = m_aSnapshot;
+      final int nIndex = ArrayHelper.getFirstIndex (aOld, aObserver);
+      if (nIndex < 0)
+        return EChange.UNCHANGED;
+
+      final int nNewLength = aOld.length - 1;
+      if (nNewLength == 0)
+      {
+        m_aPriorities = NO_PRIORITIES;
+        m_aSnapshot = NO_OBSERVERS;
+      }
+      else
+      {
+        final int [] aOldPriorities = m_aPriorities;
+        final IEventObserver [] aNew = new IEventObserver [nNewLength];
+        final int [] aNewPriorities = new int [nNewLength];
+        System.arraycopy (aOld, 0, aNew, 0, nIndex);
+        System.arraycopy (aOldPriorities, 0, aNewPriorities, 0, nIndex);
+        System.arraycopy (aOld, nIndex + 1, aNew, nIndex, nNewLength - nIndex);
+        System.arraycopy (aOldPriorities, nIndex + 1, aNewPriorities, nIndex, nNewLength - nIndex);
+        m_aPriorities = aNewPriorities;
+        m_aSnapshot = aNew;
+      }
+      m_aVersion.incrementAndGet ();
+      return EChange.CHANGED;
+    });
+  }
+
+  /**
+   * Get the priority the passed observer was registered with.
+   *
+   * @param aObserver
+   *        The observer to check. May be <code>null</code>.
+   * @param nDefault
+   *        The value to be returned if the observer is not contained.
+   * @return The registration priority or the default value.
+   */
+  public int getPriority (final IEventObserver aObserver, final int nDefault)
+  {
+    return m_aLock.lockedInt ( () -> {
+      final int nIndex = ArrayHelper.getFirstIndex (m_aSnapshot, aObserver);
+      return nIndex < 0 ? nDefault : m_aPriorities[nIndex];
+    });
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aSnapshot.length == 0;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IEventObserver> getAllObservers ()
+  {
+    return new CommonsArrayList <> (m_aSnapshot);
+  }
+
+  @Nonnull
+  @ReturnsMutableObject ("Snapshot - must not be modified")
+  @Override
+  public IEventObserver [] getObserverSnapshot (@Nonnull final IEventType aEventType)
+  {
+    return m_aSnapshot;
+  }
+
+  @Override
+  public boolean isCachingAllowed ()
+  {
+    return true;
+  }
+
+  @Override
+  public long getVersion ()
+  {
+    return m_aVersion.get ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventObserverQueuePriority rhs = (EventObserverQueuePriority) o;
+    return m_aLock.lockedBoolean ( () -> Arrays.equals (m_aSnapshot, rhs.m_aSnapshot) &&
+                                         Arrays.equals (m_aPriorities, rhs.m_aPriorities));
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return m_aLock.lockedInt ( () -> new HashCodeGenerator (this).append (m_aSnapshot)
+                                                                 .append (m_aPriorities)
+                                                                 .getHashCode ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return m_aLock.lockedGet ( () -> new ToStringGenerator (this).append ("Snapshot", m_aSnapshot)
+                                                                 .append ("Priorities", m_aPriorities)
+                                                                 .getToString ());
+  }
+}
@@ -16,6 +16,8 @@
  */
 package com.helger.event.observerqueue;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -35,6 +37,8 @@ public final class EventObserverQueueSingleElement implements IEventObserverQueu
 {
   private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
   private IEventObserver m_aObserver;
+  // Increased upon each modification
+  private final AtomicLong m_aVersion = new AtomicLong (0);
 
   public EventObserverQueueSingleElement ()
   {}
@@ -44,7 +48,10 @@ public final class EventObserverQueueSingleElement implements IEventObserverQueu
   {
     ValueEnforcer.notNull (aObserver, "Observer");
 
-    m_aRWLock.writeLocked ( () -> m_aObserver = aObserver);
+    m_aRWLock.writeLocked ( () -> {
+      m_aObserver = aObserver;
+      m_aVersion.incrementAndGet ();
+    });
     return EChange.CHANGED;
   }
 
@@ -57,6 +64,7 @@ public final class EventObserverQueueSingleElement implements IEventObserverQueu
       if (!EqualsHelper.equals (m_aObserver, aObserver))
         return EChange.UNCHANGED;
       m_aObserver = null;
+      m_aVersion.incrementAndGet ();
       return EChange.CHANGED;
     });
   }
@@ -73,6 +81,18 @@ public final class EventObserverQueueSingleElement implements IEventObserverQueu
     return m_aRWLock.readLockedBoolean ( () -> m_aObserver == null);
   }
 
+  @Override
+  public boolean isCachingAllowed ()
+  {
+    return true;
+  }
+
+  @Override
+  public long getVersion ()
+  {
+    return m_aVersion.get ();
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsConcurrentHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEventType;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Implementation of {@link IEventObserverQueue} for a very large number of
+ * observers. The observers are partitioned into stripes by the hash code of
+ * the event types reported by {@link IEventObserver#getAllHandledEventTypes()}.
+ * Each stripe is an {@link EventObserverQueueTypeIndexed} with its own lock,
+ * so registration in one stripe never blocks dispatching in another stripe.
+ * Observers with custom handling logic or event type patterns are contained in
+ * all stripes. Order of observers is maintained!
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class EventObserverQueueStriped implements IEventObserverQueue
+{
+  /** The default number of stripes */
+  public static final int DEFAULT_STRIPE_COUNT = 16;
+
+  private final EventObserverQueueTypeIndexed [] m_aStripes;
+  private final int m_nStripeMask;
+  // Observer to registration sequence number
+  private final ICommonsMap <IEventObserver, Long> m_aAll = new CommonsConcurrentHashMap <> ();
+  private final AtomicLong m_aNextSeqNo = new AtomicLong (0);
+  // Increased upon each modification
+  private final AtomicLong m_aVersion = new AtomicLong (0);
+
+  public EventObserverQueueStriped ()
+  {
+    this (DEFAULT_STRIPE_COUNT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nStripeCount
+   *        The number of stripes to use. Must be &gt; 0. It is rounded up to
+   *        the next power of two.
+   */
+  public EventObserverQueueStriped (@Nonnegative final int nStripeCount)
+  {
+    ValueEnforcer.isBetweenInclusive (nStripeCount, "StripeCount", 1, 1 << 16);
+
+    final int nRealStripeCount = nStripeCount == 1 ? 1 : Integer.highestOneBit (nStripeCount - 1) << 1;
+    m_aStripes = new EventObserverQueueTypeIndexed [nRealStripeCount];
+    for (int i = 0; i < nRealStripeCount; ++i)
+      m_aStripes[i] = new EventObserverQueueTypeIndexed ();
+    m_nStripeMask = nRealStripeCount - 1;
+  }
+
+  /**
+   * @return The number of stripes used. Always a power of two.
+   */
+  @Nonnegative
+  public final int getStripeCount ()
+  {
+    return m_aStripes.length;
+  }
+
+  @Nonnull
+  private EventObserverQueueTypeIndexed _getStripe (@Nonnull final IEventType aEventType)
+  {
+    final int h = aEventType.hashCode ();
+    return m_aStripes[(h ^ (h >>> 16)) & m_nStripeMask];
+  }
+
+  private void _forEachStripe (@Nonnull final IEventObserver aObserver,
+                               @Nonnull final Consumer <EventObserverQueueTypeIndexed> aConsumer)
+  {
+    final ICommonsSet <IEventType> aEventTypes = aObserver.getAllHandledEventTypes ();
+    if (aEventTypes == null || aObserver.getAllHandledEventTypePatterns () != null)
+    {
+      // Custom handling or patterns - must be present in all stripes
+      for (final EventObserverQueueTypeIndexed aStripe : m_aStripes)
+        aConsumer.accept (aStripe);
+    }
+    else
+    {
+      // Only the stripes of the handled types - each stripe only once
+      final EventObserverQueueTypeIndexed [] aUsed = new EventObserverQueueTypeIndexed [aEventTypes.size ()];
+      int nUsed = 0;
+      for (final IEventType aEventType : aEventTypes)
+      {
+        final EventObserverQueueTypeIndexed aStripe = _getStripe (aEventType);
+        boolean bUsed = false;
+        for (int i = 0; i < nUsed && !bUsed; ++i)
+          bUsed = aUsed[i] == aStripe;
+        if (!bUsed)
+        {
+          aUsed[nUsed++] = aStripe;
+          aConsumer.accept (aStripe);
+        }
+      }
+    }
+  }
+
+  @Nonnull
+  public EChange addObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    final boolean [] aAdded = { false };
+    // Serialized per observer only
+    m_aAll.computeIfAbsent (aObserver, k -> {
+      _forEachStripe (aObserver, x -> x.addObserver (aObserver));
+      aAdded[0] = true;
+      m_aVersion.incrementAndGet ();
+      return Long.valueOf (m_aNextSeqNo.getAndIncrement ());
+    });
+    return EChange.valueOf (aAdded[0]);
+  }
+
+  @Nonnull
+  public EChange removeObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    final boolean [] aRemoved = { false };
+    // Serialized per observer only
+    m_aAll.computeIfPresent (aObserver, (k, v) -> {
+      _forEachStripe (aObserver, x -> x.removeObserver (aObserver));
+      aRemoved[0] = true;
+      m_aVersion.incrementAndGet ();
+      return null;
+    });
+    return EChange.valueOf (aRemoved[0]);
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aAll.isEmpty ();
+  }
+
+  /**
+   * @return The number of contained observers.
+   */
+  @Nonnegative
+  public int getObserverCount ()
+  {
+    return m_aAll.size ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IEventObserver> getAllObservers ()
+  {
+    final ICommonsList <Map.Entry <IEventObserver, Long>> aEntries = new CommonsArrayList <> (m_aAll.entrySet ());
+    aEntries.sort (Map.Entry.comparingByValue ());
+    return aEntries.getAllMapped (Map.Entry::getKey);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  @Override
+  public ICommonsList <IEventObserver> getAllObservers (@Nonnull final IEventType aEventType)
+  {
+    return new CommonsArrayList <> (getObserverSnapshot (aEventType));
+  }
+
+  @Nonnull
+  @ReturnsMutableObject ("Snapshot - must not be modified")
+  @Override
+  public IEventObserver [] getObserverSnapshot (@Nonnull final IEventType aEventType)
+  {
+    ValueEnforcer.notNull (aEventType, "EventType");
+
+    return _getStripe (aEventType).getObserverSnapshot (aEventType);
+  }
+
+  @Override
+  public boolean isCachingAllowed ()
+  {
+    return true;
+  }
+
+  @Override
+  public long getVersion ()
+  {
+    return m_aVersion.get ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventObserverQueueStriped rhs = (EventObserverQueueStriped) o;
+    return getAllObservers ().equals (rhs.getAllObservers ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (getAllObservers ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("StripeCount", m_aStripes.length)
+                                       .append ("ObserverCount", m_aAll.size ())
+                                       .getToString ();
+  }
+}
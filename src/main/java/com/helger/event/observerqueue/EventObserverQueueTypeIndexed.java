@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsConcurrentHashMap;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.concurrent.SimpleReadWriteLock;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEventType;
+import com.helger.event.observer.IEventObserver;
+import com.helger.event.pattern.EventTypePattern;
+import com.helger.event.pattern.EventTypePatternTrie;
+
+/**
+ * Implementation of {@link IEventObserverQueue} that indexes the observers by
+ * the event types reported by {@link IEventObserver#getAllHandledEventTypes()}.
+ * Looking up the observers for a single event type only touches the observers
+ * registered for that type plus the observers that use custom handling logic.
+ * Observers that subscribe via
+ * {@link IEventObserver#getAllHandledEventTypePatterns()} are compiled into an
+ * {@link EventTypePatternTrie}, and the resolved pattern matches are cached per
+ * event type until the next pattern registration change. Order of observers is
+ * maintained!
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class EventObserverQueueTypeIndexed implements IEventObserverQueue
+{
+  private static final class Registration implements Serializable
+  {
+    private final IEventObserver m_aObserver;
+    private final long m_nSeqNo;
+    private final ICommonsSet <IEventType> m_aEventTypes;
+    private final ICommonsSet <EventTypePattern> m_aPatterns;
+
+    Registration (@Nonnull final IEventObserver aObserver,
+                  final long nSeqNo,
+                  @Nullable final ICommonsSet <IEventType> aEventTypes,
+                  @Nullable final ICommonsSet <EventTypePattern> aPatterns)
+    {
+      m_aObserver = aObserver;
+      m_nSeqNo = nSeqNo;
+      m_aEventTypes = aEventTypes;
+      m_aPatterns = aPatterns;
+    }
+
+    boolean isUnindexed ()
+    {
+      return m_aEventTypes == null && m_aPatterns == null;
+    }
+  }
+
+  private static final Comparator <Registration> SEQ_NO_COMPARATOR = Comparator.comparingLong (x -> x.m_nSeqNo);
+
+  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsOrderedMap <IEventObserver, Registration> m_aAll = new CommonsLinkedHashMap <> ();
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsMap <IEventType, ICommonsList <Registration>> m_aIndex = new CommonsHashMap <> ();
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsList <Registration> m_aUnindexed = new CommonsArrayList <> ();
+  @GuardedBy ("m_aRWLock")
+  private final EventTypePatternTrie <Registration> m_aPatternTrie = new EventTypePatternTrie <> ();
+  // Filled with read lock, cleared with write lock
+  private final ICommonsMap <IEventType, ICommonsList <Registration>> m_aPatternMatchCache = new CommonsConcurrentHashMap <> ();
+  @GuardedBy ("m_aRWLock")
+  private long m_nNextSeqNo = 0;
+  // Increased upon each modification
+  private final AtomicLong m_aVersion = new AtomicLong (0);
+
+  public EventObserverQueueTypeIndexed ()
+  {}
+
+  @Nonnull
+  public EChange addObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    // Query outside of the lock
+    final ICommonsSet <IEventType> aEventTypes = aObserver.getAllHandledEventTypes ();
+    final ICommonsSet <EventTypePattern> aPatterns = aObserver.getAllHandledEventTypePatterns ();
+
+    return m_aRWLock.writeLockedGet ( () -> {
+      if (m_aAll.containsKey (aObserver))
+        return EChange.UNCHANGED;
+
+      final Registration aReg = new Registration (aObserver, m_nNextSeqNo++, aEventTypes, aPatterns);
+      m_aAll.put (aObserver, aReg);
+      if (aReg.isUnindexed ())
+        m_aUnindexed.add (aReg);
+      else
+      {
+        if (aEventTypes != null)
+          for (final IEventType aEventType : aEventTypes)
+            m_aIndex.computeIfAbsent (aEventType, k -> new CommonsArrayList <> ()).add (aReg);
+        if (aPatterns != null)
+        {
+          for (final EventTypePattern aPattern : aPatterns)
+            m_aPatternTrie.add (aPattern, aReg);
+          m_aPatternMatchCache.clear ();
+        }
+      }
+      m_aVersion.incrementAndGet ();
+      return EChange.CHANGED;
+    });
+  }
+
+  @Nonnull
+  public EChange removeObserver (@Nonnull final IEventObserver aObserver)
+  {
+    ValueEnforcer.notNull (aObserver, "Observer");
+
+    return m_aRWLock.writeLockedGet ( () -> {
+      final Registration aReg = m_aAll.remove (aObserver);
+      if (aReg == null)
+        return EChange.UNCHANGED;
+
+      if (aReg.isUnindexed ())
+        m_aUnindexed.remove (aReg);
+      else
+      {
+        if (aReg.m_aEventTypes != null)
+          for (final IEventType aEventType : aReg.m_aEventTypes)
+          {
+            final ICommonsList <Registration> aList = m_aIndex.get (aEventType);
+            if (aList != null)
+            {
+              aList.remove (aReg);
+              if (aList.isEmpty ())
+                m_aIndex.remove (aEventType);
+            }
+          }
+        if (aReg.m_aPatterns != null)
+        {
+          for (final EventTypePattern aPattern : aReg.m_aPatterns)
+            m_aPatternTrie.remove (aPattern, aReg);
+          m_aPatternMatchCache.clear ();
+        }
+      }
+      m_aVersion.incrementAndGet ();
+      return EChange.CHANGED;
+    });
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aRWLock.readLockedBoolean ( () -> m_aAll.isEmpty ());
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IEventObserver> getAllObservers ()
+  {
+    return m_aRWLock.readLockedGet ( () -> new CommonsArrayList <> (m_aAll.keySet ()));
+  }
+
+  private static int _size (@Nullable final ICommonsList <Registration> aList)
+  {
+    return aList == null ? 0 : aList.size ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  private static IEventObserver [] _merge (@Nullable final ICommonsList <Registration> aList1,
+                                           @Nullable final ICommonsList <Registration> aList2,
+                                           @Nonnull final ICommonsList <Registration> aList3)
+  {
+    // All lists are sorted by sequence number - merge them. A registration may
+    // be contained in the first two lists, if it has both types and patterns.
+    final int nSize1 = _size (aList1);
+    final int nSize2 = _size (aList2);
+    final int nSize3 = aList3.size ();
+    final IEventObserver [] ret = new IEventObserver [nSize1 + nSize2 + nSize3];
+    int nIdx1 = 0;
+    int nIdx2 = 0;
+    int nIdx3 = 0;
+    int nDstIdx = 0;
+    while (nIdx1 < nSize1 || nIdx2 < nSize2 || nIdx3 < nSize3)
+    {
+      final Registration aReg1 = nIdx1 < nSize1 ? aList1.get (nIdx1) : null;
+      final Registration aReg2 = nIdx2 < nSize2 ? aList2.get (nIdx2) : null;
+      final Registration aReg3 = nIdx3 < nSize3 ? aList3.get (nIdx3) : null;
+      Registration aMin = aReg1;
+      if (aReg2 != null && (aMin == null || aReg2.m_nSeqNo < aMin.m_nSeqNo))
+        aMin = aReg2;
+      if (aReg3 != null && (aMin == null || aReg3.m_nSeqNo < aMin.m_nSeqNo))
+        aMin = aReg3;
+
+      ret[nDstIdx++] = aMin.m_aObserver;
+      if (aReg1 == aMin)
+        nIdx1++;
+      if (aReg2 == aMin)
+        nIdx2++;
+      if (aReg3 == aMin)
+        nIdx3++;
+    }
+    return nDstIdx == ret.length ? ret : Arrays.copyOf (ret, nDstIdx);
+  }
+
+  @Nullable
+  @ReturnsMutableObject ("Cached")
+  private ICommonsList <Registration> _getPatternMatches (@Nonnull final IEventType aEventType)
+  {
+    // Called within the read lock
+    if (m_aPatternTrie.isEmpty ())
+      return null;
+    return m_aPatternMatchCache.computeIfAbsent (aEventType,
+                                                 k -> new CommonsArrayList <> (m_aPatternTrie.getAllMatching (k.getName ())).getSortedInline (SEQ_NO_COMPARATOR));
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  @Override
+  public ICommonsList <IEventObserver> getAllObservers (@Nonnull final IEventType aEventType)
+  {
+    return new CommonsArrayList <> (getObserverSnapshot (aEventType));
+  }
+
+  @Nonnull
+  @ReturnsMutableObject ("Snapshot - must not be modified")
+  @Override
+  public IEventObserver [] getObserverSnapshot (@Nonnull final IEventType aEventType)
+  {
+    ValueEnforcer.notNull (aEventType, "EventType");
+
+    return m_aRWLock.readLockedGet ( () -> _merge (m_aIndex.get (aEventType),
+                                                   _getPatternMatches (aEventType),
+                                                   m_aUnindexed));
+  }
+
+  @Override
+  public boolean isCachingAllowed ()
+  {
+    return true;
+  }
+
+  @Override
+  public long getVersion ()
+  {
+    return m_aVersion.get ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventObserverQueueTypeIndexed rhs = (EventObserverQueueTypeIndexed) o;
+    return getAllObservers ().equals (rhs.getAllObservers ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (getAllObservers ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Observers", getAllObservers ())
+                                       .append ("IndexedEventTypes", m_aRWLock.readLockedInt (m_aIndex::size))
+                                       .append ("PatternValues",
+                                                m_aRWLock.readLockedInt (m_aPatternTrie::getPatternValueCount))
+                                       .append ("UnindexedObservers",
+                                                m_aRWLock.readLockedInt (m_aUnindexed::size))
+                                       .getToString ();
+  }
+}
@@ -22,8 +22,11 @@ import javax.annotation.Nonnull;
 
 import com.helger.commons.annotation.MustImplementEqualsAndHashcode;
 import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.state.EChange;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
 import com.helger.event.observer.IEventObserver;
 
 /**
@@ -34,6 +37,9 @@ import com.helger.event.observer.IEventObserver;
 @MustImplementEqualsAndHashcode
 public interface IEventObserverQueue extends Serializable
 {
+  /** The priority used if no explicit priority is provided */
+  int DEFAULT_PRIORITY = 0;
+
   /**
    * Add a new observer.
    *
@@ -44,6 +50,25 @@ public interface IEventObserverQueue extends Serializable
   @Nonnull
   EChange addObserver (@Nonnull IEventObserver aObserver);
 
+  /**
+   * Add a new observer with a certain priority. Observers with a higher
+   * priority are dispatched before observers with a lower priority. The
+   * default implementation ignores the priority and only queues that support
+   * ordering by priority (like {@link EventObserverQueuePriority}) consider it.
+   *
+   * @param aObserver
+   *        The observer to add. May not be <code>null</code>.
+   * @param nPriority
+   *        The priority of the observer. Use {@link #DEFAULT_PRIORITY} if in
+   *        doubt.
+   * @return {@link EChange}
+   */
+  @Nonnull
+  default EChange addObserver (@Nonnull final IEventObserver aObserver, final int nPriority)
+  {
+    return addObserver (aObserver);
+  }
+
   /**
    * Remove a previously added observer.
    *
@@ -61,12 +86,81 @@ public interface IEventObserverQueue extends Serializable
   @ReturnsMutableCopy
   ICommonsList <IEventObserver> getAllObservers ();
 
+  /**
+   * Get all observers that may be able to handle events of the passed type.
+   * Implementations may return more observers than actually handle the event
+   * type, so {@link IEventObserver#canHandleEvent(IEvent)} must still be called
+   * for each returned observer. The relative order of the observers is the
+   * same as in {@link #getAllObservers()}.
+   *
+   * @param aEventType
+   *        The event type to be dispatched. May not be <code>null</code>.
+   * @return A list of all candidate observers. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  default ICommonsList <IEventObserver> getAllObservers (@Nonnull final IEventType aEventType)
+  {
+    return getAllObservers ();
+  }
+
+  /**
+   * Get all observers that may be able to handle events of the passed type as
+   * an array. The semantics are the same as for
+   * {@link #getAllObservers(IEventType)}, but implementations may return an
+   * internal immutable snapshot instead of a copy. That is why the caller must
+   * never modify the returned array. This is the method used by the
+   * dispatchers.
+   *
+   * @param aEventType
+   *        The event type to be dispatched. May not be <code>null</code>.
+   * @return An array of all candidate observers. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableObject ("Snapshot - must not be modified")
+  default IEventObserver [] getObserverSnapshot (@Nonnull final IEventType aEventType)
+  {
+    return getAllObservers (aEventType).toArray (new IEventObserver [0]);
+  }
+
   /**
    * @return <code>true</code> if not a single observer is contained,
    *         <code>false</code> if at least one observer is contained.
    */
   boolean isEmpty ();
 
+  /**
+   * Determine whether information derived from the content of this queue may
+   * be cached as long as {@link #getVersion()} doesn't change. This is not the
+   * case for queues that may change their content on their own (e.g. weak
+   * references).
+   *
+   * @return <code>true</code> if the content of this queue only changes via
+   *         {@link #addObserver(IEventObserver)} and
+   *         {@link #removeObserver(IEventObserver)}, <code>false</code>
+   *         otherwise. Default is <code>false</code>.
+   */
+  default boolean isCachingAllowed ()
+  {
+    return false;
+  }
+
+  /**
+   * Get the modification version of this queue. It must be increased upon
+   * every successful {@link #addObserver(IEventObserver)} and
+   * {@link #removeObserver(IEventObserver)}, after the change became visible
+   * to readers. Queues returning <code>true</code> in
+   * {@link #isCachingAllowed()} must implement this method, because cached
+   * information is only valid as long as the version is unchanged.
+   *
+   * @return The current modification version. The default implementation
+   *         always returns 0.
+   */
+  default long getVersion ()
+  {
+    return 0;
+  }
+
   /**
    * This method is called before the main dispatching takes place. It is called
    * before each dispatch.
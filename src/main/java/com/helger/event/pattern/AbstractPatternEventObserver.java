@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.pattern;
+
+import javax.annotation.Nonnull;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.event.IEvent;
+import com.helger.event.observer.EEventObserverHandlerType;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Abstract base class for an event observer that subscribes to event types by
+ * {@link EventTypePattern}s instead of concrete event types.
+ *
+ * @author Philip Helger
+ */
+public abstract class AbstractPatternEventObserver implements IEventObserver
+{
+  private final EEventObserverHandlerType m_eHandlerType;
+  private final ICommonsOrderedSet <EventTypePattern> m_aHandledPatterns;
+
+  public AbstractPatternEventObserver (final boolean bWithReturnValue, @Nonnull final String... aHandledPatterns)
+  {
+    ValueEnforcer.notEmptyNoNullValue (aHandledPatterns, "HandledPatterns");
+
+    m_eHandlerType = bWithReturnValue ? EEventObserverHandlerType.HANDLE_RETURN_VALUE
+                                      : EEventObserverHandlerType.HANDLE_NO_RETURN;
+    m_aHandledPatterns = new CommonsLinkedHashSet <> (aHandledPatterns, EventTypePattern::new);
+  }
+
+  public AbstractPatternEventObserver (final boolean bWithReturnValue,
+                                       @Nonnull final Iterable <? extends EventTypePattern> aHandledPatterns)
+  {
+    ValueEnforcer.notEmptyNoNullValue (aHandledPatterns, "HandledPatterns");
+
+    m_eHandlerType = bWithReturnValue ? EEventObserverHandlerType.HANDLE_RETURN_VALUE
+                                      : EEventObserverHandlerType.HANDLE_NO_RETURN;
+    m_aHandledPatterns = new CommonsLinkedHashSet <> (aHandledPatterns);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public final ICommonsSet <EventTypePattern> getAllHandledEventTypePatterns ()
+  {
+    return m_aHandledPatterns.getClone ();
+  }
+
+  /**
+   * @return Always <code>true</code>, because only the event type name is
+   *         checked in {@link #canHandleEvent(IEvent)}.
+   */
+  public final boolean isHandlingDependingOnEventTypeOnly ()
+  {
+    return true;
+  }
+
+  @Nonnull
+  public final EEventObserverHandlerType canHandleEvent (@Nonnull final IEvent aEvent)
+  {
+    final String sEventTypeName = aEvent.getEventType ().getName ();
+    for (final EventTypePattern aPattern : m_aHandledPatterns)
+      if (aPattern.matches (sEventTypeName))
+        return m_eHandlerType;
+    return EEventObserverHandlerType.CANNOT_HANDLE;
+  }
+}
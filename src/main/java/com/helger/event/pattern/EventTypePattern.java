@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.pattern;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.event.IEventType;
+
+/**
+ * A pattern over event type names. Event type names are split into segments
+ * by {@value #SEPARATOR} (like in "base.before.create"). Each segment of the
+ * pattern is either a literal segment that must match exactly,
+ * {@value #ANY_SEGMENT} which matches exactly one arbitrary segment or
+ * {@value #ANY_SEGMENTS} which matches zero or more arbitrary segments.
+ * Examples:
+ * <ul>
+ * <li>"orders.*" matches "orders.created" but not "orders" or
+ * "orders.item.created"</li>
+ * <li>"orders.#" matches "orders", "orders.created" and
+ * "orders.item.created"</li>
+ * <li>"*.after.*" matches all "after" events of all CRUD base names without a
+ * dot</li>
+ * <li>"#.create" matches all create events anywhere</li>
+ * </ul>
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class EventTypePattern implements Serializable
+{
+  /** The separator between the segments of an event type name */
+  public static final char SEPARATOR = '.';
+  /** Wildcard for exactly one segment */
+  public static final String ANY_SEGMENT = "*";
+  /** Wildcard for zero or more segments */
+  public static final String ANY_SEGMENTS = "#";
+
+  private final String m_sPattern;
+  private final String [] m_aSegments;
+  private final boolean m_bHasWildcard;
+
+  public EventTypePattern (@Nonnull @Nonempty final String sPattern)
+  {
+    ValueEnforcer.notEmpty (sPattern, "Pattern");
+    m_sPattern = sPattern;
+    m_aSegments = getSegments (sPattern);
+    boolean bHasWildcard = false;
+    for (final String sSegment : m_aSegments)
+    {
+      ValueEnforcer.notEmpty (sSegment, "Segment of pattern '" + sPattern + "'");
+      if (isWildcard (sSegment))
+        bHasWildcard = true;
+    }
+    m_bHasWildcard = bHasWildcard;
+  }
+
+  /**
+   * @return The original pattern string. Neither <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getPattern ()
+  {
+    return m_sPattern;
+  }
+
+  /**
+   * @return The number of pattern segments. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getSegmentCount ()
+  {
+    return m_aSegments.length;
+  }
+
+  /**
+   * @param nIndex
+   *        The 0-based index of the segment to retrieve.
+   * @return The segment at the specified index. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getSegmentAtIndex (@Nonnegative final int nIndex)
+  {
+    return m_aSegments[nIndex];
+  }
+
+  /**
+   * @return <code>true</code> if at least one segment is a wildcard,
+   *         <code>false</code> if this pattern only matches a single event type
+   *         name.
+   */
+  public boolean hasWildcard ()
+  {
+    return m_bHasWildcard;
+  }
+
+  private boolean _matches (@Nonnull final String [] aNameSegments,
+                            @Nonnegative final int nPatternIndex,
+                            @Nonnegative final int nNameIndex)
+  {
+    if (nPatternIndex == m_aSegments.length)
+      return nNameIndex == aNameSegments.length;
+
+    final String sSegment = m_aSegments[nPatternIndex];
+    if (ANY_SEGMENTS.equals (sSegment))
+    {
+      // Try to consume zero or more segments
+      for (int i = nNameIndex; i <= aNameSegments.length; ++i)
+        if (_matches (aNameSegments, nPatternIndex + 1, i))
+          return true;
+      return false;
+    }
+
+    if (nNameIndex == aNameSegments.length)
+      return false;
+    if (ANY_SEGMENT.equals (sSegment) || sSegment.equals (aNameSegments[nNameIndex]))
+      return _matches (aNameSegments, nPatternIndex + 1, nNameIndex + 1);
+    return false;
+  }
+
+  /**
+   * Check if the passed event type name matches this pattern.
+   *
+   * @param sEventTypeName
+   *        The event type name to check. May not be <code>null</code>.
+   * @return <code>true</code> if it matches, <code>false</code> if not.
+   */
+  public boolean matches (@Nonnull final String sEventTypeName)
+  {
+    ValueEnforcer.notNull (sEventTypeName, "EventTypeName");
+
+    if (!m_bHasWildcard)
+      return m_sPattern.equals (sEventTypeName);
+    return _matches (getSegments (sEventTypeName), 0, 0);
+  }
+
+  /**
+   * Check if the name of the passed event type matches this pattern.
+   *
+   * @param aEventType
+   *        The event type to check. May not be <code>null</code>.
+   * @return <code>true</code> if it matches, <code>false</code> if not.
+   */
+  public boolean matches (@Nonnull final IEventType aEventType)
+  {
+    ValueEnforcer.notNull (aEventType, "EventType");
+    return matches (aEventType.getName ());
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final EventTypePattern rhs = (EventTypePattern) o;
+    return m_sPattern.equals (rhs.m_sPattern);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_sPattern).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Pattern", m_sPattern).getToString ();
+  }
+
+  /**
+   * @param sSegment
+   *        The segment to check. May be <code>null</code>.
+   * @return <code>true</code> if the passed segment is one of the wildcards.
+   */
+  public static boolean isWildcard (final String sSegment)
+  {
+    return ANY_SEGMENT.equals (sSegment) || ANY_SEGMENTS.equals (sSegment);
+  }
+
+  /**
+   * Split the passed event type name or pattern into segments.
+   *
+   * @param sName
+   *        The name to split. May not be <code>null</code>.
+   * @return The segments and never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static String [] getSegments (@Nonnull final String sName)
+  {
+    return StringHelper.getExplodedArray (SEPARATOR, sName);
+  }
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.pattern;
+
+import java.io.Serializable;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A trie over the segments of {@link EventTypePattern}s. Each pattern is
+ * compiled into a path of the trie, so that all values of all patterns
+ * matching a concrete event type name can be retrieved by a single walk over
+ * the name segments, independent of the total number of patterns. This class
+ * is not thread-safe.
+ *
+ * @author Philip Helger
+ * @param <T>
+ *        The value type stored per pattern
+ */
+@NotThreadSafe
+public class EventTypePatternTrie <T> implements Serializable
+{
+  private static final class Node <T> implements Serializable
+  {
+    private ICommonsMap <String, Node <T>> m_aLiteralChildren;
+    private Node <T> m_aAnySegmentChild;
+    private Node <T> m_aAnySegmentsChild;
+    private ICommonsList <T> m_aValues;
+
+    @Nonnull
+    Node <T> getOrCreateChild (@Nonnull final String sSegment)
+    {
+      if (EventTypePattern.ANY_SEGMENT.equals (sSegment))
+      {
+        if (m_aAnySegmentChild == null)
+          m_aAnySegmentChild = new Node <> ();
+        return m_aAnySegmentChild;
+      }
+      if (EventTypePattern.ANY_SEGMENTS.equals (sSegment))
+      {
+        if (m_aAnySegmentsChild == null)
+          m_aAnySegmentsChild = new Node <> ();
+        return m_aAnySegmentsChild;
+      }
+      if (m_aLiteralChildren == null)
+        m_aLiteralChildren = new CommonsHashMap <> ();
+      return m_aLiteralChildren.computeIfAbsent (sSegment, k -> new Node <> ());
+    }
+
+    @Nullable
+    Node <T> getChild (@Nonnull final String sSegment)
+    {
+      if (EventTypePattern.ANY_SEGMENT.equals (sSegment))
+        return m_aAnySegmentChild;
+      if (EventTypePattern.ANY_SEGMENTS.equals (sSegment))
+        return m_aAnySegmentsChild;
+      return m_aLiteralChildren == null ? null : m_aLiteralChildren.get (sSegment);
+    }
+
+    void removeChild (@Nonnull final String sSegment)
+    {
+      if (EventTypePattern.ANY_SEGMENT.equals (sSegment))
+        m_aAnySegmentChild = null;
+      else
+        if (EventTypePattern.ANY_SEGMENTS.equals (sSegment))
+          m_aAnySegmentsChild = null;
+        else
+          if (m_aLiteralChildren != null)
+          {
+            m_aLiteralChildren.remove (sSegment);
+            if (m_aLiteralChildren.isEmpty ())
+              m_aLiteralChildren = null;
+          }
+    }
+
+    boolean isEmpty ()
+    {
+      return m_aLiteralChildren == null &&
+             m_aAnySegmentChild == null &&
+             m_aAnySegmentsChild == null &&
+             (m_aValues == null || m_aValues.isEmpty ());
+    }
+  }
+
+  private final Node <T> m_aRoot = new Node <> ();
+  private int m_nPatternValueCount = 0;
+
+  public EventTypePatternTrie ()
+  {}
+
+  /**
+   * @return The number of contained pattern/value pairs.
+   */
+  @Nonnegative
+  public int getPatternValueCount ()
+  {
+    return m_nPatternValueCount;
+  }
+
+  /**
+   * @return <code>true</code> if no pattern is contained.
+   */
+  public boolean isEmpty ()
+  {
+    return m_nPatternValueCount == 0;
+  }
+
+  /**
+   * Add a value for the passed pattern. The same value may be added for
+   * multiple patterns.
+   *
+   * @param aPattern
+   *        The pattern to add. May not be <code>null</code>.
+   * @param aValue
+   *        The value to add. May not be <code>null</code>.
+   */
+  public void add (@Nonnull final EventTypePattern aPattern, @Nonnull final T aValue)
+  {
+    ValueEnforcer.notNull (aPattern, "Pattern");
+    ValueEnforcer.notNull (aValue, "Value");
+
+    Node <T> aNode = m_aRoot;
+    for (int i = 0; i < aPattern.getSegmentCount (); ++i)
+      aNode = aNode.getOrCreateChild (aPattern.getSegmentAtIndex (i));
+    if (aNode.m_aValues == null)
+      aNode.m_aValues = new CommonsArrayList <> (1);
+    aNode.m_aValues.add (aValue);
+    m_nPatternValueCount++;
+  }
+
+  private boolean _remove (@Nonnull final Node <T> aNode,
+                           @Nonnull final EventTypePattern aPattern,
+                           @Nonnegative final int nIndex,
+                           @Nonnull final T aValue)
+  {
+    if (nIndex == aPattern.getSegmentCount ())
+      return aNode.m_aValues != null && aNode.m_aValues.remove (aValue);
+
+    final String sSegment = aPattern.getSegmentAtIndex (nIndex);
+    final Node <T> aChild = aNode.getChild (sSegment);
+    if (aChild == null || !_remove (aChild, aPattern, nIndex + 1, aValue))
+      return false;
+
+    // Prune empty paths
+    if (aChild.isEmpty ())
+      aNode.removeChild (sSegment);
+    return true;
+  }
+
+  /**
+   * Remove a value previously added for the passed pattern.
+   *
+   * @param aPattern
+   *        The pattern to remove. May not be <code>null</code>.
+   * @param aValue
+   *        The value to remove. May not be <code>null</code>.
+   * @return {@link EChange}
+   */
+  @Nonnull
+  public EChange remove (@Nonnull final EventTypePattern aPattern, @Nonnull final T aValue)
+  {
+    ValueEnforcer.notNull (aPattern, "Pattern");
+    ValueEnforcer.notNull (aValue, "Value");
+
+    if (!_remove (m_aRoot, aPattern, 0, aValue))
+      return EChange.UNCHANGED;
+    m_nPatternValueCount--;
+    return EChange.CHANGED;
+  }
+
+  private static <T> void _collect (@Nonnull final Node <T> aNode,
+                                    @Nonnull final String [] aNameSegments,
+                                    @Nonnegative final int nIndex,
+                                    @Nonnull final Consumer <? super T> aConsumer)
+  {
+    // "#" may match zero or more segments
+    final Node <T> aAnySegmentsChild = aNode.m_aAnySegmentsChild;
+    if (aAnySegmentsChild != null)
+      for (int i = nIndex; i <= aNameSegments.length; ++i)
+        _collect (aAnySegmentsChild, aNameSegments, i, aConsumer);
+
+    if (nIndex == aNameSegments.length)
+    {
+      if (aNode.m_aValues != null)
+        aNode.m_aValues.forEach (aConsumer);
+      return;
+    }
+
+    if (aNode.m_aLiteralChildren != null)
+    {
+      final Node <T> aLiteralChild = aNode.m_aLiteralChildren.get (aNameSegments[nIndex]);
+      if (aLiteralChild != null)
+        _collect (aLiteralChild, aNameSegments, nIndex + 1, aConsumer);
+    }
+    if (aNode.m_aAnySegmentChild != null)
+      _collect (aNode.m_aAnySegmentChild, aNameSegments, nIndex + 1, aConsumer);
+  }
+
+  /**
+   * Get all values of all patterns matching the passed event type name.
+   *
+   * @param sEventTypeName
+   *        The concrete event type name. May not be <code>null</code>.
+   * @return All matching values without duplicates. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <T> getAllMatching (@Nonnull final String sEventTypeName)
+  {
+    ValueEnforcer.notNull (sEventTypeName, "EventTypeName");
+
+    final ICommonsOrderedSet <T> ret = new CommonsLinkedHashSet <> ();
+    if (m_nPatternValueCount > 0)
+      _collect (m_aRoot, EventTypePattern.getSegments (sEventTypeName), 0, ret::add);
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("PatternValueCount", m_nPatternValueCount).getToString ();
+  }
+}
@@ -16,7 +16,11 @@
  */
 package com.helger.event.scopes;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -29,6 +33,7 @@ import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.state.EChange;
 import com.helger.event.IEvent;
+import com.helger.event.mgr.ENotifyReturnValuePolicy;
 import com.helger.event.observer.IEventObserver;
 import com.helger.web.scope.IWebScope;
 import com.helger.web.scope.mgr.EWebScope;
@@ -144,6 +149,52 @@ public final class WebScopedEventManager
     return aEvent.getResultAggregator ().apply (aRetValues);
   }
 
+  /**
+   * Notify observers without collecting any result. The result aggregator of
+   * the event is never invoked.
+   *
+   * @param aEvent
+   *        The event on which observers should be notified.
+   */
+  public static void triggerSynchronousNotifyOnly (@Nonnull final IEvent aEvent)
+  {
+    triggerSynchronousNotifyOnly (aEvent, ENotifyReturnValuePolicy.DEFAULT);
+  }
+
+  /**
+   * Notify observers without collecting any result. The result aggregator of
+   * the event is never invoked.
+   *
+   * @param aEvent
+   *        The event on which observers should be notified.
+   * @param ePolicy
+   *        The policy how to handle observers with a return value. May not be
+   *        <code>null</code>.
+   */
+  public static void triggerSynchronousNotifyOnly (@Nonnull final IEvent aEvent,
+                                                   @Nonnull final ENotifyReturnValuePolicy ePolicy)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (ePolicy, "Policy");
+
+    // for all scopes
+    for (final EWebScope eCurrentScope : EWebScope.values ())
+    {
+      // get current instance of scope
+      final IWebScope aScope = _getScope (eCurrentScope, false);
+      if (aScope != null)
+      {
+        // get event manager (may be null)
+        final InternalScopedEventManager aEventMgr = _getEventMgr (aScope);
+        if (aEventMgr != null)
+        {
+          // main event trigger
+          aEventMgr.triggerSynchronousNotifyOnly (aEvent, ePolicy);
+        }
+      }
+    }
+  }
+
   /**
    * Notify observers without sender and without parameter.
    *
@@ -175,4 +226,74 @@ public final class WebScopedEventManager
       }
     }
   }
+
+  @Nonnull
+  private static CompletionStage <Object> _triggerAsynchronousStage (@Nonnull final IEvent aEvent,
+                                                                     @Nonnull final Function <InternalScopedEventManager, CompletionStage <Object>> aTrigger)
+  {
+    final ICommonsList <CompletableFuture <Object>> aStages = new CommonsArrayList <> ();
+    // for all scopes
+    for (final EWebScope eCurrentScope : EWebScope.values ())
+    {
+      // get current instance of scope
+      final IWebScope aScope = _getScope (eCurrentScope, false);
+      if (aScope != null)
+      {
+        // get event manager (may be null)
+        final InternalScopedEventManager aEventMgr = _getEventMgr (aScope);
+        if (aEventMgr != null)
+        {
+          // main event trigger
+          aStages.add (aTrigger.apply (aEventMgr).toCompletableFuture ());
+        }
+      }
+    }
+
+    // Aggregate the results of all scopes like in triggerSynchronous
+    return CompletableFuture.allOf (aStages.toArray (new CompletableFuture <?> [aStages.size ()]))
+                            .thenApply (x -> aEvent.getResultAggregator ()
+                                                   .apply (aStages.getAllMapped (CompletableFuture::join)));
+  }
+
+  /**
+   * Notify observers asynchronously and get the aggregated result of all
+   * scopes as a {@link CompletionStage}.
+   *
+   * @param aEvent
+   *        The event on which observers should be notified.
+   * @return The stage with the aggregated result of all scopes. Never
+   *         <code>null</code>.
+   * @see com.helger.event.mgr.IEventManager#triggerAsynchronousStage(IEvent)
+   */
+  @Nonnull
+  public static CompletionStage <Object> triggerAsynchronousStage (@Nonnull final IEvent aEvent)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+
+    return _triggerAsynchronousStage (aEvent, x -> x.triggerAsynchronousStage (aEvent));
+  }
+
+  /**
+   * Notify observers asynchronously and get the aggregated result of all
+   * scopes as a {@link CompletionStage}.
+   *
+   * @param aEvent
+   *        The event on which observers should be notified.
+   * @param aExecutor
+   *        The executor to complete the stages of the scopes on. May not be
+   *        <code>null</code>.
+   * @return The stage with the aggregated result of all scopes. Never
+   *         <code>null</code>.
+   * @see com.helger.event.mgr.IEventManager#triggerAsynchronousStage(IEvent,
+   *      Executor)
+   */
+  @Nonnull
+  public static CompletionStage <Object> triggerAsynchronousStage (@Nonnull final IEvent aEvent,
+                                                                   @Nonnull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aEvent, "Event");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    return _triggerAsynchronousStage (aEvent, x -> x.triggerAsynchronousStage (aEvent, aExecutor));
+  }
 }
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.mock.CommonsTestHelper;
+import com.helger.commons.serialize.SerializationHelper;
+import com.helger.event.helper.crud.CRUDEventType;
+import com.helger.event.helper.crud.EEventCRUD;
+import com.helger.event.helper.crud.EEventPointInTime;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.EEventObserverHandlerType;
+
+/**
+ * Test class for class {@link EventTypeRegistry}.
+ *
+ * @author Philip Helger
+ */
+public final class EventTypeRegistryTest
+{
+  private static final class MockObserver extends AbstractEventObserver
+  {
+    public MockObserver (@Nonnull final IEventType... aEventTypes)
+    {
+      super (false, aEventTypes);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {}
+  }
+
+  @Test
+  public void testOrdinals ()
+  {
+    final int nCount = EventTypeRegistry.getOrdinalCount ();
+    final IEventType aType1 = EventTypeRegistry.createEventType (EventTypeRegistryTest.class.getName () + ".1");
+    final IEventType aType2 = EventTypeRegistry.createEventType (EventTypeRegistryTest.class.getName () + ".2");
+    assertTrue (aType1.getOrdinal () >= nCount);
+    assertTrue (aType2.getOrdinal () >= nCount);
+    assertNotEquals (aType1.getOrdinal (), aType2.getOrdinal ());
+    assertTrue (EventTypeRegistry.getOrdinalCount () >= nCount + 2);
+
+    // Equal types have equal ordinals
+    final CRUDEventType aCRUD1 = new CRUDEventType ("ordinal", EEventPointInTime.AFTER, EEventCRUD.CREATE);
+    final CRUDEventType aCRUD2 = new CRUDEventType ("ordinal", EEventPointInTime.AFTER, EEventCRUD.CREATE);
+    assertEquals (aCRUD1.getOrdinal (), aCRUD2.getOrdinal ());
+    assertEquals (aCRUD1.hashCode (), aCRUD2.hashCode ());
+    assertEquals (aCRUD1.getOrdinal (), EventTypeRegistry.getOrdinal ("ordinal.after.create"));
+
+    // Ordinals and hash codes are recalculated after deserialization
+    CommonsTestHelper.testDefaultSerialization (aCRUD1);
+    CommonsTestHelper.testDefaultSerialization (new EventType ("ordinal.serialization"));
+  }
+
+  @Test
+  public void testObserverMatching ()
+  {
+    final IEventType aType = new EventType ("ordinal.matching");
+    final MockObserver aObserver = new MockObserver (aType, new EventType ("ordinal.other"));
+    assertEquals (EEventObserverHandlerType.HANDLE_NO_RETURN, aObserver.canHandleEvent (new BaseEvent (aType)));
+    assertEquals (EEventObserverHandlerType.HANDLE_NO_RETURN,
+                  aObserver.canHandleEvent (new BaseEvent (new EventType ("ordinal.matching"))));
+    assertEquals (EEventObserverHandlerType.CANNOT_HANDLE,
+                  aObserver.canHandleEvent (new BaseEvent (new EventType ("ordinal.unknown"))));
+
+    // Same name but different class is not equal
+    final IEventType aCRUD = new CRUDEventType ("ordinal", EEventPointInTime.BEFORE, EEventCRUD.READ);
+    final MockObserver aObserver2 = new MockObserver (new EventType ("ordinal.before.read"));
+    assertEquals (EEventObserverHandlerType.CANNOT_HANDLE, aObserver2.canHandleEvent (new BaseEvent (aCRUD)));
+  }
+
+  @Test
+  public void testObserverSerialization ()
+  {
+    final IEventType aType = new EventType ("ordinal.observer.serialization");
+    final MockObserver aObserver = new MockObserver (aType, new EventType ("ordinal.observer.other"));
+
+    // The ordinal index is not serialized but recreated on demand
+    final MockObserver aObserver2 = SerializationHelper.getDeserializedObject (SerializationHelper.getSerializedByteArray (aObserver));
+    assertEquals (EEventObserverHandlerType.HANDLE_NO_RETURN, aObserver2.canHandleEvent (new BaseEvent (aType)));
+    assertEquals (EEventObserverHandlerType.HANDLE_NO_RETURN,
+                  aObserver2.canHandleEvent (new BaseEvent (new EventType ("ordinal.observer.other"))));
+    assertEquals (EEventObserverHandlerType.CANNOT_HANDLE,
+                  aObserver2.canHandleEvent (new BaseEvent (new EventType ("ordinal.observer.unknown"))));
+  }
+}
@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsVector;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionWrapper;
+import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
+
+/**
+ * Test class for class {@link AsynchronousEventDispatcher} with a bounded
+ * queue.
+ *
+ * @author Philip Helger
+ */
+public final class AsynchronousEventDispatcherTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (AsynchronousEventDispatcherTest.class.getName ());
+  private static final IEventType EV_TYPE_NESTED = EventTypeRegistry.createEventType (AsynchronousEventDispatcherTest.class.getName () +
+                                                                                       ".nested");
+  private static final int CAPACITY = 2;
+
+  private static final class MockIndexEvent extends BaseEvent
+  {
+    private final Integer m_aIndex;
+
+    public MockIndexEvent (final int nIndex)
+    {
+      super (EV_TYPE);
+      m_aIndex = Integer.valueOf (nIndex);
+    }
+  }
+
+  /**
+   * Run the overflow scenario: event 0 blocks the queue thread, events 1 and 2
+   * fill the queue and event 3 overflows.
+   */
+  private static void _runScenario (@Nonnull final EAsyncQueueOverflowPolicy ePolicy,
+                                    @Nonnull final Consumer <Map <Integer, Object>> aChecker) throws InterruptedException
+  {
+    final CountDownLatch aStarted = new CountDownLatch (1);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final ICommonsList <IEvent> aRejected = new CommonsVector <> ();
+    final Map <Integer, Object> aResults = new ConcurrentHashMap <> ();
+    final CountDownLatch aAllDone = new CountDownLatch (4);
+    final AsynchronousEventDispatcher aDispatcher = new AsynchronousEventDispatcher (null,
+                                                                                     CAPACITY,
+                                                                                     ePolicy,
+                                                                                     50,
+                                                                                     (e, o, p) -> {
+                                                                                       assertSame (ePolicy, p);
+                                                                                       aRejected.add (e);
+                                                                                     });
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     aDispatcher))
+    {
+      aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback) throws Exception
+        {
+          final Integer aIndex = ((MockIndexEvent) aEvent).m_aIndex;
+          if (aIndex.intValue () == 0)
+          {
+            aStarted.countDown ();
+            aRelease.await ();
+          }
+          aResultCallback.accept (aIndex);
+        }
+      });
+
+      for (int i = 0; i < 4; ++i)
+      {
+        final Integer aIndex = Integer.valueOf (i);
+        try
+        {
+          aMgr.triggerAsynchronous (new MockIndexEvent (i), x -> {
+            aResults.put (aIndex, x);
+            aAllDone.countDown ();
+          });
+        }
+        catch (final RejectedExecutionException ex)
+        {
+          assertSame (EAsyncQueueOverflowPolicy.FAIL, ePolicy);
+          // The result consumer is not invoked - the exception is the result
+          assertNull (aResults.put (aIndex, ex));
+          aAllDone.countDown ();
+        }
+        if (i == 0)
+          assertTrue (aStarted.await (5, TimeUnit.SECONDS));
+      }
+      assertEquals (CAPACITY, aDispatcher.getQueueHighWaterMark ());
+      assertEquals (CAPACITY, aDispatcher.getQueueDepth ());
+
+      aRelease.countDown ();
+      assertTrue (aAllDone.await (5, TimeUnit.SECONDS));
+      assertEquals (aRejected.size (), aDispatcher.getRejectedCount ());
+      aChecker.accept (aResults);
+    }
+    finally
+    {
+      aRelease.countDown ();
+    }
+  }
+
+  private static void _assertRejected (@Nullable final Object aResult)
+  {
+    assertNotNull (aResult);
+    assertTrue (aResult instanceof EventObservingExceptionWrapper);
+    assertTrue (((EventObservingExceptionWrapper) aResult).getThrowable () instanceof RejectedExecutionException);
+  }
+
+  @Test
+  public void testDropNewest () throws InterruptedException
+  {
+    _runScenario (EAsyncQueueOverflowPolicy.DROP_NEWEST, aResults -> {
+      assertEquals (Integer.valueOf (1), aResults.get (Integer.valueOf (1)));
+      _assertRejected (aResults.get (Integer.valueOf (3)));
+    });
+  }
+
+  @Test
+  public void testDropOldest () throws InterruptedException
+  {
+    _runScenario (EAsyncQueueOverflowPolicy.DROP_OLDEST, aResults -> {
+      _assertRejected (aResults.get (Integer.valueOf (1)));
+      assertEquals (Integer.valueOf (3), aResults.get (Integer.valueOf (3)));
+    });
+  }
+
+  @Test
+  public void testBlockWithTimeout () throws InterruptedException
+  {
+    _runScenario (EAsyncQueueOverflowPolicy.BLOCK, aResults -> {
+      assertEquals (Integer.valueOf (2), aResults.get (Integer.valueOf (2)));
+      _assertRejected (aResults.get (Integer.valueOf (3)));
+    });
+  }
+
+  @Test
+  public void testFail () throws InterruptedException
+  {
+    _runScenario (EAsyncQueueOverflowPolicy.FAIL,
+                  aResults -> assertTrue (aResults.get (Integer.valueOf (3)) instanceof RejectedExecutionException));
+  }
+
+  @Test
+  public void testCallerRuns () throws InterruptedException
+  {
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final AsynchronousEventDispatcher aDispatcher = new AsynchronousEventDispatcher (null,
+                                                                                     1,
+                                                                                     EAsyncQueueOverflowPolicy.CALLER_RUNS,
+                                                                                     0,
+                                                                                     (e, o, p) -> fail ());
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     aDispatcher))
+    {
+      final Thread aCaller = Thread.currentThread ();
+      final ICommonsList <Integer> aCallerRun = new CommonsVector <> ();
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback) throws Exception
+        {
+          if (Thread.currentThread () == aCaller)
+            aCallerRun.add (((MockIndexEvent) aEvent).m_aIndex);
+          else
+            aRelease.await ();
+        }
+      });
+
+      // Event 0 blocks the thread (or is still queued), the queue holds one
+      for (int i = 0; i < 5; ++i)
+        aMgr.triggerAsynchronous (new MockIndexEvent (i), x -> {});
+      assertTrue (aCallerRun.isNotEmpty ());
+      assertEquals (aCallerRun.size (), aDispatcher.getCallerRunsCount ());
+      assertEquals (0, aDispatcher.getRejectedCount ());
+    }
+    finally
+    {
+      aRelease.countDown ();
+    }
+  }
+
+  @Test
+  public void testBlockWithNestedTrigger () throws InterruptedException
+  {
+    final CountDownLatch aStarted = new CountDownLatch (1);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final CountDownLatch aNestedDone = new CountDownLatch (3);
+    final AsynchronousEventDispatcher aDispatcher = new AsynchronousEventDispatcher (null,
+                                                                                     1,
+                                                                                     EAsyncQueueOverflowPolicy.BLOCK,
+                                                                                     30_000,
+                                                                                     (e, o, p) -> fail ());
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     aDispatcher))
+    {
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback) throws Exception
+        {
+          if (((MockIndexEvent) aEvent).m_aIndex.intValue () == 0)
+          {
+            aStarted.countDown ();
+            aRelease.await ();
+          }
+          // Trigger another asynchronous event from the queue thread
+          aMgr.triggerAsynchronous (new BaseEvent (EV_TYPE_NESTED), x -> {});
+        }
+      });
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE_NESTED)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aNestedDone.countDown ();
+        }
+      });
+
+      // Event 0 blocks the queue thread, event 1 fills the queue
+      aMgr.triggerAsynchronous (new MockIndexEvent (0), x -> {});
+      assertTrue (aStarted.await (5, TimeUnit.SECONDS));
+      aMgr.triggerAsynchronous (new MockIndexEvent (1), x -> {});
+
+      // Event 2 blocks the producer until there is space in the queue
+      final Thread aProducer = new Thread ( () -> aMgr.triggerAsynchronous (new MockIndexEvent (2), x -> {}));
+      aProducer.start ();
+      while (aProducer.getState () != Thread.State.TIMED_WAITING)
+        Thread.sleep (5);
+
+      // Observer 0 now triggers a nested event while the queue is full
+      aRelease.countDown ();
+      assertTrue (aNestedDone.await (10, TimeUnit.SECONDS));
+      aProducer.join (10_000);
+      assertEquals (0, aDispatcher.getRejectedCount ());
+    }
+    finally
+    {
+      aRelease.countDown ();
+    }
+  }
+}
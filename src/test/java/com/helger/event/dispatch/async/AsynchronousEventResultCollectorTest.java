@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.event.helper.DispatchResultAggregatorBooleanAnd;
+
+/**
+ * Test class for class {@link AsynchronousEventResultCollector}.
+ *
+ * @author Philip Helger
+ */
+public final class AsynchronousEventResultCollectorTest
+{
+  @Test
+  public void testSlotOrder ()
+  {
+    final AtomicReference <Object> aResult = new AtomicReference <> ();
+    final AsynchronousEventResultCollector aCollector = new AsynchronousEventResultCollector (4,
+                                                                                             3,
+                                                                                             x -> new CommonsArrayList <> (x),
+                                                                                             aResult::set);
+    assertEquals (3, aCollector.getSlotCount ());
+    aCollector.accept (2, "c");
+    aCollector.accept (0, "a");
+    // Only the first result per slot counts
+    aCollector.accept (0, "x");
+    assertNull (aResult.get ());
+    assertFalse (aCollector.isResultFinal ());
+
+    aCollector.accept (1, null);
+    assertNull (aResult.get ());
+    assertFalse (aCollector.isResultFinal ());
+
+    // The last observer completes on the calling thread
+    aCollector.onObserverWithoutReturnValueDone ();
+    assertTrue (aCollector.isResultFinal ());
+    assertEquals (new CommonsArrayList <> ("a", null, "c"), aResult.get ());
+
+    // Ignored after completion
+    final Object aOld = aResult.get ();
+    aCollector.accept (1, "b");
+    assertSame (aOld, aResult.get ());
+  }
+
+  @Test
+  public void testOnlyWithoutReturnValue ()
+  {
+    final AtomicReference <Object> aResult = new AtomicReference <> ();
+    final AsynchronousEventResultCollector aCollector = new AsynchronousEventResultCollector (2,
+                                                                                             0,
+                                                                                             new DispatchResultAggregatorBooleanAnd (),
+                                                                                             aResult::set);
+    assertEquals (0, aCollector.getSlotCount ());
+    aCollector.onObserverWithoutReturnValueDone ();
+    assertNull (aResult.get ());
+    aCollector.onObserverWithoutReturnValueDone ();
+    assertEquals (Boolean.TRUE, aResult.get ());
+  }
+
+  @Test
+  public void testShortCircuit ()
+  {
+    final AtomicReference <Object> aResult = new AtomicReference <> ();
+    final AsynchronousEventResultCollector aCollector = new AsynchronousEventResultCollector (3,
+                                                                                             3,
+                                                                                             new DispatchResultAggregatorBooleanAnd (),
+                                                                                             aResult::set);
+    aCollector.accept (0, Boolean.TRUE);
+    assertNull (aResult.get ());
+    aCollector.accept (2, Boolean.FALSE);
+    assertTrue (aCollector.isResultFinal ());
+    assertEquals (Boolean.FALSE, aResult.get ());
+  }
+
+  @Test
+  public void testWaitForDispatchDone ()
+  {
+    final AtomicReference <Object> aResult = new AtomicReference <> ();
+    final AsynchronousEventResultCollector aCollector = new AsynchronousEventResultCollector (1,
+                                                                                             1,
+                                                                                             new DispatchResultAggregatorBooleanAnd (),
+                                                                                             aResult::set,
+                                                                                             true);
+    aCollector.accept (0, Boolean.FALSE);
+    assertTrue (aCollector.isResultFinal ());
+    // Not yet confirmed by the dispatcher
+    assertNull (aResult.get ());
+
+    aCollector.onDispatchDone ();
+    assertEquals (Boolean.FALSE, aResult.get ());
+  }
+}
@@ -0,0 +1,306 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsVector;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.ThreadHelper;
+import com.helger.commons.exception.mock.MockRuntimeException;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionWrapper;
+import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
+
+/**
+ * Test class for class {@link ExecutorAsynchronousEventDispatcher}.
+ *
+ * @author Philip Helger
+ */
+public final class ExecutorAsynchronousEventDispatcherTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (ExecutorAsynchronousEventDispatcherTest.class.getName ());
+
+  private static final class MockIndexEvent extends BaseEvent
+  {
+    private final Integer m_aIndex;
+
+    public MockIndexEvent (@Nonnull final Integer aIndex)
+    {
+      super (EV_TYPE);
+      m_aIndex = aIndex;
+    }
+  }
+
+  @Test
+  public void testSlowObserverDoesNotBlockOthers () throws InterruptedException
+  {
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final CountDownLatch aFastDone = new CountDownLatch (10);
+    final ICommonsList <Integer> aSlowOrder = new CommonsVector <> ();
+    final ICommonsList <Integer> aFastOrder = new CommonsVector <> ();
+    final ExecutorAsynchronousEventDispatcher aDispatcher = new ExecutorAsynchronousEventDispatcher (null, 4);
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     aDispatcher))
+    {
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback) throws Exception
+        {
+          aRelease.await ();
+          aSlowOrder.add (((MockIndexEvent) aEvent).m_aIndex);
+        }
+      });
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aFastOrder.add (((MockIndexEvent) aEvent).m_aIndex);
+          aFastDone.countDown ();
+        }
+      });
+
+      final ICommonsList <Integer> aExpected = new CommonsArrayList <> ();
+      for (int i = 0; i < 10; ++i)
+      {
+        final Integer aIndex = Integer.valueOf (i);
+        aExpected.add (aIndex);
+        aMgr.triggerAsynchronous (new MockIndexEvent (aIndex), x -> {});
+      }
+
+      // The fast observer finishes while the slow one is still blocked
+      assertTrue (aFastDone.await (5, TimeUnit.SECONDS));
+      assertEquals (0, aSlowOrder.size ());
+      aRelease.countDown ();
+
+      for (int i = 0; i < 100 && aSlowOrder.size () < 10; ++i)
+        ThreadHelper.sleep (50);
+
+      // FIFO per observer
+      assertEquals (aExpected, aFastOrder);
+      assertEquals (aExpected, aSlowOrder);
+    }
+  }
+
+  @Test
+  public void testResultCollection () throws InterruptedException
+  {
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (4);
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     new ExecutorAsynchronousEventDispatcher (null, aExecutor)))
+    {
+      for (int i = 0; i < 8; ++i)
+      {
+        final int nIndex = i;
+        aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {
+            if (nIndex == 3)
+              throw new MockRuntimeException ();
+            aResultCallback.accept (Integer.valueOf (nIndex));
+          }
+        });
+      }
+      // No return value
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {}
+      });
+
+      final CountDownLatch aDone = new CountDownLatch (1);
+      final AtomicReference <Object> aResult = new AtomicReference <> ();
+      aMgr.triggerAsynchronous (new BaseEvent (EV_TYPE, x -> new CommonsArrayList <> (x)), x -> {
+        aResult.set (x);
+        aDone.countDown ();
+      });
+      assertTrue (aDone.await (5, TimeUnit.SECONDS));
+
+      @SuppressWarnings ("unchecked")
+      final ICommonsList <Object> aResults = (ICommonsList <Object>) aResult.get ();
+      assertEquals (8, aResults.size ());
+      // In observer order
+      for (int i = 0; i < 8; ++i)
+        if (i == 3)
+          assertTrue (aResults.get (i) instanceof EventObservingExceptionWrapper);
+        else
+          assertEquals (Integer.valueOf (i), aResults.get (i));
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+
+  @Test
+  public void testKeyedSerialExecutorIdle () throws InterruptedException
+  {
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (2);
+    try
+    {
+      final KeyedSerialExecutor aSerial = new KeyedSerialExecutor (aExecutor, 2);
+      final CountDownLatch aDone = new CountDownLatch (100);
+      final ICommonsList <Integer> aOrder = new CommonsVector <> ();
+      for (int i = 0; i < 100; ++i)
+      {
+        final Integer aIndex = Integer.valueOf (i);
+        aSerial.execute ("key", () -> {
+          aOrder.add (aIndex);
+          aDone.countDown ();
+        });
+      }
+      assertTrue (aDone.await (5, TimeUnit.SECONDS));
+      for (int i = 0; i < 100; ++i)
+        assertEquals (i, aOrder.get (i).intValue ());
+
+      // Idle keys are removed
+      for (int i = 0; i < 100 && aSerial.getActiveKeyCount () > 0; ++i)
+        ThreadHelper.sleep (10);
+      assertEquals (0, aSerial.getActiveKeyCount ());
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+
+  @Test
+  public void testRejectedAfterStop ()
+  {
+    final ExecutorAsynchronousEventDispatcher aDispatcher = new ExecutorAsynchronousEventDispatcher (null, 1);
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     aDispatcher))
+    {
+      for (int i = 0; i < 2; ++i)
+        aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {
+            aResultCallback.accept ("x");
+          }
+        });
+      final AbstractEventObserver aOnlyOnce = new AbstractEventObserver (false, EV_TYPE)
+      {
+        @Override
+        public boolean isOnlyOnce ()
+        {
+          return true;
+        }
+
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {}
+      };
+      aMgr.registerObserver (aOnlyOnce);
+      assertTrue (aDispatcher.stop ().isChanged ());
+
+      final AtomicReference <Object> aResult = new AtomicReference <> ();
+      try
+      {
+        aMgr.triggerAsynchronous (new MockIndexEvent (0), aResult::set);
+        fail ();
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // expected
+      }
+      // The exception is the result
+      assertNull (aResult.get ());
+      // The only-once observer was claimed and is removed nevertheless
+      assertTrue (aMgr.unregisterObserver (aOnlyOnce).isUnchanged ());
+
+      // The stage is completed exceptionally only
+      final CompletableFuture <Object> aStage = aMgr.triggerAsynchronousStage (new MockIndexEvent (1))
+                                                    .toCompletableFuture ();
+      assertTrue (aStage.isCompletedExceptionally ());
+    }
+  }
+
+  @Test
+  public void testKeyedSerialExecutorRejectedReschedule () throws InterruptedException
+  {
+    // Accepts the first execution only
+    final AtomicInteger aExecutions = new AtomicInteger ();
+    final Executor aExecutor = r -> {
+      if (aExecutions.incrementAndGet () > 1)
+        throw new RejectedExecutionException ("Shut down");
+      new Thread (r).start ();
+    };
+    final ICommonsList <Runnable> aDropped = new CommonsVector <> ();
+    final CountDownLatch aAllDropped = new CountDownLatch (2);
+    final KeyedSerialExecutor aSerial = new KeyedSerialExecutor (aExecutor, 1, (aTask, ex) -> {
+      aDropped.add (aTask);
+      aAllDropped.countDown ();
+    });
+
+    final CountDownLatch aStarted = new CountDownLatch (1);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    aSerial.execute ("key", () -> {
+      aStarted.countDown ();
+      try
+      {
+        aRelease.await ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+    });
+    assertTrue (aStarted.await (5, TimeUnit.SECONDS));
+
+    // Pending while the first task runs
+    final Runnable aTask2 = () -> fail ();
+    final Runnable aTask3 = () -> fail ();
+    aSerial.execute ("key", aTask2);
+    aSerial.execute ("key", aTask3);
+
+    // Rescheduling after the first task is rejected
+    aRelease.countDown ();
+    assertTrue (aAllDropped.await (5, TimeUnit.SECONDS));
+    assertEquals (new CommonsArrayList <> (aTask2, aTask3), aDropped);
+    assertEquals (0, aSerial.getActiveKeyCount ());
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.exception.mock.MockRuntimeException;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionWrapper;
+import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
+
+/**
+ * Test class for class {@link VirtualThreadAsynchronousEventDispatcher}.
+ *
+ * @author Philip Helger
+ */
+public final class VirtualThreadAsynchronousEventDispatcherTest
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (VirtualThreadAsynchronousEventDispatcherTest.class);
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (VirtualThreadAsynchronousEventDispatcherTest.class.getName ());
+
+  @Test
+  public void testBlockingObservers () throws Exception
+  {
+    final int nMaxConcurrency = 8;
+    final int nObservers = 50;
+    final AtomicInteger aRunning = new AtomicInteger ();
+    final AtomicInteger aMaxRunning = new AtomicInteger ();
+    final AtomicInteger aExceptionCount = new AtomicInteger ();
+    final VirtualThreadAsynchronousEventDispatcher aDispatcher = new VirtualThreadAsynchronousEventDispatcher (t -> aExceptionCount.incrementAndGet (),
+                                                                                                               nMaxConcurrency);
+    LOGGER.info ("Using virtual threads: " + aDispatcher.isUsingVirtualThreads ());
+    assertEquals (VirtualThreadAsynchronousEventDispatcher.isVirtualThreadSupported (),
+                  aDispatcher.isUsingVirtualThreads ());
+
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     aDispatcher))
+    {
+      for (int i = 0; i < nObservers; ++i)
+      {
+        final int nIndex = i;
+        aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback) throws Exception
+          {
+            final int nRunning = aRunning.incrementAndGet ();
+            aMaxRunning.accumulateAndGet (nRunning, Math::max);
+            try
+            {
+              // Blocking work
+              Thread.sleep (10);
+            }
+            finally
+            {
+              aRunning.decrementAndGet ();
+            }
+            if (nIndex == 7)
+              throw new MockRuntimeException ();
+            aResultCallback.accept (Integer.valueOf (nIndex));
+          }
+        });
+      }
+
+      final CompletionStage <Object> aStage = aMgr.triggerAsynchronousStage (new BaseEvent (EV_TYPE,
+                                                                                           x -> new CommonsArrayList <> (x)));
+      @SuppressWarnings ("unchecked")
+      final ICommonsList <Object> aResults = (ICommonsList <Object>) aStage.toCompletableFuture ().get (10, TimeUnit.SECONDS);
+
+      // All results in observer order
+      assertEquals (nObservers, aResults.size ());
+      for (int i = 0; i < nObservers; ++i)
+        if (i == 7)
+          assertTrue (aResults.get (i) instanceof EventObservingExceptionWrapper);
+        else
+          assertEquals (Integer.valueOf (i), aResults.get (i));
+      assertEquals (1, aExceptionCount.get ());
+
+      // Concurrent, but limited
+      assertTrue (aMaxRunning.get () > 1);
+      assertTrue (aMaxRunning.get () <= aDispatcher.getMaxConcurrency ());
+      assertTrue (aDispatcher.getMaxConcurrency () <= nMaxConcurrency);
+    }
+  }
+
+  @Test
+  public void testPlatformThreadCount ()
+  {
+    final VirtualThreadAsynchronousEventDispatcher aDispatcher = new VirtualThreadAsynchronousEventDispatcher (null,
+                                                                                                               100,
+                                                                                                               3);
+    try
+    {
+      // The platform thread pool is sized independently
+      assertEquals (aDispatcher.isUsingVirtualThreads () ? 100 : 3, aDispatcher.getMaxConcurrency ());
+      assertEquals (0, aDispatcher.getRunningCount ());
+    }
+    finally
+    {
+      aDispatcher.stop ();
+    }
+  }
+
+  @Test
+  public void testRejectedAfterStop () throws Exception
+  {
+    final VirtualThreadAsynchronousEventDispatcher aDispatcher = new VirtualThreadAsynchronousEventDispatcher (null);
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     aDispatcher))
+    {
+      aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aResultCallback.accept ("x");
+        }
+      });
+      assertTrue (aDispatcher.stop ().isChanged ());
+
+      // The result is still determined
+      final Object aResult = aMgr.triggerAsynchronousStage (new BaseEvent (EV_TYPE))
+                                 .toCompletableFuture ()
+                                 .get (5, TimeUnit.SECONDS);
+      assertTrue (aResult instanceof EventObservingExceptionWrapper);
+      assertTrue (((EventObservingExceptionWrapper) aResult).getThrowable () instanceof RejectedExecutionException);
+    }
+  }
+}
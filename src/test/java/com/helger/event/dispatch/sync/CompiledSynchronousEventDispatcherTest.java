@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.exception.mock.MockRuntimeException;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.EffectiveEventObserverList;
+import com.helger.event.dispatch.EventDispatchPlan;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observerqueue.EventObserverQueueConcurrentWeakSet;
+import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
+import com.helger.event.observerqueue.IEventObserverQueue;
+
+/**
+ * Test class for class {@link CompiledSynchronousEventDispatcher}.
+ *
+ * @author Philip Helger
+ */
+public final class CompiledSynchronousEventDispatcherTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (CompiledSynchronousEventDispatcherTest.class.getName ());
+
+  private abstract static class AbstractMockObserver extends AbstractEventObserver
+  {
+    protected final AtomicInteger m_aCount;
+
+    public AbstractMockObserver (@Nonnull final AtomicInteger aCount)
+    {
+      super (false, EV_TYPE);
+      m_aCount = aCount;
+    }
+  }
+
+  // Several observer classes, so that the loop call site gets megamorphic
+  private static final class MockObserver1 extends AbstractMockObserver
+  {
+    public MockObserver1 (@Nonnull final AtomicInteger aCount)
+    {
+      super (aCount);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  private static final class MockObserver2 extends AbstractMockObserver
+  {
+    public MockObserver2 (@Nonnull final AtomicInteger aCount)
+    {
+      super (aCount);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.addAndGet (1);
+    }
+  }
+
+  private static final class MockObserver3 extends AbstractMockObserver
+  {
+    public MockObserver3 (@Nonnull final AtomicInteger aCount)
+    {
+      super (aCount);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.getAndIncrement ();
+    }
+  }
+
+  private static final class MockObserver4 extends AbstractMockObserver
+  {
+    public MockObserver4 (@Nonnull final AtomicInteger aCount)
+    {
+      super (aCount);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.getAndAdd (1);
+    }
+  }
+
+  private static final class ExposingEventManager extends EventManager
+  {
+    public ExposingEventManager (@Nonnull final IEventObserverQueue aObserverQueue,
+                                 @Nonnull final ISynchronousEventDispatcher aDispatcher)
+    {
+      super (aObserverQueue, aDispatcher, new AsynchronousEventDispatcher (null));
+    }
+
+    @Nonnull
+    public EffectiveEventObserverList getList (@Nonnull final IEvent aEvent)
+    {
+      return getEffectiveObserverList (aEvent);
+    }
+  }
+
+  @Nonnull
+  private static EventManager _createManager (@Nonnull final ISynchronousEventDispatcher aDispatcher,
+                                              @Nonnull final AtomicInteger aCount)
+  {
+    final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                aDispatcher,
+                                                new AsynchronousEventDispatcher (null));
+    for (int i = 0; i < 4; ++i)
+    {
+      aMgr.registerObserver (new MockObserver1 (aCount));
+      aMgr.registerObserver (new MockObserver2 (aCount));
+      aMgr.registerObserver (new MockObserver3 (aCount));
+      aMgr.registerObserver (new MockObserver4 (aCount));
+    }
+    return aMgr;
+  }
+
+  @Test
+  public void testOrderAndExceptions ()
+  {
+    final AtomicInteger aExceptionCount = new AtomicInteger ();
+    final ICommonsList <Integer> aCalled = new CommonsArrayList <> ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new CompiledSynchronousEventDispatcher (t -> aExceptionCount.incrementAndGet ()),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      for (int i = 0; i < 5; ++i)
+      {
+        final int nIndex = i;
+        aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {
+            aCalled.add (Integer.valueOf (nIndex));
+            if (nIndex == 2)
+              throw new MockRuntimeException ();
+          }
+        });
+      }
+
+      final IEvent aEvent = new BaseEvent (EV_TYPE);
+      assertNull (aMgr.triggerSynchronous (aEvent));
+      assertEquals (new CommonsArrayList <> (0, 1, 2, 3, 4), aCalled);
+      assertEquals (1, aExceptionCount.get ());
+
+      aMgr.triggerSynchronousNotifyOnly (aEvent);
+      assertEquals (10, aCalled.size ());
+      assertEquals (2, aExceptionCount.get ());
+    }
+  }
+
+  @Test
+  public void testRebuildOnRegistrationChange ()
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    final CompiledSynchronousEventDispatcher aDispatcher = new CompiledSynchronousEventDispatcher (null);
+    final EventObserverQueueOrderedSet aQueue = new EventObserverQueueOrderedSet ();
+    final IEvent aEvent = new BaseEvent (EV_TYPE);
+    aQueue.addObserver (new MockObserver1 (aCount));
+
+    final EffectiveEventObserverList aList = EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent,
+                                                                                                                   aQueue);
+    aDispatcher.dispatch (aEvent, aList);
+    assertEquals (1, aCount.get ());
+
+    try (final EventManager aMgr = _createManager (aDispatcher, aCount))
+    {
+      aCount.set (0);
+      aMgr.triggerSynchronous (aEvent);
+      assertEquals (16, aCount.get ());
+
+      aMgr.registerObserver (new MockObserver1 (aCount));
+      aCount.set (0);
+      aMgr.triggerSynchronous (aEvent);
+      assertEquals (17, aCount.get ());
+    }
+  }
+
+  @Test
+  public void testCacheIsPerDispatcher ()
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    final EventObserverQueueOrderedSet aQueue = new EventObserverQueueOrderedSet ();
+    aQueue.addObserver (new MockObserver1 (aCount));
+    final IEvent aEvent = new BaseEvent (EV_TYPE);
+
+    try (final EventManager aMgr = new EventManager (aQueue,
+                                                     new CompiledSynchronousEventDispatcher (null),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      aMgr.triggerSynchronous (aEvent);
+      aMgr.triggerSynchronous (aEvent);
+      assertEquals (2, aCount.get ());
+    }
+
+    // Another dispatcher on the same list must not use the chain of the first
+    final EffectiveEventObserverList aList = EventDispatchPlan.create (aEvent,
+                                                                      aQueue.getObserverSnapshot (EV_TYPE),
+                                                                      aQueue.getVersion (),
+                                                                      true)
+                                                              .getEffectiveObserverList (aEvent, x -> true);
+    final CompiledSynchronousEventDispatcher aDispatcher = new CompiledSynchronousEventDispatcher (null);
+    aDispatcher.dispatch (aEvent, aList);
+    assertEquals (3, aCount.get ());
+    // No "only once" observers - the list is shared by the cached plan
+    assertTrue (aList.isReusable ());
+    final Object aCache = aList.getDispatchCache ();
+    assertNotNull (aCache);
+    aDispatcher.dispatch (aEvent, aList);
+    assertSame (aCache, aList.getDispatchCache ());
+    new CompiledSynchronousEventDispatcher (null).dispatch (aEvent, aList);
+    assertNotSame (aCache, aList.getDispatchCache ());
+  }
+
+  @Test
+  public void testNoChainWithoutCachedPlan ()
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    // Keep a strong reference to the observer
+    final MockObserver1 aObserver = new MockObserver1 (aCount);
+    final EventObserverQueueConcurrentWeakSet aQueue = new EventObserverQueueConcurrentWeakSet ();
+    assertFalse (aQueue.isCachingAllowed ());
+    aQueue.addObserver (aObserver);
+    final IEvent aEvent = new BaseEvent (EV_TYPE);
+    final CompiledSynchronousEventDispatcher aDispatcher = new CompiledSynchronousEventDispatcher (null);
+
+    try (final ExposingEventManager aMgr = new ExposingEventManager (aQueue, aDispatcher))
+    {
+      aMgr.triggerSynchronous (aEvent);
+      aMgr.triggerSynchronous (aEvent);
+      assertEquals (2, aCount.get ());
+
+      // Each dispatch resolves a new plan - no chain is built for it
+      final EffectiveEventObserverList aList = aMgr.getList (aEvent);
+      assertFalse (aList.isReusable ());
+      aDispatcher.dispatch (aEvent, aList);
+      aDispatcher.dispatch (aEvent, aList);
+      assertEquals (4, aCount.get ());
+      assertNull (aList.getDispatchCache ());
+    }
+
+    final EffectiveEventObserverList aList = EffectiveEventObserverList.getListOfObserversThatCanHandleTheEvent (aEvent,
+                                                                                                                   aQueue);
+    assertFalse (aList.isReusable ());
+    aDispatcher.dispatch (aEvent, aList);
+    aDispatcher.dispatch (aEvent, aList);
+    assertEquals (6, aCount.get ());
+    assertNull (aList.getDispatchCache ());
+  }
+
+  @Test
+  public void testChainIsReusedWithCachedPlan ()
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    final EventObserverQueueOrderedSet aQueue = new EventObserverQueueOrderedSet ();
+    aQueue.addObserver (new MockObserver1 (aCount));
+    final IEvent aEvent = new BaseEvent (EV_TYPE);
+    final CompiledSynchronousEventDispatcher aDispatcher = new CompiledSynchronousEventDispatcher (null);
+
+    try (final ExposingEventManager aMgr = new ExposingEventManager (aQueue, aDispatcher))
+    {
+      aMgr.triggerSynchronous (aEvent);
+      final EffectiveEventObserverList aList = aMgr.getList (aEvent);
+      assertTrue (aList.isReusable ());
+      final Object aCache = aList.getDispatchCache ();
+      assertNotNull (aCache);
+
+      aMgr.triggerSynchronous (aEvent);
+      assertSame (aList, aMgr.getList (aEvent));
+      assertSame (aCache, aList.getDispatchCache ());
+      assertEquals (2, aCount.get ());
+    }
+  }
+}
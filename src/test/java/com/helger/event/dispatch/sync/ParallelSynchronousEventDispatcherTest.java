@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsVector;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.exception.mock.MockRuntimeException;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.mgr.EReentrancyMode;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionWrapper;
+import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
+
+/**
+ * Test class for class {@link ParallelSynchronousEventDispatcher}.
+ *
+ * @author Philip Helger
+ */
+public final class ParallelSynchronousEventDispatcherTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (ParallelSynchronousEventDispatcherTest.class.getName ());
+  private static final IEventType EV_TYPE_NESTED = EventTypeRegistry.createEventType (ParallelSynchronousEventDispatcherTest.class.getName () +
+                                                                                      ".nested");
+
+  @Test
+  public void testOrderedResults ()
+  {
+    final ForkJoinPool aPool = new ForkJoinPool (4);
+    final AtomicInteger aExceptionCount = new AtomicInteger ();
+    final Set <String> aThreadNames = ConcurrentHashMap.newKeySet ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new ParallelSynchronousEventDispatcher (t -> aExceptionCount.incrementAndGet (),
+                                                                                             aPool),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      final int nObservers = 12;
+      for (int i = 0; i < nObservers; ++i)
+      {
+        final int nIndex = i;
+        aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {
+            aThreadNames.add (Thread.currentThread ().getName ());
+            // Later observers finish earlier
+            try
+            {
+              Thread.sleep (nObservers - nIndex);
+            }
+            catch (final InterruptedException ex)
+            {
+              Thread.currentThread ().interrupt ();
+            }
+            if (nIndex == 5)
+              throw new MockRuntimeException ();
+            aResultCallback.accept (Integer.valueOf (nIndex));
+          }
+        });
+      }
+
+      final Object aResult = aMgr.triggerSynchronous (new BaseEvent (EV_TYPE, x -> new CommonsArrayList <> (x)));
+      @SuppressWarnings ("unchecked")
+      final ICommonsList <Object> aResults = (ICommonsList <Object>) aResult;
+      assertEquals (nObservers, aResults.size ());
+      for (int i = 0; i < nObservers; ++i)
+        if (i == 5)
+          assertTrue (aResults.get (i) instanceof EventObservingExceptionWrapper);
+        else
+          assertEquals (Integer.valueOf (i), aResults.get (i));
+      assertEquals (1, aExceptionCount.get ());
+      assertTrue (aThreadNames.size () > 1);
+    }
+    finally
+    {
+      aPool.shutdown ();
+    }
+  }
+
+  @Test
+  public void testNestedTrigger ()
+  {
+    final ForkJoinPool aPool = new ForkJoinPool (4);
+    final AtomicInteger aNestedCount = new AtomicInteger ();
+    final AtomicInteger aInPoolCount = new AtomicInteger ();
+    final ICommonsList <String> aErrors = new CommonsVector <> ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new ParallelSynchronousEventDispatcher (null, aPool),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      aMgr.setReentrancyMode (EReentrancyMode.QUEUED_BREADTH_FIRST);
+      final int nObservers = 4;
+      for (int i = 0; i < nObservers; ++i)
+        aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {
+            final boolean bInPool = ForkJoinTask.inForkJoinPool ();
+            final Object aNestedResult = aMgr.triggerSynchronous (new BaseEvent (EV_TYPE_NESTED));
+            if (bInPool)
+            {
+              // Not queued - the dispatch state of the calling thread is not
+              // visible here
+              aInPoolCount.incrementAndGet ();
+              if (!"nested".equals (aNestedResult))
+                aErrors.add ("Nested event was not dispatched directly: " + aNestedResult);
+            }
+            else
+              if (aNestedResult != null)
+                aErrors.add ("Nested event was not queued: " + aNestedResult);
+          }
+        });
+      aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE_NESTED)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aNestedCount.incrementAndGet ();
+          aResultCallback.accept ("nested");
+        }
+      });
+
+      assertNull (aMgr.triggerSynchronous (new BaseEvent (EV_TYPE)));
+      // All nested events were delivered before the outer trigger returned
+      assertEquals (nObservers, aNestedCount.get ());
+      assertTrue (aErrors.toString (), aErrors.isEmpty ());
+      assertTrue (aInPoolCount.get () > 0);
+    }
+    finally
+    {
+      aPool.shutdown ();
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.dispatch.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.exception.mock.MockRuntimeException;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.helper.EBooleanResultAggregator;
+import com.helger.event.helper.EDoubleResultAggregator;
+import com.helger.event.helper.EIntResultAggregator;
+import com.helger.event.helper.ELongResultAggregator;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.IBooleanResultEventObserver;
+import com.helger.event.observer.IIntResultEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionCallback;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
+
+/**
+ * Test class for class {@link PrimitiveResultDispatcher}.
+ *
+ * @author Philip Helger
+ */
+public final class PrimitiveResultDispatcherTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (PrimitiveResultDispatcherTest.class.getName ());
+
+  private static final class MockIntObserver extends AbstractEventObserver implements IIntResultEventObserver
+  {
+    private final int m_nValue;
+
+    public MockIntObserver (final int nValue)
+    {
+      super (true, EV_TYPE);
+      m_nValue = nValue;
+    }
+
+    public int onEventInt (@Nonnull final IEvent aEvent)
+    {
+      if (m_nValue < 0)
+        throw new MockRuntimeException ();
+      return m_nValue;
+    }
+  }
+
+  private static final class MockBooleanObserver extends AbstractEventObserver implements IBooleanResultEventObserver
+  {
+    private final boolean m_bValue;
+    private final AtomicInteger m_aCount;
+
+    public MockBooleanObserver (final boolean bValue, @Nonnull final AtomicInteger aCount)
+    {
+      super (true, EV_TYPE);
+      m_bValue = bValue;
+      m_aCount = aCount;
+    }
+
+    public boolean onEventBoolean (@Nonnull final IEvent aEvent)
+    {
+      m_aCount.incrementAndGet ();
+      return m_bValue;
+    }
+  }
+
+  @Test
+  public void testNumeric ()
+  {
+    try (final EventManager aMgr = new EventManager ())
+    {
+      assertEquals (0, aMgr.triggerSynchronousInt (new BaseEvent (EV_TYPE), EIntResultAggregator.SUM));
+
+      aMgr.registerObserver (new MockIntObserver (3));
+      aMgr.registerObserver (new MockIntObserver (7));
+      // Failing observers don't contribute
+      aMgr.registerObserver (new MockIntObserver (-1));
+      // Boxed fallback
+      aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aResultCallback.accept (Integer.valueOf (5));
+        }
+      });
+
+      final IEvent aEvent = new BaseEvent (EV_TYPE);
+      assertEquals (15, aMgr.triggerSynchronousInt (aEvent, EIntResultAggregator.SUM));
+      assertEquals (3, aMgr.triggerSynchronousInt (aEvent, EIntResultAggregator.MIN));
+      assertEquals (7, aMgr.triggerSynchronousInt (aEvent, EIntResultAggregator.MAX));
+      assertEquals (3, aMgr.triggerSynchronousInt (aEvent, EIntResultAggregator.COUNT));
+      assertEquals (15L, aMgr.triggerSynchronousLong (aEvent, ELongResultAggregator.SUM));
+      assertEquals (7d, aMgr.triggerSynchronousDouble (aEvent, EDoubleResultAggregator.MAX), 0.0001);
+
+      // The regular path still works
+      assertEquals (Integer.valueOf (3), aMgr.triggerSynchronous (aEvent));
+    }
+  }
+
+  @Test
+  public void testBoolean ()
+  {
+    try (final EventManager aMgr = new EventManager ())
+    {
+      final AtomicInteger aCount = new AtomicInteger ();
+      aMgr.registerObserver (new MockBooleanObserver (true, aCount));
+      aMgr.registerObserver (new MockBooleanObserver (false, aCount));
+      aMgr.registerObserver (new MockBooleanObserver (true, aCount));
+
+      final IEvent aEvent = new BaseEvent (EV_TYPE);
+      assertFalse (aMgr.triggerSynchronousBoolean (aEvent, EBooleanResultAggregator.AND));
+      // Stopped at the first false
+      assertEquals (2, aCount.get ());
+
+      aCount.set (0);
+      assertTrue (aMgr.triggerSynchronousBoolean (aEvent, EBooleanResultAggregator.OR));
+      assertEquals (1, aCount.get ());
+    }
+  }
+
+  @Test
+  public void testBoxedTypeMismatch ()
+  {
+    final EventObservingFailureHandler aHandler = new EventObservingFailureHandler (new EventObservingExceptionCallback ());
+    try (final EventManager aMgr = new EventManager (aHandler))
+    {
+      aMgr.registerObserver (new MockIntObserver (3));
+      // Doesn't fit into an int
+      aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aResultCallback.accept (Long.valueOf (Long.MAX_VALUE));
+        }
+      });
+
+      final IEvent aEvent = new BaseEvent (EV_TYPE);
+      // Reported instead of narrowed
+      assertEquals (3, aMgr.triggerSynchronousInt (aEvent, EIntResultAggregator.SUM));
+      assertEquals (1, aHandler.getTotalFailureCount ());
+
+      // Widening is fine
+      assertEquals (Long.MAX_VALUE, aMgr.triggerSynchronousLong (aEvent, ELongResultAggregator.MAX));
+      assertEquals (1, aHandler.getTotalFailureCount ());
+
+      // Long to double may lose precision
+      assertEquals (3d, aMgr.triggerSynchronousDouble (aEvent, EDoubleResultAggregator.SUM), 0.0001);
+      assertEquals (2, aHandler.getTotalFailureCount ());
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.event.BaseAttributeAwareEvent;
+import com.helger.event.BaseSenderAwareEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+
+/**
+ * Test class for the {@link IEventFilter} implementations.
+ *
+ * @author Philip Helger
+ */
+public final class EventFilterTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (EventFilterTest.class.getName ());
+
+  private static final class MockCountingFilter implements IEventFilter
+  {
+    private final transient AtomicInteger m_aEvalCount;
+
+    public MockCountingFilter (@Nonnull final AtomicInteger aEvalCount)
+    {
+      m_aEvalCount = aEvalCount;
+    }
+
+    public boolean matches (@Nonnull final IEvent aEvent)
+    {
+      m_aEvalCount.incrementAndGet ();
+      return true;
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      return o instanceof MockCountingFilter;
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return new HashCodeGenerator (this).getHashCode ();
+    }
+  }
+
+  private static final class MockFilteredObserver extends AbstractEventObserver
+  {
+    private final AtomicInteger m_aCount;
+    private final ICommonsList <IEventFilter> m_aFilters;
+
+    public MockFilteredObserver (@Nonnull final AtomicInteger aCount, @Nonnull final IEventFilter... aFilters)
+    {
+      super (false, EV_TYPE);
+      m_aCount = aCount;
+      m_aFilters = new CommonsArrayList <> (aFilters);
+    }
+
+    @Override
+    public ICommonsList <IEventFilter> getAllEventFilters ()
+    {
+      return m_aFilters.getClone ();
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  @Nonnull
+  private static BaseAttributeAwareEvent _createEvent (@Nonnull final String sRegion, final int nAmount)
+  {
+    final CommonsHashMap <String, Object> aAttrs = new CommonsHashMap <> ();
+    aAttrs.put ("region", sRegion);
+    aAttrs.put ("amount", Integer.valueOf (nAmount));
+    return new BaseAttributeAwareEvent (EV_TYPE, aAttrs);
+  }
+
+  @Test
+  public void testMatches ()
+  {
+    final IEventFilter aEquals = new EventFilterAttributeEquals ("region", "eu");
+    assertTrue (aEquals.matches (_createEvent ("eu", 5)));
+    assertFalse (aEquals.matches (_createEvent ("us", 5)));
+    assertEquals (aEquals, new EventFilterAttributeEquals ("region", "eu"));
+
+    final IEventFilter aRange = new EventFilterAttributeRange <> ("amount",
+                                                                 Integer.class,
+                                                                 Integer.valueOf (10),
+                                                                 Integer.valueOf (20));
+    assertTrue (aRange.matches (_createEvent ("eu", 10)));
+    assertTrue (aRange.matches (_createEvent ("eu", 20)));
+    assertFalse (aRange.matches (_createEvent ("eu", 9)));
+    assertFalse (aRange.matches (_createEvent ("eu", 21)));
+    assertFalse (new EventFilterAttributeRange <> ("region", Integer.class, Integer.valueOf (0), null).matches (_createEvent ("eu",
+                                                                                                                            1)));
+
+    final IEventFilter aSender = new EventFilterSenderClass (CharSequence.class);
+    assertTrue (aSender.matches (new BaseSenderAwareEvent <> (EV_TYPE, "string")));
+    assertFalse (aSender.matches (new BaseSenderAwareEvent <> (EV_TYPE, Integer.valueOf (1))));
+    assertFalse (aSender.matches (_createEvent ("eu", 1)));
+  }
+
+  @Test
+  public void testDispatch ()
+  {
+    final AtomicInteger aEvalCount = new AtomicInteger ();
+    final AtomicInteger aEUCount = new AtomicInteger ();
+    final AtomicInteger aBigCount = new AtomicInteger ();
+    final AtomicInteger aAllCount = new AtomicInteger ();
+    try (final EventManager aMgr = new EventManager ())
+    {
+      final IEventFilter aBig = new EventFilterAttributeRange <> ("amount", Integer.class, Integer.valueOf (100), null);
+      for (int i = 0; i < 3; ++i)
+        aMgr.registerObserver (new MockFilteredObserver (aEUCount,
+                                                         new MockCountingFilter (aEvalCount),
+                                                         new EventFilterAttributeEquals ("region", "eu")));
+      aMgr.registerObserver (new MockFilteredObserver (aBigCount, new MockCountingFilter (aEvalCount), aBig));
+      aMgr.registerObserver (new MockFilteredObserver (aAllCount));
+
+      aMgr.triggerSynchronous (_createEvent ("eu", 5));
+      // The shared filter is evaluated only once
+      assertEquals (1, aEvalCount.get ());
+      assertEquals (3, aEUCount.get ());
+      assertEquals (0, aBigCount.get ());
+      assertEquals (1, aAllCount.get ());
+
+      aMgr.triggerSynchronous (_createEvent ("us", 500));
+      assertEquals (2, aEvalCount.get ());
+      assertEquals (3, aEUCount.get ());
+      assertEquals (1, aBigCount.get ());
+      assertEquals (2, aAllCount.get ());
+    }
+  }
+}
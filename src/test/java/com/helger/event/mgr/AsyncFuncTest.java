@@ -22,8 +22,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
@@ -39,6 +44,7 @@ import com.helger.event.BaseEvent;
 import com.helger.event.EventTypeRegistry;
 import com.helger.event.IEvent;
 import com.helger.event.IEventType;
+import com.helger.event.helper.DispatchResultAggregatorBooleanAnd;
 import com.helger.event.observer.AbstractEventObserver;
 
 public final class AsyncFuncTest
@@ -217,4 +223,86 @@ public final class AsyncFuncTest
       });
     }
   }
+
+  @Test
+  public void testShortCircuit () throws InterruptedException
+  {
+    try (final EventManager mgr = new EventManager ())
+    {
+      final AtomicInteger aValidatorCount = new AtomicInteger (0);
+      for (int i = 0; i < 3; ++i)
+        mgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+        {
+          public void onEvent (final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {
+            aValidatorCount.incrementAndGet ();
+            aResultCallback.accept (Boolean.FALSE);
+          }
+        });
+
+      final CountDownLatch aCountDown = new CountDownLatch (1);
+      final AtomicReference <Object> aResult = new AtomicReference <> ();
+      mgr.triggerAsynchronous (new BaseEvent (EV_TYPE, new DispatchResultAggregatorBooleanAnd ()), x -> {
+        aResult.set (x);
+        aCountDown.countDown ();
+      });
+      aCountDown.await ();
+      assertEquals (Boolean.FALSE, aResult.get ());
+
+      // A second event makes sure the skipped items were processed
+      final CountDownLatch aCountDown2 = new CountDownLatch (1);
+      mgr.triggerAsynchronous (new BaseEvent (EV_TYPE, new DispatchResultAggregatorBooleanAnd ()),
+                               x -> aCountDown2.countDown ());
+      aCountDown2.await ();
+      assertEquals (2, aValidatorCount.get ());
+    }
+  }
+
+  @Test
+  public void testCompletionStage () throws Exception
+  {
+    final ExecutorService aExecutor = Executors.newSingleThreadExecutor (r -> new Thread (r, "stage-test-thread"));
+    try (final EventManager mgr = new EventManager ())
+    {
+      // No observer at all
+      assertNull (mgr.triggerAsynchronousStage (new BaseEvent (EV_TYPE)).toCompletableFuture ().get (5, TimeUnit.SECONDS));
+
+      // Only "void" observers
+      final AtomicInteger aVoidCount = new AtomicInteger (0);
+      for (int i = 0; i < 2; ++i)
+        mgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+        {
+          public void onEvent (final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {
+            aVoidCount.incrementAndGet ();
+          }
+        });
+      assertEquals (Boolean.TRUE,
+                    mgr.triggerAsynchronousStage (new BaseEvent (EV_TYPE, new DispatchResultAggregatorBooleanAnd ()))
+                       .toCompletableFuture ()
+                       .get (5, TimeUnit.SECONDS));
+      // Completed after all void observers finished
+      assertEquals (2, aVoidCount.get ());
+
+      // With return value and dependent stage on the executor
+      mgr.registerObserver (new MockObserverMultiple ("value"));
+      // Make sure the dependent stage is attached before completion
+      final CountDownLatch aAttached = new CountDownLatch (1);
+      mgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback) throws Exception
+        {
+          aAttached.await ();
+        }
+      });
+      final CompletionStage <String> aStage = mgr.triggerAsynchronousStage (new BaseEvent (EV_TYPE), aExecutor)
+                                                 .thenApply (x -> x + "@" + Thread.currentThread ().getName ());
+      aAttached.countDown ();
+      assertEquals ("value@stage-test-thread", aStage.toCompletableFuture ().get (5, TimeUnit.SECONDS));
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
 }
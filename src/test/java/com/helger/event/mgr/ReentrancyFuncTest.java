@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.mgr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.helper.EIntResultAggregator;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionCallback;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
+import com.helger.event.observer.exception.IEventObserverExceptionAware;
+
+/**
+ * Test class for the {@link EReentrancyMode} handling of {@link EventManager}.
+ *
+ * @author Philip Helger
+ */
+public final class ReentrancyFuncTest
+{
+  private static final String PREFIX = ReentrancyFuncTest.class.getName () + ".";
+  private static final IEventType EV_A = EventTypeRegistry.createEventType (PREFIX + "a");
+  private static final IEventType EV_B = EventTypeRegistry.createEventType (PREFIX + "b");
+  private static final IEventType EV_C = EventTypeRegistry.createEventType (PREFIX + "c");
+  private static final IEventType EV_D = EventTypeRegistry.createEventType (PREFIX + "d");
+  private static final IEventType EV_CHAIN = EventTypeRegistry.createEventType (PREFIX + "chain");
+
+  private static final class MockPassThroughException extends RuntimeException implements IEventObserverExceptionAware
+  {}
+
+  @Nonnull
+  private static ICommonsList <String> _getCascadeOrder (@Nonnull final EReentrancyMode eMode)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    try (final EventManager aMgr = new EventManager ())
+    {
+      aMgr.setReentrancyMode (eMode);
+      // A -> B, C and B -> D
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_A, EV_B, EV_C, EV_D)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          final IEventType aType = aEvent.getEventType ();
+          ret.add (aType.getName ().substring (PREFIX.length ()));
+          if (aType.equals (EV_A))
+          {
+            aMgr.triggerSynchronous (new BaseEvent (EV_B));
+            aMgr.triggerSynchronous (new BaseEvent (EV_C));
+          }
+          else
+            if (aType.equals (EV_B))
+              aMgr.triggerSynchronous (new BaseEvent (EV_D));
+        }
+      });
+      aMgr.triggerSynchronous (new BaseEvent (EV_A));
+    }
+    return ret;
+  }
+
+  @Test
+  public void testOrder ()
+  {
+    assertEquals (new CommonsArrayList <> ("a", "b", "d", "c"), _getCascadeOrder (EReentrancyMode.NESTED));
+    assertEquals (new CommonsArrayList <> ("a", "b", "c", "d"), _getCascadeOrder (EReentrancyMode.QUEUED_BREADTH_FIRST));
+    assertEquals (new CommonsArrayList <> ("a", "b", "d", "c"), _getCascadeOrder (EReentrancyMode.QUEUED_DEPTH_FIRST));
+  }
+
+  private static int _runChain (@Nonnull final EReentrancyMode eMode,
+                                final int nMaxDepth,
+                                final int nChainLength,
+                                @Nonnull final EventObservingFailureHandler aFailureHandler)
+  {
+    final int [] aCount = new int [1];
+    try (final EventManager aMgr = new EventManager (aFailureHandler))
+    {
+      aMgr.setReentrancyMode (eMode);
+      aMgr.setMaxCascadeDepth (nMaxDepth);
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_CHAIN)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          if (++aCount[0] < nChainLength)
+            aMgr.triggerSynchronous (new BaseEvent (EV_CHAIN));
+        }
+      });
+      aMgr.triggerSynchronous (new BaseEvent (EV_CHAIN));
+    }
+    return aCount[0];
+  }
+
+  @Test
+  public void testDeepCascade ()
+  {
+    final EventObservingFailureHandler aFailureHandler = new EventObservingFailureHandler (new EventObservingExceptionCallback ());
+    // Constant stack depth
+    assertEquals (100_000, _runChain (EReentrancyMode.QUEUED_BREADTH_FIRST, 1_000_000, 100_000, aFailureHandler));
+    assertEquals (100_000, _runChain (EReentrancyMode.QUEUED_DEPTH_FIRST, 1_000_000, 100_000, aFailureHandler));
+    assertEquals (0, aFailureHandler.getTotalFailureCount ());
+
+    // The depth limit stops the cascade
+    assertEquals (11, _runChain (EReentrancyMode.QUEUED_BREADTH_FIRST, 10, 100, aFailureHandler));
+    assertEquals (1, aFailureHandler.getTotalFailureCount ());
+    assertEquals (11, _runChain (EReentrancyMode.NESTED, 10, 100, aFailureHandler));
+    assertEquals (2, aFailureHandler.getTotalFailureCount ());
+  }
+
+  @Test
+  public void testAllTriggersQueued ()
+  {
+    final ICommonsList <String> aOrder = new CommonsArrayList <> ();
+    try (final EventManager aMgr = new EventManager ())
+    {
+      aMgr.setReentrancyMode (EReentrancyMode.QUEUED_BREADTH_FIRST);
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_A, EV_B, EV_C, EV_D)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          final IEventType aType = aEvent.getEventType ();
+          aOrder.add (aType.getName ().substring (PREFIX.length ()));
+          if (aType.equals (EV_A))
+          {
+            aMgr.triggerSynchronousNotifyOnly (new BaseEvent (EV_B));
+            // No result while queued
+            assertEquals (0, aMgr.triggerSynchronousInt (new BaseEvent (EV_C), EIntResultAggregator.SUM));
+            assertEquals (new CommonsArrayList <> ((Object) null),
+                          aMgr.triggerSynchronousBatch (new CommonsArrayList <> (new BaseEvent (EV_D))));
+            aOrder.add ("a-end");
+          }
+        }
+      });
+      aMgr.triggerSynchronousNotifyOnly (new BaseEvent (EV_A));
+    }
+    assertEquals (new CommonsArrayList <> ("a", "a-end", "b", "c", "d"), aOrder);
+  }
+
+  @Test
+  public void testQueuedDiscardedOnException ()
+  {
+    final ICommonsList <String> aOrder = new CommonsArrayList <> ();
+    try (final EventManager aMgr = new EventManager ())
+    {
+      aMgr.setReentrancyMode (EReentrancyMode.QUEUED_DEPTH_FIRST);
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_A, EV_B)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          final IEventType aType = aEvent.getEventType ();
+          aOrder.add (aType.getName ().substring (PREFIX.length ()));
+          if (aType.equals (EV_A) && aOrder.size () == 1)
+          {
+            aMgr.triggerSynchronous (new BaseEvent (EV_B));
+            throw new MockPassThroughException ();
+          }
+        }
+      });
+
+      try
+      {
+        aMgr.triggerSynchronous (new BaseEvent (EV_A));
+        fail ();
+      }
+      catch (final MockPassThroughException ex)
+      {
+        // expected
+      }
+      // B was discarded and the state of the thread is clean again
+      assertEquals (new CommonsArrayList <> ("a"), aOrder);
+      aMgr.triggerSynchronous (new BaseEvent (EV_A));
+      assertEquals (new CommonsArrayList <> ("a", "a"), aOrder);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.mgr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.helper.DispatchResultAggregatorBooleanAnd;
+import com.helger.event.observer.AbstractEventObserver;
+
+/**
+ * Allocation regression test for the synchronous dispatch path.
+ *
+ * @author Philip Helger
+ */
+public final class SyncAllocationFuncTest
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (SyncAllocationFuncTest.class);
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (SyncAllocationFuncTest.class.getName ());
+  private static final int WARMUP = 200_000;
+  private static final int RUNS = 100_000;
+
+  private static final class MockCountingObserver extends AbstractEventObserver
+  {
+    private final AtomicInteger m_aCount;
+
+    public MockCountingObserver (final boolean bWithReturnValue, @Nonnull final AtomicInteger aCount)
+    {
+      super (bWithReturnValue, EV_TYPE);
+      m_aCount = aCount;
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.incrementAndGet ();
+      if (aResultConsumer != null)
+        aResultConsumer.accept (Boolean.TRUE);
+    }
+  }
+
+  @Nullable
+  private static com.sun.management.ThreadMXBean _getThreadMXBean ()
+  {
+    final java.lang.management.ThreadMXBean aBean = ManagementFactory.getThreadMXBean ();
+    if (!(aBean instanceof com.sun.management.ThreadMXBean))
+      return null;
+    final com.sun.management.ThreadMXBean ret = (com.sun.management.ThreadMXBean) aBean;
+    if (!ret.isThreadAllocatedMemorySupported () || !ret.isThreadAllocatedMemoryEnabled ())
+      return null;
+    return ret;
+  }
+
+  /**
+   * The thresholds rely on the escape analysis of the HotSpot C2 compiler to
+   * remove short lived allocations. Interpreter only, C1 only and other JIT
+   * compilers (e.g. Graal or OpenJ9) behave differently.
+   *
+   * @return <code>true</code> if the C2 compiler with escape analysis is
+   *         expected to be active.
+   */
+  private static boolean _isC2Active ()
+  {
+    if (!System.getProperty ("java.vm.name", "").contains ("Server VM"))
+      return false;
+    if (ManagementFactory.getCompilationMXBean () == null)
+      return false;
+    for (final String sArg : ManagementFactory.getRuntimeMXBean ().getInputArguments ())
+      if (sArg.equals ("-Xint") ||
+          sArg.startsWith ("-XX:TieredStopAtLevel=") && !sArg.endsWith ("=4") ||
+          sArg.equals ("-XX:-DoEscapeAnalysis") ||
+          sArg.equals ("-XX:+UseJVMCICompiler"))
+        return false;
+    return true;
+  }
+
+  private static double _getBytesPerDispatch (@Nonnull final com.sun.management.ThreadMXBean aBean,
+                                              @Nonnull final EventManager aMgr,
+                                              @Nonnull final IEvent aEvent)
+  {
+    for (int i = 0; i < WARMUP; ++i)
+      aMgr.triggerSynchronous (aEvent);
+
+    final long nThreadID = Thread.currentThread ().getId ();
+    final long nBefore = aBean.getThreadAllocatedBytes (nThreadID);
+    for (int i = 0; i < RUNS; ++i)
+      aMgr.triggerSynchronous (aEvent);
+    final long nAfter = aBean.getThreadAllocatedBytes (nThreadID);
+    return (nAfter - nBefore) / (double) RUNS;
+  }
+
+  @Test
+  public void testNoReturnValue ()
+  {
+    final com.sun.management.ThreadMXBean aBean = _getThreadMXBean ();
+    Assume.assumeNotNull (aBean);
+    Assume.assumeTrue ("C2 compiler not active", _isC2Active ());
+
+    final AtomicInteger aCount = new AtomicInteger ();
+    try (final EventManager aMgr = new EventManager ())
+    {
+      for (int i = 0; i < 5; ++i)
+        aMgr.registerObserver (new MockCountingObserver (false, aCount));
+
+      final IEvent aEvent = new BaseEvent (EV_TYPE);
+      final double dBytes = _getBytesPerDispatch (aBean, aMgr, aEvent);
+      LOGGER.info ("Sync dispatch without return value: " + dBytes + " bytes per dispatch");
+      assertEquals (5 * (WARMUP + RUNS), aCount.get ());
+
+      // Steady state must not allocate anything - allow for measurement noise
+      assertTrue ("Allocated " + dBytes + " bytes per dispatch", dBytes < 1);
+    }
+  }
+
+  @Test
+  public void testReturnValue ()
+  {
+    final com.sun.management.ThreadMXBean aBean = _getThreadMXBean ();
+    Assume.assumeNotNull (aBean);
+    Assume.assumeTrue ("C2 compiler not active", _isC2Active ());
+
+    final AtomicInteger aCount = new AtomicInteger ();
+    try (final EventManager aMgr = new EventManager ())
+    {
+      for (int i = 0; i < 5; ++i)
+        aMgr.registerObserver (new MockCountingObserver (true, aCount));
+
+      final IEvent aEvent = new BaseEvent (EV_TYPE, new DispatchResultAggregatorBooleanAnd ());
+      final double dBytes = _getBytesPerDispatch (aBean, aMgr, aEvent);
+      LOGGER.info ("Sync dispatch with return value: " + dBytes + " bytes per dispatch");
+      assertEquals (5 * (WARMUP + RUNS), aCount.get ());
+
+      // The result buffer is reused - at most the aggregator's iterator remains
+      assertTrue ("Allocated " + dBytes + " bytes per dispatch", dBytes < 64);
+    }
+  }
+}
@@ -21,6 +21,11 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
@@ -31,13 +36,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.commons.collection.CollectionHelper;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.exception.mock.MockRuntimeException;
 import com.helger.event.BaseEvent;
 import com.helger.event.EventTypeRegistry;
 import com.helger.event.IEvent;
 import com.helger.event.IEventType;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.helper.DispatchResultAggregatorBooleanAnd;
+import com.helger.event.helper.DispatchResultAggregatorBooleanOr;
 import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.IBatchEventObserver;
+import com.helger.event.observer.exception.EventObservingExceptionCallback;
 import com.helger.event.observer.exception.EventObservingExceptionWrapper;
+import com.helger.event.observer.exception.EventObservingFailureHandler;
+import com.helger.event.observerqueue.EventObserverQueueCopyOnWrite;
+import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
 
 public final class SyncFuncTest
 {
@@ -151,4 +167,395 @@ public final class SyncFuncTest
       mgr.triggerAsynchronous (new BaseEvent (EV_TYPE), r -> LOGGER.info ("Trigger result = " + r));
     }
   }
+
+  @Test
+  public void testRegistrationChangeInvalidatesPlan ()
+  {
+    try (final EventManager mgr = new EventManager ())
+    {
+      final AtomicInteger aCount = new AtomicInteger (0);
+      final AbstractEventObserver aObserver1 = new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aCount.incrementAndGet ();
+        }
+      };
+      final AbstractEventObserver aObserver2 = new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aCount.addAndGet (10);
+        }
+      };
+      final long nVersion = mgr.getRegistrationVersion ();
+      mgr.registerObserver (aObserver1);
+      assertTrue (mgr.getRegistrationVersion () > nVersion);
+
+      // Second trigger uses the cached plan
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (2, aCount.get ());
+
+      mgr.registerObserver (aObserver2);
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (13, aCount.get ());
+
+      mgr.unregisterObserver (aObserver1);
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (23, aCount.get ());
+    }
+  }
+
+  @Test
+  public void testDirectQueueChangeInvalidatesPlan ()
+  {
+    final EventObserverQueueCopyOnWrite aQueue = new EventObserverQueueCopyOnWrite ();
+    try (final EventManager mgr = new EventManager (aQueue,
+                                                    new SynchronousEventDispatcher (null),
+                                                    new AsynchronousEventDispatcher (null)))
+    {
+      final AtomicInteger aCount = new AtomicInteger (0);
+      final AbstractEventObserver aObserver1 = new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aCount.incrementAndGet ();
+        }
+      };
+      mgr.registerObserver (aObserver1);
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (1, aCount.get ());
+
+      // Bypass the manager
+      aQueue.addObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aCount.addAndGet (10);
+        }
+      });
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (12, aCount.get ());
+
+      aQueue.removeObserver (aObserver1);
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (22, aCount.get ());
+    }
+  }
+
+  @Test
+  public void testQueueBasedDispatchers ()
+  {
+    // Dispatchers that only implement the queue based methods
+    try (final EventManager mgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                    (aEvent, aQueue) -> Integer.valueOf (aQueue.getAllObservers ()
+                                                                                               .size ()),
+                                                    (aEvent, aQueue, aConsumer) -> aConsumer.accept (aQueue.getAllObservers ()
+                                                                                                           .size ())))
+    {
+      final IEventType aOtherType = EventTypeRegistry.createEventType (SyncFuncTest.class.getName () + ".queue");
+      for (final IEventType aEventType : new IEventType [] { EV_TYPE, EV_TYPE, aOtherType })
+        mgr.registerObserver (new AbstractEventObserver (false, aEventType)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {}
+        });
+
+      // Only the resolved observers are passed
+      assertEquals (Integer.valueOf (2), mgr.triggerSynchronous (new BaseEvent (EV_TYPE)));
+      final Object [] aResult = new Object [1];
+      mgr.triggerAsynchronous (new BaseEvent (aOtherType), x -> aResult[0] = x);
+      assertEquals (Integer.valueOf (1), aResult[0]);
+    }
+  }
+
+  @Test
+  public void testOnlyOnceConcurrent () throws InterruptedException
+  {
+    final int nThreads = 16;
+    try (final EventManager mgr = new EventManager ())
+    {
+      final AtomicInteger aCount = new AtomicInteger (0);
+      mgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        @Override
+        public boolean isOnlyOnce ()
+        {
+          return true;
+        }
+
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aCount.incrementAndGet ();
+        }
+      });
+
+      final CountDownLatch aStart = new CountDownLatch (1);
+      final AtomicInteger aErrors = new AtomicInteger (0);
+      final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+      for (int i = 0; i < nThreads; ++i)
+        aES.submit ( () -> {
+          try
+          {
+            aStart.await ();
+            mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+          }
+          catch (final Exception ex)
+          {
+            aErrors.incrementAndGet ();
+          }
+        });
+      aStart.countDown ();
+      aES.shutdown ();
+      assertTrue (aES.awaitTermination (10, TimeUnit.SECONDS));
+
+      // Exactly one trigger won the observer
+      assertEquals (0, aErrors.get ());
+      assertEquals (1, aCount.get ());
+
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (1, aCount.get ());
+    }
+  }
+
+  @Test
+  public void testOnlyOnceDuplicateRegistration ()
+  {
+    try (final EventManager mgr = new EventManager ())
+    {
+      final AtomicInteger aCount = new AtomicInteger (0);
+      final AbstractEventObserver aOnlyOnce = new AbstractEventObserver (false, EV_TYPE)
+      {
+        @Override
+        public boolean isOnlyOnce ()
+        {
+          return true;
+        }
+
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aCount.incrementAndGet ();
+        }
+      };
+      final AtomicInteger aRegisterCount = new AtomicInteger (0);
+      mgr.registerObserver (aOnlyOnce);
+      mgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          // Still registered, because the claimed observer is removed after
+          // the dispatching
+          if (aRegisterCount.getAndIncrement () == 0)
+            assertTrue (mgr.registerObserver (aOnlyOnce).isUnchanged ());
+        }
+      });
+
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (1, aCount.get ());
+
+      // The duplicate registration did not re-arm the claimed observer
+      mgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (1, aCount.get ());
+      assertEquals (2, aRegisterCount.get ());
+    }
+  }
+
+  @Test
+  public void testNotifyOnly ()
+  {
+    try (final EventManager mgr = new EventManager ())
+    {
+      final AtomicInteger aNoReturnCount = new AtomicInteger (0);
+      final AtomicInteger aReturnCount = new AtomicInteger (0);
+      final AtomicInteger aOnlyOnceCount = new AtomicInteger (0);
+      mgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          assertNull (aResultCallback);
+          aNoReturnCount.incrementAndGet ();
+        }
+      });
+      mgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          assertNotNull (aResultCallback);
+          aResultCallback.accept ("x");
+          aReturnCount.incrementAndGet ();
+        }
+      });
+      mgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        @Override
+        public boolean isOnlyOnce ()
+        {
+          return true;
+        }
+
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aResultCallback.accept ("y");
+          aOnlyOnceCount.incrementAndGet ();
+        }
+      });
+
+      // The aggregator must never be invoked
+      final IEvent aEvent = new BaseEvent (EV_TYPE, x -> {
+        throw new IllegalStateException ("Aggregator invoked");
+      });
+
+      // Return value observers are skipped and not consumed
+      mgr.triggerSynchronousNotifyOnly (aEvent, ENotifyReturnValuePolicy.SKIP);
+      assertEquals (1, aNoReturnCount.get ());
+      assertEquals (0, aReturnCount.get ());
+      assertEquals (0, aOnlyOnceCount.get ());
+
+      mgr.triggerSynchronousNotifyOnly (aEvent, ENotifyReturnValuePolicy.INVOKE_WITH_NOOP_CONSUMER);
+      assertEquals (2, aNoReturnCount.get ());
+      assertEquals (1, aReturnCount.get ());
+      assertEquals (1, aOnlyOnceCount.get ());
+
+      mgr.triggerSynchronousNotifyOnly (aEvent);
+      assertEquals (3, aNoReturnCount.get ());
+      assertEquals (2, aReturnCount.get ());
+      assertEquals (1, aOnlyOnceCount.get ());
+    }
+  }
+
+  @Test
+  public void testShortCircuit ()
+  {
+    try (final EventManager mgr = new EventManager ())
+    {
+      final AtomicInteger aValidatorCount = new AtomicInteger (0);
+      final AtomicInteger aListenerCount = new AtomicInteger (0);
+      for (final boolean bVeto : new boolean [] { false, true, false })
+        mgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+          {
+            aValidatorCount.incrementAndGet ();
+            aResultCallback.accept (Boolean.valueOf (!bVeto));
+          }
+        });
+      mgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aListenerCount.incrementAndGet ();
+        }
+      });
+
+      // The first veto stops the remaining validators
+      assertEquals (Boolean.FALSE, mgr.triggerSynchronous (new BaseEvent (EV_TYPE, new DispatchResultAggregatorBooleanAnd ())));
+      assertEquals (2, aValidatorCount.get ());
+      assertEquals (1, aListenerCount.get ());
+
+      aValidatorCount.set (0);
+      assertEquals (Boolean.TRUE, mgr.triggerSynchronous (new BaseEvent (EV_TYPE, new DispatchResultAggregatorBooleanOr ())));
+      assertEquals (1, aValidatorCount.get ());
+      assertEquals (2, aListenerCount.get ());
+    }
+  }
+
+  private static final class MockBatchObserver extends AbstractEventObserver implements IBatchEventObserver
+  {
+    private final ICommonsList <ICommonsList <IEvent>> m_aBatches;
+
+    public MockBatchObserver (@Nonnull final ICommonsList <ICommonsList <IEvent>> aBatches,
+                              @Nonnull final IEventType... aEventTypes)
+    {
+      super (false, aEventTypes);
+      m_aBatches = aBatches;
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+    {
+      throw new IllegalStateException ("Should be called as batch");
+    }
+
+    public void onEventBatch (@Nonnull final ICommonsList <IEvent> aEvents)
+    {
+      m_aBatches.add (aEvents);
+    }
+  }
+
+  @Test
+  public void testBatch ()
+  {
+    final IEventType aOtherType = EventTypeRegistry.createEventType (SyncFuncTest.class.getName () + ".other");
+    try (final EventManager mgr = new EventManager ())
+    {
+      final ICommonsList <ICommonsList <IEvent>> aBatches = new CommonsArrayList <> ();
+      mgr.registerObserver (new MockBatchObserver (aBatches, EV_TYPE, aOtherType));
+      final ICommonsList <IEvent> aDelivered = new CommonsArrayList <> ();
+      mgr.registerObserver (new AbstractEventObserver (true, EV_TYPE, aOtherType)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+        {
+          aDelivered.add (aEvent);
+          aResultCallback.accept (aEvent.getEventType ().getName ());
+        }
+      });
+
+      final ICommonsList <IEvent> aEvents = new CommonsArrayList <> ();
+      for (int i = 0; i < 3; ++i)
+      {
+        aEvents.add (new BaseEvent (EV_TYPE));
+        aEvents.add (new BaseEvent (aOtherType));
+      }
+      final ICommonsList <Object> aResults = mgr.triggerSynchronousBatch (aEvents);
+
+      // In order and one result per event
+      assertEquals (aEvents, aDelivered);
+      assertEquals (6, aResults.size ());
+      for (int i = 0; i < 6; ++i)
+        assertEquals (aEvents.get (i).getEventType ().getName (), aResults.get (i));
+
+      // One batch per event type
+      assertEquals (2, aBatches.size ());
+      assertEquals (new CommonsArrayList <> (aEvents.get (0), aEvents.get (2), aEvents.get (4)), aBatches.get (0));
+      assertEquals (new CommonsArrayList <> (aEvents.get (1), aEvents.get (3), aEvents.get (5)), aBatches.get (1));
+    }
+  }
+
+  private static final class MockFailingBatchObserver extends AbstractEventObserver implements IBatchEventObserver
+  {
+    public MockFailingBatchObserver (@Nonnull final IEventType aEventType)
+    {
+      super (false, aEventType);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+    {
+      throw new IllegalStateException ("Should be called as batch");
+    }
+
+    public void onEventBatch (@Nonnull final ICommonsList <IEvent> aEvents)
+    {
+      throw new MockRuntimeException ();
+    }
+  }
+
+  @Test
+  public void testBatchFailure ()
+  {
+    final IEventType aType = EventTypeRegistry.createEventType (SyncFuncTest.class.getName () + ".batchfailure");
+    final EventObservingFailureHandler aHandler = new EventObservingFailureHandler (new EventObservingExceptionCallback ());
+    try (final EventManager mgr = new EventManager (aHandler))
+    {
+      final MockFailingBatchObserver aObserver = new MockFailingBatchObserver (aType);
+      mgr.registerObserver (aObserver);
+      mgr.triggerSynchronousBatch (new CommonsArrayList <> (new BaseEvent (aType),
+                                                            new BaseEvent (aType),
+                                                            new BaseEvent (aType)));
+
+      // One failure for the whole batch
+      assertEquals (1, aHandler.getTotalFailureCount ());
+      assertEquals (1, aHandler.getFailureCount (aObserver));
+      assertEquals (1, aHandler.getFailureCountOfEventType (aType.getName ()));
+    }
+  }
 }
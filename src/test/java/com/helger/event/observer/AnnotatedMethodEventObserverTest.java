@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.exception.mock.MockRuntimeException;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
+
+/**
+ * Test class for class {@link AnnotatedMethodEventObserver}.
+ *
+ * @author Philip Helger
+ */
+public final class AnnotatedMethodEventObserverTest
+{
+  private static final String EV_NAME_1 = "com.helger.event.observer.AnnotatedMethodEventObserverTest.1";
+  private static final String EV_NAME_2 = "com.helger.event.observer.AnnotatedMethodEventObserverTest.2";
+  private static final IEventType EV_TYPE_1 = EventTypeRegistry.createEventType (EV_NAME_1);
+  private static final IEventType EV_TYPE_2 = EventTypeRegistry.createEventType (EV_NAME_2);
+
+  public static final class MockPublicTarget
+  {
+    final AtomicInteger m_aCount = new AtomicInteger ();
+
+    @EventObserverMethod ({ EV_NAME_1, EV_NAME_2 })
+    public void onAny (@Nonnull final IEvent aEvent)
+    {
+      m_aCount.incrementAndGet ();
+    }
+
+    @EventObserverMethod (EV_NAME_2)
+    public int onSecond (@Nonnull final IEvent aEvent)
+    {
+      return 42;
+    }
+
+    @EventObserverMethod (EV_NAME_1)
+    public void onFailure (@Nonnull final BaseEvent aEvent)
+    {
+      throw new MockRuntimeException ();
+    }
+
+    public void notAnnotated (@Nonnull final IEvent aEvent)
+    {
+      fail ();
+    }
+  }
+
+  private static final class MockPrivateTarget
+  {
+    @EventObserverMethod (EV_NAME_1)
+    public String onFirst (@Nonnull final IEvent aEvent)
+    {
+      return "private";
+    }
+  }
+
+  public static final class MockInvalidTarget
+  {
+    @EventObserverMethod (EV_NAME_1)
+    public void onFirst (@Nonnull final IEvent aEvent, final int nOther)
+    {}
+  }
+
+  public static final class MockUnknownTypeTarget
+  {
+    @EventObserverMethod ("does.not.exist")
+    public void onFirst (@Nonnull final IEvent aEvent)
+    {}
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final AtomicInteger aExceptionCount = new AtomicInteger ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (t -> aExceptionCount.incrementAndGet ()),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      final MockPublicTarget aTarget = new MockPublicTarget ();
+      final ICommonsList <IEventObserver> aObservers = aMgr.registerAnnotatedObservers (aTarget);
+      assertEquals (3, aObservers.size ());
+      for (final IEventObserver aObserver : aObservers)
+        assertSame (aTarget, ((AnnotatedMethodEventObserver) aObserver).getTarget ());
+
+      assertEquals (Integer.valueOf (42), aMgr.triggerSynchronous (new BaseEvent (EV_TYPE_2)));
+      assertEquals (1, aTarget.m_aCount.get ());
+      assertEquals (0, aExceptionCount.get ());
+
+      aMgr.triggerSynchronous (new BaseEvent (EV_TYPE_1));
+      assertEquals (2, aTarget.m_aCount.get ());
+      assertEquals (1, aExceptionCount.get ());
+
+      // Private class uses the fallback
+      aMgr.registerAnnotatedObservers (new MockPrivateTarget ());
+      final Object aResult = aMgr.triggerSynchronous (new BaseEvent (EV_TYPE_1, x -> new CommonsArrayList <> (x)));
+      assertEquals (new CommonsArrayList <> ("private"), aResult);
+      assertEquals (3, aTarget.m_aCount.get ());
+
+      for (final IEventObserver aObserver : aObservers)
+        assertTrue (aMgr.unregisterObserver (aObserver).isChanged ());
+      aMgr.triggerSynchronous (new BaseEvent (EV_TYPE_2));
+      assertEquals (3, aTarget.m_aCount.get ());
+    }
+  }
+
+  @Test
+  public void testInvalid ()
+  {
+    assertTrue (AnnotatedMethodEventObserver.createObservers ("no annotations").isEmpty ());
+
+    try
+    {
+      AnnotatedMethodEventObserver.createObservers (new MockInvalidTarget ());
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+
+    try
+    {
+      AnnotatedMethodEventObserver.createObservers (new MockUnknownTypeTarget ());
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+}
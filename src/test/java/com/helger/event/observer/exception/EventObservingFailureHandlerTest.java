@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observer.exception;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.helger.commons.exception.mock.MockIOException;
+import com.helger.commons.exception.mock.MockRuntimeException;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.IEventObserver;
+import com.helger.event.observerqueue.EventObserverQueueOrderedSet;
+
+/**
+ * Test class for class {@link EventObservingFailureHandler}.
+ *
+ * @author Philip Helger
+ */
+public final class EventObservingFailureHandlerTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (EventObservingFailureHandlerTest.class.getName ());
+
+  private static final class MockPassThroughException extends RuntimeException implements IEventObserverExceptionAware
+  {}
+
+  private static final class MockFailingObserver extends AbstractEventObserver
+  {
+    private final boolean m_bPassThrough;
+
+    public MockFailingObserver (final boolean bPassThrough)
+    {
+      super (false, EV_TYPE);
+      m_bPassThrough = bPassThrough;
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultCallback)
+    {
+      if (m_bPassThrough)
+        throw new MockPassThroughException ();
+      throw new MockRuntimeException ();
+    }
+  }
+
+  @Test
+  public void testCountersAndDeduplication ()
+  {
+    final EventObservingFailureHandler aHandler = new EventObservingFailureHandler (new EventObservingExceptionCallback ());
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueOrderedSet (),
+                                                     new SynchronousEventDispatcher (aHandler),
+                                                     new AsynchronousEventDispatcher (aHandler)))
+    {
+      final IEventObserver aObserver = new MockFailingObserver (false);
+      aMgr.registerObserver (aObserver);
+      for (int i = 0; i < 100; ++i)
+        aMgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+
+      assertEquals (100, aHandler.getTotalFailureCount ());
+      assertEquals (100, aHandler.getFailureCount (aObserver));
+      assertEquals (100, aHandler.getFailureCountOfEventType (EV_TYPE.getName ()));
+      // Only the first one was logged
+      assertEquals (99, aHandler.getSuppressedLogCount ());
+
+      aHandler.resetCounters ();
+      assertEquals (0, aHandler.getTotalFailureCount ());
+      assertEquals (0, aHandler.getFailureCount (aObserver));
+    }
+  }
+
+  @Test
+  public void testDeduplicationPerObserverAndExceptionClass ()
+  {
+    final EventObservingFailureHandler aHandler = new EventObservingFailureHandler (new EventObservingExceptionCallback ());
+    final IEvent aEvent = new BaseEvent (EV_TYPE);
+    final Object aObserver1 = new MockFailingObserver (false);
+    final Object aObserver2 = new MockFailingObserver (false);
+
+    aHandler.onObserverFailure (aObserver1, aEvent, new MockRuntimeException ());
+    assertEquals (0, aHandler.getSuppressedLogCount ());
+    // Same class from another location
+    aHandler.onObserverFailure (aObserver1, aEvent, new MockRuntimeException ("other"));
+    assertEquals (1, aHandler.getSuppressedLogCount ());
+    // Other exception class
+    aHandler.onObserverFailure (aObserver1, aEvent, new MockIOException ());
+    assertEquals (1, aHandler.getSuppressedLogCount ());
+    // Other observer
+    aHandler.onObserverFailure (aObserver2, aEvent, new MockRuntimeException ());
+    assertEquals (1, aHandler.getSuppressedLogCount ());
+
+    assertEquals (3, aHandler.getFailureCount (aObserver1));
+    assertEquals (1, aHandler.getFailureCount (aObserver2));
+    assertEquals (4, aHandler.getTotalFailureCount ());
+  }
+
+  @Test
+  public void testOffloadedCallback () throws InterruptedException
+  {
+    final CountDownLatch aBlock = new CountDownLatch (1);
+    final CountDownLatch aDone = new CountDownLatch (2);
+    final EventObservingFailureHandler aHandler = new EventObservingFailureHandler (t -> {
+      try
+      {
+        aBlock.await ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      aDone.countDown ();
+    }, 0, 2);
+    try (final EventManager aMgr = new EventManager (aHandler))
+    {
+      aMgr.registerObserver (new MockFailingObserver (false));
+      // At most one is taken by the callback thread, 2 are queued and the rest
+      // is dropped - the dispatching thread never blocks
+      for (int i = 0; i < 10; ++i)
+        aMgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      aBlock.countDown ();
+      assertTrue (aDone.await (10, TimeUnit.SECONDS));
+      assertEquals (10, aHandler.getTotalFailureCount ());
+      assertTrue (aHandler.getDroppedCallbackCount () >= 7);
+    }
+    finally
+    {
+      aHandler.stop ();
+    }
+  }
+
+  @Test
+  public void testPassThroughIsNotOffloaded ()
+  {
+    final EventObservingFailureHandler aHandler = new EventObservingFailureHandler (new EventObservingExceptionCallback (),
+                                                                                    0,
+                                                                                    10);
+    try (final EventManager aMgr = new EventManager (aHandler))
+    {
+      aMgr.registerObserver (new MockFailingObserver (true));
+      aMgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      fail ();
+    }
+    catch (final MockPassThroughException ex)
+    {
+      // expected
+    }
+    finally
+    {
+      aHandler.stop ();
+    }
+  }
+
+  @Test
+  public void testFailedObserverIsNotPinned () throws InterruptedException
+  {
+    final EventObservingFailureHandler aHandler = new EventObservingFailureHandler (new EventObservingExceptionCallback ());
+    final IEvent aEvent = new BaseEvent (EV_TYPE);
+    Object aObserver = new MockFailingObserver (false);
+    aHandler.onObserverFailure (aObserver, aEvent, new MockRuntimeException ());
+    assertEquals (1, aHandler.getFailureCount (aObserver));
+
+    final WeakReference <Object> aRef = new WeakReference <> (aObserver);
+    aObserver = null;
+    for (int i = 0; i < 50 && aRef.get () != null; ++i)
+    {
+      System.gc ();
+      Thread.sleep (10);
+    }
+    Assume.assumeTrue ("Observer was not garbage collected", aRef.get () == null);
+    assertNull (aRef.get ());
+    // The other counters are kept
+    assertEquals (1, aHandler.getTotalFailureCount ());
+    assertEquals (1, aHandler.getFailureCountOfEventType (EV_TYPE.getName ()));
+  }
+}
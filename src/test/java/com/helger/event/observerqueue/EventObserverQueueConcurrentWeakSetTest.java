@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Test class for class {@link EventObserverQueueConcurrentWeakSet}.
+ *
+ * @author Philip Helger
+ */
+public final class EventObserverQueueConcurrentWeakSetTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (EventObserverQueueConcurrentWeakSetTest.class.getName ());
+
+  private static final class MockObserver extends AbstractEventObserver
+  {
+    public MockObserver ()
+    {
+      super (false, EV_TYPE);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {}
+  }
+
+  /**
+   * Add an observer that is only weakly reachable afterwards.
+   *
+   * @return A weak reference to the added observer.
+   */
+  @Nonnull
+  private static WeakReference <IEventObserver> _addTemporaryObserver (@Nonnull final EventObserverQueueConcurrentWeakSet aQueue)
+  {
+    final IEventObserver aObserver = new MockObserver ();
+    assertTrue (aQueue.addObserver (aObserver).isChanged ());
+    return new WeakReference <> (aObserver);
+  }
+
+  /**
+   * Run the GC until the passed reference is cleared. The test is skipped if
+   * the GC does not collect it.
+   */
+  private static void _collect (@Nonnull final WeakReference <?> aRef) throws InterruptedException
+  {
+    for (int i = 0; i < 50 && aRef.get () != null; ++i)
+    {
+      System.gc ();
+      Thread.sleep (10);
+    }
+    Assume.assumeTrue ("Observer was not garbage collected", aRef.get () == null);
+  }
+
+  @Test
+  public void testAddRemove ()
+  {
+    final EventObserverQueueConcurrentWeakSet aQueue = new EventObserverQueueConcurrentWeakSet ();
+    assertTrue (aQueue.isEmpty ());
+    assertEquals (0, aQueue.getObserverSnapshot (EV_TYPE).length);
+
+    final IEventObserver o1 = new MockObserver ();
+    final IEventObserver o2 = new MockObserver ();
+    final IEventObserver o3 = new MockObserver ();
+    assertTrue (aQueue.addObserver (o1).isChanged ());
+    assertTrue (aQueue.addObserver (o2).isChanged ());
+    assertTrue (aQueue.addObserver (o3).isChanged ());
+    // Duplicate add
+    assertFalse (aQueue.addObserver (o2).isChanged ());
+    assertFalse (aQueue.isEmpty ());
+    assertEquals (3, aQueue.getReferenceCount ());
+
+    // Registration order is maintained
+    assertEquals (new CommonsArrayList <> (o1, o2, o3), aQueue.getAllObservers ());
+    assertArrayEquals (new IEventObserver [] { o1, o2, o3 }, aQueue.getObserverSnapshot (EV_TYPE));
+
+    assertTrue (aQueue.removeObserver (o2).isChanged ());
+    assertFalse (aQueue.removeObserver (o2).isChanged ());
+    assertEquals (new CommonsArrayList <> (o1, o3), aQueue.getAllObservers ());
+
+    assertTrue (aQueue.removeObserver (o1).isChanged ());
+    assertTrue (aQueue.removeObserver (o3).isChanged ());
+    assertTrue (aQueue.isEmpty ());
+    assertEquals (0, aQueue.getReferenceCount ());
+  }
+
+  @Test
+  public void testSnapshotSkipsCollectedObservers () throws InterruptedException
+  {
+    final EventObserverQueueConcurrentWeakSet aQueue = new EventObserverQueueConcurrentWeakSet ();
+    final IEventObserver o1 = new MockObserver ();
+    assertTrue (aQueue.addObserver (o1).isChanged ());
+    final WeakReference <IEventObserver> aTemp = _addTemporaryObserver (aQueue);
+    final IEventObserver o3 = new MockObserver ();
+    assertTrue (aQueue.addObserver (o3).isChanged ());
+
+    _collect (aTemp);
+    assertNull (aTemp.get ());
+
+    // Nothing was expunged yet, but the snapshot only contains live observers
+    assertEquals (3, aQueue.getReferenceCount ());
+    assertArrayEquals (new IEventObserver [] { o1, o3 }, aQueue.getObserverSnapshot (EV_TYPE));
+    assertEquals (new CommonsArrayList <> (o1, o3), aQueue.getAllObservers ());
+  }
+
+  @Test
+  public void testExpungeStaleEntries () throws InterruptedException
+  {
+    final EventObserverQueueConcurrentWeakSet aQueue = new EventObserverQueueConcurrentWeakSet ();
+    final WeakReference <IEventObserver> aTemp = _addTemporaryObserver (aQueue);
+    assertFalse (aQueue.isEmpty ());
+
+    _collect (aTemp);
+
+    // Only a dead reference is left
+    assertEquals (1, aQueue.getReferenceCount ());
+    assertTrue (aQueue.isEmpty ());
+    assertEquals (0, aQueue.getObserverSnapshot (EV_TYPE).length);
+
+    // The reference is enqueued asynchronously after it was cleared
+    for (int i = 0; i < 50 && aQueue.getReferenceCount () > 0; ++i)
+    {
+      aQueue.expungeStaleEntries ();
+      if (aQueue.getReferenceCount () > 0)
+        Thread.sleep (10);
+    }
+    assertEquals (0, aQueue.getReferenceCount ());
+    assertTrue (aQueue.isEmpty ());
+
+    // Adding works as before
+    final IEventObserver o1 = new MockObserver ();
+    assertTrue (aQueue.addObserver (o1).isChanged ());
+    assertEquals (1, aQueue.getReferenceCount ());
+    assertFalse (aQueue.isEmpty ());
+  }
+}
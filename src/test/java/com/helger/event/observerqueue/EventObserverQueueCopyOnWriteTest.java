@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Test class for class {@link EventObserverQueueCopyOnWrite}.
+ *
+ * @author Philip Helger
+ */
+public final class EventObserverQueueCopyOnWriteTest
+{
+  private static final IEventType EV_TYPE1 = EventTypeRegistry.createEventType (EventObserverQueueCopyOnWriteTest.class.getName () +
+                                                                                ".1");
+  private static final IEventType EV_TYPE2 = EventTypeRegistry.createEventType (EventObserverQueueCopyOnWriteTest.class.getName () +
+                                                                                ".2");
+
+  private static final class MockObserver extends AbstractEventObserver
+  {
+    public MockObserver (@Nonnull final IEventType aEventType)
+    {
+      super (false, aEventType);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {}
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final EventObserverQueueCopyOnWrite aQueue = new EventObserverQueueCopyOnWrite ();
+    assertTrue (aQueue.isEmpty ());
+    assertTrue (aQueue.getAllObservers ().isEmpty ());
+
+    final IEventObserver o1 = new MockObserver (EV_TYPE1);
+    final IEventObserver o2 = new MockObserver (EV_TYPE2);
+    final IEventObserver o3 = new MockObserver (EV_TYPE1);
+    assertTrue (aQueue.addObserver (o1).isChanged ());
+    assertTrue (aQueue.addObserver (o2).isChanged ());
+    assertTrue (aQueue.addObserver (o3).isChanged ());
+    // Duplicate add
+    assertFalse (aQueue.addObserver (o1).isChanged ());
+    assertFalse (aQueue.isEmpty ());
+
+    // Registration order is maintained
+    assertEquals (new CommonsArrayList <> (o1, o2, o3), aQueue.getAllObservers ());
+
+    assertTrue (aQueue.removeObserver (o2).isChanged ());
+    assertFalse (aQueue.removeObserver (o2).isChanged ());
+    assertEquals (new CommonsArrayList <> (o1, o3), aQueue.getAllObservers ());
+
+    assertTrue (aQueue.removeObserver (o1).isChanged ());
+    assertTrue (aQueue.removeObserver (o3).isChanged ());
+    assertTrue (aQueue.isEmpty ());
+    assertEquals (0, aQueue.getObserverSnapshot (EV_TYPE1).length);
+  }
+
+  @Test
+  public void testSnapshot ()
+  {
+    final EventObserverQueueCopyOnWrite aQueue = new EventObserverQueueCopyOnWrite ();
+    final IEventObserver o1 = new MockObserver (EV_TYPE1);
+    final IEventObserver o2 = new MockObserver (EV_TYPE2);
+    aQueue.addObserver (o1);
+    aQueue.addObserver (o2);
+
+    // The snapshot is not filtered by type - the dispatcher checks each
+    // observer - and is shared until the next modification
+    final IEventObserver [] aSnapshot = aQueue.getObserverSnapshot (EV_TYPE1);
+    assertArrayEquals (new IEventObserver [] { o1, o2 }, aSnapshot);
+    assertSame (aSnapshot, aQueue.getObserverSnapshot (EV_TYPE1));
+    assertSame (aSnapshot, aQueue.getObserverSnapshot (EV_TYPE2));
+
+    // Modifications create a new snapshot and leave the old one untouched
+    final IEventObserver o3 = new MockObserver (EV_TYPE1);
+    aQueue.addObserver (o3);
+    final IEventObserver [] aSnapshot2 = aQueue.getObserverSnapshot (EV_TYPE1);
+    assertNotSame (aSnapshot, aSnapshot2);
+    assertArrayEquals (new IEventObserver [] { o1, o2 }, aSnapshot);
+    assertArrayEquals (new IEventObserver [] { o1, o2, o3 }, aSnapshot2);
+
+    aQueue.removeObserver (o1);
+    assertArrayEquals (new IEventObserver [] { o1, o2, o3 }, aSnapshot2);
+    assertArrayEquals (new IEventObserver [] { o2, o3 }, aQueue.getObserverSnapshot (EV_TYPE2));
+
+    // A failed modification keeps the snapshot
+    final IEventObserver [] aSnapshot3 = aQueue.getObserverSnapshot (EV_TYPE1);
+    assertFalse (aQueue.addObserver (o2).isChanged ());
+    assertFalse (aQueue.removeObserver (o1).isChanged ());
+    assertSame (aSnapshot3, aQueue.getObserverSnapshot (EV_TYPE1));
+  }
+
+  @Test
+  public void testCachingAllowed ()
+  {
+    // The content only changes via addObserver and removeObserver
+    assertTrue (new EventObserverQueueCopyOnWrite ().isCachingAllowed ());
+    // In contrast to weak references
+    assertFalse (new EventObserverQueueConcurrentWeakSet ().isCachingAllowed ());
+  }
+}
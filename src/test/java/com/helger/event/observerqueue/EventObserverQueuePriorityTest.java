@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Test class for class {@link EventObserverQueuePriority}.
+ *
+ * @author Philip Helger
+ */
+public final class EventObserverQueuePriorityTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (EventObserverQueuePriorityTest.class.getName ());
+
+  private static final class MockRecordingObserver extends AbstractEventObserver
+  {
+    private final ICommonsList <String> m_aCalls;
+    private final String m_sName;
+
+    public MockRecordingObserver (@Nonnull final ICommonsList <String> aCalls, @Nonnull final String sName)
+    {
+      super (false, EV_TYPE);
+      m_aCalls = aCalls;
+      m_sName = sName;
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCalls.add (m_sName);
+    }
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final ICommonsList <String> aCalls = new CommonsArrayList <> ();
+    final EventObserverQueuePriority aQueue = new EventObserverQueuePriority ();
+    assertTrue (aQueue.isEmpty ());
+
+    final IEventObserver o1 = new MockRecordingObserver (aCalls, "o1");
+    final IEventObserver o2 = new MockRecordingObserver (aCalls, "o2");
+    final IEventObserver o3 = new MockRecordingObserver (aCalls, "o3");
+    final IEventObserver o4 = new MockRecordingObserver (aCalls, "o4");
+    assertTrue (aQueue.addObserver (o1).isChanged ());
+    assertTrue (aQueue.addObserver (o2, -5).isChanged ());
+    assertTrue (aQueue.addObserver (o3, 10).isChanged ());
+    assertTrue (aQueue.addObserver (o4).isChanged ());
+    assertFalse (aQueue.addObserver (o3, 20).isChanged ());
+    assertFalse (aQueue.isEmpty ());
+
+    // Higher priority first, registration order within a priority
+    assertEquals (new CommonsArrayList <> (o3, o1, o4, o2), aQueue.getAllObservers ());
+    assertEquals (10, aQueue.getPriority (o3, -1));
+    assertEquals (-1, aQueue.getPriority (new MockRecordingObserver (aCalls, "o5"), -1));
+
+    assertTrue (aQueue.removeObserver (o1).isChanged ());
+    assertFalse (aQueue.removeObserver (o1).isChanged ());
+    assertEquals (new CommonsArrayList <> (o3, o4, o2), aQueue.getAllObservers ());
+    assertEquals (-5, aQueue.getPriority (o2, -1));
+  }
+
+  @Test
+  public void testDispatch ()
+  {
+    final ICommonsList <String> aCalls = new CommonsArrayList <> ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueuePriority (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      aMgr.registerObserver (new MockRecordingObserver (aCalls, "expensive"));
+      aMgr.registerObserver (new MockRecordingObserver (aCalls, "veto"), 100);
+      aMgr.registerObserver (new MockRecordingObserver (aCalls, "late"), -100);
+
+      aMgr.triggerSynchronous (new BaseEvent (EV_TYPE));
+      assertEquals (new CommonsArrayList <> ("veto", "expensive", "late"), aCalls);
+    }
+  }
+}
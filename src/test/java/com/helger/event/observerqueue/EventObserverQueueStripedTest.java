@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.timing.StopWatch;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.EEventObserverHandlerType;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Test class for class {@link EventObserverQueueStriped}.
+ *
+ * @author Philip Helger
+ */
+public final class EventObserverQueueStripedTest
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (EventObserverQueueStripedTest.class);
+  private static final int EVENT_TYPE_COUNT = 100;
+  private static final IEventType [] EV_TYPES = new IEventType [EVENT_TYPE_COUNT];
+  static
+  {
+    for (int i = 0; i < EVENT_TYPE_COUNT; ++i)
+      EV_TYPES[i] = EventTypeRegistry.createEventType (EventObserverQueueStripedTest.class.getName () + "." + i);
+  }
+
+  private static final class MockCountingObserver extends AbstractEventObserver
+  {
+    private final AtomicInteger m_aCount;
+
+    public MockCountingObserver (@Nonnull final AtomicInteger aCount, @Nonnull final IEventType... aEventTypes)
+    {
+      super (false, aEventTypes);
+      m_aCount = aCount;
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  private static final class MockCustomObserver implements IEventObserver
+  {
+    private final AtomicInteger m_aCount;
+
+    public MockCustomObserver (@Nonnull final AtomicInteger aCount)
+    {
+      m_aCount = aCount;
+    }
+
+    @Nonnull
+    public EEventObserverHandlerType canHandleEvent (@Nonnull final IEvent aEvent)
+    {
+      return EEventObserverHandlerType.handleNoReturnIfMatches (aEvent, EV_TYPES[1]);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    final EventObserverQueueStriped aQueue = new EventObserverQueueStriped (5);
+    assertEquals (8, aQueue.getStripeCount ());
+    assertTrue (aQueue.isEmpty ());
+
+    final IEventObserver o1 = new MockCountingObserver (aCount, EV_TYPES[0]);
+    final IEventObserver o2 = new MockCustomObserver (aCount);
+    final IEventObserver o3 = new MockCountingObserver (aCount, EV_TYPES[0], EV_TYPES[1]);
+    final IEventObserver o4 = new MockCountingObserver (aCount, EV_TYPES[1]);
+    assertTrue (aQueue.addObserver (o1).isChanged ());
+    assertTrue (aQueue.addObserver (o2).isChanged ());
+    assertTrue (aQueue.addObserver (o3).isChanged ());
+    assertTrue (aQueue.addObserver (o4).isChanged ());
+    assertFalse (aQueue.addObserver (o1).isChanged ());
+    assertFalse (aQueue.isEmpty ());
+    assertEquals (4, aQueue.getObserverCount ());
+
+    // Registration order is maintained
+    assertEquals (new CommonsArrayList <> (o1, o2, o3, o4), aQueue.getAllObservers ());
+    assertEquals (new CommonsArrayList <> (o1, o2, o3), aQueue.getAllObservers (EV_TYPES[0]));
+    assertEquals (new CommonsArrayList <> (o2, o3, o4), aQueue.getAllObservers (EV_TYPES[1]));
+    assertEquals (new CommonsArrayList <> (o2), aQueue.getAllObservers (EV_TYPES[2]));
+
+    assertTrue (aQueue.removeObserver (o3).isChanged ());
+    assertFalse (aQueue.removeObserver (o3).isChanged ());
+    assertEquals (new CommonsArrayList <> (o1, o2), aQueue.getAllObservers (EV_TYPES[0]));
+    assertEquals (new CommonsArrayList <> (o2, o4), aQueue.getAllObservers (EV_TYPES[1]));
+
+    assertTrue (aQueue.removeObserver (o2).isChanged ());
+    assertEquals (new CommonsArrayList <> (), aQueue.getAllObservers (EV_TYPES[2]));
+    assertEquals (2, aQueue.getObserverCount ());
+  }
+
+  private static void _testScaling (final int nObserverCount)
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueStriped (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      final StopWatch aSW = StopWatch.createdStarted ();
+      final ICommonsList <IEventObserver> aObservers = new CommonsArrayList <> (nObserverCount);
+      for (int i = 0; i < nObserverCount; ++i)
+      {
+        final IEventObserver aObserver = new MockCountingObserver (aCount, EV_TYPES[i % EVENT_TYPE_COUNT]);
+        aObservers.add (aObserver);
+        assertTrue (aMgr.registerObserver (aObserver).isChanged ());
+      }
+      final long nRegisterMillis = aSW.stopAndGetMillis ();
+
+      // Dispatch to a single type
+      aSW.restart ();
+      for (int i = 0; i < 100; ++i)
+        aMgr.triggerSynchronous (new BaseEvent (EV_TYPES[0]));
+      final long nDispatchMillis = aSW.stopAndGetMillis ();
+      assertEquals (100 * (nObserverCount / EVENT_TYPE_COUNT), aCount.get ());
+
+      aSW.restart ();
+      for (final IEventObserver aObserver : aObservers)
+        assertTrue (aMgr.unregisterObserver (aObserver).isChanged ());
+      final long nUnregisterMillis = aSW.stopAndGetMillis ();
+
+      aCount.set (0);
+      aMgr.triggerSynchronous (new BaseEvent (EV_TYPES[0]));
+      assertEquals (0, aCount.get ());
+
+      LOGGER.info (nObserverCount +
+                   " observers: register " +
+                   nRegisterMillis +
+                   "ms, 100 dispatches " +
+                   nDispatchMillis +
+                   "ms, unregister " +
+                   nUnregisterMillis +
+                   "ms");
+    }
+  }
+
+  @Test
+  public void testScaling1k ()
+  {
+    _testScaling (1_000);
+  }
+
+  @Test
+  public void testScaling10k ()
+  {
+    _testScaling (10_000);
+  }
+
+  @Test
+  public void testScaling100k ()
+  {
+    _testScaling (100_000);
+  }
+
+  @Test
+  public void testConcurrentChurn () throws InterruptedException
+  {
+    final AtomicInteger aStableCount = new AtomicInteger ();
+    final AtomicInteger aChurnCount = new AtomicInteger ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueStriped (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      for (int i = 0; i < 10; ++i)
+        aMgr.registerObserver (new MockCountingObserver (aStableCount, EV_TYPES[0]));
+
+      // Registration churn on other types while dispatching
+      final ExecutorService aES = Executors.newFixedThreadPool (4);
+      for (int t = 0; t < 4; ++t)
+      {
+        final int nThread = t;
+        aES.submit ( () -> {
+          for (int i = 0; i < 5_000; ++i)
+          {
+            final IEventObserver aObserver = new MockCountingObserver (aChurnCount,
+                                                                       EV_TYPES[1 + (i + nThread) % (EVENT_TYPE_COUNT - 1)]);
+            aMgr.registerObserver (aObserver);
+            aMgr.unregisterObserver (aObserver);
+          }
+        });
+      }
+      for (int i = 0; i < 1_000; ++i)
+        aMgr.triggerSynchronous (new BaseEvent (EV_TYPES[0]));
+      aES.shutdown ();
+      assertTrue (aES.awaitTermination (1, TimeUnit.MINUTES));
+
+      assertEquals (10_000, aStableCount.get ());
+      assertEquals (0, aChurnCount.get ());
+      assertEquals (10 + 4 * 5_000 * 2, aMgr.getRegistrationVersion ());
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.observerqueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.event.BaseEvent;
+import com.helger.event.EventTypeRegistry;
+import com.helger.event.IEvent;
+import com.helger.event.IEventType;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observer.AbstractEventObserver;
+import com.helger.event.observer.EEventObserverHandlerType;
+import com.helger.event.observer.IEventObserver;
+
+/**
+ * Test class for class {@link EventObserverQueueTypeIndexed}.
+ *
+ * @author Philip Helger
+ */
+public final class EventObserverQueueTypeIndexedTest
+{
+  private static final IEventType EV_TYPE1 = EventTypeRegistry.createEventType (EventObserverQueueTypeIndexedTest.class.getName () +
+                                                                                ".1");
+  private static final IEventType EV_TYPE2 = EventTypeRegistry.createEventType (EventObserverQueueTypeIndexedTest.class.getName () +
+                                                                                ".2");
+
+  private static final class MockCountingObserver extends AbstractEventObserver
+  {
+    private final AtomicInteger m_aCount;
+
+    public MockCountingObserver (@Nonnull final AtomicInteger aCount, @Nonnull final IEventType... aEventTypes)
+    {
+      super (false, aEventTypes);
+      m_aCount = aCount;
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  private static final class MockCustomObserver implements IEventObserver
+  {
+    private final AtomicInteger m_aCount;
+
+    public MockCustomObserver (@Nonnull final AtomicInteger aCount)
+    {
+      m_aCount = aCount;
+    }
+
+    @Nonnull
+    public EEventObserverHandlerType canHandleEvent (@Nonnull final IEvent aEvent)
+    {
+      return EEventObserverHandlerType.handleNoReturnIfMatches (aEvent, EV_TYPE2);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    final EventObserverQueueTypeIndexed aQueue = new EventObserverQueueTypeIndexed ();
+    assertTrue (aQueue.isEmpty ());
+
+    final IEventObserver o1 = new MockCountingObserver (aCount, EV_TYPE1);
+    final IEventObserver o2 = new MockCustomObserver (aCount);
+    final IEventObserver o3 = new MockCountingObserver (aCount, EV_TYPE1, EV_TYPE2);
+    final IEventObserver o4 = new MockCountingObserver (aCount, EV_TYPE2);
+    assertTrue (aQueue.addObserver (o1).isChanged ());
+    assertTrue (aQueue.addObserver (o2).isChanged ());
+    assertTrue (aQueue.addObserver (o3).isChanged ());
+    assertTrue (aQueue.addObserver (o4).isChanged ());
+    assertFalse (aQueue.addObserver (o1).isChanged ());
+    assertFalse (aQueue.isEmpty ());
+
+    // Registration order is maintained
+    assertEquals (new CommonsArrayList <> (o1, o2, o3, o4), aQueue.getAllObservers ());
+    assertEquals (new CommonsArrayList <> (o1, o2, o3), aQueue.getAllObservers (EV_TYPE1));
+    assertEquals (new CommonsArrayList <> (o2, o3, o4), aQueue.getAllObservers (EV_TYPE2));
+
+    assertTrue (aQueue.removeObserver (o3).isChanged ());
+    assertFalse (aQueue.removeObserver (o3).isChanged ());
+    assertEquals (new CommonsArrayList <> (o1, o2), aQueue.getAllObservers (EV_TYPE1));
+    assertEquals (new CommonsArrayList <> (o2, o4), aQueue.getAllObservers (EV_TYPE2));
+
+    assertTrue (aQueue.removeObserver (o2).isChanged ());
+    assertEquals (new CommonsArrayList <> (o1), aQueue.getAllObservers (EV_TYPE1));
+  }
+
+  @Test
+  public void testDispatch ()
+  {
+    final AtomicInteger aCount = new AtomicInteger ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueTypeIndexed (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      for (int i = 0; i < 100; ++i)
+        aMgr.registerObserver (new MockCountingObserver (aCount, EV_TYPE1));
+      aMgr.registerObserver (new MockCustomObserver (aCount));
+
+      aMgr.triggerSynchronous (new BaseEvent (EV_TYPE1));
+      assertEquals (100, aCount.get ());
+
+      aMgr.triggerSynchronous (new BaseEvent (EV_TYPE2));
+      assertEquals (101, aCount.get ());
+    }
+  }
+}
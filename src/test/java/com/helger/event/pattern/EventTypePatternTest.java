@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2015-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.event.pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.event.BaseEvent;
+import com.helger.event.IEvent;
+import com.helger.event.dispatch.async.AsynchronousEventDispatcher;
+import com.helger.event.dispatch.sync.SynchronousEventDispatcher;
+import com.helger.event.helper.crud.CRUDEventType;
+import com.helger.event.helper.crud.EEventCRUD;
+import com.helger.event.helper.crud.EEventPointInTime;
+import com.helger.event.mgr.EventManager;
+import com.helger.event.observerqueue.EventObserverQueueTypeIndexed;
+
+/**
+ * Test class for class {@link EventTypePattern} and
+ * {@link EventTypePatternTrie}.
+ *
+ * @author Philip Helger
+ */
+public final class EventTypePatternTest
+{
+  private static final class MockCountingObserver extends AbstractPatternEventObserver
+  {
+    private final AtomicInteger m_aCount;
+
+    public MockCountingObserver (@Nonnull final AtomicInteger aCount, @Nonnull final String... aPatterns)
+    {
+      super (false, aPatterns);
+      m_aCount = aCount;
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent, @Nullable final Consumer <Object> aResultConsumer)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  @Test
+  public void testMatches ()
+  {
+    EventTypePattern p = new EventTypePattern ("orders.created");
+    assertFalse (p.hasWildcard ());
+    assertTrue (p.matches ("orders.created"));
+    assertFalse (p.matches ("orders.deleted"));
+
+    p = new EventTypePattern ("orders.*");
+    assertTrue (p.hasWildcard ());
+    assertTrue (p.matches ("orders.created"));
+    assertFalse (p.matches ("orders"));
+    assertFalse (p.matches ("orders.item.created"));
+
+    p = new EventTypePattern ("orders.#");
+    assertTrue (p.matches ("orders"));
+    assertTrue (p.matches ("orders.created"));
+    assertTrue (p.matches ("orders.item.created"));
+    assertFalse (p.matches ("customers.created"));
+
+    p = new EventTypePattern ("*.after.*");
+    assertTrue (p.matches ("base.after.create"));
+    assertFalse (p.matches ("base.before.create"));
+    assertFalse (p.matches ("a.base.after.create"));
+
+    p = new EventTypePattern ("#.create");
+    assertTrue (p.matches ("create"));
+    assertTrue (p.matches ("base.before.create"));
+    assertFalse (p.matches ("base.before.delete"));
+  }
+
+  @Test
+  public void testTrie ()
+  {
+    final EventTypePatternTrie <String> aTrie = new EventTypePatternTrie <> ();
+    assertTrue (aTrie.isEmpty ());
+    aTrie.add (new EventTypePattern ("orders.*"), "a");
+    aTrie.add (new EventTypePattern ("orders.#"), "b");
+    aTrie.add (new EventTypePattern ("*.after.*"), "c");
+    aTrie.add (new EventTypePattern ("#.create"), "d");
+    aTrie.add (new EventTypePattern ("orders.after.create"), "e");
+    aTrie.add (new EventTypePattern ("#"), "f");
+    aTrie.add (new EventTypePattern ("#.after.#"), "c");
+    assertEquals (7, aTrie.getPatternValueCount ());
+
+    assertEquals (new CommonsLinkedHashSet <> ("f", "b", "d", "c", "e"), aTrie.getAllMatching ("orders.after.create"));
+    assertEquals (new CommonsLinkedHashSet <> ("f", "b", "a"), aTrie.getAllMatching ("orders.created"));
+    assertEquals (new CommonsLinkedHashSet <> ("f", "b"), aTrie.getAllMatching ("orders"));
+    assertEquals (new CommonsLinkedHashSet <> ("f", "c"), aTrie.getAllMatching ("x.y.after.z"));
+
+    assertTrue (aTrie.remove (new EventTypePattern ("#"), "f").isChanged ());
+    assertFalse (aTrie.remove (new EventTypePattern ("#"), "f").isChanged ());
+    assertFalse (aTrie.remove (new EventTypePattern ("orders.*"), "b").isChanged ());
+    assertEquals (new CommonsLinkedHashSet <> ("b"), aTrie.getAllMatching ("orders"));
+    assertEquals (6, aTrie.getPatternValueCount ());
+  }
+
+  @Test
+  public void testDispatch ()
+  {
+    final AtomicInteger aAfterCount = new AtomicInteger ();
+    final AtomicInteger aCreateCount = new AtomicInteger ();
+    final AtomicInteger aOrdersCount = new AtomicInteger ();
+    try (final EventManager aMgr = new EventManager (new EventObserverQueueTypeIndexed (),
+                                                     new SynchronousEventDispatcher (null),
+                                                     new AsynchronousEventDispatcher (null)))
+    {
+      aMgr.registerObserver (new MockCountingObserver (aAfterCount, "*.after.*"));
+      aMgr.registerObserver (new MockCountingObserver (aCreateCount, "#.create"));
+      final MockCountingObserver aOrdersObserver = new MockCountingObserver (aOrdersCount, "orders.#");
+      aMgr.registerObserver (aOrdersObserver);
+
+      for (final String sBaseName : new CommonsArrayList <> ("orders", "customers"))
+        for (final EEventPointInTime ePIT : EEventPointInTime.values ())
+          for (final EEventCRUD eCRUD : EEventCRUD.values ())
+            aMgr.triggerSynchronous (new BaseEvent (new CRUDEventType (sBaseName, ePIT, eCRUD)));
+
+      final int nCRUDCount = EEventCRUD.values ().length;
+      assertEquals (2 * nCRUDCount, aAfterCount.get ());
+      assertEquals (4, aCreateCount.get ());
+      assertEquals (2 * nCRUDCount, aOrdersCount.get ());
+
+      // Unregistering must invalidate the cached matches
+      aMgr.unregisterObserver (aOrdersObserver);
+      aMgr.triggerSynchronous (new BaseEvent (new CRUDEventType ("orders", EEventPointInTime.AFTER, EEventCRUD.CREATE)));
+      assertEquals (2 * nCRUDCount, aOrdersCount.get ());
+      assertEquals (2 * nCRUDCount + 1, aAfterCount.get ());
+      assertEquals (5, aCreateCount.get ());
+    }
+  }
+}
@@ -19,6 +19,8 @@ package com.helger.event.scopes;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
@@ -99,6 +101,31 @@ public final class ScopedEventManagerTest
     }
   }
 
+  @Test
+  public void testSendAsyncStage () throws Exception
+  {
+    final MockCountingObserver aGlobal = new MockCountingObserver ();
+    final MockCountingObserver aRequest = new MockCountingObserver ();
+    assertTrue (ScopedEventManager.registerObserver (EScope.GLOBAL, aGlobal).isChanged ());
+    assertTrue (ScopedEventManager.registerObserver (EScope.REQUEST, aRequest).isChanged ());
+    try
+    {
+      // No need to wait - the stage completes after all observers
+      ScopedEventManager.triggerAsynchronousStage (new BaseEvent (MockCountingObserver.TOPIC))
+                        .toCompletableFuture ()
+                        .get (5, TimeUnit.SECONDS);
+
+      assertEquals (1, aGlobal.getInvocationCount ());
+      assertEquals (1, aRequest.getInvocationCount ());
+    }
+    finally
+    {
+      // unregister
+      assertTrue (ScopedEventManager.unregisterObserver (EScope.GLOBAL, aGlobal).isChanged ());
+      assertTrue (ScopedEventManager.unregisterObserver (EScope.REQUEST, aRequest).isChanged ());
+    }
+  }
+
   @Test
   public void testUnregister ()
   {